@@ -0,0 +1,204 @@
+package se.ivankrizsan.springdata.dynamodb.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.CircleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.RectangleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.CompactIdGenerator;
+import se.ivankrizsan.springdata.dynamodb.support.MapperItemConverter;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of converting shapes to and from DynamoDB items using the table models of
+ * the DynamoDB mapper and using the precompiled shape marshallers.
+ * Items contain the attributes of the shape classes as well as the attributes inherited from
+ * {@code Shape} and {@code EntityWithStringId}, including the last update time which is
+ * converted from a Joda date-time to a number.
+ * No DynamoDB instance is needed, since converting entities does not issue any requests.
+ *
+ * @author Ivan Krizsan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallingBenchmarks {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected DynamoDBMapperTableModel<Circle> mCircleTableModel;
+    protected DynamoDBMapperTableModel<Rectangle> mRectangleTableModel;
+    protected MapperItemConverter mItemConverter;
+    protected CircleMarshaller mCircleMarshaller;
+    protected RectangleMarshaller mRectangleMarshaller;
+    protected Circle mCircle;
+    protected Rectangle mRectangle;
+    protected Map<String, AttributeValue> mCircleItem;
+    protected Map<String, AttributeValue> mRectangleItem;
+
+    /**
+     * Creates the table models and the shapes and items to convert.
+     * The DynamoDB client of the mapper is never invoked.
+     */
+    @Setup
+    public void setup() {
+        final DynamoDBMapper theDynamoDBMapper = new DynamoDBMapper(new AbstractAmazonDynamoDB() {});
+        mCircleTableModel = theDynamoDBMapper.getTableModel(Circle.class);
+        mRectangleTableModel = theDynamoDBMapper.getTableModel(Rectangle.class);
+        mItemConverter = new MapperItemConverter(theDynamoDBMapper, DynamoDBMapperConfig.DEFAULT);
+        mCircleMarshaller = new CircleMarshaller();
+        mRectangleMarshaller = new RectangleMarshaller();
+
+        mCircle = new Circle();
+        mCircle.setId(CompactIdGenerator.newId());
+        mCircle.setLastUpdateTime(DateTime.now());
+        mCircle.setPosition(12, 34);
+        mCircle.setColour("blue");
+        mCircle.setRadius(56);
+
+        mRectangle = new Rectangle();
+        mRectangle.setId(CompactIdGenerator.newId());
+        mRectangle.setLastUpdateTime(DateTime.now());
+        mRectangle.setPosition(12, 34);
+        mRectangle.setColour("red");
+        mRectangle.setHeight(56);
+        mRectangle.setWidth(78);
+
+        mCircleItem = mCircleTableModel.convert(mCircle);
+        mRectangleItem = mRectangleTableModel.convert(mRectangle);
+    }
+
+    /**
+     * Converts a circle to a DynamoDB item.
+     *
+     * @return Item.
+     */
+    @Benchmark
+    public Map<String, AttributeValue> marshalCircle() {
+        return mCircleTableModel.convert(mCircle);
+    }
+
+    /**
+     * Converts a DynamoDB item to a circle.
+     *
+     * @return Circle.
+     */
+    @Benchmark
+    public Circle unmarshalCircle() {
+        return mCircleTableModel.unconvert(mCircleItem);
+    }
+
+    /**
+     * Converts a rectangle to a DynamoDB item.
+     *
+     * @return Item.
+     */
+    @Benchmark
+    public Map<String, AttributeValue> marshalRectangle() {
+        return mRectangleTableModel.convert(mRectangle);
+    }
+
+    /**
+     * Converts a DynamoDB item to a rectangle.
+     *
+     * @return Rectangle.
+     */
+    @Benchmark
+    public Rectangle unmarshalRectangle() {
+        return mRectangleTableModel.unconvert(mRectangleItem);
+    }
+
+    /**
+     * Converts a circle to a DynamoDB item in the same way as when circles are batch written,
+     * which includes generating a new last update time.
+     *
+     * @return Item.
+     */
+    @Benchmark
+    public Map<String, AttributeValue> marshalCircleWithAutoGeneratedAttributes() {
+        return mItemConverter.toItem(mCircle);
+    }
+
+    /**
+     * Converts a circle to a DynamoDB item using the precompiled circle marshaller,
+     * which includes generating a new last update time.
+     *
+     * @return Item.
+     */
+    @Benchmark
+    public Map<String, AttributeValue> marshalCircleCompiled() {
+        return mCircleMarshaller.marshall(mCircle);
+    }
+
+    /**
+     * Converts a DynamoDB item to a circle using the precompiled circle marshaller.
+     *
+     * @return Circle.
+     */
+    @Benchmark
+    public Circle unmarshalCircleCompiled() {
+        return mCircleMarshaller.unmarshall(mCircleItem);
+    }
+
+    /**
+     * Converts a rectangle to a DynamoDB item using the precompiled rectangle marshaller,
+     * which includes generating a new last update time.
+     *
+     * @return Item.
+     */
+    @Benchmark
+    public Map<String, AttributeValue> marshalRectangleCompiled() {
+        return mRectangleMarshaller.marshall(mRectangle);
+    }
+
+    /**
+     * Converts a DynamoDB item to a rectangle using the precompiled rectangle marshaller.
+     *
+     * @return Rectangle.
+     */
+    @Benchmark
+    public Rectangle unmarshalRectangleCompiled() {
+        return mRectangleMarshaller.unmarshall(mRectangleItem);
+    }
+
+    /**
+     * Generates a random UUID string, as generated for auto-generated keys by the DynamoDB mapper.
+     *
+     * @return Id.
+     */
+    @Benchmark
+    public String generateUuidId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Generates a compact, time-ordered id, as generated for new entities.
+     *
+     * @return Id.
+     */
+    @Benchmark
+    public String generateCompactId() {
+        return CompactIdGenerator.newId();
+    }
+}
@@ -0,0 +1,226 @@
+package se.ivankrizsan.springdata.dynamodb.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.ivankrizsan.springdata.dynamodb.demo.PersistenceConfiguration;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks of circle repository operations.
+ * Operations are performed against the DynamoDB instance at the endpoint configured in
+ * the application properties, which by default is a DynamoDB Local instance on localhost.
+ * Another endpoint can be supplied to the forked benchmark JVM, for example using the JMH option
+ * {@code -jvmArgsAppend -Damazon.dynamodb.endpoint=http://somehost:8000}.
+ * The circles table is populated with a fixed number of circles before the benchmarks are run.
+ * Saved circles overwrite existing circles, so that the size of the table does not change
+ * during a benchmark run.
+ *
+ * @author Ivan Krizsan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmarks {
+    /* Constant(s): */
+    protected final static int TABLE_CIRCLES_COUNT = 1000;
+    protected final static int SAVED_CIRCLES_COUNT = 100;
+    protected final static int LOOKUP_CIRCLES_COUNT = 100;
+    protected final static String[] COLOURS = { "red", "green", "blue", "purple", "black", "white" };
+
+    /* Instance variable(s): */
+    protected ConfigurableApplicationContext mApplicationContext;
+    protected CirclesRepository mCirclesRepository;
+    protected DynamoDBMapper mDynamoDBMapper;
+    /** Circles that are saved by the save benchmarks. */
+    protected List<Circle> mSavedCircles;
+    /** Ids of circles that are looked up by the lookup benchmarks. */
+    protected List<String> mLookupCircleIds;
+    protected int mNextLookupIndex;
+
+    /**
+     * Starts the persistence configuration, with the entity cache enabled, and populates the circles table.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        mApplicationContext = new SpringApplicationBuilder(PersistenceConfiguration.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .run("--amazon.dynamodb.cache.enabled=true");
+        mCirclesRepository = mApplicationContext.getBean(CirclesRepository.class);
+        mDynamoDBMapper = mApplicationContext.getBean(DynamoDBMapper.class);
+        mCirclesRepository.deleteAll();
+
+        final List<Circle> theCircles = new ArrayList<>();
+        for (int i = 0; i < TABLE_CIRCLES_COUNT; i++) {
+            final Circle theCircle = new Circle();
+            theCircle.setPosition(i, -i);
+            theCircle.setColour(COLOURS[i % COLOURS.length]);
+            theCircle.setRadius(i % 100 + 1);
+            theCircles.add(theCircle);
+        }
+        mCirclesRepository.saveAll(theCircles);
+
+        mSavedCircles = new ArrayList<>(theCircles.subList(0, SAVED_CIRCLES_COUNT));
+        mLookupCircleIds = new ArrayList<>();
+        for (Circle theCircle : theCircles.subList(SAVED_CIRCLES_COUNT, SAVED_CIRCLES_COUNT + LOOKUP_CIRCLES_COUNT)) {
+            mLookupCircleIds.add(theCircle.getId());
+        }
+    }
+
+    /**
+     * Deletes the circles and closes the persistence configuration.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mCirclesRepository.deleteAll();
+        mApplicationContext.close();
+    }
+
+    /**
+     * Saves a number of circles one by one.
+     *
+     * @param inBlackhole Consumes saved circles.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAVED_CIRCLES_COUNT)
+    public void saveSingly(final Blackhole inBlackhole) {
+        for (Circle theCircle : mSavedCircles) {
+            inBlackhole.consume(mCirclesRepository.save(theCircle));
+        }
+    }
+
+    /**
+     * Moves a number of circles one by one, writing only their positions using partial updates.
+     * Compare with {@link #saveSingly(Blackhole)}, which rewrites the entire circles.
+     *
+     * @param inBlackhole Consumes moved circles.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAVED_CIRCLES_COUNT)
+    public void moveSingly(final Blackhole inBlackhole) {
+        for (Circle theCircle : mSavedCircles) {
+            inBlackhole.consume(mCirclesRepository.updatePosition(theCircle, theCircle.getY(), theCircle.getX()));
+        }
+    }
+
+    /**
+     * Saves a number of circles in batches.
+     *
+     * @return Saved circles.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAVED_CIRCLES_COUNT)
+    public Iterable<Circle> saveBatched() {
+        return mCirclesRepository.saveAll(mSavedCircles);
+    }
+
+    /**
+     * Retrieves all circles by scanning the circles table sequentially using the DynamoDB mapper,
+     * which is the baseline for the parallel scan and the query benchmarks.
+     * Result lists are lazily loaded, so all circles are retrieved by determining the size of the list.
+     *
+     * @return Number of circles.
+     */
+    @Benchmark
+    public int scan() {
+        return mDynamoDBMapper.scan(Circle.class, new DynamoDBScanExpression()).size();
+    }
+
+    /**
+     * Retrieves all circles by scanning segments of the circles table in parallel using the repository.
+     * Compare with {@link #scan()}.
+     *
+     * @return Number of circles.
+     */
+    @Benchmark
+    public long scanInParallel() {
+        try (Stream<Circle> theCircles = mCirclesRepository.findAllAsStream()) {
+            return theCircles.count();
+        }
+    }
+
+    /**
+     * Retrieves the circles with one colour by querying the global secondary index on colour.
+     *
+     * @return Number of circles with colour.
+     */
+    @Benchmark
+    public int queryByColour() {
+        return mCirclesRepository.findCirclesByColour(COLOURS[0]).size();
+    }
+
+    /**
+     * Retrieves the circles with one colour by scanning the circles table and filtering on colour.
+     *
+     * @return Number of circles with colour.
+     */
+    @Benchmark
+    public int scanByColour() {
+        return mDynamoDBMapper.scan(
+            Circle.class,
+            new DynamoDBScanExpression()
+                .withFilterExpression("colour = :colour")
+                .withExpressionAttributeValues(Map.of(":colour", new AttributeValue(COLOURS[0]))))
+            .size();
+    }
+
+    /**
+     * Looks up a circle by id using the repository, which after warmup is served from the entity cache.
+     *
+     * @return Optional containing circle.
+     */
+    @Benchmark
+    public Optional<Circle> findByIdCached() {
+        return mCirclesRepository.findById(nextLookupId());
+    }
+
+    /**
+     * Looks up a circle by id using the DynamoDB mapper, bypassing the entity cache.
+     *
+     * @return Circle.
+     */
+    @Benchmark
+    public Circle findByIdUncached() {
+        return mDynamoDBMapper.load(Circle.class, nextLookupId());
+    }
+
+    /**
+     * Retrieves the id of the next circle to look up, cycling through the lookup circles.
+     *
+     * @return Circle id.
+     */
+    protected String nextLookupId() {
+        mNextLookupIndex = (mNextLookupIndex + 1) % mLookupCircleIds.size();
+        return mLookupCircleIds.get(mNextLookupIndex);
+    }
+}
@@ -0,0 +1,507 @@
+package se.ivankrizsan.springdata.dynamodb.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+import se.ivankrizsan.springdata.dynamodb.repositories.RectanglesRepository;
+import se.ivankrizsan.springdata.dynamodb.support.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates a configurable mix of repository operations on circles and rectangles and measures
+ * the latency of each operation, so that the capacity of the persistence layer can be tested.
+ * Operations are started at a fixed target rate by a fixed number of worker threads, each operation
+ * at its intended start time according to the rate. The response time of an operation is measured
+ * from its intended start time rather than from when a worker thread got around to starting it, so
+ * that operations delayed by slow preceding operations are measured as delayed instead of being
+ * silently omitted; this avoids coordinated omission. The service time, measured from the actual start
+ * of an operation, is recorded as well. If no target rate is set, operations are started as fast as
+ * the worker threads can execute them and response times equal service times.
+ * Operations on existing shapes address a fixed set of preloaded shapes, chosen according to a Zipf
+ * distribution so that the load can be skewed towards a few hot shapes. Saves also address the preloaded
+ * shapes, so that the tables do not grow during a run: a save reads the shape, assigns it a new random
+ * colour, position and size and writes it with its version, so the measured latency includes the read.
+ * Concurrent saves of the same shape fail with an optimistic locking failure and are counted as errors.
+ * Operations started during the warm-up period are executed but not measured.
+ *
+ * @author Ivan Krizsan
+ */
+public class LoadGenerator {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+    protected static final String[] COLOURS = {"red", "green", "blue", "yellow", "black"};
+    protected static final int PRELOAD_BATCH_SIZE = 1000;
+    protected static final int MAX_COORDINATE = 1000;
+    protected static final double[] REPORTED_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    /**
+     * Repository operations generated by the load generator.
+     */
+    public enum Operation {
+        /** Reads, modifies and saves a preloaded circle or rectangle. */
+        SAVE,
+        /** Finds a preloaded circle or rectangle by id. */
+        FIND_BY_ID,
+        /** Finds all circles or rectangles, scanning the table. */
+        FIND_ALL,
+        /** Finds the circles of a colour using the colour index. */
+        FIND_BY_COLOUR
+    }
+
+    /**
+     * Latencies and errors of the executions of one operation.
+     * Latencies are recorded in nanoseconds.
+     */
+    public static class OperationStatistics {
+        /* Instance variable(s): */
+        protected final LatencyHistogram mResponseTimes = new LatencyHistogram();
+        protected final LatencyHistogram mServiceTimes = new LatencyHistogram();
+        protected final LongAdder mErrors = new LongAdder();
+
+        /**
+         * Retrieves the response times, measured from the intended start times of operations.
+         *
+         * @return Response time histogram.
+         */
+        public LatencyHistogram getResponseTimes() {
+            return mResponseTimes;
+        }
+
+        /**
+         * Retrieves the service times, measured from the actual start times of operations.
+         *
+         * @return Service time histogram.
+         */
+        public LatencyHistogram getServiceTimes() {
+            return mServiceTimes;
+        }
+
+        /**
+         * Retrieves the number of operations that failed.
+         *
+         * @return Number of failed operations.
+         */
+        public long getErrors() {
+            return mErrors.sum();
+        }
+    }
+
+    /* Instance variable(s): */
+    protected final CirclesRepository mCirclesRepository;
+    protected final RectanglesRepository mRectanglesRepository;
+    protected final Operation[] mOperations;
+    /** Cumulative weights of the operations, in the order of the operations. */
+    protected final int[] mCumulativeOperationWeights;
+    protected final int mConcurrency;
+    protected final double mTargetRate;
+    protected final int mItemCount;
+    /** Cumulative probabilities of the preloaded shapes being addressed, in the order of the shapes. */
+    protected final double[] mCumulativeItemProbabilities;
+    protected final long mWarmupMillis;
+    protected final long mDurationMillis;
+
+    /**
+     * Creates a load generator.
+     *
+     * @param inCirclesRepository Circles repository.
+     * @param inRectanglesRepository Rectangles repository.
+     * @param inOperationMix Relative weights of the operations to generate.
+     * @param inConcurrency Number of worker threads executing operations.
+     * @param inTargetRate Number of operations to start per second, zero to start operations as fast as possible.
+     * @param inItemCount Number of preloaded circles and rectangles each addressed by operations.
+     * @param inKeySkew Exponent of the Zipf distribution according to which preloaded shapes are chosen,
+     * zero for a uniform distribution. Around one, a small number of shapes receive most operations.
+     * @param inWarmupMillis Duration of the warm-up period during which operations are not measured.
+     * @param inDurationMillis Duration of the measurement period.
+     */
+    public LoadGenerator(
+        final CirclesRepository inCirclesRepository,
+        final RectanglesRepository inRectanglesRepository,
+        final Map<Operation, Integer> inOperationMix,
+        final int inConcurrency,
+        final double inTargetRate,
+        final int inItemCount,
+        final double inKeySkew,
+        final long inWarmupMillis,
+        final long inDurationMillis) {
+        Assert.isTrue(inConcurrency > 0, "The concurrency must be positive");
+        Assert.isTrue(inTargetRate >= 0.0, "The target rate must not be negative");
+        Assert.isTrue(inItemCount > 0, "The item count must be positive");
+        Assert.isTrue(inKeySkew >= 0.0, "The key skew must not be negative");
+        Assert.isTrue(inWarmupMillis >= 0, "The warm-up duration must not be negative");
+        Assert.isTrue(inDurationMillis > 0, "The duration must be positive");
+        mCirclesRepository = inCirclesRepository;
+        mRectanglesRepository = inRectanglesRepository;
+        mConcurrency = inConcurrency;
+        mTargetRate = inTargetRate;
+        mItemCount = inItemCount;
+        mWarmupMillis = inWarmupMillis;
+        mDurationMillis = inDurationMillis;
+
+        final List<Operation> theOperations = new ArrayList<>();
+        final List<Integer> theCumulativeWeights = new ArrayList<>();
+        int theTotalWeight = 0;
+        for (Map.Entry<Operation, Integer> theEntry : new EnumMap<>(inOperationMix).entrySet()) {
+            Assert.isTrue(theEntry.getValue() >= 0, "Operation weights must not be negative");
+            if (theEntry.getValue() > 0) {
+                theTotalWeight += theEntry.getValue();
+                theOperations.add(theEntry.getKey());
+                theCumulativeWeights.add(theTotalWeight);
+            }
+        }
+        Assert.isTrue(theTotalWeight > 0, "The operation mix must contain at least one operation");
+        mOperations = theOperations.toArray(new Operation[0]);
+        mCumulativeOperationWeights = theCumulativeWeights.stream().mapToInt(Integer::intValue).toArray();
+
+        mCumulativeItemProbabilities = new double[inItemCount];
+        double theCumulativeProbability = 0.0;
+        for (int theItem = 0; theItem < inItemCount; theItem++) {
+            theCumulativeProbability += 1.0 / Math.pow(theItem + 1, inKeySkew);
+            mCumulativeItemProbabilities[theItem] = theCumulativeProbability;
+        }
+        for (int theItem = 0; theItem < inItemCount; theItem++) {
+            mCumulativeItemProbabilities[theItem] /= theCumulativeProbability;
+        }
+    }
+
+    /**
+     * Parses an operation mix from a comma-separated list of operation names and weights,
+     * for example "SAVE:10,FIND_BY_ID:90". Operation names are case-insensitive.
+     *
+     * @param inOperationMix Operation mix string.
+     * @return Operation weights.
+     * @throws IllegalArgumentException If the string is malformed or contains an unknown operation.
+     */
+    public static Map<Operation, Integer> parseOperationMix(final String inOperationMix) {
+        Assert.hasText(inOperationMix, "The operation mix must not be empty");
+        final Map<Operation, Integer> theOperationMix = new EnumMap<>(Operation.class);
+        for (String theEntry : inOperationMix.split(",")) {
+            final String[] theParts = theEntry.trim().split(":");
+            Assert.isTrue(theParts.length == 2, "Malformed operation mix entry: " + theEntry);
+            theOperationMix.put(
+                Operation.valueOf(theParts[0].trim().toUpperCase(Locale.ROOT)),
+                Integer.parseInt(theParts[1].trim()));
+        }
+        return theOperationMix;
+    }
+
+    /**
+     * Saves the circles and rectangles addressed by operations, replacing any existing shapes
+     * with the same ids.
+     */
+    public void preload() {
+        LOGGER.info("Preloading {} circles and {} rectangles", mItemCount, mItemCount);
+        for (int theFirstItem = 0; theFirstItem < mItemCount; theFirstItem += PRELOAD_BATCH_SIZE) {
+            final int theLastItem = Math.min(mItemCount, theFirstItem + PRELOAD_BATCH_SIZE);
+            final List<Circle> theCircles = new ArrayList<>();
+            final List<Rectangle> theRectangles = new ArrayList<>();
+            for (int theItem = theFirstItem; theItem < theLastItem; theItem++) {
+                theCircles.add(createCircle(circleId(theItem)));
+                theRectangles.add(createRectangle(rectangleId(theItem)));
+            }
+            mCirclesRepository.saveAll(theCircles);
+            mRectanglesRepository.saveAll(theRectangles);
+        }
+    }
+
+    /**
+     * Generates load for the warm-up period and the measurement period and returns the statistics
+     * of the operations started during the measurement period.
+     *
+     * @return Statistics of each operation in the operation mix.
+     */
+    public Map<Operation, OperationStatistics> run() {
+        final Map<Operation, OperationStatistics> theStatistics = new EnumMap<>(Operation.class);
+        for (Operation theOperation : mOperations) {
+            theStatistics.put(theOperation, new OperationStatistics());
+        }
+        final long theIntervalNanos = mTargetRate > 0.0 ? Math.max(1L, Math.round(1.0e9 / mTargetRate)) : 0L;
+        final long theStartNanos = System.nanoTime();
+        final long theMeasurementStartNanos = theStartNanos + TimeUnit.MILLISECONDS.toNanos(mWarmupMillis);
+        final long theEndNanos = theMeasurementStartNanos + TimeUnit.MILLISECONDS.toNanos(mDurationMillis);
+        final AtomicLong theNextSequenceNumber = new AtomicLong();
+
+        final Callable<Void> theWorker = () -> {
+            while (true) {
+                final long theSequenceNumber = theNextSequenceNumber.getAndIncrement();
+                final long theIntendedStartNanos = theIntervalNanos > 0
+                    ? theStartNanos + theSequenceNumber * theIntervalNanos
+                    : System.nanoTime();
+                if (theIntendedStartNanos - theEndNanos >= 0) {
+                    return null;
+                }
+                long theDelayNanos;
+                while ((theDelayNanos = theIntendedStartNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(theDelayNanos);
+                }
+
+                final Operation theOperation = nextOperation();
+                final long theActualStartNanos = System.nanoTime();
+                final boolean theSuccess = execute(theOperation);
+                final long theCompletionNanos = System.nanoTime();
+                if (theIntendedStartNanos - theMeasurementStartNanos >= 0) {
+                    final OperationStatistics theOperationStatistics = theStatistics.get(theOperation);
+                    theOperationStatistics.mResponseTimes.record(theCompletionNanos - theIntendedStartNanos);
+                    theOperationStatistics.mServiceTimes.record(theCompletionNanos - theActualStartNanos);
+                    if (!theSuccess) {
+                        theOperationStatistics.mErrors.increment();
+                    }
+                }
+            }
+        };
+
+        LOGGER.info("Generating load with {} workers at {} operations per second for {} ms after {} ms warm-up",
+            mConcurrency, mTargetRate > 0.0 ? mTargetRate : "maximum", mDurationMillis, mWarmupMillis);
+        final ExecutorService theExecutor =
+            Executors.newFixedThreadPool(mConcurrency, new CustomizableThreadFactory("load-generator-"));
+        try {
+            for (Future<Void> theFuture : theExecutor.invokeAll(Collections.nCopies(mConcurrency, theWorker))) {
+                theFuture.get();
+            }
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException theException) {
+            throw new IllegalStateException("Load generator worker failed", theException.getCause());
+        } finally {
+            theExecutor.shutdownNow();
+        }
+        return theStatistics;
+    }
+
+    /**
+     * Formats a report of the supplied statistics containing, for each operation, the number of
+     * operations, the throughput, response time percentiles and the number of errors.
+     * The 99th percentile service time is included for comparison with the response times.
+     * Latencies are reported in milliseconds.
+     *
+     * @param inStatistics Operation statistics.
+     * @param inDurationMillis Duration of the measurement period.
+     * @return Report.
+     */
+    public static String formatReport(
+        final Map<Operation, OperationStatistics> inStatistics,
+        final long inDurationMillis) {
+        final StringBuilder theReport = new StringBuilder(String.format(Locale.ROOT,
+            "%-15s %9s %10s %10s %10s %10s %10s %10s %12s %8s%n",
+            "operation", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms", "errors"));
+        inStatistics.forEach((theOperation, theOperationStatistics) -> {
+            final LatencyHistogram theResponseTimes = theOperationStatistics.getResponseTimes();
+            final long theCount = theResponseTimes.count();
+            theReport.append(String.format(Locale.ROOT, "%-15s %9d %10.1f", theOperation, theCount,
+                theCount * 1000.0 / inDurationMillis));
+            for (double thePercentile : REPORTED_PERCENTILES) {
+                theReport.append(String.format(Locale.ROOT, " %10.2f",
+                    toMillis(theResponseTimes.valueAtPercentile(thePercentile))));
+            }
+            theReport.append(String.format(Locale.ROOT, " %10.2f %12.2f %8d%n",
+                toMillis(theResponseTimes.max()),
+                toMillis(theOperationStatistics.getServiceTimes().valueAtPercentile(99.0)),
+                theOperationStatistics.getErrors()));
+        });
+        return theReport.toString();
+    }
+
+    /**
+     * Executes the supplied operation on circles or rectangles, chosen at random, except for
+     * finding by colour which is only supported by circles.
+     *
+     * @param inOperation Operation to execute.
+     * @return True if the operation succeeded, false if it failed.
+     */
+    protected boolean execute(final Operation inOperation) {
+        final ThreadLocalRandom theRandom = ThreadLocalRandom.current();
+        final boolean theCircles = theRandom.nextBoolean();
+        try {
+            switch (inOperation) {
+                case SAVE:
+                    final int theSavedItem = nextItem();
+                    if (theCircles) {
+                        overwriteCircle(circleId(theSavedItem));
+                    } else {
+                        overwriteRectangle(rectangleId(theSavedItem));
+                    }
+                    break;
+                case FIND_BY_ID:
+                    final int theItem = nextItem();
+                    if (theCircles) {
+                        mCirclesRepository.findById(circleId(theItem));
+                    } else {
+                        mRectanglesRepository.findById(rectangleId(theItem));
+                    }
+                    break;
+                case FIND_ALL:
+                    if (theCircles) {
+                        mCirclesRepository.findAll();
+                    } else {
+                        mRectanglesRepository.findAll();
+                    }
+                    break;
+                case FIND_BY_COLOUR:
+                    mCirclesRepository.findCirclesByColour(COLOURS[theRandom.nextInt(COLOURS.length)]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported operation: " + inOperation);
+            }
+            return true;
+        } catch (final RuntimeException theException) {
+            LOGGER.debug("Operation {} failed", inOperation, theException);
+            return false;
+        }
+    }
+
+    /**
+     * Chooses the next operation to execute according to the operation mix.
+     *
+     * @return Operation.
+     */
+    protected Operation nextOperation() {
+        final int theWeight = ThreadLocalRandom.current()
+            .nextInt(mCumulativeOperationWeights[mCumulativeOperationWeights.length - 1]);
+        for (int theIndex = 0; theIndex < mOperations.length; theIndex++) {
+            if (theWeight < mCumulativeOperationWeights[theIndex]) {
+                return mOperations[theIndex];
+            }
+        }
+        return mOperations[mOperations.length - 1];
+    }
+
+    /**
+     * Chooses the next preloaded shape to address according to the key skew.
+     *
+     * @return Index of preloaded shape.
+     */
+    protected int nextItem() {
+        final int theIndex =
+            Arrays.binarySearch(mCumulativeItemProbabilities, ThreadLocalRandom.current().nextDouble());
+        return Math.min(mItemCount - 1, theIndex >= 0 ? theIndex : -theIndex - 1);
+    }
+
+    /**
+     * Reads the circle with the supplied id, assigns it a random colour, position and radius and
+     * saves it. A circle that does not exist, for instance since the circles were not preloaded,
+     * is created.
+     *
+     * @param inId Circle id.
+     */
+    protected void overwriteCircle(final String inId) {
+        final Circle theCircle = mCirclesRepository.findById(inId).orElseGet(() -> createCircle(inId));
+        randomizeCircle(theCircle);
+        mCirclesRepository.save(theCircle);
+    }
+
+    /**
+     * Reads the rectangle with the supplied id, assigns it a random colour, position and size and
+     * saves it. A rectangle that does not exist, for instance since the rectangles were not preloaded,
+     * is created.
+     *
+     * @param inId Rectangle id.
+     */
+    protected void overwriteRectangle(final String inId) {
+        final Rectangle theRectangle =
+            mRectanglesRepository.findById(inId).orElseGet(() -> createRectangle(inId));
+        randomizeRectangle(theRectangle);
+        mRectanglesRepository.save(theRectangle);
+    }
+
+    /**
+     * Creates a circle with the supplied id and a random colour, position and radius.
+     *
+     * @param inId Circle id.
+     * @return New circle.
+     */
+    protected static Circle createCircle(final String inId) {
+        final Circle theCircle = new Circle();
+        theCircle.setId(inId);
+        randomizeCircle(theCircle);
+        return theCircle;
+    }
+
+    /**
+     * Creates a rectangle with the supplied id and a random colour, position and size.
+     *
+     * @param inId Rectangle id.
+     * @return New rectangle.
+     */
+    protected static Rectangle createRectangle(final String inId) {
+        final Rectangle theRectangle = new Rectangle();
+        theRectangle.setId(inId);
+        randomizeRectangle(theRectangle);
+        return theRectangle;
+    }
+
+    /**
+     * Assigns the supplied circle a random colour, position and radius.
+     *
+     * @param inCircle Circle to modify.
+     */
+    protected static void randomizeCircle(final Circle inCircle) {
+        final ThreadLocalRandom theRandom = ThreadLocalRandom.current();
+        inCircle.setColour(COLOURS[theRandom.nextInt(COLOURS.length)]);
+        inCircle.setPosition(theRandom.nextInt(MAX_COORDINATE), theRandom.nextInt(MAX_COORDINATE));
+        inCircle.setRadius(theRandom.nextInt(1, 100));
+    }
+
+    /**
+     * Assigns the supplied rectangle a random colour, position and size.
+     *
+     * @param inRectangle Rectangle to modify.
+     */
+    protected static void randomizeRectangle(final Rectangle inRectangle) {
+        final ThreadLocalRandom theRandom = ThreadLocalRandom.current();
+        inRectangle.setColour(COLOURS[theRandom.nextInt(COLOURS.length)]);
+        inRectangle.setPosition(theRandom.nextInt(MAX_COORDINATE), theRandom.nextInt(MAX_COORDINATE));
+        inRectangle.setWidth(theRandom.nextInt(1, 100));
+        inRectangle.setHeight(theRandom.nextInt(1, 100));
+    }
+
+    /**
+     * Creates the id of the preloaded circle with the supplied index.
+     *
+     * @param inItem Index of preloaded circle.
+     * @return Circle id.
+     */
+    protected static String circleId(final int inItem) {
+        return "load-circle-" + inItem;
+    }
+
+    /**
+     * Creates the id of the preloaded rectangle with the supplied index.
+     *
+     * @param inItem Index of preloaded rectangle.
+     * @return Rectangle id.
+     */
+    protected static String rectangleId(final int inItem) {
+        return "load-rectangle-" + inItem;
+    }
+
+    /**
+     * Converts the supplied number of nanoseconds to milliseconds.
+     *
+     * @param inNanos Nanoseconds.
+     * @return Milliseconds.
+     */
+    protected static double toMillis(final long inNanos) {
+        return inNanos / 1.0e6;
+    }
+}
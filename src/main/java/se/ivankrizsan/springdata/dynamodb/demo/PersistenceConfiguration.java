@@ -6,12 +6,75 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreamsClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamViewType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.socialsignin.spring.data.dynamodb.repository.config.EnableDynamoDBRepositories;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.repository.Repository;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.EntityWithStringId;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.CircleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.PolymorphicShapeMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.RectangleMarshaller;
 import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+import se.ivankrizsan.springdata.dynamodb.repositories.ShapeAggregates;
+import se.ivankrizsan.springdata.dynamodb.repositories.ShapeSpatialQueryExecutor;
+import se.ivankrizsan.springdata.dynamodb.repositories.ShapesByColourView;
+import se.ivankrizsan.springdata.dynamodb.repositories.ShapesRepository;
+import se.ivankrizsan.springdata.dynamodb.support.AsyncDynamoDBTemplate;
+import se.ivankrizsan.springdata.dynamodb.support.CapacityRateLimiter;
+import se.ivankrizsan.springdata.dynamodb.support.CompiledItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBMetricsRequestHandler;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBSchemaManager;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBStreamCheckpointStore;
+import se.ivankrizsan.springdata.dynamodb.support.HotKeyDetector;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.MapperItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelBatchReader;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelBatchWriter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelScanner;
+import se.ivankrizsan.springdata.dynamodb.support.RepositoryInvocation;
+import se.ivankrizsan.springdata.dynamodb.support.RepositoryMethodMonitor;
+import se.ivankrizsan.springdata.dynamodb.support.SingleTableItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.StreamCheckpointStore;
+import se.ivankrizsan.springdata.dynamodb.support.TableChangeStreamConsumer;
+import se.ivankrizsan.springdata.dynamodb.support.TableSnapshotter;
+import se.ivankrizsan.springdata.dynamodb.support.WriteBehindWriter;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Persistence configuration.
@@ -34,6 +97,94 @@ public class PersistenceConfiguration {
     protected String mDynamoDBTableNamePrefix;
     @Value("${amazon.aws.region}")
     protected String mAWSRegion;
+    @Value("${amazon.dynamodb.batchwrite.concurrency:8}")
+    protected int mBatchWriteConcurrency;
+    @Value("${amazon.dynamodb.batchwrite.maxretries:10}")
+    protected int mBatchWriteMaxRetries;
+    @Value("${amazon.dynamodb.batchwrite.backoff.base:50}")
+    protected long mBatchWriteBaseBackoffMillis;
+    @Value("${amazon.dynamodb.batchwrite.backoff.max:5000}")
+    protected long mBatchWriteMaxBackoffMillis;
+    @Value("${amazon.dynamodb.batchget.concurrency:8}")
+    protected int mBatchGetConcurrency;
+    @Value("${amazon.dynamodb.batchget.maxretries:10}")
+    protected int mBatchGetMaxRetries;
+    @Value("${amazon.dynamodb.batchget.backoff.base:50}")
+    protected long mBatchGetBaseBackoffMillis;
+    @Value("${amazon.dynamodb.batchget.backoff.max:5000}")
+    protected long mBatchGetMaxBackoffMillis;
+    @Value("${amazon.dynamodb.scan.concurrency:8}")
+    protected int mScanConcurrency;
+    @Value("${amazon.dynamodb.scan.bufferedpages:16}")
+    protected int mScanBufferedPages;
+    @Value("${amazon.dynamodb.scan.timeout:60000}")
+    protected long mScanTimeoutMillis;
+    @Value("${amazon.dynamodb.async.maxconcurrency:1000}")
+    protected int mAsyncMaxConcurrency;
+    @Value("${amazon.dynamodb.metrics.consumedcapacity:true}")
+    protected boolean mMetricsRequestConsumedCapacity;
+    @Value("${amazon.dynamodb.scan.segments:4}")
+    protected int mScanSegments;
+    @Value("${amazon.dynamodb.spatial.maxqueries:32}")
+    protected int mSpatialMaxQueries;
+    @Value("${amazon.dynamodb.spatial.concurrency:8}")
+    protected int mSpatialConcurrency;
+    @Value("${amazon.dynamodb.writebehind.capacity:10000}")
+    protected int mWriteBehindCapacity;
+    @Value("${amazon.dynamodb.writebehind.window:100}")
+    protected long mWriteBehindWindowMillis;
+    @Value("${amazon.dynamodb.schema.provision:true}")
+    protected boolean mSchemaProvision;
+    @Value("${amazon.dynamodb.schema.billingmode:PROVISIONED}")
+    protected BillingMode mSchemaBillingMode;
+    @Value("${amazon.dynamodb.schema.readcapacity:10}")
+    protected long mSchemaReadCapacityUnits;
+    @Value("${amazon.dynamodb.schema.writecapacity:10}")
+    protected long mSchemaWriteCapacityUnits;
+    @Value("${amazon.dynamodb.schema.timeout:600000}")
+    protected int mSchemaWaitTimeoutMillis;
+    @Value("${amazon.dynamodb.schema.pollinterval:250}")
+    protected int mSchemaPollIntervalMillis;
+    @Value("${amazon.dynamodb.singletable.enabled:false}")
+    protected boolean mSingleTableEnabled;
+    @Value("${amazon.dynamodb.aggregates.shards:8}")
+    protected int mAggregatesShards;
+    @Value("${amazon.dynamodb.snapshot.maxbatchesinflight:16}")
+    protected int mSnapshotMaxBatchesInFlight;
+    @Value("${amazon.dynamodb.snapshot.maxitemspersecond:0}")
+    protected long mSnapshotMaxItemsPerSecond;
+    @Value("${amazon.dynamodb.ratelimit.enabled:false}")
+    protected boolean mRateLimitEnabled;
+    @Value("${amazon.dynamodb.ratelimit.capacityshare:0.5}")
+    protected double mRateLimitCapacityShare;
+    @Value("${amazon.dynamodb.ratelimit.ondemandcapacity:1000}")
+    protected double mRateLimitOnDemandCapacityUnits;
+    @Value("${amazon.dynamodb.streams.consumername:}")
+    protected String mStreamsConsumerName;
+    @Value("${amazon.dynamodb.streams.nodename:}")
+    protected String mStreamsNodeName;
+    @Value("${amazon.dynamodb.streams.initialposition:LATEST}")
+    protected ShardIteratorType mStreamsInitialPosition;
+    @Value("${amazon.dynamodb.streams.maxrecords:1000}")
+    protected int mStreamsMaxRecordsPerRead;
+    @Value("${amazon.dynamodb.streams.pollinterval:1000}")
+    protected long mStreamsPollIntervalMillis;
+    @Value("${amazon.dynamodb.hotkeys.samplerate:0.1}")
+    protected double mHotKeysSampleRate;
+    @Value("${amazon.dynamodb.hotkeys.topn:10}")
+    protected int mHotKeysReportedKeyCount;
+    @Value("${amazon.dynamodb.hotkeys.share:0.1}")
+    protected double mHotKeysShare;
+    @Value("${amazon.dynamodb.hotkeys.reportinterval:60000}")
+    protected long mHotKeysReportIntervalMillis;
+    @Value("${amazon.dynamodb.scanguard.mode:LOG}")
+    protected RepositoryMethodMonitor.ScanGuardMode mScanGuardMode;
+    @Value("${amazon.dynamodb.scanguard.maxtableitems:10000}")
+    protected long mScanGuardMaxTableItems;
+    @Value("${amazon.dynamodb.scanguard.allowed:}")
+    protected String[] mScanGuardAllowedMethods;
+    @Value("${amazon.dynamodb.scanguard.itemcountttl:300000}")
+    protected long mScanGuardItemCountTimeToLiveMillis;
 
     /**
      * Creates a bean containing basic AWS credentials.
@@ -45,17 +196,125 @@ public class PersistenceConfiguration {
         return new BasicAWSCredentials(mAWSAccessKey, mAWSSecretKey);
     }
 
+    /**
+     * Creates a request handler that records latency, retry, throttling and consumed capacity
+     * metrics of DynamoDB requests, tagged by table and operation.
+     * Metrics are recorded in the application meter registry if there is one, otherwise in
+     * the global Micrometer registry.
+     *
+     * @param inMeterRegistry Provides the application meter registry, if any.
+     * @return DynamoDB metrics request handler bean.
+     */
+    @Bean
+    public DynamoDBMetricsRequestHandler dynamoDBMetricsRequestHandler(
+        final ObjectProvider<MeterRegistry> inMeterRegistry) {
+        return new DynamoDBMetricsRequestHandler(
+            inMeterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+            mMetricsRequestConsumedCapacity);
+    }
+
+    /**
+     * Creates a rate limiter that, if rate limiting is enabled, limits parallel scans and batch
+     * writes to a share of the capacity of tables and adapts their rate to throttling.
+     * The capacity of tables is retrieved lazily from the DynamoDB client, which in turn uses the
+     * rate limiter as a request handler in order to observe throttled requests.
+     *
+     * @param inAmazonDynamoDB Provides the DynamoDB client.
+     * @return Capacity rate limiter bean.
+     */
+    @Bean
+    public CapacityRateLimiter capacityRateLimiter(final ObjectProvider<AmazonDynamoDB> inAmazonDynamoDB) {
+        if (!mRateLimitEnabled) {
+            return CapacityRateLimiter.unlimited();
+        }
+        return new CapacityRateLimiter(
+            theTableName -> inAmazonDynamoDB.getObject().describeTable(theTableName).getTable(),
+            mRateLimitCapacityShare,
+            mRateLimitOnDemandCapacityUnits);
+    }
+
+    /**
+     * Creates a monitor of repository methods that records the duration of and the items read by
+     * each repository method, and logs or rejects scans of tables containing more than a configured
+     * number of items by repository methods not in the scan guard allow-list.
+     * The number of items of tables is retrieved lazily from the DynamoDB client, which in turn uses
+     * the monitor as a request handler in order to attribute requests to repository methods.
+     *
+     * @param inAmazonDynamoDB Provides the DynamoDB client.
+     * @param inMeterRegistry Provides the application meter registry, if any.
+     * @return Repository method monitor bean.
+     */
+    @Bean
+    public RepositoryMethodMonitor repositoryMethodMonitor(
+        final ObjectProvider<AmazonDynamoDB> inAmazonDynamoDB,
+        final ObjectProvider<MeterRegistry> inMeterRegistry) {
+        return new RepositoryMethodMonitor(
+            inMeterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+            mScanGuardMode,
+            mScanGuardMaxTableItems,
+            Arrays.asList(mScanGuardAllowedMethods),
+            theTableName -> inAmazonDynamoDB.getObject().describeTable(theTableName).getTable(),
+            Duration.ofMillis(mScanGuardItemCountTimeToLiveMillis));
+    }
+
+    /**
+     * Creates a bean post-processor that replaces Spring Data repositories and the single-table shapes
+     * repository with proxies monitoring invocations of their methods using the repository method monitor.
+     * Static, so that the post-processor can be created before this configuration.
+     *
+     * @param inRepositoryMethodMonitor Provides the repository method monitor.
+     * @return Repository monitoring bean post-processor bean.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMethodMonitorPostProcessor(
+        final ObjectProvider<RepositoryMethodMonitor> inRepositoryMethodMonitor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object inBean, final String inBeanName) {
+                return inBean instanceof Repository || inBean instanceof ShapesRepository
+                    ? inRepositoryMethodMonitor.getObject().monitor(inBean)
+                    : inBean;
+            }
+        };
+    }
+
     /**
      * Creates a DynamoDB client bean for the DynamoDB instance with the supplied credentials
      * and being available at the endpoint injected into this configuration.
      * Must be named "amazonDynamoDB", otherwise Spring Data DynamoDB initialization will fail.
      *
      * @param inAWSCredentials AWS credentials.
+     * @param inMetricsRequestHandler Request handler recording metrics of DynamoDB requests.
+     * @param inCapacityRateLimiter Rate limiter observing throttled requests.
+     * @param inRepositoryMethodMonitor Monitor attributing requests to repository methods.
      * @return DynamoDB client bean.
      */
     @Bean(destroyMethod = "shutdown")
-    public AmazonDynamoDB amazonDynamoDB(final AWSCredentials inAWSCredentials) {
+    public AmazonDynamoDB amazonDynamoDB(
+        final AWSCredentials inAWSCredentials,
+        final DynamoDBMetricsRequestHandler inMetricsRequestHandler,
+        final CapacityRateLimiter inCapacityRateLimiter,
+        final RepositoryMethodMonitor inRepositoryMethodMonitor) {
         return AmazonDynamoDBClientBuilder
+            .standard()
+            .withCredentials(new AWSStaticCredentialsProvider(inAWSCredentials))
+            .withRequestHandlers(inMetricsRequestHandler, inCapacityRateLimiter, inRepositoryMethodMonitor)
+            .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(mDynamoDBEndpoint,
+                mAWSRegion))
+            .build();
+    }
+
+    /**
+     * Creates a DynamoDB streams client bean, if streams are enabled, for the DynamoDB instance
+     * with the supplied credentials and being available at the endpoint injected into this configuration.
+     *
+     * @param inAWSCredentials AWS credentials.
+     * @return DynamoDB streams client bean.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "amazon.dynamodb.streams.enabled", havingValue = "true")
+    public AmazonDynamoDBStreams amazonDynamoDBStreams(final AWSCredentials inAWSCredentials) {
+        return AmazonDynamoDBStreamsClientBuilder
             .standard()
             .withCredentials(new AWSStaticCredentialsProvider(inAWSCredentials))
             .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(mDynamoDBEndpoint,
@@ -78,4 +337,463 @@ public class PersistenceConfiguration {
                 DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(mDynamoDBTableNamePrefix))
             .build();
     }
+
+    /**
+     * Creates a non-blocking DynamoDB client bean for the DynamoDB instance with the supplied
+     * credentials and being available at the endpoint injected into this configuration.
+     * Requests are sent over a limited number of connections using non-blocking I/O, so the number
+     * of requests in flight is not limited by the number of threads.
+     *
+     * @param inAWSCredentials AWS credentials.
+     * @return Non-blocking DynamoDB client bean.
+     */
+    @Bean(destroyMethod = "close")
+    public DynamoDbAsyncClient dynamoDbAsyncClient(final AWSCredentials inAWSCredentials) {
+        return DynamoDbAsyncClient
+            .builder()
+            .credentialsProvider(StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(inAWSCredentials.getAWSAccessKeyId(), inAWSCredentials.getAWSSecretKey())))
+            .region(Region.of(mAWSRegion))
+            .endpointOverride(URI.create(mDynamoDBEndpoint))
+            .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(mAsyncMaxConcurrency))
+            .build();
+    }
+
+    /**
+     * Creates a schema manager that provisions the tables of entity types concurrently and, if
+     * schema provisioning is enabled, creates the tables of all entities in the domain package,
+     * and of the single shapes table if single-table storage is enabled, that do not exist.
+     * Replaces the table creation of Spring Data DynamoDB, which creates tables one at a time.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inDynamoDBMapper DynamoDB mapper.
+     * @return Schema manager bean.
+     */
+    @Bean
+    public DynamoDBSchemaManager dynamoDBSchemaManager(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final DynamoDBMapper inDynamoDBMapper) {
+        final DynamoDBSchemaManager theSchemaManager = new DynamoDBSchemaManager(
+            inAmazonDynamoDB,
+            inDynamoDBMapper,
+            mSchemaBillingMode,
+            mSchemaReadCapacityUnits,
+            mSchemaWriteCapacityUnits,
+            mSchemaWaitTimeoutMillis,
+            mSchemaPollIntervalMillis);
+        if (mSchemaProvision) {
+            final List<Class<?>> theEntityTypes =
+                new ArrayList<>(DynamoDBSchemaManager.findEntityTypes(Shape.class.getPackageName()));
+            if (mSingleTableEnabled) {
+                theEntityTypes.add(Shape.class);
+            }
+            theSchemaManager.createTablesIfNotExist(theEntityTypes);
+        }
+        return theSchemaManager;
+    }
+
+    /**
+     * Creates an item converter that converts shapes to and from DynamoDB items using precompiled
+     * marshallers and other entities using the table models of the supplied DynamoDB mapper.
+     *
+     * @param inDynamoDBMapper DynamoDB mapper.
+     * @param inDynamoDBMapperConfig DynamoDB mapper configuration.
+     * @return Item converter bean.
+     */
+    @Bean
+    public ItemConverter itemConverter(
+        final DynamoDBMapper inDynamoDBMapper,
+        final DynamoDBMapperConfig inDynamoDBMapperConfig) {
+        return new CompiledItemConverter(
+            new MapperItemConverter(inDynamoDBMapper, inDynamoDBMapperConfig),
+            List.of(new CircleMarshaller(), new RectangleMarshaller()));
+    }
+
+    /**
+     * Creates a template performing non-blocking DynamoDB operations on entities.
+     *
+     * @param inDynamoDbAsyncClient Non-blocking DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @return Asynchronous DynamoDB template bean.
+     */
+    @Bean
+    public AsyncDynamoDBTemplate asyncDynamoDBTemplate(
+        final DynamoDbAsyncClient inDynamoDbAsyncClient,
+        final ItemConverter inItemConverter) {
+        return new AsyncDynamoDBTemplate(inDynamoDbAsyncClient, inItemConverter);
+    }
+
+    /**
+     * Creates a bounded executor on which batch write requests are dispatched.
+     * When all threads are busy and the queue is full, the submitting thread will
+     * write the chunk itself, which throttles producers of large batches.
+     *
+     * @return Batch write executor bean.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchWriteExecutor() {
+        return new ThreadPoolExecutor(
+            mBatchWriteConcurrency,
+            mBatchWriteConcurrency,
+            60L,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(mBatchWriteConcurrency * 4),
+            new CustomizableThreadFactory("ddb-batch-write-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates a batch writer that writes entities in concurrently dispatched BatchWriteItem requests.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inBatchWriteExecutor Executor on which batch write requests are dispatched.
+     * @param inCapacityRateLimiter Limits the rate at which batch writes consume write capacity.
+     * @return Batch writer bean.
+     */
+    @Bean
+    public ParallelBatchWriter parallelBatchWriter(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        @Qualifier("batchWriteExecutor") final ExecutorService inBatchWriteExecutor,
+        final CapacityRateLimiter inCapacityRateLimiter) {
+        return new ParallelBatchWriter(
+            inAmazonDynamoDB,
+            inItemConverter,
+            RepositoryInvocation.propagating(inBatchWriteExecutor),
+            mBatchWriteMaxRetries,
+            mBatchWriteBaseBackoffMillis,
+            mBatchWriteMaxBackoffMillis,
+            inCapacityRateLimiter);
+    }
+
+    /**
+     * Creates a bounded executor on which batch get requests are dispatched.
+     * When all threads are busy and the queue is full, the submitting thread will
+     * read the chunk itself.
+     *
+     * @return Batch get executor bean.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchGetExecutor() {
+        return new ThreadPoolExecutor(
+            mBatchGetConcurrency,
+            mBatchGetConcurrency,
+            60L,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(mBatchGetConcurrency * 4),
+            new CustomizableThreadFactory("ddb-batch-get-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates a batch reader that reads entities by id in concurrently dispatched BatchGetItem requests.
+     * Requests are attributed to the repository method invocation that dispatched them.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inBatchGetExecutor Executor on which batch get requests are dispatched.
+     * @return Batch reader bean.
+     */
+    @Bean
+    public ParallelBatchReader parallelBatchReader(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        @Qualifier("batchGetExecutor") final ExecutorService inBatchGetExecutor) {
+        return new ParallelBatchReader(
+            inAmazonDynamoDB,
+            inItemConverter,
+            RepositoryInvocation.propagating(inBatchGetExecutor),
+            mBatchGetMaxRetries,
+            mBatchGetBaseBackoffMillis,
+            mBatchGetMaxBackoffMillis);
+    }
+
+    /**
+     * Creates a write-behind writer, if write-behind is enabled, that queues saved entities and
+     * writes them in batches at the end of every flush window, coalescing repeated saves of
+     * entities with the same id. Queued entities are written when the application is shut down.
+     *
+     * @param inParallelBatchWriter Batch writer used to write queued entities.
+     * @param inMeterRegistry Provides the application meter registry, if any.
+     * @return Write-behind writer bean.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "amazon.dynamodb.writebehind.enabled", havingValue = "true")
+    public WriteBehindWriter writeBehindWriter(
+        final ParallelBatchWriter inParallelBatchWriter,
+        final ObjectProvider<MeterRegistry> inMeterRegistry) {
+        return new WriteBehindWriter(
+            inParallelBatchWriter,
+            theEntity -> theEntity instanceof EntityWithStringId ? ((EntityWithStringId) theEntity).getId() : null,
+            mWriteBehindCapacity,
+            mWriteBehindWindowMillis,
+            inMeterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * Creates a hot key detector, if hot key detection is enabled, to which the shape repositories
+     * report a sample of the keys they read, write and query, and which periodically reports the
+     * most frequently accessed keys per table and operation as metrics and in the log.
+     * The last report is also available as a JMX operation if JMX is enabled.
+     *
+     * @param inMeterRegistry Provides the application meter registry, if any.
+     * @return Hot key detector bean.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "amazon.dynamodb.hotkeys.enabled", havingValue = "true")
+    public HotKeyDetector hotKeyDetector(final ObjectProvider<MeterRegistry> inMeterRegistry) {
+        return new HotKeyDetector(
+            mHotKeysSampleRate,
+            mHotKeysReportedKeyCount,
+            mHotKeysShare,
+            mHotKeysReportIntervalMillis,
+            inMeterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * Creates the aggregates of shapes, if aggregates are enabled, that are maintained as circles
+     * and rectangles are written, so that shapes can be counted without scanning the shape tables.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @return Shape aggregates bean.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "amazon.dynamodb.aggregates.enabled", havingValue = "true")
+    public ShapeAggregates shapeAggregates(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter) {
+        return new ShapeAggregates(inAmazonDynamoDB, inItemConverter, mAggregatesShards);
+    }
+
+    /**
+     * Creates a consumer of the streams of the shape tables, if streams are enabled, that feeds
+     * changes of shapes to subscribed handlers, such as the entity caches of the shape repositories.
+     * Streams containing new and old images are enabled on the shape tables unless already enabled.
+     * Checkpoints are stored in a table if a consumer name is configured, so that consuming can be
+     * resumed after a restart, otherwise in memory. Checkpoints stored in a table are kept per node,
+     * identified by the configured node name or, if none is configured, the host name.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inAmazonDynamoDBStreams DynamoDB streams client.
+     * @param inSchemaManager Schema manager, used to enable streams.
+     * @param inItemConverter Item converter.
+     * @param inMeterRegistry Provides the application meter registry, if any.
+     * @return Table change stream consumer bean.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "amazon.dynamodb.streams.enabled", havingValue = "true")
+    public TableChangeStreamConsumer tableChangeStreamConsumer(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final AmazonDynamoDBStreams inAmazonDynamoDBStreams,
+        final DynamoDBSchemaManager inSchemaManager,
+        final ItemConverter inItemConverter,
+        final ObjectProvider<MeterRegistry> inMeterRegistry) {
+        inSchemaManager.enableStream(Circle.class, StreamViewType.NEW_AND_OLD_IMAGES);
+        inSchemaManager.enableStream(Rectangle.class, StreamViewType.NEW_AND_OLD_IMAGES);
+        final StreamCheckpointStore theCheckpointStore = mStreamsConsumerName.isEmpty()
+            ? StreamCheckpointStore.inMemory()
+            : new DynamoDBStreamCheckpointStore(
+                inAmazonDynamoDB,
+                inItemConverter,
+                mStreamsConsumerName,
+                mStreamsNodeName.isEmpty() ? localHostName() : mStreamsNodeName);
+        return new TableChangeStreamConsumer(
+            inAmazonDynamoDB,
+            inAmazonDynamoDBStreams,
+            theCheckpointStore,
+            mStreamsInitialPosition,
+            mStreamsMaxRecordsPerRead,
+            mStreamsPollIntervalMillis,
+            inMeterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * Creates the view of shapes grouped by colour, if views are enabled, which is maintained from
+     * the streams of the circle and rectangle tables. Views should only be enabled on one node.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inTableChangeStreamConsumer Consumer of the streams of the shape tables.
+     * @return Shapes by colour view bean.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "amazon.dynamodb.streams.views.enabled", havingValue = "true")
+    public ShapesByColourView shapesByColourView(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final TableChangeStreamConsumer inTableChangeStreamConsumer) {
+        final ShapesByColourView theView = new ShapesByColourView(inAmazonDynamoDB, inItemConverter);
+        inTableChangeStreamConsumer.subscribe(inItemConverter.tableName(Circle.class), theView.handler(Circle.class));
+        inTableChangeStreamConsumer.subscribe(
+            inItemConverter.tableName(Rectangle.class), theView.handler(Rectangle.class));
+        return theView;
+    }
+
+    /**
+     * Creates an executor with a fixed number of threads on which segments of parallel scans are scanned.
+     *
+     * @return Scan executor bean.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService scanExecutor() {
+        return Executors.newFixedThreadPool(mScanConcurrency, new CustomizableThreadFactory("ddb-scan-"));
+    }
+
+    /**
+     * Creates an executor with a fixed number of threads on which the queries of spatial queries are
+     * performed. Separate from the scan executor, so that segment scans of unconsumed scan streams
+     * cannot delay spatial queries.
+     *
+     * @return Spatial query executor bean.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService spatialQueryExecutor() {
+        return Executors.newFixedThreadPool(mSpatialConcurrency, new CustomizableThreadFactory("ddb-spatial-"));
+    }
+
+    /**
+     * Creates a parallel scanner that scans tables in segments that are read concurrently.
+     * Segment scans are attributed to, and guarded as, the repository method invocation that started the scan.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inScanExecutor Executor on which segments are scanned.
+     * @param inCapacityRateLimiter Limits the rate at which scans consume read capacity.
+     * @return Parallel scanner bean.
+     */
+    @Bean
+    public ParallelScanner parallelScanner(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        @Qualifier("scanExecutor") final ExecutorService inScanExecutor,
+        final CapacityRateLimiter inCapacityRateLimiter) {
+        return new ParallelScanner(
+            inAmazonDynamoDB,
+            inItemConverter,
+            RepositoryInvocation.propagating(inScanExecutor),
+            mScanBufferedPages,
+            inCapacityRateLimiter,
+            mScanTimeoutMillis);
+    }
+
+    /**
+     * Creates a snapshotter that exports tables to and imports tables from compressed snapshot files,
+     * scanning tables using the parallel scanner and writing items using the batch writer.
+     *
+     * @param inItemConverter Item converter.
+     * @param inParallelScanner Parallel scanner.
+     * @param inParallelBatchWriter Batch writer.
+     * @return Table snapshotter bean.
+     */
+    @Bean
+    public TableSnapshotter tableSnapshotter(
+        final ItemConverter inItemConverter,
+        final ParallelScanner inParallelScanner,
+        final ParallelBatchWriter inParallelBatchWriter) {
+        return new TableSnapshotter(
+            inItemConverter,
+            inParallelScanner,
+            inParallelBatchWriter,
+            mScanSegments,
+            mSnapshotMaxBatchesInFlight,
+            mSnapshotMaxItemsPerSecond);
+    }
+
+    /**
+     * Creates a spatial query executor that finds shapes within bounding boxes using queries
+     * on the global secondary index on shape position, which are performed concurrently on
+     * the spatial query executor.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inParallelScanner Parallel scanner.
+     * @param inSpatialQueryExecutor Executor on which queries are performed.
+     * @return Spatial query executor bean.
+     */
+    @Bean
+    public ShapeSpatialQueryExecutor shapeSpatialQueryExecutor(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final ParallelScanner inParallelScanner,
+        @Qualifier("spatialQueryExecutor") final ExecutorService inSpatialQueryExecutor) {
+        return new ShapeSpatialQueryExecutor(
+            inAmazonDynamoDB,
+            inItemConverter,
+            inParallelScanner,
+            RepositoryInvocation.propagating(inSpatialQueryExecutor),
+            mSpatialMaxQueries,
+            mScanSegments);
+    }
+
+    /**
+     * Creates a repository that stores shapes of all types in one single table, if single-table
+     * storage is enabled. The shapes table is provisioned by the schema manager, if schema
+     * provisioning is enabled.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter, used to resolve the name of the shapes table.
+     * @param inBatchWriteExecutor Executor on which batch write requests are dispatched.
+     * @param inScanExecutor Executor on which segments are scanned.
+     * @param inSpatialQueryExecutor Executor on which the queries of spatial queries are performed.
+     * @param inCapacityRateLimiter Limits the rate at which scans and batch writes consume capacity.
+     * @return Shapes repository bean.
+     */
+    @Bean
+    @DependsOn("dynamoDBSchemaManager")
+    @ConditionalOnProperty(name = "amazon.dynamodb.singletable.enabled", havingValue = "true")
+    public ShapesRepository shapesRepository(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        @Qualifier("batchWriteExecutor") final ExecutorService inBatchWriteExecutor,
+        @Qualifier("scanExecutor") final ExecutorService inScanExecutor,
+        @Qualifier("spatialQueryExecutor") final ExecutorService inSpatialQueryExecutor,
+        final CapacityRateLimiter inCapacityRateLimiter) {
+        final ItemConverter theShapesItemConverter = new SingleTableItemConverter<>(
+            inItemConverter.tableName(Shape.class),
+            new PolymorphicShapeMarshaller(List.of(new CircleMarshaller(), new RectangleMarshaller())));
+        final ParallelScanner theShapesParallelScanner = new ParallelScanner(
+            inAmazonDynamoDB,
+            theShapesItemConverter,
+            RepositoryInvocation.propagating(inScanExecutor),
+            mScanBufferedPages,
+            inCapacityRateLimiter,
+            mScanTimeoutMillis);
+        return new ShapesRepository(
+            inAmazonDynamoDB,
+            theShapesItemConverter,
+            new ParallelBatchWriter(
+                inAmazonDynamoDB,
+                theShapesItemConverter,
+                RepositoryInvocation.propagating(inBatchWriteExecutor),
+                mBatchWriteMaxRetries,
+                mBatchWriteBaseBackoffMillis,
+                mBatchWriteMaxBackoffMillis,
+                inCapacityRateLimiter),
+            theShapesParallelScanner,
+            new ShapeSpatialQueryExecutor(
+                inAmazonDynamoDB,
+                theShapesItemConverter,
+                theShapesParallelScanner,
+                RepositoryInvocation.propagating(inSpatialQueryExecutor),
+                mSpatialMaxQueries,
+                mScanSegments),
+            mScanSegments);
+    }
+
+    /**
+     * Retrieves the name of the local host, used to identify this node if no node name is configured.
+     *
+     * @return Local host name.
+     * @throws IllegalStateException If the local host name cannot be resolved.
+     */
+    protected static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException theException) {
+            throw new IllegalStateException(
+                "Unable to resolve the local host name, configure amazon.dynamodb.streams.nodename", theException);
+        }
+    }
 }
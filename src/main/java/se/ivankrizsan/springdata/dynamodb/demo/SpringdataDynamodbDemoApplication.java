@@ -1,16 +1,87 @@
 package se.ivankrizsan.springdata.dynamodb.demo;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+import se.ivankrizsan.springdata.dynamodb.repositories.RectanglesRepository;
 
 /**
  * Application entrypoint.
- * Not used in this example.
+ * If the load generator is enabled, the application generates load on the repositories,
+ * logs a report of the throughput and latencies of the repository operations and exits.
+ * Otherwise not used in this example.
+ *
+ * @author Ivan Krizsan
+ * @see LoadGenerator
  */
 @SpringBootApplication
 public class SpringdataDynamodbDemoApplication {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpringdataDynamodbDemoApplication.class);
+    public static final String LOAD_GENERATOR_ENABLED_PROPERTY = "loadgenerator.enabled";
+
+    /* Dependencies: */
+    @Value("${loadgenerator.mix:SAVE:10,FIND_BY_ID:70,FIND_ALL:1,FIND_BY_COLOUR:19}")
+    protected String mLoadGeneratorMix;
+    @Value("${loadgenerator.concurrency:16}")
+    protected int mLoadGeneratorConcurrency;
+    @Value("${loadgenerator.rate:100}")
+    protected double mLoadGeneratorRate;
+    @Value("${loadgenerator.items:1000}")
+    protected int mLoadGeneratorItems;
+    @Value("${loadgenerator.skew:0.99}")
+    protected double mLoadGeneratorSkew;
+    @Value("${loadgenerator.preload:true}")
+    protected boolean mLoadGeneratorPreload;
+    @Value("${loadgenerator.warmup:10000}")
+    protected long mLoadGeneratorWarmupMillis;
+    @Value("${loadgenerator.duration:60000}")
+    protected long mLoadGeneratorDurationMillis;
 
     public static void main(String[] args) {
-        SpringApplication.run(SpringdataDynamodbDemoApplication.class, args);
+        final ConfigurableApplicationContext theContext =
+            SpringApplication.run(SpringdataDynamodbDemoApplication.class, args);
+        if (theContext.getEnvironment().getProperty(LOAD_GENERATOR_ENABLED_PROPERTY, Boolean.class, false)) {
+            System.exit(SpringApplication.exit(theContext));
+        }
+    }
+
+    /**
+     * Runner that generates load on the circles and rectangles repositories when the application
+     * has started and logs a report of the results.
+     *
+     * @param inCirclesRepository Circles repository.
+     * @param inRectanglesRepository Rectangles repository.
+     * @return Application runner.
+     */
+    @Bean
+    @ConditionalOnProperty(name = LOAD_GENERATOR_ENABLED_PROPERTY, havingValue = "true")
+    public ApplicationRunner loadGeneratorRunner(
+        final CirclesRepository inCirclesRepository,
+        final RectanglesRepository inRectanglesRepository) {
+        return theArguments -> {
+            final LoadGenerator theLoadGenerator = new LoadGenerator(
+                inCirclesRepository,
+                inRectanglesRepository,
+                LoadGenerator.parseOperationMix(mLoadGeneratorMix),
+                mLoadGeneratorConcurrency,
+                mLoadGeneratorRate,
+                mLoadGeneratorItems,
+                mLoadGeneratorSkew,
+                mLoadGeneratorWarmupMillis,
+                mLoadGeneratorDurationMillis);
+            if (mLoadGeneratorPreload) {
+                theLoadGenerator.preload();
+            }
+            LOGGER.info("Load generator results:{}{}", System.lineSeparator(),
+                LoadGenerator.formatReport(theLoadGenerator.run(), mLoadGeneratorDurationMillis));
+        };
     }
 }
@@ -25,4 +25,9 @@ public class Circle extends Shape {
     /** Circle radius. */
     @DynamoDBAttribute
     protected int radius = DEFAULT_RADIUS;
+
+    @Override
+    public double area() {
+        return Math.PI * radius * radius;
+    }
 }
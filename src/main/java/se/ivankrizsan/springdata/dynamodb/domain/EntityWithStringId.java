@@ -2,21 +2,28 @@ package se.ivankrizsan.springdata.dynamodb.domain;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGenerateStrategy;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGeneratedKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGenerated;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGeneratedTimestamp;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTyped;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBVersionAttribute;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.joda.time.DateTime;
+import se.ivankrizsan.springdata.dynamodb.support.CompactIdGenerator;
 
 /**
  * Abstract base class for entities that has a string id.
  * Note that base classes which contain annotated entity attributes must be
  * annotated with the @DynamoDBTable annotation or else the annotated attributes
  * will not be discovered.
+ * The version of entities is incremented every time an entity is written and is used for
+ * optimistic locking: writes that are conditional on the version fail if the entity has been
+ * written by someone else since it was read.
+ * Ids of new entities are compact, time-ordered 26-character strings rather than UUIDs, which
+ * reduces the size of items and keys. Ids of existing entities, including UUIDs, are retained.
  *
  * @author Ivan Krizsan
  */
@@ -29,11 +36,14 @@ public abstract class EntityWithStringId {
     /* Instance variable(s): */
     /** Entity id. */
     @DynamoDBHashKey
-    @DynamoDBAutoGeneratedKey
+    @DynamoDBAutoGenerated(generator = CompactIdGenerator.class)
     protected String id;
     /** Auto-generated timestamp at which the shape was created or updated. */
     @DynamoDBAutoGeneratedTimestamp(strategy = DynamoDBAutoGenerateStrategy.ALWAYS)
     @DynamoDBTyped(DynamoDBMapperFieldModel.DynamoDBAttributeType.N)
     @DynamoDBAttribute
     protected DateTime lastUpdateTime;
+    /** Version of the entity, null if the entity has never been written. */
+    @DynamoDBVersionAttribute
+    protected Long version;
 }
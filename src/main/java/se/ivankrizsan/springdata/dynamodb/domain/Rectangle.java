@@ -29,4 +29,9 @@ public class Rectangle extends Shape {
     /** Rectangle width. */
     @DynamoDBAttribute
     protected int width = DEFAULT_WIDTH;
+
+    @Override
+    public double area() {
+        return (double) height * width;
+    }
 }
@@ -1,16 +1,27 @@
 package se.ivankrizsan.springdata.dynamodb.domain;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import se.ivankrizsan.springdata.dynamodb.support.ZOrderCurve;
 
 /**
  * Abstract base class for shape entities located at a position in a two-dimensional
  * coordinate system and that has a colour.
- * Note that since the parent class is annotated with @DynamoDBTable, this class
- * does not need to be annotated with this annotation since it is inherited.
+ * The @DynamoDBTable annotation of this class names the single table in which shapes of all
+ * types are stored when single-table storage is enabled. Shape subclasses name the tables in
+ * which they are stored by the shape type specific repositories.
+ * The colour of shapes is the hash key of a global secondary index, which allows for
+ * finding shapes by colour using queries instead of scanning entire tables.
+ * The position of shapes is indexed by a global secondary index on the Z-order curve
+ * partition and key of the position, which allows for finding shapes within a bounding box
+ * using queries. The index attributes are derived from the position whenever a shape is
+ * written and are never read back.
  *
  * @author Ivan Krizsan
  */
@@ -18,8 +29,18 @@ import lombok.ToString;
 @ToString(callSuper = true)
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
+@DynamoDBTable(tableName = "shapes")
 public abstract class Shape extends EntityWithStringId {
     /* Constant(s): */
+    /** Name of global secondary index on shape colour. */
+    public static final String COLOUR_INDEX_NAME = "colour-index";
+    /** Name of global secondary index on shape position. */
+    public static final String SPATIAL_INDEX_NAME = "spatial-index";
+    /**
+     * Number of bits of each coordinate within one spatial index partition, that is
+     * a partition covers 256 by 256 coordinate units.
+     */
+    public static final int SPATIAL_PARTITION_BITS = 8;
 
     /* Instance variable(s): */
     /** Shape location x-coordinate. */
@@ -29,7 +50,7 @@ public abstract class Shape extends EntityWithStringId {
     @DynamoDBAttribute
     protected int y;
     /** Shape colour. */
-    @DynamoDBAttribute
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = COLOUR_INDEX_NAME)
     protected String colour;
 
     /**
@@ -42,4 +63,47 @@ public abstract class Shape extends EntityWithStringId {
         x = inX;
         y = inY;
     }
+
+    /**
+     * Retrieves the spatial index partition containing the position of the shape.
+     *
+     * @return Z-order curve partition of shape position.
+     */
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = SPATIAL_INDEX_NAME)
+    public long getSpatialPartition() {
+        return ZOrderCurve.partition(x, y, SPATIAL_PARTITION_BITS);
+    }
+
+    /**
+     * Ignores the supplied spatial index partition, since it is derived from the shape position.
+     *
+     * @param inSpatialPartition Spatial index partition.
+     */
+    public void setSpatialPartition(final long inSpatialPartition) {
+    }
+
+    /**
+     * Retrieves the spatial index key of the position of the shape.
+     *
+     * @return Z-order curve key of shape position.
+     */
+    @DynamoDBIndexRangeKey(globalSecondaryIndexName = SPATIAL_INDEX_NAME)
+    public long getSpatialKey() {
+        return ZOrderCurve.key(x, y);
+    }
+
+    /**
+     * Ignores the supplied spatial index key, since it is derived from the shape position.
+     *
+     * @param inSpatialKey Spatial index key.
+     */
+    public void setSpatialKey(final long inSpatialKey) {
+    }
+
+    /**
+     * Computes the area of the shape.
+     *
+     * @return Shape area.
+     */
+    public abstract double area();
 }
@@ -0,0 +1,35 @@
+package se.ivankrizsan.springdata.dynamodb.domain;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregate of shapes, that is the number of shapes and the sum of their areas, maintained
+ * as shapes are written instead of computed by reading all shapes.
+ * Each aggregate is stored as a number of shard items which values are summed when
+ * the aggregate is read, so that concurrent writers do not all update the same item.
+ *
+ * @author Ivan Krizsan
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "shape-aggregates")
+public class ShapeAggregate {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    /** Aggregate id, identifying the shape type, the aggregated shapes and the shard. */
+    @DynamoDBHashKey
+    protected String id;
+    /** Number of shapes. */
+    @DynamoDBAttribute
+    protected long count;
+    /** Sum of the areas of the shapes. */
+    @DynamoDBAttribute
+    protected double areaSum;
+}
@@ -0,0 +1,41 @@
+package se.ivankrizsan.springdata.dynamodb.domain;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entry of the precomputed view of shapes grouped by colour, which is maintained from the
+ * streams of the shape tables so that the shapes of a colour can be found with one query
+ * instead of by scanning the shape tables.
+ *
+ * @author Ivan Krizsan
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "shapes-by-colour")
+public class ShapeByColour {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    /** Colour of the shape. */
+    @DynamoDBHashKey
+    protected String colour;
+    /** Key of the shape, identifying the shape type and the shape id. */
+    @DynamoDBRangeKey
+    protected String shapeKey;
+    /** X-coordinate of the shape position. */
+    @DynamoDBAttribute
+    protected int x;
+    /** Y-coordinate of the shape position. */
+    @DynamoDBAttribute
+    protected int y;
+    /** Area of the shape. */
+    @DynamoDBAttribute
+    protected double area;
+}
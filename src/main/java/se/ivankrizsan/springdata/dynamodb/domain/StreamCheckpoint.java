@@ -0,0 +1,30 @@
+package se.ivankrizsan.springdata.dynamodb.domain;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position up to which a consumer has consumed a shard of a table stream, stored so that
+ * the consumer can resume consuming the shard after having been restarted.
+ *
+ * @author Ivan Krizsan
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "stream-checkpoints")
+public class StreamCheckpoint {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    /** Checkpoint id, identifying the consumer, the stream and the shard. */
+    @DynamoDBHashKey
+    protected String id;
+    /** Sequence number of the last handled record of the shard, or a marker if the shard has ended. */
+    @DynamoDBAttribute
+    protected String sequenceNumber;
+}
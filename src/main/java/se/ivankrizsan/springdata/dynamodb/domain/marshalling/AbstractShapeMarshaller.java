@@ -0,0 +1,231 @@
+package se.ivankrizsan.springdata.dynamodb.domain.marshalling;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.joda.time.DateTime;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.support.CompactIdGenerator;
+import se.ivankrizsan.springdata.dynamodb.support.EntityMarshaller;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Abstract base class for marshallers of shapes that converts the attributes declared
+ * in {@code EntityWithStringId} and {@code Shape}.
+ * Produces the same items as the DynamoDB mapper: absent attributes are omitted, numbers
+ * are written in plain decimal notation, the id is generated as a compact, time-ordered id if missing
+ * and the last update time is always set to the current time, written as epoch milliseconds.
+ * The version is incremented, starting at one, every time a shape is marshalled.
+ * The spatial index attributes are derived from the shape position when marshalling and
+ * ignored when unmarshalling.
+ * Numbers are parsed directly to primitive values and the last update time is created
+ * from epoch milliseconds without intermediate conversions.
+ *
+ * @param <T> Shape type.
+ * @author Ivan Krizsan
+ */
+public abstract class AbstractShapeMarshaller<T extends Shape> implements EntityMarshaller<T> {
+    /* Constant(s): */
+    public static final String ID_ATTRIBUTE = "id";
+    public static final String LAST_UPDATE_TIME_ATTRIBUTE = "lastUpdateTime";
+    public static final String VERSION_ATTRIBUTE = "version";
+    public static final String X_ATTRIBUTE = "x";
+    public static final String Y_ATTRIBUTE = "y";
+    public static final String COLOUR_ATTRIBUTE = "colour";
+    public static final String SPATIAL_PARTITION_ATTRIBUTE = "spatialPartition";
+    public static final String SPATIAL_KEY_ATTRIBUTE = "spatialKey";
+    /** Initial capacity of item maps, fitting the attributes of all shape types without resizing. */
+    protected static final int ITEM_CAPACITY = 16;
+
+    /* Instance variable(s): */
+    protected final Class<T> mShapeType;
+
+    /**
+     * Creates a marshaller for the supplied type of shape.
+     *
+     * @param inShapeType Type of shape.
+     */
+    protected AbstractShapeMarshaller(final Class<T> inShapeType) {
+        mShapeType = inShapeType;
+    }
+
+    @Override
+    public Class<T> getEntityType() {
+        return mShapeType;
+    }
+
+    @Override
+    public Map<String, AttributeValue> marshall(final T inShape) {
+        if (inShape.getId() == null) {
+            inShape.setId(CompactIdGenerator.newId());
+        }
+        inShape.setLastUpdateTime(new DateTime(System.currentTimeMillis()));
+        inShape.setVersion(inShape.getVersion() != null ? inShape.getVersion() + 1 : 1L);
+
+        final Map<String, AttributeValue> theItem = new HashMap<>(ITEM_CAPACITY);
+        theItem.put(ID_ATTRIBUTE, new AttributeValue().withS(inShape.getId()));
+        theItem.put(LAST_UPDATE_TIME_ATTRIBUTE, numberValue(inShape.getLastUpdateTime().getMillis()));
+        theItem.put(VERSION_ATTRIBUTE, numberValue(inShape.getVersion()));
+        theItem.put(X_ATTRIBUTE, numberValue(inShape.getX()));
+        theItem.put(Y_ATTRIBUTE, numberValue(inShape.getY()));
+        if (inShape.getColour() != null) {
+            theItem.put(COLOUR_ATTRIBUTE, new AttributeValue().withS(inShape.getColour()));
+        }
+        theItem.put(SPATIAL_PARTITION_ATTRIBUTE, numberValue(inShape.getSpatialPartition()));
+        theItem.put(SPATIAL_KEY_ATTRIBUTE, numberValue(inShape.getSpatialKey()));
+        marshallShapeAttributes(inShape, theItem);
+        return theItem;
+    }
+
+    @Override
+    public T unmarshall(final Map<String, AttributeValue> inItem) {
+        final T theShape = newShape();
+        AttributeValue theValue = inItem.get(ID_ATTRIBUTE);
+        if (theValue != null) {
+            theShape.setId(theValue.getS());
+        }
+        theValue = inItem.get(LAST_UPDATE_TIME_ATTRIBUTE);
+        if (theValue != null) {
+            theShape.setLastUpdateTime(new DateTime(Long.parseLong(theValue.getN())));
+        }
+        theValue = inItem.get(VERSION_ATTRIBUTE);
+        if (theValue != null) {
+            theShape.setVersion(Long.parseLong(theValue.getN()));
+        }
+        unmarshallInt(inItem, X_ATTRIBUTE, theShape::setX);
+        unmarshallInt(inItem, Y_ATTRIBUTE, theShape::setY);
+        theValue = inItem.get(COLOUR_ATTRIBUTE);
+        if (theValue != null) {
+            theShape.setColour(theValue.getS());
+        }
+        unmarshallShapeAttributes(inItem, theShape);
+        return theShape;
+    }
+
+    @Override
+    public Map<String, AttributeValue> key(final Object inHashKey) {
+        return Collections.singletonMap(ID_ATTRIBUTE, new AttributeValue().withS((String) inHashKey));
+    }
+
+    @Override
+    public Map<String, AttributeValue> itemKey(final Map<String, AttributeValue> inItem) {
+        return Collections.singletonMap(ID_ATTRIBUTE, inItem.get(ID_ATTRIBUTE));
+    }
+
+    @Override
+    public AttributeValue attributeValue(final String inAttributeName, final Object inValue) {
+        switch (inAttributeName) {
+            case ID_ATTRIBUTE:
+            case COLOUR_ATTRIBUTE:
+                return new AttributeValue().withS((String) inValue);
+            case LAST_UPDATE_TIME_ATTRIBUTE:
+                return numberValue(((DateTime) inValue).getMillis());
+            case X_ATTRIBUTE:
+            case Y_ATTRIBUTE:
+                return numberValue((Integer) inValue);
+            case VERSION_ATTRIBUTE:
+            case SPATIAL_PARTITION_ATTRIBUTE:
+            case SPATIAL_KEY_ATTRIBUTE:
+                return numberValue((Long) inValue);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Determines the attributes that are written when the supplied attributes of a shape are updated.
+     * In addition to the supplied attributes, the last update time and the version are always
+     * written and the spatial index attributes are written if the position of the shape is updated.
+     *
+     * @param inAttributeNames Names of updated attributes.
+     * @return Names of attributes to write.
+     */
+    public static Set<String> writtenAttributes(final String... inAttributeNames) {
+        final Set<String> theAttributeNames = new LinkedHashSet<>(Arrays.asList(inAttributeNames));
+        theAttributeNames.add(LAST_UPDATE_TIME_ATTRIBUTE);
+        theAttributeNames.add(VERSION_ATTRIBUTE);
+        if (theAttributeNames.contains(X_ATTRIBUTE) || theAttributeNames.contains(Y_ATTRIBUTE)) {
+            theAttributeNames.add(SPATIAL_PARTITION_ATTRIBUTE);
+            theAttributeNames.add(SPATIAL_KEY_ATTRIBUTE);
+        }
+        return theAttributeNames;
+    }
+
+    /**
+     * Creates a new shape with default property values.
+     *
+     * @return New shape.
+     */
+    protected abstract T newShape();
+
+    /**
+     * Adds the attributes declared in the shape type of the marshaller to the supplied item.
+     *
+     * @param inShape Shape which attributes to add.
+     * @param inItem Item to add attributes to.
+     */
+    protected abstract void marshallShapeAttributes(T inShape, Map<String, AttributeValue> inItem);
+
+    /**
+     * Sets the properties declared in the shape type of the marshaller from the supplied item.
+     * Properties which attribute is absent from the item retain their default values.
+     *
+     * @param inItem Item from which to read attributes.
+     * @param inShape Shape on which to set properties.
+     */
+    protected abstract void unmarshallShapeAttributes(Map<String, AttributeValue> inItem, T inShape);
+
+    /**
+     * Creates a number attribute value holding the supplied integer.
+     *
+     * @param inNumber Number.
+     * @return Number attribute value.
+     */
+    protected static AttributeValue numberValue(final int inNumber) {
+        return new AttributeValue().withN(Integer.toString(inNumber));
+    }
+
+    /**
+     * Creates a number attribute value holding the supplied long integer.
+     *
+     * @param inNumber Number.
+     * @return Number attribute value.
+     */
+    protected static AttributeValue numberValue(final long inNumber) {
+        return new AttributeValue().withN(Long.toString(inNumber));
+    }
+
+    /**
+     * Sets the supplied integer property from the supplied item attribute, if the attribute is present.
+     *
+     * @param inItem Item from which to read the attribute.
+     * @param inAttributeName Name of number attribute.
+     * @param inSetter Sets the property.
+     */
+    protected static void unmarshallInt(
+        final Map<String, AttributeValue> inItem,
+        final String inAttributeName,
+        final IntSetter inSetter) {
+        final AttributeValue theValue = inItem.get(inAttributeName);
+        if (theValue != null) {
+            inSetter.set(Integer.parseInt(theValue.getN()));
+        }
+    }
+
+    /**
+     * Sets an integer property without boxing the value.
+     */
+    @FunctionalInterface
+    protected interface IntSetter {
+        /**
+         * Sets the property to the supplied value.
+         *
+         * @param inValue Property value.
+         */
+        void set(int inValue);
+    }
+}
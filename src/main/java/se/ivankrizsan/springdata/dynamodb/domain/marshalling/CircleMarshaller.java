@@ -0,0 +1,45 @@
+package se.ivankrizsan.springdata.dynamodb.domain.marshalling;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+
+import java.util.Map;
+
+/**
+ * Converts circles to and from DynamoDB items without reflection.
+ *
+ * @author Ivan Krizsan
+ */
+public class CircleMarshaller extends AbstractShapeMarshaller<Circle> {
+    /* Constant(s): */
+    public static final String RADIUS_ATTRIBUTE = "radius";
+
+    /**
+     * Creates a circle marshaller.
+     */
+    public CircleMarshaller() {
+        super(Circle.class);
+    }
+
+    @Override
+    public AttributeValue attributeValue(final String inAttributeName, final Object inValue) {
+        return RADIUS_ATTRIBUTE.equals(inAttributeName)
+            ? numberValue((Integer) inValue)
+            : super.attributeValue(inAttributeName, inValue);
+    }
+
+    @Override
+    protected Circle newShape() {
+        return new Circle();
+    }
+
+    @Override
+    protected void marshallShapeAttributes(final Circle inCircle, final Map<String, AttributeValue> inItem) {
+        inItem.put(RADIUS_ATTRIBUTE, numberValue(inCircle.getRadius()));
+    }
+
+    @Override
+    protected void unmarshallShapeAttributes(final Map<String, AttributeValue> inItem, final Circle inCircle) {
+        unmarshallInt(inItem, RADIUS_ATTRIBUTE, inCircle::setRadius);
+    }
+}
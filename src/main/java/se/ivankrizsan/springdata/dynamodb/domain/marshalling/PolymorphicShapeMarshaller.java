@@ -0,0 +1,116 @@
+package se.ivankrizsan.springdata.dynamodb.domain.marshalling;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMappingException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.support.EntityMarshaller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts shapes of all types to and from DynamoDB items stored in one single table.
+ * Items are written with a type discriminator attribute containing the simple class name
+ * of the shape, which determines the shape type materialized when the item is read.
+ * Conversion of the shape attributes is delegated to the marshaller of the shape type.
+ *
+ * @author Ivan Krizsan
+ */
+public class PolymorphicShapeMarshaller implements EntityMarshaller<Shape> {
+    /* Constant(s): */
+    /** Name of attribute holding the type discriminator of shapes. */
+    public static final String SHAPE_TYPE_ATTRIBUTE = "shapeType";
+
+    /* Instance variable(s): */
+    protected final Map<Class<?>, AbstractShapeMarshaller<? extends Shape>> mMarshallersByType = new HashMap<>();
+    protected final Map<String, AbstractShapeMarshaller<? extends Shape>> mMarshallersByDiscriminator =
+        new HashMap<>();
+
+    /**
+     * Creates a marshaller for shapes of the types handled by the supplied marshallers.
+     *
+     * @param inShapeMarshallers Marshallers of the shape types stored in the table.
+     */
+    public PolymorphicShapeMarshaller(final List<AbstractShapeMarshaller<? extends Shape>> inShapeMarshallers) {
+        for (AbstractShapeMarshaller<? extends Shape> theShapeMarshaller : inShapeMarshallers) {
+            mMarshallersByType.put(theShapeMarshaller.getEntityType(), theShapeMarshaller);
+            mMarshallersByDiscriminator.put(
+                discriminator(theShapeMarshaller.getEntityType()), theShapeMarshaller);
+        }
+    }
+
+    /**
+     * Retrieves the type discriminator value of the supplied shape type.
+     *
+     * @param inShapeType Shape type.
+     * @return Type discriminator value.
+     */
+    public static String discriminator(final Class<?> inShapeType) {
+        return inShapeType.getSimpleName();
+    }
+
+    @Override
+    public Class<Shape> getEntityType() {
+        return Shape.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, AttributeValue> marshall(final Shape inShape) {
+        final AbstractShapeMarshaller<Shape> theShapeMarshaller =
+            (AbstractShapeMarshaller<Shape>) mMarshallersByType.get(inShape.getClass());
+        if (theShapeMarshaller == null) {
+            throw new DynamoDBMappingException("No marshaller for shape type " + inShape.getClass().getName());
+        }
+        final Map<String, AttributeValue> theItem = theShapeMarshaller.marshall(inShape);
+        theItem.put(SHAPE_TYPE_ATTRIBUTE, new AttributeValue().withS(discriminator(inShape.getClass())));
+        return theItem;
+    }
+
+    @Override
+    public Shape unmarshall(final Map<String, AttributeValue> inItem) {
+        final AttributeValue theDiscriminator = inItem.get(SHAPE_TYPE_ATTRIBUTE);
+        final AbstractShapeMarshaller<? extends Shape> theShapeMarshaller = theDiscriminator != null
+            ? mMarshallersByDiscriminator.get(theDiscriminator.getS())
+            : null;
+        if (theShapeMarshaller == null) {
+            throw new DynamoDBMappingException("Item has no known shape type: " + theDiscriminator);
+        }
+        return theShapeMarshaller.unmarshall(inItem);
+    }
+
+    @Override
+    public Map<String, AttributeValue> key(final Object inHashKey) {
+        return anyMarshaller().key(inHashKey);
+    }
+
+    @Override
+    public Map<String, AttributeValue> itemKey(final Map<String, AttributeValue> inItem) {
+        return anyMarshaller().itemKey(inItem);
+    }
+
+    @Override
+    public AttributeValue attributeValue(final String inAttributeName, final Object inValue) {
+        if (SHAPE_TYPE_ATTRIBUTE.equals(inAttributeName)) {
+            return new AttributeValue().withS(
+                inValue instanceof Class ? discriminator((Class<?>) inValue) : (String) inValue);
+        }
+        for (AbstractShapeMarshaller<? extends Shape> theShapeMarshaller : mMarshallersByType.values()) {
+            final AttributeValue theAttributeValue = theShapeMarshaller.attributeValue(inAttributeName, inValue);
+            if (theAttributeValue != null) {
+                return theAttributeValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves one of the shape marshallers, for converting attributes common to all shapes.
+     *
+     * @return Shape marshaller.
+     */
+    protected AbstractShapeMarshaller<? extends Shape> anyMarshaller() {
+        return mMarshallersByType.values().iterator().next();
+    }
+}
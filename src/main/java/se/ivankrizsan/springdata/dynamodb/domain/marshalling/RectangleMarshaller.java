@@ -0,0 +1,48 @@
+package se.ivankrizsan.springdata.dynamodb.domain.marshalling;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+
+import java.util.Map;
+
+/**
+ * Converts rectangles to and from DynamoDB items without reflection.
+ *
+ * @author Ivan Krizsan
+ */
+public class RectangleMarshaller extends AbstractShapeMarshaller<Rectangle> {
+    /* Constant(s): */
+    public static final String HEIGHT_ATTRIBUTE = "height";
+    public static final String WIDTH_ATTRIBUTE = "width";
+
+    /**
+     * Creates a rectangle marshaller.
+     */
+    public RectangleMarshaller() {
+        super(Rectangle.class);
+    }
+
+    @Override
+    public AttributeValue attributeValue(final String inAttributeName, final Object inValue) {
+        return HEIGHT_ATTRIBUTE.equals(inAttributeName) || WIDTH_ATTRIBUTE.equals(inAttributeName)
+            ? numberValue((Integer) inValue)
+            : super.attributeValue(inAttributeName, inValue);
+    }
+
+    @Override
+    protected Rectangle newShape() {
+        return new Rectangle();
+    }
+
+    @Override
+    protected void marshallShapeAttributes(final Rectangle inRectangle, final Map<String, AttributeValue> inItem) {
+        inItem.put(HEIGHT_ATTRIBUTE, numberValue(inRectangle.getHeight()));
+        inItem.put(WIDTH_ATTRIBUTE, numberValue(inRectangle.getWidth()));
+    }
+
+    @Override
+    protected void unmarshallShapeAttributes(final Map<String, AttributeValue> inItem, final Rectangle inRectangle) {
+        unmarshallInt(inItem, HEIGHT_ATTRIBUTE, inRectangle::setHeight);
+        unmarshallInt(inItem, WIDTH_ATTRIBUTE, inRectangle::setWidth);
+    }
+}
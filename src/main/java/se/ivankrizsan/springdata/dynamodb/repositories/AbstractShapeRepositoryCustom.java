@@ -0,0 +1,900 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.joda.time.DateTime;
+import org.socialsignin.spring.data.dynamodb.core.DynamoDBOperations;
+import org.socialsignin.spring.data.dynamodb.exception.BatchDeleteException;
+import org.socialsignin.spring.data.dynamodb.exception.BatchWriteException;
+import org.socialsignin.spring.data.dynamodb.utils.ExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.AbstractShapeMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.AsyncDynamoDBTemplate;
+import se.ivankrizsan.springdata.dynamodb.support.AttributeProjection;
+import se.ivankrizsan.springdata.dynamodb.support.EntityCache;
+import se.ivankrizsan.springdata.dynamodb.support.HotKeyDetector;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelBatchReader;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelBatchWriter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelScanner;
+import se.ivankrizsan.springdata.dynamodb.support.PartialUpdate;
+import se.ivankrizsan.springdata.dynamodb.support.SingleFlight;
+import se.ivankrizsan.springdata.dynamodb.support.TableChangeStreamConsumer;
+import se.ivankrizsan.springdata.dynamodb.support.VersionCondition;
+import se.ivankrizsan.springdata.dynamodb.support.WriteBehindWriter;
+import software.amazon.awssdk.core.async.SdkPublisher;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Abstract base class for implementations of custom repository operations on shapes.
+ * If aggregates are enabled, shapes are written one at a time using low-level requests that return
+ * the previous state of the shape, from which the changes of the aggregates are computed.
+ * If coalescing is enabled, concurrent identical finder calls share one DynamoDB request, keyed
+ * by the name of the finder and its arguments, and results are optionally kept for a short time.
+ * Shared results are DynamoDB items, from which every caller gets shapes of its own, since shapes
+ * are mutable.
+ * All operations modifying or deleting shapes discard the in-flight calls and kept results.
+ * If hot key detection is enabled, the ids of shapes read and written and the colours queried
+ * are recorded, so that keys accessed much more frequently than others can be found.
+ *
+ * @param <T> Shape type.
+ * @author Ivan Krizsan
+ */
+public abstract class AbstractShapeRepositoryCustom<T extends Shape>
+    implements ShapeRepositoryCustom<T, String>, ExceptionHandler {
+    /* Instance variable(s): */
+    protected final Class<T> mShapeType;
+    /** Cache of the items of shapes keyed by id, from which a new shape is created for every lookup. */
+    protected EntityCache<String, Map<String, AttributeValue>> mEntityCache = EntityCache.disabled();
+    protected SingleFlight<List<Object>> mSingleFlight = SingleFlight.disabled();
+
+    /* Dependencies: */
+    @Autowired
+    protected DynamoDBOperations mDynamoDBOperations;
+    @Autowired
+    protected AmazonDynamoDB mAmazonDynamoDB;
+    @Autowired
+    protected ItemConverter mItemConverter;
+    @Autowired
+    protected ParallelBatchWriter mParallelBatchWriter;
+    @Autowired
+    protected ParallelBatchReader mParallelBatchReader;
+    @Autowired
+    protected ParallelScanner mParallelScanner;
+    @Autowired
+    protected AsyncDynamoDBTemplate mAsyncDynamoDBTemplate;
+    @Autowired
+    protected ShapeSpatialQueryExecutor mShapeSpatialQueryExecutor;
+    @Autowired(required = false)
+    protected WriteBehindWriter mWriteBehindWriter;
+    @Autowired(required = false)
+    protected ShapeAggregates mShapeAggregates;
+    @Autowired(required = false)
+    protected TableChangeStreamConsumer mTableChangeStreamConsumer;
+    @Autowired(required = false)
+    protected HotKeyDetector mHotKeyDetector;
+    @Value("${amazon.dynamodb.scan.segments:4}")
+    protected int mScanSegments;
+    @Value("${amazon.dynamodb.cache.enabled:false}")
+    protected boolean mCacheEnabled;
+    @Value("${amazon.dynamodb.cache.maximumsize:10000}")
+    protected long mCacheMaximumSize;
+    @Value("${amazon.dynamodb.cache.ttl:60}")
+    protected long mCacheTimeToLiveSeconds;
+    @Value("${amazon.dynamodb.coalescing.enabled:false}")
+    protected boolean mCoalescingEnabled;
+    @Value("${amazon.dynamodb.coalescing.maximumsize:1000}")
+    protected long mCoalescingMaximumSize;
+    @Value("${amazon.dynamodb.coalescing.ttl:0}")
+    protected long mCoalescingTimeToLiveMillis;
+
+    /**
+     * Creates custom repository operations for the supplied type of shape.
+     *
+     * @param inShapeType Type of shape.
+     */
+    protected AbstractShapeRepositoryCustom(final Class<T> inShapeType) {
+        mShapeType = inShapeType;
+    }
+
+    /**
+     * Creates the entity cache of the repository, if caching is enabled.
+     * If the stream of the shape table is consumed, shapes changed by other nodes are
+     * invalidated in the cache as their changes are read from the stream.
+     */
+    @PostConstruct
+    public void initializeEntityCache() {
+        if (mCacheEnabled) {
+            mEntityCache = new EntityCache<>(mCacheMaximumSize, Duration.ofSeconds(mCacheTimeToLiveSeconds));
+            if (mTableChangeStreamConsumer != null) {
+                mTableChangeStreamConsumer.subscribe(
+                    mItemConverter.tableName(mShapeType),
+                    (theTableName, theRecords) -> invalidateChangedShapes(theRecords));
+            }
+        }
+    }
+
+    /**
+     * Creates the single-flight coalescing identical finder calls, if coalescing is enabled.
+     */
+    @PostConstruct
+    public void initializeSingleFlight() {
+        if (mCoalescingEnabled) {
+            mSingleFlight = new SingleFlight<>(mCoalescingMaximumSize, Duration.ofMillis(mCoalescingTimeToLiveMillis));
+        }
+    }
+
+    @Override
+    public Optional<T> findById(final String inId) {
+        Assert.notNull(inId, "The given id must not be null!");
+        return mSingleFlight
+            .execute(List.of("findById", inId), () -> mEntityCache.get(inId, this::loadItem))
+            .map(theItem -> mItemConverter.fromItem(mShapeType, theItem));
+    }
+
+    @Override
+    public boolean existsById(final String inId) {
+        return findById(inId).isPresent();
+    }
+
+    @Override
+    public List<T> findAllById(final Iterable<String> inIds) {
+        Assert.notNull(inIds, "The given Iterable of id's must not be null!");
+        final Set<String> theIds = new LinkedHashSet<>();
+        inIds.forEach(theId -> {
+            Assert.notNull(theId, "The given id must not be null!");
+            theIds.add(theId);
+        });
+        final Map<String, Map<String, AttributeValue>> theItems = new HashMap<>(mEntityCache.getAllPresent(theIds));
+        final List<String> theUncachedIds = theIds
+            .stream()
+            .filter(theId -> !theItems.containsKey(theId))
+            .collect(Collectors.toList());
+        if (!theUncachedIds.isEmpty()) {
+            recordKeyAccesses(HotKeyDetector.READ_OPERATION, theUncachedIds);
+            final Map<String, Map<String, AttributeValue>> theLoadedItems = new HashMap<>();
+            mParallelBatchReader
+                .batchLoadItems(mShapeType, theUncachedIds)
+                .forEach(theItem ->
+                    theLoadedItems.put(theItem.get(AbstractShapeMarshaller.ID_ATTRIBUTE).getS(), theItem));
+            mEntityCache.putAll(theLoadedItems);
+            theItems.putAll(theLoadedItems);
+        }
+        return theIds
+            .stream()
+            .map(theItems::get)
+            .filter(theItem -> theItem != null)
+            .map(theItem -> mItemConverter.fromItem(mShapeType, theItem))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends T> S save(final S inShape) {
+        if (mShapeAggregates != null) {
+            return saveAggregated(inShape);
+        }
+        try {
+            mDynamoDBOperations.save(inShape);
+        } catch (final ConditionalCheckFailedException theException) {
+            throw optimisticLockingFailure(inShape, theException);
+        } finally {
+            invalidateCachedShape(inShape.getId());
+            recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+        }
+        return inShape;
+    }
+
+    @Override
+    public <S extends T> CompletableFuture<S> saveBehind(final S inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        if (mWriteBehindWriter == null || mShapeAggregates != null) {
+            return saveCompleted(inShape);
+        }
+        if (inShape.getId() != null) {
+            invalidateCachedShape(inShape.getId());
+        }
+        return mWriteBehindWriter
+            .write(inShape)
+            .whenComplete((theResult, theException) -> {
+                if (inShape.getId() != null) {
+                    invalidateCachedShape(inShape.getId());
+                }
+            })
+            .thenApply(theResult -> inShape);
+    }
+
+    @Override
+    public <S extends T> S update(final S inShape, final String... inAttributeNames) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        Assert.notNull(inShape.getId(), "Only saved entities can be updated!");
+        final Long theExpectedVersion = inShape.getVersion();
+        final DateTime thePreviousLastUpdateTime = inShape.getLastUpdateTime();
+        final Map<String, AttributeValue> theItem = mItemConverter.toItem(inShape);
+        final PartialUpdate thePartialUpdate = partialUpdate(inAttributeNames);
+        final UpdateItemResult theUpdateItemResult;
+        try {
+            theUpdateItemResult = mAmazonDynamoDB.updateItem(versionCondition(theExpectedVersion).applyTo(
+                thePartialUpdate.applyTo(
+                    new UpdateItemRequest()
+                        .withTableName(mItemConverter.tableName(mShapeType))
+                        .withKey(mItemConverter.key(mShapeType, inShape.getId()))
+                        .withReturnValues(mShapeAggregates != null ? ReturnValue.ALL_OLD : ReturnValue.NONE),
+                    theItem)));
+        } catch (final ConditionalCheckFailedException theException) {
+            inShape.setVersion(theExpectedVersion);
+            inShape.setLastUpdateTime(thePreviousLastUpdateTime);
+            throw optimisticLockingFailure(inShape, theException);
+        } finally {
+            invalidateCachedShape(inShape.getId());
+            recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+        }
+
+        if (mShapeAggregates != null) {
+            final Map<String, AttributeValue> theOldItem = theUpdateItemResult.getAttributes();
+            final Map<String, AttributeValue> theNewItem = new HashMap<>(theOldItem);
+            for (String theAttributeName : thePartialUpdate.getAttributeNames()) {
+                if (theItem.containsKey(theAttributeName)) {
+                    theNewItem.put(theAttributeName, theItem.get(theAttributeName));
+                } else {
+                    theNewItem.remove(theAttributeName);
+                }
+            }
+            mShapeAggregates.recordChange(
+                mShapeType,
+                mItemConverter.fromItem(mShapeType, theOldItem),
+                mItemConverter.fromItem(mShapeType, theNewItem));
+        }
+        return inShape;
+    }
+
+    @Override
+    public <S extends T> S updatePosition(final S inShape, final int inX, final int inY) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        inShape.setPosition(inX, inY);
+        return update(inShape, AbstractShapeMarshaller.X_ATTRIBUTE, AbstractShapeMarshaller.Y_ATTRIBUTE);
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(final Iterable<S> inShapes) {
+        Assert.notNull(inShapes, "The given Iterable of entities not be null!");
+        if (mShapeAggregates != null) {
+            return saveAllAggregated(inShapes);
+        }
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches;
+        try {
+            theFailedBatches = mParallelBatchWriter.batchSave(inShapes);
+        } finally {
+            invalidateCachedShapes(ids(inShapes));
+            recordKeyAccesses(HotKeyDetector.WRITE_OPERATION, ids(inShapes));
+        }
+        if (!theFailedBatches.isEmpty()) {
+            throw repackageToException(theFailedBatches, BatchWriteException.class);
+        }
+        return inShapes;
+    }
+
+    @Override
+    public void deleteById(final String inId) {
+        final T theShape = findById(inId).orElseThrow(() -> new EmptyResultDataAccessException(
+            String.format("No %s entity with id %s exists!", mShapeType, inId), 1));
+        delete(theShape);
+    }
+
+    @Override
+    public void delete(final T inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        if (mShapeAggregates != null) {
+            deleteAggregated(inShape);
+            return;
+        }
+        try {
+            mDynamoDBOperations.delete(inShape);
+        } finally {
+            invalidateCachedShape(inShape.getId());
+            recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+        }
+    }
+
+    @Override
+    public void deleteAll(final Iterable<? extends T> inShapes) {
+        Assert.notNull(inShapes, "The given Iterable of entities not be null!");
+        if (mShapeAggregates != null) {
+            deleteAllAggregated(inShapes);
+            return;
+        }
+        final List<String> theIds = ids(inShapes);
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches;
+        try {
+            theFailedBatches = mParallelBatchWriter.batchDelete(mShapeType, theIds);
+        } finally {
+            invalidateCachedShapes(theIds);
+            recordKeyAccesses(HotKeyDetector.WRITE_OPERATION, theIds);
+        }
+        if (!theFailedBatches.isEmpty()) {
+            throw repackageToException(theFailedBatches, BatchDeleteException.class);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        try {
+            deleteAll(findAll());
+        } finally {
+            invalidateCachedShapes();
+        }
+    }
+
+    @Override
+    public long count() {
+        return mSingleFlight.<Long>execute(List.of("count"), () -> mShapeAggregates != null
+            ? mShapeAggregates.all(mShapeType).getCount()
+            : mDynamoDBOperations.count(mShapeType, new DynamoDBScanExpression()));
+    }
+
+    @Override
+    public long countByColour(final String inColour) {
+        Assert.notNull(inColour, "The colour must not be null!");
+        return mSingleFlight.<Long>execute(List.of("countByColour", inColour), () -> {
+            if (mShapeAggregates != null) {
+                return mShapeAggregates.colour(mShapeType, inColour).getCount();
+            }
+            recordKeyAccess(HotKeyDetector.queryOperation(Shape.COLOUR_INDEX_NAME), inColour);
+            return (long) mDynamoDBOperations.count(mShapeType, colourQueryExpression(inColour));
+        });
+    }
+
+    @Override
+    public double areaSum() {
+        if (mShapeAggregates != null) {
+            return mShapeAggregates.all(mShapeType).getAreaSum();
+        }
+        try (Stream<T> theShapes = findAllAsStream()) {
+            return theShapes.mapToDouble(Shape::area).sum();
+        }
+    }
+
+    @Override
+    public void rebuildAggregates() {
+        Assert.state(mShapeAggregates != null, "Aggregates are not enabled");
+        mShapeAggregates.rebuild(mShapeType, findAll());
+    }
+
+    @Override
+    public List<T> findAll() {
+        return fromItems(mSingleFlight.<List<Map<String, AttributeValue>>>execute(List.of("findAll"), () -> {
+            try (Stream<Map<String, AttributeValue>> theItems =
+                mParallelScanner.scanItems(mItemConverter.tableName(mShapeType), mScanSegments)) {
+                return theItems.collect(Collectors.toList());
+            }
+        }));
+    }
+
+    @Override
+    public Stream<T> findAllAsStream() {
+        return findAllAsStream(mScanSegments);
+    }
+
+    @Override
+    public Stream<T> findAllAsStream(final int inTotalSegments) {
+        return mParallelScanner.scan(mShapeType, inTotalSegments);
+    }
+
+    @Override
+    public List<T> findWithin(final int inMinX, final int inMinY, final int inMaxX, final int inMaxY) {
+        return mShapeSpatialQueryExecutor.findWithin(mShapeType, inMinX, inMinY, inMaxX, inMaxY);
+    }
+
+    @Override
+    public Optional<T> findByIdProjected(final String inId, final String... inAttributeNames) {
+        Assert.notNull(inId, "The given id must not be null!");
+        recordKeyAccess(HotKeyDetector.READ_OPERATION, inId);
+        final GetItemResult theGetItemResult = mAmazonDynamoDB.getItem(projection(inAttributeNames).applyTo(
+            new GetItemRequest()
+                .withTableName(mItemConverter.tableName(mShapeType))
+                .withKey(mItemConverter.key(mShapeType, inId))));
+        return Optional
+            .ofNullable(theGetItemResult.getItem())
+            .map(theItem -> mItemConverter.fromItem(mShapeType, theItem));
+    }
+
+    @Override
+    public List<T> findAllProjected(final String... inAttributeNames) {
+        final ScanRequest theScanRequest = projection(inAttributeNames).applyTo(new ScanRequest());
+        try (Stream<T> theShapes = mParallelScanner.scan(mShapeType, mScanSegments, theScanRequest)) {
+            return theShapes.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public List<T> findWithinProjected(
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY,
+        final String... inAttributeNames) {
+        return mShapeSpatialQueryExecutor.findWithin(
+            mShapeType, inMinX, inMinY, inMaxX, inMaxY, projection(inAttributeNames));
+    }
+
+    @Override
+    public <S extends T> CompletableFuture<S> saveAsync(final S inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        if (mShapeAggregates != null) {
+            return saveCompleted(inShape);
+        }
+        final Long theExpectedVersion = inShape.getVersion();
+        final DateTime thePreviousLastUpdateTime = inShape.getLastUpdateTime();
+        return mAsyncDynamoDBTemplate
+            .save(inShape, versionCondition(theExpectedVersion))
+            .whenComplete((theShape, theException) -> {
+                if (theException != null) {
+                    inShape.setVersion(theExpectedVersion);
+                    inShape.setLastUpdateTime(thePreviousLastUpdateTime);
+                }
+                invalidateCachedShape(inShape.getId());
+                recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+            });
+    }
+
+    @Override
+    public CompletableFuture<Optional<T>> findByIdAsync(final String inId) {
+        Assert.notNull(inId, "The given id must not be null!");
+        final Optional<Map<String, AttributeValue>> theCachedItem = mEntityCache.getIfPresent(inId);
+        if (theCachedItem.isPresent()) {
+            return CompletableFuture.completedFuture(
+                theCachedItem.map(theItem -> mItemConverter.fromItem(mShapeType, theItem)));
+        }
+        recordKeyAccess(HotKeyDetector.READ_OPERATION, inId);
+        return mAsyncDynamoDBTemplate.load(mShapeType, inId);
+    }
+
+    @Override
+    public SdkPublisher<T> findAllAsync() {
+        return mAsyncDynamoDBTemplate.scan(mShapeType);
+    }
+
+    @Override
+    public CacheStats cacheStatistics() {
+        return mEntityCache.statistics();
+    }
+
+    @Override
+    public SingleFlight.Statistics coalescingStatistics() {
+        return mSingleFlight.statistics();
+    }
+
+    /**
+     * Finds shapes which colour matches the supplied colour using a query on the global secondary
+     * index on shape colour. Concurrent calls with the same colour are coalesced, if enabled.
+     *
+     * @param inColour Colour to match.
+     * @return Shapes which colour match.
+     */
+    protected List<T> findByColour(final String inColour) {
+        Assert.notNull(inColour, "The colour must not be null!");
+        return fromItems(mSingleFlight.<List<Map<String, AttributeValue>>>execute(
+            List.of("findByColour", inColour), () -> {
+                recordKeyAccess(HotKeyDetector.queryOperation(Shape.COLOUR_INDEX_NAME), inColour);
+                return queryColourItems(inColour);
+            }));
+    }
+
+    /**
+     * Queries the global secondary index on shape colour for the items of the shapes which
+     * colour matches the supplied colour.
+     *
+     * @param inColour Colour to match.
+     * @return Items of shapes which colour match.
+     */
+    protected List<Map<String, AttributeValue>> queryColourItems(final String inColour) {
+        final List<Map<String, AttributeValue>> theItems = new ArrayList<>();
+        Map<String, AttributeValue> theLastEvaluatedKey = null;
+        do {
+            final QueryResult theQueryResult = mAmazonDynamoDB.query(new QueryRequest()
+                .withTableName(mItemConverter.tableName(mShapeType))
+                .withIndexName(Shape.COLOUR_INDEX_NAME)
+                .withKeyConditionExpression("#colour = :colour")
+                .withExpressionAttributeNames(Map.of("#colour", AbstractShapeMarshaller.COLOUR_ATTRIBUTE))
+                .withExpressionAttributeValues(Map.of(":colour", new AttributeValue(inColour)))
+                .withExclusiveStartKey(theLastEvaluatedKey));
+            theItems.addAll(theQueryResult.getItems());
+            theLastEvaluatedKey = theQueryResult.getLastEvaluatedKey();
+        } while (theLastEvaluatedKey != null);
+        return theItems;
+    }
+
+    /**
+     * Converts the supplied DynamoDB items to new shapes.
+     *
+     * @param inItems Items of shapes.
+     * @return Shapes, in the order of the items.
+     */
+    protected List<T> fromItems(final List<Map<String, AttributeValue>> inItems) {
+        final List<T> theShapes = new ArrayList<>(inItems.size());
+        for (Map<String, AttributeValue> theItem : inItems) {
+            theShapes.add(mItemConverter.fromItem(mShapeType, theItem));
+        }
+        return theShapes;
+    }
+
+    /**
+     * Creates an expression querying the global secondary index on shape colour for the supplied colour.
+     *
+     * @param inColour Colour to match.
+     * @return Query expression.
+     */
+    protected DynamoDBQueryExpression<T> colourQueryExpression(final String inColour) {
+        return new DynamoDBQueryExpression<T>()
+            .withIndexName(Shape.COLOUR_INDEX_NAME)
+            .withConsistentRead(false)
+            .withKeyConditionExpression("#colour = :colour")
+            .withExpressionAttributeNames(Map.of("#colour", AbstractShapeMarshaller.COLOUR_ATTRIBUTE))
+            .withExpressionAttributeValues(Map.of(":colour", new AttributeValue(inColour)));
+    }
+
+    /**
+     * Finds shapes which colour matches the supplied colour without blocking, using a query
+     * on the global secondary index on shape colour.
+     *
+     * @param inColour Colour to match.
+     * @return Publisher of shapes which colour match.
+     */
+    protected SdkPublisher<T> findByColourAsync(final String inColour) {
+        recordKeyAccess(HotKeyDetector.queryOperation(Shape.COLOUR_INDEX_NAME), inColour);
+        return mAsyncDynamoDBTemplate.queryIndex(mShapeType, Shape.COLOUR_INDEX_NAME, "colour", inColour);
+    }
+
+    /**
+     * Saves the supplied shape, blocking until the shape has been written, and returns the outcome
+     * as a completed future.
+     * Used by the non-blocking and write-behind save operations when the shape cannot be written
+     * in the background, for instance since the aggregates must be updated with the previous
+     * state of the shape.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return Future completed with the saved shape, or completed exceptionally if the save failed.
+     */
+    protected <S extends T> CompletableFuture<S> saveCompleted(final S inShape) {
+        try {
+            return CompletableFuture.completedFuture(save(inShape));
+        } catch (final RuntimeException theException) {
+            return CompletableFuture.failedFuture(theException);
+        }
+    }
+
+    /**
+     * Saves the supplied shape using a conditional PutItem request that returns the previous
+     * state of the shape, from which the changes of the aggregates are computed.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return The saved shape.
+     * @throws OptimisticLockingFailureException If the shape has been written since it was read.
+     */
+    protected <S extends T> S saveAggregated(final S inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        final T theOldShape = putReturningOld(inShape, true);
+        mShapeAggregates.recordChange(mShapeType, theOldShape, inShape);
+        return inShape;
+    }
+
+    /**
+     * Saves the supplied shapes using one PutItem request per shape that returns the previous
+     * state of the shape, since batched writes cannot return the previous states of the written items.
+     * Like batched writes, the writes are not conditional on the versions of the shapes.
+     * The changes of the aggregates are applied once, after all shapes have been written or
+     * a write has failed.
+     *
+     * @param inShapes Shapes to save.
+     * @param <S> Shape type.
+     * @return The saved shapes.
+     */
+    protected <S extends T> Iterable<S> saveAllAggregated(final Iterable<S> inShapes) {
+        final List<T> theOldShapes = new ArrayList<>();
+        final List<S> theNewShapes = new ArrayList<>();
+        try {
+            for (S theShape : inShapes) {
+                Assert.notNull(theShape, "The entity must not be null!");
+                final T theOldShape = putReturningOld(theShape, false);
+                if (theOldShape != null) {
+                    theOldShapes.add(theOldShape);
+                }
+                theNewShapes.add(theShape);
+            }
+        } finally {
+            mShapeAggregates.recordChanges(mShapeType, theOldShapes, theNewShapes);
+        }
+        return inShapes;
+    }
+
+    /**
+     * Deletes the supplied shape using a DeleteItem request, conditional on the version of
+     * the shape, that returns the deleted state of the shape, which is removed from the aggregates.
+     *
+     * @param inShape Shape to delete.
+     * @throws OptimisticLockingFailureException If the shape has been written since it was read.
+     */
+    protected void deleteAggregated(final T inShape) {
+        mShapeAggregates.recordChange(mShapeType, deleteReturningOld(inShape, true), null);
+    }
+
+    /**
+     * Deletes the supplied shapes using one DeleteItem request per shape that returns the deleted
+     * state of the shape, so that only shapes that actually existed are removed from the aggregates.
+     * Like batched writes, the deletes are not conditional on the versions of the shapes.
+     * The changes of the aggregates are applied once, after all shapes have been deleted or
+     * a delete has failed.
+     *
+     * @param inShapes Shapes to delete.
+     */
+    protected void deleteAllAggregated(final Iterable<? extends T> inShapes) {
+        final List<T> theDeletedShapes = new ArrayList<>();
+        try {
+            for (T theShape : inShapes) {
+                Assert.notNull(theShape, "The entity must not be null!");
+                final T theDeletedShape = deleteReturningOld(theShape, false);
+                if (theDeletedShape != null) {
+                    theDeletedShapes.add(theDeletedShape);
+                }
+            }
+        } finally {
+            mShapeAggregates.recordChanges(mShapeType, theDeletedShapes, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Writes the supplied shape using a PutItem request that returns the previous state of the shape.
+     * The id, if not set, and the last update time are set on the supplied shape and its version
+     * is incremented. If the write fails, the version and last update time are restored.
+     *
+     * @param inShape Shape to write.
+     * @param inVersionCheckFlag True if the write is conditional on the version of the shape, false otherwise.
+     * @return Previous state of the shape, null if the shape did not exist.
+     * @throws OptimisticLockingFailureException If the version is checked and the shape has been
+     * written since it was read.
+     */
+    protected T putReturningOld(final T inShape, final boolean inVersionCheckFlag) {
+        final Long theExpectedVersion = inShape.getVersion();
+        final DateTime thePreviousLastUpdateTime = inShape.getLastUpdateTime();
+        final PutItemRequest thePutItemRequest = new PutItemRequest()
+            .withTableName(mItemConverter.tableName(mShapeType))
+            .withItem(mItemConverter.toItem(inShape))
+            .withReturnValues(ReturnValue.ALL_OLD);
+        final PutItemResult thePutItemResult;
+        try {
+            thePutItemResult = mAmazonDynamoDB.putItem(inVersionCheckFlag
+                ? versionCondition(theExpectedVersion).applyTo(thePutItemRequest)
+                : thePutItemRequest);
+        } catch (final RuntimeException theException) {
+            inShape.setVersion(theExpectedVersion);
+            inShape.setLastUpdateTime(thePreviousLastUpdateTime);
+            throw theException instanceof ConditionalCheckFailedException
+                ? optimisticLockingFailure(inShape, theException)
+                : theException;
+        } finally {
+            invalidateCachedShape(inShape.getId());
+            recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+        }
+        return shape(thePutItemResult.getAttributes());
+    }
+
+    /**
+     * Deletes the supplied shape using a DeleteItem request that returns the deleted state of the shape.
+     *
+     * @param inShape Shape to delete.
+     * @param inVersionCheckFlag True if the delete is conditional on the version of the shape, false otherwise.
+     * @return Deleted state of the shape, null if the shape did not exist.
+     * @throws OptimisticLockingFailureException If the version is checked and the shape has been
+     * written since it was read.
+     */
+    protected T deleteReturningOld(final T inShape, final boolean inVersionCheckFlag) {
+        final DeleteItemRequest theDeleteItemRequest = new DeleteItemRequest()
+            .withTableName(mItemConverter.tableName(mShapeType))
+            .withKey(mItemConverter.key(mShapeType, inShape.getId()))
+            .withReturnValues(ReturnValue.ALL_OLD);
+        final DeleteItemResult theDeleteItemResult;
+        try {
+            theDeleteItemResult = mAmazonDynamoDB.deleteItem(inVersionCheckFlag
+                ? versionCondition(inShape.getVersion()).applyTo(theDeleteItemRequest)
+                : theDeleteItemRequest);
+        } catch (final ConditionalCheckFailedException theException) {
+            throw optimisticLockingFailure(inShape, theException);
+        } finally {
+            invalidateCachedShape(inShape.getId());
+            recordKeyAccess(HotKeyDetector.WRITE_OPERATION, inShape.getId());
+        }
+        return shape(theDeleteItemResult.getAttributes());
+    }
+
+    /**
+     * Invalidates the shape with the supplied id in the entity cache and discards in-flight
+     * and kept finder results, since they may contain the shape.
+     * Should be called after the shape has been modified or deleted, or a write of the shape has failed.
+     *
+     * @param inId Shape id, null if the shape has not been assigned an id.
+     */
+    protected void invalidateCachedShape(final String inId) {
+        if (inId != null) {
+            mEntityCache.invalidate(inId);
+        }
+        mSingleFlight.invalidateAll();
+    }
+
+    /**
+     * Invalidates the shapes with the supplied ids in the entity cache and discards in-flight
+     * and kept finder results.
+     *
+     * @param inIds Shape ids.
+     */
+    protected void invalidateCachedShapes(final Iterable<String> inIds) {
+        mEntityCache.invalidateAll(inIds);
+        mSingleFlight.invalidateAll();
+    }
+
+    /**
+     * Invalidates all shapes in the entity cache and discards in-flight and kept finder results.
+     */
+    protected void invalidateCachedShapes() {
+        mEntityCache.invalidateAll();
+        mSingleFlight.invalidateAll();
+    }
+
+    /**
+     * Invalidates the shapes changed by the supplied stream records in the entity cache.
+     *
+     * @param inRecords Stream records of the shape table.
+     */
+    protected void invalidateChangedShapes(final List<Record> inRecords) {
+        invalidateCachedShapes(inRecords
+            .stream()
+            .map(theRecord -> theRecord.getDynamodb().getKeys().get(AbstractShapeMarshaller.ID_ATTRIBUTE).getS())
+            .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Records an access of the supplied key of the shape table by the supplied operation,
+     * if hot key detection is enabled.
+     *
+     * @param inOperation Name of operation.
+     * @param inKey Accessed key, such as a shape id. Null keys are not recorded.
+     */
+    protected void recordKeyAccess(final String inOperation, final String inKey) {
+        if (mHotKeyDetector != null && inKey != null) {
+            mHotKeyDetector.record(mItemConverter.tableName(mShapeType), inOperation, inKey);
+        }
+    }
+
+    /**
+     * Records accesses of the supplied keys of the shape table by the supplied operation,
+     * if hot key detection is enabled.
+     *
+     * @param inOperation Name of operation.
+     * @param inKeys Accessed keys. Null keys are not recorded.
+     */
+    protected void recordKeyAccesses(final String inOperation, final Iterable<String> inKeys) {
+        if (mHotKeyDetector != null) {
+            inKeys.forEach(theKey -> recordKeyAccess(inOperation, theKey));
+        }
+    }
+
+    /**
+     * Converts the supplied item to a shape.
+     *
+     * @param inItem Item to convert. May be null or empty.
+     * @return Shape, null if no item was supplied.
+     */
+    protected T shape(final Map<String, AttributeValue> inItem) {
+        return inItem != null && !inItem.isEmpty() ? mItemConverter.fromItem(mShapeType, inItem) : null;
+    }
+
+    /**
+     * Loads the item of the shape with the supplied id, which is converted to a shape using
+     * the item converter instead of the reflective table model of the DynamoDB mapper.
+     *
+     * @param inId Id of shape to load.
+     * @return Item of shape, null if no shape with the id exists.
+     */
+    protected Map<String, AttributeValue> loadItem(final String inId) {
+        recordKeyAccess(HotKeyDetector.READ_OPERATION, inId);
+        return mAmazonDynamoDB
+            .getItem(mItemConverter.tableName(mShapeType), mItemConverter.key(mShapeType, inId))
+            .getItem();
+    }
+
+    /**
+     * Creates a condition on the version of a shape being the supplied expected version.
+     *
+     * @param inExpectedVersion Expected version, null if the shape has not been written with a version.
+     * @return Version condition.
+     */
+    protected VersionCondition versionCondition(final Long inExpectedVersion) {
+        return ShapeVersioning.versionCondition(mItemConverter, mShapeType, inExpectedVersion);
+    }
+
+    /**
+     * Creates an exception reporting that the supplied shape could not be written, since it
+     * has been written or deleted since it was read.
+     *
+     * @param inShape Shape that could not be written.
+     * @param inCause Exception thrown by the write.
+     * @return Optimistic locking failure exception.
+     */
+    protected OptimisticLockingFailureException optimisticLockingFailure(
+        final Shape inShape,
+        final Exception inCause) {
+        return ShapeVersioning.optimisticLockingFailure(inShape, inCause);
+    }
+
+    /**
+     * Creates a partial update of the supplied attributes and the attributes that are always
+     * written, or derived from the supplied attributes.
+     *
+     * @param inAttributeNames Names of attributes to update.
+     * @return Partial update.
+     */
+    protected static PartialUpdate partialUpdate(final String... inAttributeNames) {
+        return new PartialUpdate(AbstractShapeMarshaller.writtenAttributes(inAttributeNames));
+    }
+
+    /**
+     * Creates a projection of the supplied attributes and the id attribute.
+     *
+     * @param inAttributeNames Names of attributes to project.
+     * @return Attribute projection.
+     */
+    protected static AttributeProjection projection(final String... inAttributeNames) {
+        return AttributeProjection.of(AbstractShapeMarshaller.ID_ATTRIBUTE).with(inAttributeNames);
+    }
+
+    /**
+     * Retrieves the ids of the supplied shapes, excluding shapes that have not been assigned an id.
+     *
+     * @param inShapes Shapes which ids to retrieve.
+     * @return Shape ids.
+     */
+    protected static List<String> ids(final Iterable<? extends Shape> inShapes) {
+        return StreamSupport
+            .stream(inShapes.spliterator(), false)
+            .map(Shape::getId)
+            .filter(theId -> theId != null)
+            .collect(Collectors.toList());
+    }
+}
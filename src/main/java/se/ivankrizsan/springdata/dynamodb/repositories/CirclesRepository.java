@@ -8,18 +8,40 @@ import java.util.List;
 
 /**
  * DynamoDB repository containing {@code Circle}s.
+ * Scanning is only enabled for the operations that by definition need to read the entire
+ * table. Query methods that cannot be executed as a query on the table or on one of its
+ * global secondary indexes will fail instead of silently falling back to a scan.
  *
  * @author Ivan Krizsan
  * @see Circle
  */
-@EnableScan
-public interface CirclesRepository extends CrudRepository<Circle, String> {
+public interface CirclesRepository extends CrudRepository<Circle, String>, CirclesRepositoryCustom {
 
     /**
-     * Finds circles that which colour matches the supplied colour.
+     * Finds all circles in the repository.
+     * Requires a scan of the entire table.
      *
-     * @param colour Colour to match.
-     * @return Circles which colour match.
+     * @return All circles.
      */
-    List<Circle> findCirclesByColour(final String colour);
+    @EnableScan
+    @Override
+    List<Circle> findAll();
+
+    /**
+     * Deletes all circles in the repository.
+     * Requires a scan of the entire table, since all circles first are found.
+     */
+    @EnableScan
+    @Override
+    void deleteAll();
+
+    /**
+     * Counts the circles in the repository.
+     * Read from the maintained aggregates if enabled, otherwise requires a scan of the entire table.
+     *
+     * @return Number of circles.
+     */
+    @EnableScan
+    @Override
+    long count();
 }
@@ -0,0 +1,34 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import software.amazon.awssdk.core.async.SdkPublisher;
+
+import java.util.List;
+
+/**
+ * Custom repository operations of the DynamoDB repository containing {@code Circle}s.
+ *
+ * @author Ivan Krizsan
+ * @see CirclesRepository
+ */
+public interface CirclesRepositoryCustom extends ShapeRepositoryCustom<Circle, String> {
+
+    /**
+     * Finds circles which colour matches the supplied colour.
+     * Executed as a query on the global secondary index on shape colour.
+     * Concurrent calls with the same colour share one query, if coalescing is enabled.
+     *
+     * @param inColour Colour to match.
+     * @return Circles which colour match.
+     */
+    List<Circle> findCirclesByColour(String inColour);
+
+    /**
+     * Finds circles which colour matches the supplied colour without blocking.
+     * Executed as a query on the global secondary index on shape colour.
+     *
+     * @param inColour Colour to match.
+     * @return Publisher of circles which colour match.
+     */
+    SdkPublisher<Circle> findCirclesByColourAsync(String inColour);
+}
@@ -0,0 +1,34 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import software.amazon.awssdk.core.async.SdkPublisher;
+
+import java.util.List;
+
+/**
+ * Implementation of the custom repository operations of the DynamoDB repository
+ * containing {@code Circle}s.
+ * Discovered by Spring Data by its name and combined with the repository.
+ *
+ * @author Ivan Krizsan
+ */
+public class CirclesRepositoryCustomImpl extends AbstractShapeRepositoryCustom<Circle>
+    implements CirclesRepositoryCustom {
+
+    /**
+     * Creates custom circle repository operations.
+     */
+    public CirclesRepositoryCustomImpl() {
+        super(Circle.class);
+    }
+
+    @Override
+    public List<Circle> findCirclesByColour(final String inColour) {
+        return findByColour(inColour);
+    }
+
+    @Override
+    public SdkPublisher<Circle> findCirclesByColourAsync(final String inColour) {
+        return findByColourAsync(inColour);
+    }
+}
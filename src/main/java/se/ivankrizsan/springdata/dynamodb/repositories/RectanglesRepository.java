@@ -4,12 +4,44 @@ import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
 import org.springframework.data.repository.CrudRepository;
 import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
 
+import java.util.List;
+
 /**
  * DynamoDB repository containing {@code Rectangle}s.
+ * Scanning is only enabled for the operations that by definition need to read the entire
+ * table. Query methods that cannot be executed as a query on the table or on one of its
+ * global secondary indexes will fail instead of silently falling back to a scan.
  *
  * @author Ivan Krizsan
  * @see Rectangle
  */
-@EnableScan
-public interface RectanglesRepository extends CrudRepository<Rectangle, String> {
+public interface RectanglesRepository extends CrudRepository<Rectangle, String>, RectanglesRepositoryCustom {
+
+    /**
+     * Finds all rectangles in the repository.
+     * Requires a scan of the entire table.
+     *
+     * @return All rectangles.
+     */
+    @EnableScan
+    @Override
+    List<Rectangle> findAll();
+
+    /**
+     * Deletes all rectangles in the repository.
+     * Requires a scan of the entire table, since all rectangles first are found.
+     */
+    @EnableScan
+    @Override
+    void deleteAll();
+
+    /**
+     * Counts the rectangles in the repository.
+     * Read from the maintained aggregates if enabled, otherwise requires a scan of the entire table.
+     *
+     * @return Number of rectangles.
+     */
+    @EnableScan
+    @Override
+    long count();
 }
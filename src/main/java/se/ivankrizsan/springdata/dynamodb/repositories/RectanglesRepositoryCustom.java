@@ -0,0 +1,12 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+
+/**
+ * Custom repository operations of the DynamoDB repository containing {@code Rectangle}s.
+ *
+ * @author Ivan Krizsan
+ * @see RectanglesRepository
+ */
+public interface RectanglesRepositoryCustom extends ShapeRepositoryCustom<Rectangle, String> {
+}
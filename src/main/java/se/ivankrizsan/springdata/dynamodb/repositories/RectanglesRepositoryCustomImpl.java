@@ -0,0 +1,21 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+
+/**
+ * Implementation of the custom repository operations of the DynamoDB repository
+ * containing {@code Rectangle}s.
+ * Discovered by Spring Data by its name and combined with the repository.
+ *
+ * @author Ivan Krizsan
+ */
+public class RectanglesRepositoryCustomImpl extends AbstractShapeRepositoryCustom<Rectangle>
+    implements RectanglesRepositoryCustom {
+
+    /**
+     * Creates custom rectangle repository operations.
+     */
+    public RectanglesRepositoryCustomImpl() {
+        super(Rectangle.class);
+    }
+}
@@ -0,0 +1,261 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeAggregate;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Maintains aggregates of shapes, the number of shapes and the sum of their areas, of all shapes
+ * of a type and of the shapes of each colour, so that the aggregates can be read using a fixed
+ * number of item reads instead of scanning or querying the shapes.
+ * Aggregates are updated after shapes have been written, using atomic ADD updates of the
+ * changes of the aggregates. The changes of the aggregates caused by writing a number of shapes
+ * are summed before being applied, so that writing a batch of shapes updates each affected
+ * aggregate once.
+ * Each aggregate is divided into a number of shards and each update is applied to a randomly
+ * selected shard, which spreads the writes of frequently updated aggregates over multiple items.
+ * Since shapes and aggregates are not written in one transaction, aggregates may drift from the
+ * shapes if a writer fails between writing shapes and updating the aggregates, or if shapes are
+ * written without updating the aggregates. Aggregates can be rebuilt from the shapes.
+ *
+ * @author Ivan Krizsan
+ */
+public class ShapeAggregates {
+    /* Constant(s): */
+    public static final String ID_ATTRIBUTE = "id";
+    public static final String COUNT_ATTRIBUTE = "count";
+    public static final String AREA_SUM_ATTRIBUTE = "areaSum";
+    /** Maximum number of shards, which is the maximum number of keys read in one BatchGetItem request. */
+    public static final int MAX_SHARDS = 100;
+    protected static final String ALL_SHAPES_AGGREGATE_NAME = "all";
+    protected static final String COLOUR_AGGREGATE_NAME_PREFIX = "colour=";
+    protected static final String ID_SEPARATOR = "#";
+    protected static final String UPDATE_EXPRESSION = "ADD #count :count, #areaSum :areaSum";
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final String mTableName;
+    protected final int mShards;
+
+    /**
+     * Creates aggregates of shapes that are divided into the supplied number of shards.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inShards Number of shards of each aggregate.
+     */
+    public ShapeAggregates(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final int inShards) {
+        Assert.isTrue(inShards > 0 && inShards <= MAX_SHARDS, "The number of shards must be between 1 and 100");
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mTableName = inItemConverter.tableName(ShapeAggregate.class);
+        mShards = inShards;
+    }
+
+    /**
+     * Updates the aggregates of the supplied shape type after a shape has been written.
+     *
+     * @param inShapeType Shape type.
+     * @param inOldShape State of the shape before it was written, null if the shape was created.
+     * @param inNewShape State of the shape after it was written, null if the shape was deleted.
+     */
+    public void recordChange(
+        final Class<? extends Shape> inShapeType,
+        final Shape inOldShape,
+        final Shape inNewShape) {
+        recordChanges(
+            inShapeType,
+            inOldShape != null ? List.of(inOldShape) : Collections.emptyList(),
+            inNewShape != null ? List.of(inNewShape) : Collections.emptyList());
+    }
+
+    /**
+     * Updates the aggregates of the supplied shape type after a number of shapes have been written,
+     * applying the summed changes of each aggregate in one update.
+     *
+     * @param inShapeType Shape type.
+     * @param inOldShapes States of the shapes before they were written, excluding created shapes.
+     * @param inNewShapes States of the shapes after they were written, excluding deleted shapes.
+     */
+    public void recordChanges(
+        final Class<? extends Shape> inShapeType,
+        final Collection<? extends Shape> inOldShapes,
+        final Collection<? extends Shape> inNewShapes) {
+        final Map<String, ShapeAggregate> theChanges = new LinkedHashMap<>();
+        inOldShapes.forEach(theShape -> addChange(theChanges, theShape, -1));
+        inNewShapes.forEach(theShape -> addChange(theChanges, theShape, 1));
+        theChanges.forEach((theAggregateName, theChange) -> {
+            if (theChange.getCount() != 0 || theChange.getAreaSum() != 0) {
+                applyChange(inShapeType, theAggregateName, theChange);
+            }
+        });
+    }
+
+    /**
+     * Reads the aggregate of all shapes of the supplied type.
+     *
+     * @param inShapeType Shape type.
+     * @return Aggregate of all shapes of the type.
+     */
+    public ShapeAggregate all(final Class<? extends Shape> inShapeType) {
+        return read(inShapeType, ALL_SHAPES_AGGREGATE_NAME);
+    }
+
+    /**
+     * Reads the aggregate of the shapes of the supplied type which have the supplied colour.
+     *
+     * @param inShapeType Shape type.
+     * @param inColour Colour.
+     * @return Aggregate of the shapes of the type and colour.
+     */
+    public ShapeAggregate colour(final Class<? extends Shape> inShapeType, final String inColour) {
+        Assert.notNull(inColour, "The colour must not be null");
+        return read(inShapeType, COLOUR_AGGREGATE_NAME_PREFIX + inColour);
+    }
+
+    /**
+     * Rebuilds the aggregates of the supplied shape type from the supplied shapes, discarding
+     * the current aggregates of the shape type.
+     * Shapes of the type must not be written while the aggregates are rebuilt.
+     *
+     * @param inShapeType Shape type.
+     * @param inShapes All shapes of the type.
+     */
+    public void rebuild(final Class<? extends Shape> inShapeType, final Collection<? extends Shape> inShapes) {
+        final String theIdPrefix = inShapeType.getSimpleName() + ID_SEPARATOR;
+        Map<String, AttributeValue> theExclusiveStartKey = null;
+        do {
+            final ScanResult theScanResult = mAmazonDynamoDB.scan(new ScanRequest()
+                .withTableName(mTableName)
+                .withProjectionExpression("#id")
+                .withFilterExpression("begins_with(#id, :idPrefix)")
+                .withExpressionAttributeNames(Map.of("#id", ID_ATTRIBUTE))
+                .withExpressionAttributeValues(Map.of(":idPrefix", new AttributeValue(theIdPrefix)))
+                .withExclusiveStartKey(theExclusiveStartKey));
+            theScanResult.getItems().forEach(theKey -> mAmazonDynamoDB.deleteItem(new DeleteItemRequest()
+                .withTableName(mTableName)
+                .withKey(theKey)));
+            theExclusiveStartKey = theScanResult.getLastEvaluatedKey();
+        } while (theExclusiveStartKey != null && !theExclusiveStartKey.isEmpty());
+        recordChanges(inShapeType, Collections.emptyList(), inShapes);
+    }
+
+    /**
+     * Adds the change caused by the supplied shape to the changes of the aggregates containing the shape.
+     *
+     * @param inChanges Changes of aggregates, keyed by aggregate name.
+     * @param inShape Shape.
+     * @param inSign 1 if the shape is added to the aggregates, -1 if it is removed from the aggregates.
+     */
+    protected static void addChange(
+        final Map<String, ShapeAggregate> inChanges,
+        final Shape inShape,
+        final int inSign) {
+        final List<String> theAggregateNames = new ArrayList<>(2);
+        theAggregateNames.add(ALL_SHAPES_AGGREGATE_NAME);
+        if (inShape.getColour() != null) {
+            theAggregateNames.add(COLOUR_AGGREGATE_NAME_PREFIX + inShape.getColour());
+        }
+        for (String theAggregateName : theAggregateNames) {
+            final ShapeAggregate theChange =
+                inChanges.computeIfAbsent(theAggregateName, theName -> new ShapeAggregate(theName, 0, 0));
+            theChange.setCount(theChange.getCount() + inSign);
+            theChange.setAreaSum(theChange.getAreaSum() + inSign * inShape.area());
+        }
+    }
+
+    /**
+     * Applies the supplied change to a randomly selected shard of the supplied aggregate.
+     *
+     * @param inShapeType Shape type.
+     * @param inAggregateName Aggregate name.
+     * @param inChange Change of the number of shapes and the sum of their areas.
+     */
+    protected void applyChange(
+        final Class<? extends Shape> inShapeType,
+        final String inAggregateName,
+        final ShapeAggregate inChange) {
+        final String theShardId = shardId(inShapeType, inAggregateName, ThreadLocalRandom.current().nextInt(mShards));
+        mAmazonDynamoDB.updateItem(new UpdateItemRequest()
+            .withTableName(mTableName)
+            .withKey(mItemConverter.key(ShapeAggregate.class, theShardId))
+            .withUpdateExpression(UPDATE_EXPRESSION)
+            .withExpressionAttributeNames(Map.of("#count", COUNT_ATTRIBUTE, "#areaSum", AREA_SUM_ATTRIBUTE))
+            .withExpressionAttributeValues(Map.of(
+                ":count", new AttributeValue().withN(Long.toString(inChange.getCount())),
+                ":areaSum", new AttributeValue().withN(BigDecimal.valueOf(inChange.getAreaSum()).toPlainString()))));
+    }
+
+    /**
+     * Reads all shards of the supplied aggregate, in one BatchGetItem request unless some shards
+     * are left unprocessed, and sums them.
+     *
+     * @param inShapeType Shape type.
+     * @param inAggregateName Aggregate name.
+     * @return Aggregate, with a count of zero if no shape has been aggregated.
+     */
+    protected ShapeAggregate read(final Class<? extends Shape> inShapeType, final String inAggregateName) {
+        final ShapeAggregate theAggregate = new ShapeAggregate(inAggregateName, 0, 0);
+        Map<String, KeysAndAttributes> theRequestItems = Map.of(mTableName, new KeysAndAttributes()
+            .withKeys(IntStream
+                .range(0, mShards)
+                .mapToObj(theShard -> mItemConverter.key(
+                    ShapeAggregate.class, shardId(inShapeType, inAggregateName, theShard)))
+                .collect(Collectors.toList())));
+        while (theRequestItems != null && !theRequestItems.isEmpty()) {
+            final BatchGetItemResult theResult =
+                mAmazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(theRequestItems));
+            theResult
+                .getResponses()
+                .getOrDefault(mTableName, Collections.emptyList())
+                .stream()
+                .map(theItem -> mItemConverter.fromItem(ShapeAggregate.class, theItem))
+                .forEach(theShard -> {
+                    theAggregate.setCount(theAggregate.getCount() + theShard.getCount());
+                    theAggregate.setAreaSum(theAggregate.getAreaSum() + theShard.getAreaSum());
+                });
+            theRequestItems = theResult.getUnprocessedKeys();
+        }
+        return theAggregate;
+    }
+
+    /**
+     * Creates the id of the supplied shard of the supplied aggregate.
+     *
+     * @param inShapeType Shape type.
+     * @param inAggregateName Aggregate name.
+     * @param inShard Shard number.
+     * @return Shard id.
+     */
+    protected static String shardId(
+        final Class<? extends Shape> inShapeType,
+        final String inAggregateName,
+        final int inShard) {
+        return inShapeType.getSimpleName() + ID_SEPARATOR + inAggregateName + ID_SEPARATOR + inShard;
+    }
+}
@@ -0,0 +1,328 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.support.SingleFlight;
+import software.amazon.awssdk.core.async.SdkPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository operations common to repositories containing {@code Shape}s.
+ * Methods declared in this interface that have the same signature as methods
+ * in {@code CrudRepository} replace the default Spring Data DynamoDB implementations.
+ * Shapes retrieved by id are kept in a bounded entity cache, if enabled, and all operations
+ * modifying or deleting shapes invalidate the cached shapes affected.
+ * Single shapes are saved and updated using optimistic locking: the write fails if the version
+ * of the shape in the database differs from the version of the supplied shape.
+ * If aggregates are enabled, the number of shapes and the sum of their areas, in total and per
+ * colour, are maintained as shapes are saved, updated and deleted, except by asynchronous and
+ * write-behind saves, and read without scanning the shapes.
+ * If coalescing is enabled, concurrent identical calls of finders that return shared results share
+ * one DynamoDB request and its result. Every caller is returned shapes of its own, which it may modify.
+ * Methods with names ending with Async are non-blocking and do not occupy the calling
+ * thread while waiting for DynamoDB.
+ * The type parameters are not bounded, since the erasures of the methods must be identical
+ * to those of the corresponding {@code CrudRepository} methods.
+ *
+ * @param <T> Shape type.
+ * @param <ID> Shape id type.
+ * @author Ivan Krizsan
+ * @see Shape
+ */
+public interface ShapeRepositoryCustom<T, ID> {
+
+    /**
+     * Finds the shape with the supplied id, retrieving it from the entity cache if cached.
+     * Every lookup returns a newly converted shape, which the caller may modify.
+     *
+     * @param inId Shape id.
+     * @return Optional containing the shape, empty optional if no shape with the id exists.
+     */
+    Optional<T> findById(ID inId);
+
+    /**
+     * Determines whether a shape with the supplied id exists, retrieving the shape from
+     * the entity cache if cached.
+     *
+     * @param inId Shape id.
+     * @return True if a shape with the id exists, false otherwise.
+     */
+    boolean existsById(ID inId);
+
+    /**
+     * Finds the shapes with the supplied ids, retrieving cached shapes from the entity cache and
+     * loading the other shapes using concurrently dispatched BatchGetItem requests of at most 100 ids each.
+     * Duplicate ids are only read once. Loaded shapes are added to the entity cache.
+     * Every lookup returns newly converted shapes, which the caller may modify.
+     *
+     * @param inIds Shape ids.
+     * @return Shapes that exist, in the order of the first occurrence of their ids.
+     */
+    List<T> findAllById(Iterable<ID> inIds);
+
+    /**
+     * Saves the supplied shape, replacing all its attributes, and invalidates any cached version
+     * of the shape.
+     * The version of the shape is incremented.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return The saved shape.
+     * @throws org.springframework.dao.OptimisticLockingFailureException If the shape has been
+     * written since it was read.
+     */
+    <S extends T> S save(S inShape);
+
+    /**
+     * Saves the supplied shape behind the caller, if write-behind is enabled and aggregates are
+     * not enabled, otherwise immediately.
+     * Shapes saved behind are queued and written in batches at the end of the current flush window.
+     * Repeated saves of a shape within one flush window are coalesced into one write of the last
+     * saved state. The version of the shape is incremented but not checked.
+     * Any cached version of the shape is invalidated both when the shape is queued and when it
+     * has been written.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return Future that is completed with the saved shape when the shape has been written.
+     */
+    <S extends T> CompletableFuture<S> saveBehind(S inShape);
+
+    /**
+     * Writes only the supplied attributes of the supplied, previously saved, shape using a partial
+     * update, and invalidates any cached version of the shape.
+     * The last update time and the version of the shape are always written and the spatial index
+     * attributes are written if the position is updated. Other attributes are left unchanged.
+     * The version of the shape is incremented.
+     *
+     * @param inShape Shape to update.
+     * @param inAttributeNames Names of attributes to write.
+     * @param <S> Shape type.
+     * @return The updated shape.
+     * @throws org.springframework.dao.OptimisticLockingFailureException If the shape has been
+     * written or deleted since it was read.
+     */
+    <S extends T> S update(S inShape, String... inAttributeNames);
+
+    /**
+     * Moves the supplied, previously saved, shape to the supplied position, writing only the
+     * position using a partial update.
+     *
+     * @param inShape Shape to move.
+     * @param inX New x-coordinate of shape position.
+     * @param inY New y-coordinate of shape position.
+     * @param <S> Shape type.
+     * @return The moved shape.
+     * @throws org.springframework.dao.OptimisticLockingFailureException If the shape has been
+     * written or deleted since it was read.
+     * @see #update(Object, String...)
+     */
+    <S extends T> S updatePosition(S inShape, int inX, int inY);
+
+    /**
+     * Saves the supplied shapes using batched writes that are dispatched concurrently.
+     * Ids and last update times are set on the supplied shapes.
+     * Versions are incremented but, since batched writes cannot be conditional, not checked.
+     * Any cached versions of the shapes are invalidated.
+     * If aggregates are enabled, each shape is instead written using a request that returns the
+     * previous state of the shape and the changes of all the shapes are applied to the aggregates at once.
+     *
+     * @param inShapes Shapes to save.
+     * @param <S> Shape type.
+     * @return The saved shapes.
+     */
+    <S extends T> Iterable<S> saveAll(Iterable<S> inShapes);
+
+    /**
+     * Deletes the shape with the supplied id and invalidates any cached version of the shape.
+     *
+     * @param inId Id of shape to delete.
+     * @throws org.springframework.dao.EmptyResultDataAccessException If no shape with the id exists.
+     */
+    void deleteById(ID inId);
+
+    /**
+     * Deletes the supplied shape and invalidates any cached version of the shape.
+     *
+     * @param inShape Shape to delete.
+     */
+    void delete(T inShape);
+
+    /**
+     * Deletes the supplied shapes using batched writes that are dispatched concurrently, at a rate
+     * limited by the capacity rate limiter, and invalidates any cached versions of the shapes.
+     * If aggregates are enabled, each shape is instead deleted using a request that returns the
+     * deleted state of the shape and the deleted states are removed from the aggregates at once.
+     *
+     * @param inShapes Shapes to delete.
+     */
+    void deleteAll(Iterable<? extends T> inShapes);
+
+    /**
+     * Deletes all shapes, which are found using a parallel scan, and clears the entity cache.
+     */
+    void deleteAll();
+
+    /**
+     * Counts the shapes, reading the maintained aggregates if enabled, otherwise scanning all shapes.
+     *
+     * @return Number of shapes.
+     */
+    long count();
+
+    /**
+     * Counts the shapes which have the supplied colour, reading the maintained aggregates if enabled,
+     * otherwise using a query on the global secondary index on shape colour.
+     *
+     * @param inColour Colour to match.
+     * @return Number of shapes with the colour.
+     */
+    long countByColour(String inColour);
+
+    /**
+     * Computes the sum of the areas of all shapes, reading the maintained aggregates if enabled,
+     * otherwise scanning all shapes.
+     *
+     * @return Sum of shape areas.
+     */
+    double areaSum();
+
+    /**
+     * Rebuilds the maintained aggregates from all shapes, which are found using a parallel scan,
+     * correcting any drift between the aggregates and the shapes.
+     * Shapes must not be written while the aggregates are rebuilt.
+     *
+     * @throws IllegalStateException If aggregates are not enabled.
+     */
+    void rebuildAggregates();
+
+    /**
+     * Finds all shapes using a parallel scan with the configured number of segments.
+     * All the shapes are loaded into memory; use {@link #findAllAsStream()} for large tables.
+     *
+     * @return All shapes.
+     */
+    List<T> findAll();
+
+    /**
+     * Finds all shapes using a parallel scan with the configured number of segments.
+     * Shapes are read from the database as the stream is consumed.
+     * The stream should be closed if it is not consumed completely.
+     *
+     * @return Stream of all shapes.
+     */
+    Stream<T> findAllAsStream();
+
+    /**
+     * Finds all shapes using a parallel scan that divides the table into the supplied
+     * number of segments which are read concurrently.
+     * Shapes are read from the database as the stream is consumed.
+     * The stream should be closed if it is not consumed completely.
+     *
+     * @param inTotalSegments Number of segments to divide the table into.
+     * @return Stream of all shapes.
+     */
+    Stream<T> findAllAsStream(int inTotalSegments);
+
+    /**
+     * Finds shapes located within the supplied bounding box, inclusive, using concurrent queries
+     * on the global secondary index on shape position.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @return Shapes within the bounding box, in no particular order.
+     */
+    List<T> findWithin(int inMinX, int inMinY, int inMaxX, int inMaxY);
+
+    /**
+     * Finds the shape with the supplied id, reading only the supplied attributes and the id.
+     * Properties of attributes not projected have their default values.
+     * Projected shapes are always read from the database and never cached.
+     *
+     * @param inId Shape id.
+     * @param inAttributeNames Names of attributes to read.
+     * @return Optional containing the partially read shape, empty optional if no shape with the id exists.
+     */
+    Optional<T> findByIdProjected(ID inId, String... inAttributeNames);
+
+    /**
+     * Finds all shapes using a parallel scan, reading only the supplied attributes and the id
+     * of each shape.
+     * Properties of attributes not projected have their default values.
+     *
+     * @param inAttributeNames Names of attributes to read.
+     * @return All shapes, partially read.
+     */
+    List<T> findAllProjected(String... inAttributeNames);
+
+    /**
+     * Finds shapes located within the supplied bounding box, inclusive, reading only the supplied
+     * attributes and the id of each shape.
+     * Properties of attributes not projected have their default values.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param inAttributeNames Names of attributes to read.
+     * @return Shapes within the bounding box, partially read, in no particular order.
+     */
+    List<T> findWithinProjected(int inMinX, int inMinY, int inMaxX, int inMaxY, String... inAttributeNames);
+
+    /**
+     * Saves the supplied shape without blocking and invalidates any cached version of the
+     * shape when the shape has been written.
+     * The id and last update time are set on the supplied shape before it is written.
+     * The shape is only written if it has not been written since it was read and its version
+     * is incremented.
+     * If aggregates are enabled, the shape is saved immediately, blocking the caller, since the
+     * aggregates are updated with the previous state of the shape.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return Future that is completed with the saved shape when the shape has been written, or
+     * completed exceptionally with an optimistic locking failure exception if the shape has been
+     * written since it was read.
+     */
+    <S extends T> CompletableFuture<S> saveAsync(S inShape);
+
+    /**
+     * Finds the shape with the supplied id without blocking.
+     * Shapes in the entity cache are retrieved from the cache. Shapes that are not cached are
+     * read from the database but not added to the cache.
+     *
+     * @param inId Shape id.
+     * @return Future that is completed with an optional containing the shape, or an empty
+     * optional if no shape with the id exists.
+     */
+    CompletableFuture<Optional<T>> findByIdAsync(ID inId);
+
+    /**
+     * Finds all shapes without blocking, using a scan that reads pages of shapes as
+     * subscribers demand more shapes.
+     *
+     * @return Publisher of all shapes.
+     */
+    SdkPublisher<T> findAllAsync();
+
+    /**
+     * Retrieves hit, miss and eviction counts of the entity cache.
+     *
+     * @return Entity cache statistics, empty statistics if the cache is disabled.
+     */
+    CacheStats cacheStatistics();
+
+    /**
+     * Retrieves the numbers of finder calls made, executed and deduplicated by coalescing
+     * concurrent identical calls.
+     *
+     * @return Coalescing statistics, all counts zero if coalescing is disabled.
+     */
+    SingleFlight.Statistics coalescingStatistics();
+}
@@ -0,0 +1,210 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.support.AttributeProjection;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelScanner;
+import se.ivankrizsan.springdata.dynamodb.support.ZOrderCurve;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds shapes within bounding boxes using the global secondary index on shape position.
+ * A bounding box is covered by one key range per spatial index partition that it overlaps
+ * and the key ranges are queried concurrently on the supplied executor.
+ * Since key ranges may contain positions outside of the bounding box, the queries filter
+ * the shapes on their exact position.
+ * Bounding boxes overlapping more partitions than the maximum number of queries are instead
+ * found using a filtered parallel scan, which then is cheaper than querying.
+ *
+ * @author Ivan Krizsan
+ */
+public class ShapeSpatialQueryExecutor {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShapeSpatialQueryExecutor.class);
+    protected static final String KEY_CONDITION_EXPRESSION =
+        "#partition = :partition AND #key BETWEEN :fromKey AND :toKey";
+    protected static final String FILTER_EXPRESSION =
+        "#x BETWEEN :minX AND :maxX AND #y BETWEEN :minY AND :maxY";
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final ParallelScanner mParallelScanner;
+    protected final Executor mExecutor;
+    protected final int mMaxQueries;
+    protected final int mScanSegments;
+
+    /**
+     * Creates a spatial query executor.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Converts items to shapes.
+     * @param inParallelScanner Parallel scanner used when a bounding box overlaps too many partitions.
+     * @param inExecutor Executor on which queries of key ranges are performed.
+     * @param inMaxQueries Maximum number of queries for one bounding box.
+     * @param inScanSegments Number of segments to divide a table into when scanning.
+     */
+    public ShapeSpatialQueryExecutor(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final ParallelScanner inParallelScanner,
+        final Executor inExecutor,
+        final int inMaxQueries,
+        final int inScanSegments) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mParallelScanner = inParallelScanner;
+        mExecutor = inExecutor;
+        mMaxQueries = inMaxQueries;
+        mScanSegments = inScanSegments;
+    }
+
+    /**
+     * Finds shapes of the supplied type located within the supplied bounding box, inclusive.
+     *
+     * @param inShapeType Type of shapes to find.
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param <T> Shape type.
+     * @return Shapes within the bounding box, in no particular order.
+     */
+    public <T extends Shape> List<T> findWithin(
+        final Class<T> inShapeType,
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY) {
+        return findWithin(inShapeType, inMinX, inMinY, inMaxX, inMaxY, null);
+    }
+
+    /**
+     * Finds shapes of the supplied type located within the supplied bounding box, inclusive,
+     * reading only the attributes of the supplied projection.
+     *
+     * @param inShapeType Type of shapes to find.
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param inProjection Attributes to read, null to read all attributes.
+     * @param <T> Shape type.
+     * @return Shapes within the bounding box, in no particular order.
+     */
+    public <T extends Shape> List<T> findWithin(
+        final Class<T> inShapeType,
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY,
+        final AttributeProjection inProjection) {
+        final Map<String, AttributeValue> theFilterValues = Map.of(
+            ":minX", mItemConverter.attributeValue(inShapeType, "x", inMinX),
+            ":maxX", mItemConverter.attributeValue(inShapeType, "x", inMaxX),
+            ":minY", mItemConverter.attributeValue(inShapeType, "y", inMinY),
+            ":maxY", mItemConverter.attributeValue(inShapeType, "y", inMaxY));
+
+        final long thePartitionCount =
+            ZOrderCurve.partitionCount(inMinX, inMinY, inMaxX, inMaxY, Shape.SPATIAL_PARTITION_BITS);
+        if (thePartitionCount > mMaxQueries) {
+            LOGGER.debug("Bounding box overlaps {} partitions, scanning instead of querying", thePartitionCount);
+            final ScanRequest theScanRequest = new ScanRequest()
+                .withFilterExpression(FILTER_EXPRESSION)
+                .withExpressionAttributeNames(Map.of("#x", "x", "#y", "y"))
+                .withExpressionAttributeValues(theFilterValues);
+            if (inProjection != null) {
+                inProjection.applyTo(theScanRequest);
+            }
+            try (Stream<T> theShapes = mParallelScanner.scan(inShapeType, mScanSegments, theScanRequest)) {
+                return theShapes.collect(Collectors.toList());
+            }
+        }
+
+        final List<CompletableFuture<List<T>>> theRangeFutures = new ArrayList<>();
+        for (ZOrderCurve.KeyRange theKeyRange
+            : ZOrderCurve.ranges(inMinX, inMinY, inMaxX, inMaxY, Shape.SPATIAL_PARTITION_BITS)) {
+            theRangeFutures.add(CompletableFuture.supplyAsync(
+                () -> queryKeyRange(inShapeType, theKeyRange, theFilterValues, inProjection), mExecutor));
+        }
+        try {
+            return theRangeFutures
+                .stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        } catch (final CompletionException theException) {
+            if (theException.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) theException.getCause();
+            }
+            throw theException;
+        }
+    }
+
+    /**
+     * Queries all pages of the supplied key range of the spatial index, filtering shapes on
+     * the bounding box in the supplied filter values.
+     *
+     * @param inShapeType Type of shapes to find.
+     * @param inKeyRange Key range to query.
+     * @param inFilterValues Bounding box coordinates keyed by filter expression placeholder.
+     * @param inProjection Attributes to read, null to read all attributes.
+     * @param <T> Shape type.
+     * @return Shapes in key range within the bounding box.
+     */
+    protected <T extends Shape> List<T> queryKeyRange(
+        final Class<T> inShapeType,
+        final ZOrderCurve.KeyRange inKeyRange,
+        final Map<String, AttributeValue> inFilterValues,
+        final AttributeProjection inProjection) {
+        final Map<String, AttributeValue> theExpressionValues = new HashMap<>(inFilterValues);
+        theExpressionValues.put(":partition",
+            mItemConverter.attributeValue(inShapeType, "spatialPartition", inKeyRange.getPartition()));
+        theExpressionValues.put(":fromKey",
+            mItemConverter.attributeValue(inShapeType, "spatialKey", inKeyRange.getFromKey()));
+        theExpressionValues.put(":toKey",
+            mItemConverter.attributeValue(inShapeType, "spatialKey", inKeyRange.getToKey()));
+
+        final List<T> theShapes = new ArrayList<>();
+        Map<String, AttributeValue> theLastEvaluatedKey = null;
+        do {
+            final QueryRequest theQueryRequest = new QueryRequest()
+                .withTableName(mItemConverter.tableName(inShapeType))
+                .withIndexName(Shape.SPATIAL_INDEX_NAME)
+                .withKeyConditionExpression(KEY_CONDITION_EXPRESSION)
+                .withFilterExpression(FILTER_EXPRESSION)
+                .withExpressionAttributeNames(Map.of(
+                    "#partition", "spatialPartition",
+                    "#key", "spatialKey",
+                    "#x", "x",
+                    "#y", "y"))
+                .withExpressionAttributeValues(theExpressionValues)
+                .withExclusiveStartKey(theLastEvaluatedKey);
+            if (inProjection != null) {
+                inProjection.applyTo(theQueryRequest);
+            }
+            final QueryResult theQueryResult = mAmazonDynamoDB.query(theQueryRequest);
+            for (Map<String, AttributeValue> theItem : theQueryResult.getItems()) {
+                theShapes.add(mItemConverter.fromItem(inShapeType, theItem));
+            }
+            theLastEvaluatedKey = theQueryResult.getLastEvaluatedKey();
+        } while (theLastEvaluatedKey != null);
+        return theShapes;
+    }
+}
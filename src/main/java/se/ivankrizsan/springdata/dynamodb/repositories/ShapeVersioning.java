@@ -0,0 +1,60 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.AbstractShapeMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.VersionCondition;
+
+/**
+ * Optimistic locking of shapes shared by the shape repositories, regardless of whether shapes
+ * are stored in one table per shape type or in one single table.
+ *
+ * @author Ivan Krizsan
+ */
+public final class ShapeVersioning {
+    /* Constant(s): */
+
+    /**
+     * Hidden constructor of utility class.
+     */
+    private ShapeVersioning() {
+    }
+
+    /**
+     * Creates a condition on the version of a shape being the supplied expected version.
+     *
+     * @param inItemConverter Item converter used to convert the expected version to an attribute value.
+     * @param inShapeType Type of shape, or the shape base type if shapes are stored in one single table.
+     * @param inExpectedVersion Expected version, null if the shape has not been written with a version.
+     * @return Version condition.
+     */
+    public static VersionCondition versionCondition(
+        final ItemConverter inItemConverter,
+        final Class<? extends Shape> inShapeType,
+        final Long inExpectedVersion) {
+        return new VersionCondition(
+            AbstractShapeMarshaller.ID_ATTRIBUTE,
+            AbstractShapeMarshaller.VERSION_ATTRIBUTE,
+            inExpectedVersion != null
+                ? inItemConverter.attributeValue(
+                    inShapeType, AbstractShapeMarshaller.VERSION_ATTRIBUTE, inExpectedVersion)
+                : null);
+    }
+
+    /**
+     * Creates an exception reporting that the supplied shape could not be written, since it
+     * has been written or deleted since it was read.
+     *
+     * @param inShape Shape that could not be written.
+     * @param inCause Exception thrown by the write.
+     * @return Optimistic locking failure exception.
+     */
+    public static OptimisticLockingFailureException optimisticLockingFailure(
+        final Shape inShape,
+        final Exception inCause) {
+        return new OptimisticLockingFailureException(String.format(
+            "%s entity with id %s and version %s has been modified or deleted",
+            inShape.getClass(), inShape.getId(), inShape.getVersion()), inCause);
+    }
+}
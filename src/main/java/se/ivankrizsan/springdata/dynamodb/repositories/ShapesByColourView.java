@@ -0,0 +1,150 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeByColour;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.TableChangeHandler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains a precomputed view of shapes grouped by colour from the changes of the shape tables,
+ * so that the shapes of a colour can be found with one query instead of by scanning the shape tables.
+ * The view holds one entry per shape that has a colour, containing the position and area of the shape.
+ * Entries are written with the state of the shapes found in the stream records, so handling the same
+ * changes again yields the same view. Changes within a batch of records are coalesced, so that each
+ * entry is written at most once per batch.
+ * The streams of the shape tables must contain both the new and the old images of items, since the
+ * old image is needed to remove the entry of a shape which colour has changed.
+ * The view should be maintained by one consumer on one node only, so that entries are always written
+ * in the order in which the shapes were changed.
+ *
+ * @author Ivan Krizsan
+ */
+public class ShapesByColourView {
+    /* Constant(s): */
+    public static final String COLOUR_ATTRIBUTE = "colour";
+    public static final String SHAPE_KEY_ATTRIBUTE = "shapeKey";
+    protected static final String SHAPE_KEY_SEPARATOR = "#";
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final String mTableName;
+
+    /**
+     * Creates a view of shapes grouped by colour.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     */
+    public ShapesByColourView(final AmazonDynamoDB inAmazonDynamoDB, final ItemConverter inItemConverter) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mTableName = inItemConverter.tableName(ShapeByColour.class);
+    }
+
+    /**
+     * Creates a handler that maintains the view from the changes of the table of the supplied shape type.
+     *
+     * @param inShapeType Shape type.
+     * @return Table change handler.
+     */
+    public TableChangeHandler handler(final Class<? extends Shape> inShapeType) {
+        return (theTableName, theRecords) -> applyChanges(inShapeType, theRecords);
+    }
+
+    /**
+     * Updates the view with the supplied changes of shapes of the supplied type.
+     *
+     * @param inShapeType Shape type.
+     * @param inRecords Stream records describing the changes, in the order in which they were made.
+     */
+    public void applyChanges(final Class<? extends Shape> inShapeType, final List<Record> inRecords) {
+        /* Last state of each affected entry, keyed by colour and shape key, null if the entry is removed. */
+        final Map<List<String>, ShapeByColour> theEntries = new LinkedHashMap<>();
+        for (Record theRecord : inRecords) {
+            final StreamRecord theStreamRecord = theRecord.getDynamodb();
+            final Shape theOldShape = theStreamRecord.getOldImage() != null
+                ? mItemConverter.fromItem(inShapeType, theStreamRecord.getOldImage())
+                : null;
+            final Shape theNewShape = !OperationType.REMOVE.toString().equals(theRecord.getEventName())
+                && theStreamRecord.getNewImage() != null
+                ? mItemConverter.fromItem(inShapeType, theStreamRecord.getNewImage())
+                : null;
+
+            if (theOldShape != null && theOldShape.getColour() != null
+                && (theNewShape == null || !theOldShape.getColour().equals(theNewShape.getColour()))) {
+                theEntries.put(List.of(theOldShape.getColour(), shapeKey(inShapeType, theOldShape.getId())), null);
+            }
+            if (theNewShape != null && theNewShape.getColour() != null) {
+                final String theShapeKey = shapeKey(inShapeType, theNewShape.getId());
+                theEntries.put(List.of(theNewShape.getColour(), theShapeKey), new ShapeByColour(
+                    theNewShape.getColour(), theShapeKey, theNewShape.getX(), theNewShape.getY(), theNewShape.area()));
+            }
+        }
+
+        theEntries.forEach((theEntryKey, theEntry) -> {
+            if (theEntry != null) {
+                mAmazonDynamoDB.putItem(new PutItemRequest()
+                    .withTableName(mTableName)
+                    .withItem(mItemConverter.toItem(theEntry)));
+            } else {
+                mAmazonDynamoDB.deleteItem(new DeleteItemRequest()
+                    .withTableName(mTableName)
+                    .withKey(Map.of(
+                        COLOUR_ATTRIBUTE, new AttributeValue(theEntryKey.get(0)),
+                        SHAPE_KEY_ATTRIBUTE, new AttributeValue(theEntryKey.get(1)))));
+            }
+        });
+    }
+
+    /**
+     * Finds the entries of the shapes which have the supplied colour.
+     *
+     * @param inColour Colour.
+     * @return Entries of shapes of the colour, ordered by shape key.
+     */
+    public List<ShapeByColour> findByColour(final String inColour) {
+        Assert.notNull(inColour, "The colour must not be null");
+        final List<ShapeByColour> theEntries = new ArrayList<>();
+        Map<String, AttributeValue> theExclusiveStartKey = null;
+        do {
+            final QueryResult theQueryResult = mAmazonDynamoDB.query(new QueryRequest()
+                .withTableName(mTableName)
+                .withKeyConditionExpression("#colour = :colour")
+                .withExpressionAttributeNames(Map.of("#colour", COLOUR_ATTRIBUTE))
+                .withExpressionAttributeValues(Map.of(":colour", new AttributeValue(inColour)))
+                .withExclusiveStartKey(theExclusiveStartKey));
+            theQueryResult
+                .getItems()
+                .forEach(theItem -> theEntries.add(mItemConverter.fromItem(ShapeByColour.class, theItem)));
+            theExclusiveStartKey = theQueryResult.getLastEvaluatedKey();
+        } while (theExclusiveStartKey != null && !theExclusiveStartKey.isEmpty());
+        return theEntries;
+    }
+
+    /**
+     * Creates the key of the shape of the supplied type with the supplied id.
+     *
+     * @param inShapeType Shape type.
+     * @param inShapeId Shape id.
+     * @return Shape key.
+     */
+    public static String shapeKey(final Class<? extends Shape> inShapeType, final String inShapeId) {
+        return inShapeType.getSimpleName() + SHAPE_KEY_SEPARATOR + inShapeId;
+    }
+}
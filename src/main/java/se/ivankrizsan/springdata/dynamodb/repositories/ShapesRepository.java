@@ -0,0 +1,399 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.joda.time.DateTime;
+import org.socialsignin.spring.data.dynamodb.exception.BatchDeleteException;
+import org.socialsignin.spring.data.dynamodb.exception.BatchWriteException;
+import org.socialsignin.spring.data.dynamodb.utils.ExceptionHandler;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.AbstractShapeMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.PolymorphicShapeMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.AttributeProjection;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelBatchWriter;
+import se.ivankrizsan.springdata.dynamodb.support.ParallelScanner;
+import se.ivankrizsan.springdata.dynamodb.support.PartialUpdate;
+import se.ivankrizsan.springdata.dynamodb.support.VersionCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Repository containing shapes of all types in one single table.
+ * Each item carries a type discriminator from which the shape type is materialized when read,
+ * which allows for finding shapes of different types, for instance by colour, in one request
+ * instead of one request per shape type table.
+ * Only used when single-table storage is enabled. The shape type specific repositories
+ * store shapes in separate tables and do not see shapes saved in this repository.
+ * Single shapes are saved, updated and deleted using optimistic locking on the version of the shape.
+ * The shapes table is provisioned by the schema manager.
+ *
+ * @author Ivan Krizsan
+ * @see Shape
+ */
+public class ShapesRepository implements ExceptionHandler {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final ParallelBatchWriter mParallelBatchWriter;
+    protected final ParallelScanner mParallelScanner;
+    protected final ShapeSpatialQueryExecutor mShapeSpatialQueryExecutor;
+    protected final int mScanSegments;
+    protected final String mTableName;
+
+    /**
+     * Creates a repository storing shapes in one single table.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Converts shapes of all types to and from items of the shapes table.
+     * @param inParallelBatchWriter Batch writer using the item converter of the shapes table.
+     * @param inParallelScanner Parallel scanner using the item converter of the shapes table.
+     * @param inShapeSpatialQueryExecutor Spatial query executor using the item converter of the shapes table.
+     * @param inScanSegments Number of segments to divide the table into when scanning.
+     */
+    public ShapesRepository(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final ParallelBatchWriter inParallelBatchWriter,
+        final ParallelScanner inParallelScanner,
+        final ShapeSpatialQueryExecutor inShapeSpatialQueryExecutor,
+        final int inScanSegments) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mParallelBatchWriter = inParallelBatchWriter;
+        mParallelScanner = inParallelScanner;
+        mShapeSpatialQueryExecutor = inShapeSpatialQueryExecutor;
+        mScanSegments = inScanSegments;
+        mTableName = inItemConverter.tableName(Shape.class);
+    }
+
+    /**
+     * Saves the supplied shape, replacing any existing shape with the same id and version.
+     * The id, if not set, and the last update time are set on the supplied shape and its
+     * version is incremented.
+     *
+     * @param inShape Shape to save.
+     * @param <S> Shape type.
+     * @return The saved shape.
+     * @throws OptimisticLockingFailureException If the shape has been written since it was read.
+     */
+    public <S extends Shape> S save(final S inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        final Long theExpectedVersion = inShape.getVersion();
+        final DateTime thePreviousLastUpdateTime = inShape.getLastUpdateTime();
+        final Map<String, AttributeValue> theItem = mItemConverter.toItem(inShape);
+        try {
+            mAmazonDynamoDB.putItem(versionCondition(theExpectedVersion).applyTo(new PutItemRequest()
+                .withTableName(mTableName)
+                .withItem(theItem)));
+        } catch (final ConditionalCheckFailedException theException) {
+            inShape.setVersion(theExpectedVersion);
+            inShape.setLastUpdateTime(thePreviousLastUpdateTime);
+            throw optimisticLockingFailure(inShape, theException);
+        }
+        return inShape;
+    }
+
+    /**
+     * Writes only the supplied attributes of the supplied, previously saved, shape using a partial update.
+     * The last update time and the version of the shape are always written and the spatial index
+     * attributes are written if the position is updated. Other attributes are left unchanged.
+     * The version of the shape is incremented.
+     *
+     * @param inShape Shape to update.
+     * @param inAttributeNames Names of attributes to write.
+     * @param <S> Shape type.
+     * @return The updated shape.
+     * @throws OptimisticLockingFailureException If the shape has been written or deleted since it was read.
+     */
+    public <S extends Shape> S update(final S inShape, final String... inAttributeNames) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        Assert.notNull(inShape.getId(), "Only saved entities can be updated!");
+        final Long theExpectedVersion = inShape.getVersion();
+        final DateTime thePreviousLastUpdateTime = inShape.getLastUpdateTime();
+        final Map<String, AttributeValue> theItem = mItemConverter.toItem(inShape);
+        try {
+            mAmazonDynamoDB.updateItem(versionCondition(theExpectedVersion).applyTo(
+                new PartialUpdate(AbstractShapeMarshaller.writtenAttributes(inAttributeNames)).applyTo(
+                    new UpdateItemRequest()
+                        .withTableName(mTableName)
+                        .withKey(mItemConverter.key(Shape.class, inShape.getId())),
+                    theItem)));
+        } catch (final ConditionalCheckFailedException theException) {
+            inShape.setVersion(theExpectedVersion);
+            inShape.setLastUpdateTime(thePreviousLastUpdateTime);
+            throw optimisticLockingFailure(inShape, theException);
+        }
+        return inShape;
+    }
+
+    /**
+     * Moves the supplied, previously saved, shape to the supplied position, writing only the
+     * position using a partial update.
+     *
+     * @param inShape Shape to move.
+     * @param inX New x-coordinate of shape position.
+     * @param inY New y-coordinate of shape position.
+     * @param <S> Shape type.
+     * @return The moved shape.
+     * @throws OptimisticLockingFailureException If the shape has been written or deleted since it was read.
+     */
+    public <S extends Shape> S updatePosition(final S inShape, final int inX, final int inY) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        inShape.setPosition(inX, inY);
+        return update(inShape, AbstractShapeMarshaller.X_ATTRIBUTE, AbstractShapeMarshaller.Y_ATTRIBUTE);
+    }
+
+    /**
+     * Saves the supplied shapes, which may be of different types, using batched writes that
+     * are dispatched concurrently.
+     *
+     * @param inShapes Shapes to save.
+     * @param <S> Shape type.
+     * @return The saved shapes.
+     */
+    public <S extends Shape> Iterable<S> saveAll(final Iterable<S> inShapes) {
+        Assert.notNull(inShapes, "The given Iterable of entities not be null!");
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches = mParallelBatchWriter.batchSave(inShapes);
+        if (!theFailedBatches.isEmpty()) {
+            throw repackageToException(theFailedBatches, BatchWriteException.class);
+        }
+        return inShapes;
+    }
+
+    /**
+     * Finds the shape with the supplied id.
+     *
+     * @param inId Shape id.
+     * @return Optional containing the shape, of its concrete type, empty optional if no shape
+     * with the id exists.
+     */
+    public Optional<Shape> findById(final String inId) {
+        Assert.notNull(inId, "The given id must not be null!");
+        final GetItemResult theGetItemResult =
+            mAmazonDynamoDB.getItem(mTableName, mItemConverter.key(Shape.class, inId));
+        return Optional
+            .ofNullable(theGetItemResult.getItem())
+            .map(theItem -> mItemConverter.fromItem(Shape.class, theItem));
+    }
+
+    /**
+     * Finds shapes of all types which colour matches the supplied colour.
+     * Executed as a query on the global secondary index on shape colour.
+     *
+     * @param inColour Colour to match.
+     * @return Shapes which colour match.
+     */
+    public List<Shape> findByColour(final String inColour) {
+        final List<Shape> theShapes = new ArrayList<>();
+        Map<String, AttributeValue> theLastEvaluatedKey = null;
+        do {
+            final QueryResult theQueryResult = mAmazonDynamoDB.query(new QueryRequest()
+                .withTableName(mTableName)
+                .withIndexName(Shape.COLOUR_INDEX_NAME)
+                .withKeyConditionExpression("#colour = :colour")
+                .withExpressionAttributeNames(Map.of("#colour", "colour"))
+                .withExpressionAttributeValues(
+                    Map.of(":colour", mItemConverter.attributeValue(Shape.class, "colour", inColour)))
+                .withExclusiveStartKey(theLastEvaluatedKey));
+            for (Map<String, AttributeValue> theItem : theQueryResult.getItems()) {
+                theShapes.add(mItemConverter.fromItem(Shape.class, theItem));
+            }
+            theLastEvaluatedKey = theQueryResult.getLastEvaluatedKey();
+        } while (theLastEvaluatedKey != null);
+        return theShapes;
+    }
+
+    /**
+     * Finds shapes of all types located at the supplied position.
+     * Executed as a query on the global secondary index on shape position.
+     *
+     * @param inX X-coordinate of position.
+     * @param inY Y-coordinate of position.
+     * @return Shapes at the position.
+     */
+    public List<Shape> findByPosition(final int inX, final int inY) {
+        return findWithin(inX, inY, inX, inY);
+    }
+
+    /**
+     * Finds shapes of all types located within the supplied bounding box, inclusive, using
+     * concurrent queries on the global secondary index on shape position.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @return Shapes within the bounding box, in no particular order.
+     */
+    public List<Shape> findWithin(final int inMinX, final int inMinY, final int inMaxX, final int inMaxY) {
+        return mShapeSpatialQueryExecutor.findWithin(Shape.class, inMinX, inMinY, inMaxX, inMaxY);
+    }
+
+    /**
+     * Finds the shape with the supplied id, reading only the supplied attributes, the id
+     * and the shape type.
+     * Properties of attributes not projected have their default values.
+     *
+     * @param inId Shape id.
+     * @param inAttributeNames Names of attributes to read.
+     * @return Optional containing the partially read shape, of its concrete type, empty optional
+     * if no shape with the id exists.
+     */
+    public Optional<Shape> findByIdProjected(final String inId, final String... inAttributeNames) {
+        Assert.notNull(inId, "The given id must not be null!");
+        final GetItemResult theGetItemResult = mAmazonDynamoDB.getItem(projection(inAttributeNames).applyTo(
+            new GetItemRequest()
+                .withTableName(mTableName)
+                .withKey(mItemConverter.key(Shape.class, inId))));
+        return Optional
+            .ofNullable(theGetItemResult.getItem())
+            .map(theItem -> mItemConverter.fromItem(Shape.class, theItem));
+    }
+
+    /**
+     * Finds shapes of all types located within the supplied bounding box, inclusive, reading
+     * only the supplied attributes, the id and the shape type of each shape.
+     * Properties of attributes not projected have their default values.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param inAttributeNames Names of attributes to read.
+     * @return Shapes within the bounding box, partially read, in no particular order.
+     */
+    public List<Shape> findWithinProjected(
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY,
+        final String... inAttributeNames) {
+        return mShapeSpatialQueryExecutor.findWithin(
+            Shape.class, inMinX, inMinY, inMaxX, inMaxY, projection(inAttributeNames));
+    }
+
+    /**
+     * Finds all shapes in the repository.
+     * Requires a scan of the entire table.
+     *
+     * @return All shapes, of their concrete types.
+     */
+    public List<Shape> findAll() {
+        try (Stream<Shape> theShapes = findAllAsStream()) {
+            return theShapes.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Finds all shapes in the repository as a lazily consumed stream, using a parallel scan.
+     *
+     * @return Stream of all shapes. Should be closed if not fully consumed.
+     */
+    public Stream<Shape> findAllAsStream() {
+        return mParallelScanner.scan(Shape.class, mScanSegments);
+    }
+
+    /**
+     * Deletes the supplied shape, provided that it has not been written since it was read.
+     *
+     * @param inShape Shape to delete.
+     * @throws OptimisticLockingFailureException If the shape has been written or deleted since it was read.
+     */
+    public void delete(final Shape inShape) {
+        Assert.notNull(inShape, "The entity must not be null!");
+        try {
+            mAmazonDynamoDB.deleteItem(versionCondition(inShape.getVersion()).applyTo(new DeleteItemRequest()
+                .withTableName(mTableName)
+                .withKey(mItemConverter.key(Shape.class, inShape.getId()))));
+        } catch (final ConditionalCheckFailedException theException) {
+            throw optimisticLockingFailure(inShape, theException);
+        }
+    }
+
+    /**
+     * Finds all shapes in the repository using a parallel scan, reading only the supplied
+     * attributes, the id and the shape type of each shape.
+     * Properties of attributes not projected have their default values.
+     *
+     * @param inAttributeNames Names of attributes to read.
+     * @return All shapes, partially read, of their concrete types.
+     */
+    public List<Shape> findAllProjected(final String... inAttributeNames) {
+        final ScanRequest theScanRequest = projection(inAttributeNames).applyTo(new ScanRequest());
+        try (Stream<Shape> theShapes = mParallelScanner.scan(Shape.class, mScanSegments, theScanRequest)) {
+            return theShapes.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Deletes all shapes in the repository using batched writes that are dispatched concurrently.
+     * Requires a scan of the entire table, since all shapes first are found.
+     */
+    public void deleteAll() {
+        final List<String> theIds;
+        try (Stream<Shape> theShapes = findAllAsStream()) {
+            theIds = theShapes.map(Shape::getId).collect(Collectors.toList());
+        }
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches = mParallelBatchWriter.batchDelete(Shape.class, theIds);
+        if (!theFailedBatches.isEmpty()) {
+            throw repackageToException(theFailedBatches, BatchDeleteException.class);
+        }
+    }
+
+    /**
+     * Creates a condition on the version of a shape being the supplied expected version.
+     *
+     * @param inExpectedVersion Expected version, null if the shape has not been written with a version.
+     * @return Version condition.
+     */
+    protected VersionCondition versionCondition(final Long inExpectedVersion) {
+        return ShapeVersioning.versionCondition(mItemConverter, Shape.class, inExpectedVersion);
+    }
+
+    /**
+     * Creates an exception reporting that the supplied shape could not be written, since it
+     * has been written or deleted since it was read.
+     *
+     * @param inShape Shape that could not be written.
+     * @param inCause Exception thrown by the write.
+     * @return Optimistic locking failure exception.
+     */
+    protected static OptimisticLockingFailureException optimisticLockingFailure(
+        final Shape inShape,
+        final Exception inCause) {
+        return ShapeVersioning.optimisticLockingFailure(inShape, inCause);
+    }
+
+    /**
+     * Creates a projection of the supplied attributes and the attributes required to
+     * materialize a shape of the correct type.
+     *
+     * @param inAttributeNames Names of attributes to project.
+     * @return Attribute projection.
+     */
+    protected static AttributeProjection projection(final String... inAttributeNames) {
+        return AttributeProjection
+            .of(AbstractShapeMarshaller.ID_ATTRIBUTE, PolymorphicShapeMarshaller.SHAPE_TYPE_ATTRIBUTE)
+            .with(inAttributeNames);
+    }
+}
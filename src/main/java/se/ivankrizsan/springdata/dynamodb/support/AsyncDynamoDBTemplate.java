@@ -0,0 +1,208 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Performs DynamoDB operations on entities using a non-blocking DynamoDB client.
+ * No thread is occupied while a request is in flight; results are delivered by completing
+ * futures or by publishing entities to subscribers as result pages arrive.
+ * Entities are converted to and from items by the supplied item converter, using the same
+ * attribute mapping as the blocking repositories.
+ * Entities can be saved conditionally on their version, in which case failed conditional writes
+ * complete the returned future with an optimistic locking failure exception.
+ * Callbacks on returned futures and publishers are executed on threads of the DynamoDB client
+ * and must not block.
+ *
+ * @author Ivan Krizsan
+ */
+public class AsyncDynamoDBTemplate {
+    /* Constant(s): */
+    protected static final String KEY_ATTRIBUTE_NAME_PLACEHOLDER = "#key";
+    protected static final String KEY_ATTRIBUTE_VALUE_PLACEHOLDER = ":key";
+
+    /* Instance variable(s): */
+    protected final DynamoDbAsyncClient mDynamoDbAsyncClient;
+    protected final ItemConverter mItemConverter;
+
+    /**
+     * Creates a template using the supplied non-blocking client and item converter.
+     *
+     * @param inDynamoDbAsyncClient Non-blocking DynamoDB client.
+     * @param inItemConverter Converts entities to and from DynamoDB items.
+     */
+    public AsyncDynamoDBTemplate(
+        final DynamoDbAsyncClient inDynamoDbAsyncClient,
+        final ItemConverter inItemConverter) {
+        mDynamoDbAsyncClient = inDynamoDbAsyncClient;
+        mItemConverter = inItemConverter;
+    }
+
+    /**
+     * Saves the supplied entity, replacing any existing entity with the same key.
+     * Auto-generated attributes, such as keys and timestamps, are set on the supplied entity
+     * before the request is issued.
+     *
+     * @param inEntity Entity to save.
+     * @param <T> Entity type.
+     * @return Future that is completed with the saved entity when the entity has been written.
+     */
+    public <T> CompletableFuture<T> save(final T inEntity) {
+        final PutItemRequest thePutItemRequest = PutItemRequest
+            .builder()
+            .tableName(mItemConverter.tableName(inEntity.getClass()))
+            .item(AttributeValues.toV2(mItemConverter.toItem(inEntity)))
+            .build();
+        return mDynamoDbAsyncClient
+            .putItem(thePutItemRequest)
+            .thenApply(theResponse -> inEntity);
+    }
+
+    /**
+     * Saves the supplied entity, provided that the item of the entity satisfies the supplied
+     * version condition.
+     * Auto-generated attributes, such as keys and timestamps, are set on the supplied entity
+     * before the request is issued.
+     *
+     * @param inEntity Entity to save.
+     * @param inVersionCondition Condition on the version of the item of the entity.
+     * @param <T> Entity type.
+     * @return Future that is completed with the saved entity when the entity has been written, or
+     * completed exceptionally with an optimistic locking failure exception if the condition is not satisfied.
+     */
+    public <T> CompletableFuture<T> save(final T inEntity, final VersionCondition inVersionCondition) {
+        final PutItemRequest thePutItemRequest = inVersionCondition.applyTo(PutItemRequest
+            .builder()
+            .tableName(mItemConverter.tableName(inEntity.getClass()))
+            .item(AttributeValues.toV2(mItemConverter.toItem(inEntity)))
+            .build());
+        return mDynamoDbAsyncClient
+            .putItem(thePutItemRequest)
+            .handle((theResponse, theException) -> {
+                if (theException != null) {
+                    throw translateException(inEntity, theException);
+                }
+                return inEntity;
+            });
+    }
+
+    /**
+     * Loads the entity of the supplied type that has the supplied hash key.
+     *
+     * @param inEntityType Entity type.
+     * @param inHashKey Hash key of entity.
+     * @param <T> Entity type.
+     * @return Future that is completed with an optional containing the entity, or an empty optional
+     * if there is no such entity.
+     */
+    public <T> CompletableFuture<Optional<T>> load(final Class<T> inEntityType, final Object inHashKey) {
+        final GetItemRequest theGetItemRequest = GetItemRequest
+            .builder()
+            .tableName(mItemConverter.tableName(inEntityType))
+            .key(AttributeValues.toV2(mItemConverter.key(inEntityType, inHashKey)))
+            .build();
+        return mDynamoDbAsyncClient
+            .getItem(theGetItemRequest)
+            .thenApply(theResponse -> theResponse.hasItem() && !theResponse.item().isEmpty()
+                ? Optional.of(mItemConverter.fromItem(inEntityType, AttributeValues.toV1(theResponse.item())))
+                : Optional.empty());
+    }
+
+    /**
+     * Scans the table containing entities of the supplied type.
+     * Result pages are requested as subscribers demand more entities.
+     *
+     * @param inEntityType Entity type.
+     * @param <T> Entity type.
+     * @return Publisher of all entities in the table.
+     */
+    public <T> SdkPublisher<T> scan(final Class<T> inEntityType) {
+        final ScanRequest theScanRequest = ScanRequest
+            .builder()
+            .tableName(mItemConverter.tableName(inEntityType))
+            .build();
+        return mDynamoDbAsyncClient
+            .scanPaginator(theScanRequest)
+            .items()
+            .map(theItem -> fromItem(inEntityType, theItem));
+    }
+
+    /**
+     * Queries the supplied global secondary index of the table containing entities of the supplied type
+     * for entities which hash key attribute of the index has the supplied value.
+     * Result pages are requested as subscribers demand more entities.
+     *
+     * @param inEntityType Entity type.
+     * @param inIndexName Name of global secondary index.
+     * @param inHashKeyAttributeName Name of hash key attribute of index.
+     * @param inHashKeyValue Hash key value to match.
+     * @param <T> Entity type.
+     * @return Publisher of matching entities.
+     */
+    public <T> SdkPublisher<T> queryIndex(
+        final Class<T> inEntityType,
+        final String inIndexName,
+        final String inHashKeyAttributeName,
+        final Object inHashKeyValue) {
+        final QueryRequest theQueryRequest = QueryRequest
+            .builder()
+            .tableName(mItemConverter.tableName(inEntityType))
+            .indexName(inIndexName)
+            .keyConditionExpression(KEY_ATTRIBUTE_NAME_PLACEHOLDER + " = " + KEY_ATTRIBUTE_VALUE_PLACEHOLDER)
+            .expressionAttributeNames(Map.of(KEY_ATTRIBUTE_NAME_PLACEHOLDER, inHashKeyAttributeName))
+            .expressionAttributeValues(Map.of(
+                KEY_ATTRIBUTE_VALUE_PLACEHOLDER,
+                AttributeValues.toV2(mItemConverter.attributeValue(inEntityType, inHashKeyAttributeName, inHashKeyValue))))
+            .build();
+        return mDynamoDbAsyncClient
+            .queryPaginator(theQueryRequest)
+            .items()
+            .map(theItem -> fromItem(inEntityType, theItem));
+    }
+
+    /**
+     * Translates the supplied exception that occurred writing the supplied entity.
+     * Failed conditional writes are translated to optimistic locking failure exceptions.
+     *
+     * @param inEntity Entity that could not be written.
+     * @param inException Exception that occurred, possibly wrapped in a completion exception.
+     * @return Translated exception.
+     */
+    protected static RuntimeException translateException(final Object inEntity, final Throwable inException) {
+        final Throwable theCause = inException instanceof CompletionException && inException.getCause() != null
+            ? inException.getCause()
+            : inException;
+        if (theCause instanceof ConditionalCheckFailedException) {
+            return new OptimisticLockingFailureException(String.format(
+                "%s entity has been modified or deleted", inEntity.getClass()), theCause);
+        }
+        return theCause instanceof RuntimeException
+            ? (RuntimeException) theCause
+            : new CompletionException(theCause);
+    }
+
+    /**
+     * Converts the supplied item received from the non-blocking client to an entity.
+     *
+     * @param inEntityType Entity type.
+     * @param inItem Item to convert.
+     * @param <T> Entity type.
+     * @return Entity.
+     */
+    protected <T> T fromItem(
+        final Class<T> inEntityType,
+        final Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> inItem) {
+        return mItemConverter.fromItem(inEntityType, AttributeValues.toV1(inItem));
+    }
+}
@@ -0,0 +1,143 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Projection of top-level item attributes that is applied to read requests as a projection
+ * expression, so that only the projected attributes are returned by DynamoDB.
+ * Attribute names are always substituted by expression attribute name placeholders, which
+ * allows for projecting attributes which names are DynamoDB reserved words.
+ * Entities converted from projected items only have the properties of the projected
+ * attributes set; other properties have their default values.
+ *
+ * @author Ivan Krizsan
+ */
+public class AttributeProjection {
+    /* Constant(s): */
+    protected static final String NAME_PLACEHOLDER_PREFIX = "#projected";
+
+    /* Instance variable(s): */
+    protected final Set<String> mAttributeNames;
+    protected final String mProjectionExpression;
+    protected final Map<String, String> mExpressionAttributeNames = new HashMap<>();
+
+    /**
+     * Creates a projection of the supplied attributes.
+     *
+     * @param inAttributeNames Names of attributes to project. Duplicates are ignored.
+     */
+    public AttributeProjection(final Collection<String> inAttributeNames) {
+        Assert.notEmpty(inAttributeNames, "At least one attribute must be projected");
+        mAttributeNames = new LinkedHashSet<>(inAttributeNames);
+        final StringBuilder theProjectionExpression = new StringBuilder();
+        for (String theAttributeName : mAttributeNames) {
+            final String thePlaceholder = NAME_PLACEHOLDER_PREFIX + mExpressionAttributeNames.size();
+            mExpressionAttributeNames.put(thePlaceholder, theAttributeName);
+            if (theProjectionExpression.length() > 0) {
+                theProjectionExpression.append(", ");
+            }
+            theProjectionExpression.append(thePlaceholder);
+        }
+        mProjectionExpression = theProjectionExpression.toString();
+    }
+
+    /**
+     * Creates a projection of the supplied attributes.
+     *
+     * @param inAttributeNames Names of attributes to project.
+     * @return Attribute projection.
+     */
+    public static AttributeProjection of(final String... inAttributeNames) {
+        return new AttributeProjection(Arrays.asList(inAttributeNames));
+    }
+
+    /**
+     * Creates a projection of the attributes of this projection and the supplied attributes.
+     *
+     * @param inAttributeNames Names of additional attributes to project.
+     * @return New attribute projection.
+     */
+    public AttributeProjection with(final String... inAttributeNames) {
+        final Set<String> theAttributeNames = new LinkedHashSet<>(mAttributeNames);
+        theAttributeNames.addAll(Arrays.asList(inAttributeNames));
+        return new AttributeProjection(theAttributeNames);
+    }
+
+    /**
+     * Retrieves the names of the projected attributes.
+     *
+     * @return Projected attribute names.
+     */
+    public Set<String> getAttributeNames() {
+        return mAttributeNames;
+    }
+
+    /**
+     * Retrieves the projection expression.
+     *
+     * @return Projection expression using attribute name placeholders.
+     */
+    public String getProjectionExpression() {
+        return mProjectionExpression;
+    }
+
+    /**
+     * Applies the projection to the supplied get item request.
+     *
+     * @param inGetItemRequest Get item request.
+     * @return The supplied request.
+     */
+    public GetItemRequest applyTo(final GetItemRequest inGetItemRequest) {
+        return inGetItemRequest
+            .withProjectionExpression(mProjectionExpression)
+            .withExpressionAttributeNames(mergeNames(inGetItemRequest.getExpressionAttributeNames()));
+    }
+
+    /**
+     * Applies the projection to the supplied query request.
+     *
+     * @param inQueryRequest Query request.
+     * @return The supplied request.
+     */
+    public QueryRequest applyTo(final QueryRequest inQueryRequest) {
+        return inQueryRequest
+            .withProjectionExpression(mProjectionExpression)
+            .withExpressionAttributeNames(mergeNames(inQueryRequest.getExpressionAttributeNames()));
+    }
+
+    /**
+     * Applies the projection to the supplied scan request.
+     *
+     * @param inScanRequest Scan request.
+     * @return The supplied request.
+     */
+    public ScanRequest applyTo(final ScanRequest inScanRequest) {
+        return inScanRequest
+            .withProjectionExpression(mProjectionExpression)
+            .withExpressionAttributeNames(mergeNames(inScanRequest.getExpressionAttributeNames()));
+    }
+
+    /**
+     * Merges the name placeholders of the projection with the supplied name placeholders of a request.
+     *
+     * @param inExpressionAttributeNames Expression attribute names of request. May be null.
+     * @return Merged expression attribute names.
+     */
+    protected Map<String, String> mergeNames(final Map<String, String> inExpressionAttributeNames) {
+        final Map<String, String> theExpressionAttributeNames = new HashMap<>(mExpressionAttributeNames);
+        if (inExpressionAttributeNames != null) {
+            theExpressionAttributeNames.putAll(inExpressionAttributeNames);
+        }
+        return theExpressionAttributeNames;
+    }
+}
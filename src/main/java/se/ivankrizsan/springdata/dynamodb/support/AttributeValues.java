@@ -0,0 +1,133 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Converts DynamoDB attribute values between the representation of version 1 of the
+ * AWS SDK, used by the DynamoDB mapper, and the representation of version 2 of the AWS SDK,
+ * used by the non-blocking DynamoDB client.
+ *
+ * @author Ivan Krizsan
+ */
+public final class AttributeValues {
+    /* Constant(s): */
+
+    /**
+     * Hidden constructor of utility class.
+     */
+    private AttributeValues() {
+    }
+
+    /**
+     * Converts the supplied item of version 1 attribute values to an item of version 2 attribute values.
+     *
+     * @param inItem Item to convert.
+     * @return Converted item, null if the supplied item is null.
+     */
+    public static Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> toV2(
+        final Map<String, AttributeValue> inItem) {
+        return convertMap(inItem, AttributeValues::toV2);
+    }
+
+    /**
+     * Converts the supplied item of version 2 attribute values to an item of version 1 attribute values.
+     *
+     * @param inItem Item to convert.
+     * @return Converted item, null if the supplied item is null.
+     */
+    public static Map<String, AttributeValue> toV1(
+        final Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> inItem) {
+        return convertMap(inItem, AttributeValues::toV1);
+    }
+
+    /**
+     * Converts the supplied version 1 attribute value to a version 2 attribute value.
+     *
+     * @param inValue Attribute value to convert.
+     * @return Converted attribute value.
+     */
+    public static software.amazon.awssdk.services.dynamodb.model.AttributeValue toV2(final AttributeValue inValue) {
+        final software.amazon.awssdk.services.dynamodb.model.AttributeValue.Builder theBuilder =
+            software.amazon.awssdk.services.dynamodb.model.AttributeValue.builder();
+        if (inValue.getS() != null) {
+            theBuilder.s(inValue.getS());
+        } else if (inValue.getN() != null) {
+            theBuilder.n(inValue.getN());
+        } else if (inValue.getB() != null) {
+            theBuilder.b(SdkBytes.fromByteBuffer(inValue.getB()));
+        } else if (inValue.getSS() != null) {
+            theBuilder.ss(inValue.getSS());
+        } else if (inValue.getNS() != null) {
+            theBuilder.ns(inValue.getNS());
+        } else if (inValue.getBS() != null) {
+            theBuilder.bs(convertList(inValue.getBS(), SdkBytes::fromByteBuffer));
+        } else if (inValue.getM() != null) {
+            theBuilder.m(toV2(inValue.getM()));
+        } else if (inValue.getL() != null) {
+            theBuilder.l(convertList(inValue.getL(), AttributeValues::toV2));
+        } else if (inValue.getBOOL() != null) {
+            theBuilder.bool(inValue.getBOOL());
+        } else if (inValue.getNULL() != null) {
+            theBuilder.nul(inValue.getNULL());
+        }
+        return theBuilder.build();
+    }
+
+    /**
+     * Converts the supplied version 2 attribute value to a version 1 attribute value.
+     *
+     * @param inValue Attribute value to convert.
+     * @return Converted attribute value.
+     */
+    public static AttributeValue toV1(final software.amazon.awssdk.services.dynamodb.model.AttributeValue inValue) {
+        final AttributeValue theValue = new AttributeValue();
+        if (inValue.s() != null) {
+            theValue.setS(inValue.s());
+        } else if (inValue.n() != null) {
+            theValue.setN(inValue.n());
+        } else if (inValue.b() != null) {
+            theValue.setB(inValue.b().asByteBuffer());
+        } else if (inValue.hasSs()) {
+            theValue.setSS(inValue.ss());
+        } else if (inValue.hasNs()) {
+            theValue.setNS(inValue.ns());
+        } else if (inValue.hasBs()) {
+            theValue.setBS(convertList(inValue.bs(), SdkBytes::asByteBuffer));
+        } else if (inValue.hasM()) {
+            theValue.setM(toV1(inValue.m()));
+        } else if (inValue.hasL()) {
+            theValue.setL(convertList(inValue.l(), AttributeValues::toV1));
+        } else if (inValue.bool() != null) {
+            theValue.setBOOL(inValue.bool());
+        } else if (inValue.nul() != null) {
+            theValue.setNULL(inValue.nul());
+        }
+        return theValue;
+    }
+
+    /**
+     * Converts the values of the supplied map using the supplied converter, retaining the order of the keys.
+     */
+    private static <S, T> Map<String, T> convertMap(final Map<String, S> inMap, final Function<S, T> inConverter) {
+        if (inMap == null) {
+            return null;
+        }
+        final Map<String, T> theConvertedMap = new LinkedHashMap<>(inMap.size() * 2);
+        inMap.forEach((theKey, theValue) -> theConvertedMap.put(theKey, inConverter.apply(theValue)));
+        return theConvertedMap;
+    }
+
+    /**
+     * Converts the elements of the supplied list using the supplied converter.
+     */
+    private static <S, T> List<T> convertList(final List<S> inList, final Function<S, T> inConverter) {
+        return inList.stream().map(inConverter).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,363 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Limits the rate at which background operations, such as parallel scans and batch writes,
+ * consume the capacity of tables, so that the capacity not used by background operations
+ * remains available to online operations.
+ * There is one token bucket per table and capacity type, which is refilled at a rate of a configured
+ * share of the provisioned capacity of the table, or of a configured capacity for tables with
+ * on-demand capacity. Background operations wait until the bucket is not in debt before sending
+ * a request and are charged the capacity consumed by the request, as reported by DynamoDB, after
+ * the request has completed.
+ * The rate is adapted to throttling: when a request to a table is throttled, the rate of the
+ * table is halved, and when no request has been throttled for a second, the rate is increased
+ * by a tenth of the maximum rate each second until the maximum rate is reached.
+ * To observe throttling of all requests to tables, including online operations, the rate limiter
+ * is to be registered as a request handler of the DynamoDB client.
+ *
+ * @author Ivan Krizsan
+ */
+public class CapacityRateLimiter extends RequestHandler2 {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapacityRateLimiter.class);
+    protected static final double DECREASE_FACTOR = 0.5;
+    protected static final double INCREASE_FRACTION = 0.1;
+    protected static final double MIN_RATE_FRACTION = 0.05;
+    /** Minimum interval between decreases, so that a burst of throttled requests decreases the rate once. */
+    protected static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    protected static final long INCREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Type of capacity consumed by an operation.
+     */
+    public enum CapacityType {
+        READ,
+        WRITE
+    }
+
+    /* Instance variable(s): */
+    protected final Function<String, TableDescription> mTableDescriber;
+    protected final double mCapacityShare;
+    protected final double mOnDemandCapacityUnits;
+    protected final Map<String, TokenBucket> mTokenBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a rate limiter limiting background operations to the supplied share of the capacity of tables.
+     *
+     * @param inTableDescriber Retrieves the description of the table with a supplied name.
+     * @param inCapacityShare Share of the capacity of a table that background operations may consume,
+     * larger than 0 and at most 1.
+     * @param inOnDemandCapacityUnits Capacity units per second of tables with on-demand capacity.
+     */
+    public CapacityRateLimiter(
+        final Function<String, TableDescription> inTableDescriber,
+        final double inCapacityShare,
+        final double inOnDemandCapacityUnits) {
+        Assert.notNull(inTableDescriber, "A table describer is required");
+        Assert.isTrue(inCapacityShare > 0 && inCapacityShare <= 1, "The capacity share must be in (0, 1]");
+        Assert.isTrue(inOnDemandCapacityUnits > 0, "The capacity of on-demand tables must be positive");
+        mTableDescriber = inTableDescriber;
+        mCapacityShare = inCapacityShare;
+        mOnDemandCapacityUnits = inOnDemandCapacityUnits;
+    }
+
+    /**
+     * Creates a rate limiter that does not limit operations.
+     */
+    protected CapacityRateLimiter() {
+        mTableDescriber = null;
+        mCapacityShare = 1;
+        mOnDemandCapacityUnits = 0;
+    }
+
+    /**
+     * Creates a rate limiter that does not limit operations.
+     *
+     * @return Rate limiter that never waits.
+     */
+    public static CapacityRateLimiter unlimited() {
+        return new CapacityRateLimiter();
+    }
+
+    /**
+     * Determines whether this rate limiter limits operations.
+     *
+     * @return True if operations are limited, false otherwise.
+     */
+    public boolean isLimited() {
+        return mTableDescriber != null;
+    }
+
+    /**
+     * Waits until the supplied type of capacity of the supplied table may be consumed.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity to consume.
+     */
+    public void acquire(final String inTableName, final CapacityType inCapacityType) {
+        if (!isLimited()) {
+            return;
+        }
+        final long theWaitNanos = tokenBucket(inTableName, inCapacityType).waitNanos(System.nanoTime());
+        if (theWaitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(theWaitNanos);
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for capacity of table " + inTableName,
+                    theException);
+            }
+        }
+    }
+
+    /**
+     * Charges the supplied number of capacity units consumed of the supplied table.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity consumed.
+     * @param inCapacityUnits Number of capacity units consumed.
+     */
+    public void consume(final String inTableName, final CapacityType inCapacityType, final double inCapacityUnits) {
+        if (isLimited() && inCapacityUnits > 0) {
+            tokenBucket(inTableName, inCapacityType).consume(inCapacityUnits, System.nanoTime());
+        }
+    }
+
+    /**
+     * Decreases the rate of the supplied type of capacity of the supplied table after a request
+     * has been throttled.
+     * Tables that have not been accessed by background operations are not affected.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity of throttled request.
+     */
+    public void throttled(final String inTableName, final CapacityType inCapacityType) {
+        final TokenBucket theTokenBucket = mTokenBuckets.get(tokenBucketKey(inTableName, inCapacityType));
+        if (theTokenBucket != null && theTokenBucket.throttled(System.nanoTime())) {
+            LOGGER.debug("Decreased {} rate of table {} to {} capacity units per second",
+                inCapacityType, inTableName, theTokenBucket.mRate);
+        }
+    }
+
+    /**
+     * Retrieves the current rate at which background operations may consume the supplied type of
+     * capacity of the supplied table.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity.
+     * @return Capacity units per second, positive infinity if operations are not limited.
+     */
+    public double rate(final String inTableName, final CapacityType inCapacityType) {
+        if (!isLimited()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final TokenBucket theTokenBucket = tokenBucket(inTableName, inCapacityType);
+        synchronized (theTokenBucket) {
+            theTokenBucket.refill(System.nanoTime());
+            return theTokenBucket.mRate;
+        }
+    }
+
+    @Override
+    public void afterAttempt(final HandlerAfterAttemptContext inContext) {
+        final Exception theException = inContext.getException();
+        if (isLimited()
+            && theException instanceof SdkBaseException
+            && RetryUtils.isThrottlingException((SdkBaseException) theException)) {
+            final AmazonWebServiceRequest theRequest = inContext.getRequest().getOriginalRequest();
+            final CapacityType theCapacityType = capacityType(theRequest);
+            for (String theTableName : tableNames(theRequest)) {
+                throttled(theTableName, theCapacityType);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the token bucket of the supplied type of capacity of the supplied table, creating it
+     * with the capacity of the table if it does not exist.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity.
+     * @return Token bucket.
+     */
+    protected TokenBucket tokenBucket(final String inTableName, final CapacityType inCapacityType) {
+        return mTokenBuckets.computeIfAbsent(tokenBucketKey(inTableName, inCapacityType), theKey -> {
+            final double theMaxRate = mCapacityShare * tableCapacityUnits(inTableName, inCapacityType);
+            LOGGER.info("Limiting background {} capacity of table {} to {} capacity units per second",
+                inCapacityType, inTableName, theMaxRate);
+            return new TokenBucket(theMaxRate, System.nanoTime());
+        });
+    }
+
+    /**
+     * Determines the number of capacity units per second of the supplied type of the supplied table.
+     *
+     * @param inTableName Name of table.
+     * @param inCapacityType Type of capacity.
+     * @return Provisioned capacity units of the table, the on-demand capacity units if the table
+     * has on-demand capacity.
+     */
+    protected double tableCapacityUnits(final String inTableName, final CapacityType inCapacityType) {
+        final ProvisionedThroughputDescription theThroughput =
+            mTableDescriber.apply(inTableName).getProvisionedThroughput();
+        final Long theCapacityUnits = theThroughput == null
+            ? null
+            : inCapacityType == CapacityType.READ
+                ? theThroughput.getReadCapacityUnits()
+                : theThroughput.getWriteCapacityUnits();
+        return theCapacityUnits != null && theCapacityUnits > 0 ? theCapacityUnits : mOnDemandCapacityUnits;
+    }
+
+    /**
+     * Creates the key of the token bucket of the supplied type of capacity of the supplied table.
+     */
+    protected static String tokenBucketKey(final String inTableName, final CapacityType inCapacityType) {
+        return inTableName + "#" + inCapacityType;
+    }
+
+    /**
+     * Determines the type of capacity consumed by the supplied request.
+     *
+     * @param inRequest Request.
+     * @return Read for requests that read items, write for other requests.
+     */
+    protected static CapacityType capacityType(final AmazonWebServiceRequest inRequest) {
+        return inRequest instanceof GetItemRequest
+            || inRequest instanceof BatchGetItemRequest
+            || inRequest instanceof QueryRequest
+            || inRequest instanceof ScanRequest
+            ? CapacityType.READ
+            : CapacityType.WRITE;
+    }
+
+    /**
+     * Determines the names of the tables accessed by the supplied request.
+     *
+     * @param inRequest Request.
+     * @return Table names, empty if the request does not access a table.
+     */
+    protected static Collection<String> tableNames(final AmazonWebServiceRequest inRequest) {
+        if (inRequest instanceof BatchGetItemRequest) {
+            return ((BatchGetItemRequest) inRequest).getRequestItems().keySet();
+        }
+        if (inRequest instanceof BatchWriteItemRequest) {
+            return ((BatchWriteItemRequest) inRequest).getRequestItems().keySet();
+        }
+        final Method theTableNameAccessor = ReflectionUtils.findMethod(inRequest.getClass(), "getTableName");
+        final Object theTableName =
+            theTableNameAccessor != null ? ReflectionUtils.invokeMethod(theTableNameAccessor, inRequest) : null;
+        return theTableName instanceof String ? Collections.singleton((String) theTableName) : Collections.emptySet();
+    }
+
+    /**
+     * Token bucket that may go into debt, refilled at a rate that is adapted to throttling.
+     * The bucket holds at most one second worth of tokens at the current rate.
+     */
+    protected static class TokenBucket {
+        /* Instance variable(s): */
+        protected final double mMaxRate;
+        protected double mRate;
+        protected double mTokens;
+        protected long mLastRefillNanos;
+        protected long mLastThrottledNanos;
+        protected long mLastIncreaseNanos;
+
+        /**
+         * Creates a full token bucket refilled at the supplied maximum rate.
+         *
+         * @param inMaxRate Maximum number of tokens per second.
+         * @param inNowNanos Current time, as given by {@link System#nanoTime()}.
+         */
+        protected TokenBucket(final double inMaxRate, final long inNowNanos) {
+            mMaxRate = inMaxRate;
+            mRate = inMaxRate;
+            mTokens = inMaxRate;
+            mLastRefillNanos = inNowNanos;
+            mLastThrottledNanos = inNowNanos - INCREASE_INTERVAL_NANOS;
+            mLastIncreaseNanos = inNowNanos;
+        }
+
+        /**
+         * Calculates the time until the bucket is no longer in debt.
+         *
+         * @param inNowNanos Current time, as given by {@link System#nanoTime()}.
+         * @return Nanoseconds to wait, 0 if the bucket is not in debt.
+         */
+        protected synchronized long waitNanos(final long inNowNanos) {
+            refill(inNowNanos);
+            return mTokens >= 0 ? 0 : (long) Math.ceil(-mTokens / mRate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * Removes the supplied number of tokens from the bucket.
+         *
+         * @param inTokens Number of tokens.
+         * @param inNowNanos Current time, as given by {@link System#nanoTime()}.
+         */
+        protected synchronized void consume(final double inTokens, final long inNowNanos) {
+            refill(inNowNanos);
+            mTokens -= inTokens;
+        }
+
+        /**
+         * Decreases the rate and empties the bucket, unless the rate was decreased very recently.
+         *
+         * @param inNowNanos Current time, as given by {@link System#nanoTime()}.
+         * @return True if the rate was decreased, false otherwise.
+         */
+        protected synchronized boolean throttled(final long inNowNanos) {
+            refill(inNowNanos);
+            final boolean theDecreaseFlag = inNowNanos - mLastThrottledNanos >= DECREASE_INTERVAL_NANOS;
+            if (theDecreaseFlag) {
+                mRate = Math.max(mMaxRate * MIN_RATE_FRACTION, mRate * DECREASE_FACTOR);
+                mTokens = Math.min(mTokens, 0);
+                mLastThrottledNanos = inNowNanos;
+            }
+            return theDecreaseFlag;
+        }
+
+        /**
+         * Adds the tokens accumulated since the last refill and increases the rate if no request
+         * has been throttled during the last increase interval.
+         *
+         * @param inNowNanos Current time, as given by {@link System#nanoTime()}.
+         */
+        protected synchronized void refill(final long inNowNanos) {
+            final double theElapsedSeconds =
+                (double) (inNowNanos - mLastRefillNanos) / TimeUnit.SECONDS.toNanos(1);
+            mTokens = Math.min(mRate, mTokens + theElapsedSeconds * mRate);
+            mLastRefillNanos = inNowNanos;
+            if (mRate < mMaxRate
+                && inNowNanos - mLastThrottledNanos >= INCREASE_INTERVAL_NANOS
+                && inNowNanos - mLastIncreaseNanos >= INCREASE_INTERVAL_NANOS) {
+                mRate = Math.min(mMaxRate, mRate + mMaxRate * INCREASE_FRACTION);
+                mLastIncreaseNanos = inNowNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGenerateStrategy;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGenerator;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates compact, time-ordered entity ids in the style of ULIDs.
+ * An id consists of 128 bits: a 48-bit timestamp in epoch milliseconds followed by 80 random bits.
+ * The string form of an id is 26 characters long, encoded in Crockford's base 32, compared to the
+ * 36 characters of a UUID string, and ids created in different milliseconds sort in creation order.
+ * The binary form of an id is 16 bytes long and sorts in the same order as the string form.
+ * Ids are generated without locking, using thread-local random numbers. Generating an id allocates
+ * a character array, into which the id is encoded, and the id string, to which the array is copied.
+ * Used by the DynamoDB mapper to generate ids of entities that are created.
+ *
+ * @author Ivan Krizsan
+ */
+public class CompactIdGenerator implements DynamoDBAutoGenerator<String> {
+    /* Constant(s): */
+    /** Length of the string form of ids. */
+    public static final int ID_LENGTH = 26;
+    /** Length of the binary form of ids. */
+    public static final int BINARY_ID_LENGTH = 16;
+    /** Characters of Crockford's base 32 alphabet, in ascending order. */
+    protected static final char[] ENCODING_CHARACTERS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    /** Values of characters of the base 32 alphabet indexed by character, -1 for invalid characters. */
+    protected static final byte[] DECODING_VALUES = new byte[128];
+    /** Number of bits of the random part of the most significant half of ids. */
+    protected static final int HIGH_RANDOM_BITS = 16;
+
+    static {
+        Arrays.fill(DECODING_VALUES, (byte) -1);
+        for (int i = 0; i < ENCODING_CHARACTERS.length; i++) {
+            DECODING_VALUES[ENCODING_CHARACTERS[i]] = (byte) i;
+            DECODING_VALUES[Character.toLowerCase(ENCODING_CHARACTERS[i])] = (byte) i;
+        }
+    }
+
+    @Override
+    public DynamoDBAutoGenerateStrategy getGenerateStrategy() {
+        return DynamoDBAutoGenerateStrategy.CREATE;
+    }
+
+    @Override
+    public String generate(final String inCurrentId) {
+        return inCurrentId != null ? inCurrentId : newId();
+    }
+
+    /**
+     * Creates a new id with the current time as timestamp.
+     *
+     * @return String form of new id.
+     */
+    public static String newId() {
+        return newId(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a new id with the supplied timestamp.
+     *
+     * @param inTimestampMillis Timestamp in epoch milliseconds. Only the 48 least significant bits are used.
+     * @return String form of new id.
+     */
+    public static String newId(final long inTimestampMillis) {
+        final ThreadLocalRandom theRandom = ThreadLocalRandom.current();
+        final long theHighBits = (inTimestampMillis << HIGH_RANDOM_BITS) | (theRandom.nextInt() & 0xFFFF);
+        return encode(theHighBits, theRandom.nextLong());
+    }
+
+    /**
+     * Retrieves the timestamp at which the id with the supplied string form was created.
+     *
+     * @param inId String form of id.
+     * @return Timestamp in epoch milliseconds.
+     * @throws IllegalArgumentException If the supplied string is not an id.
+     */
+    public static long timestampMillis(final String inId) {
+        return ByteBuffer.wrap(toBytes(inId)).getLong() >>> HIGH_RANDOM_BITS;
+    }
+
+    /**
+     * Converts the string form of an id to the binary form.
+     * Decoding is case-insensitive.
+     *
+     * @param inId String form of id.
+     * @return Binary form of id.
+     * @throws IllegalArgumentException If the supplied string is not an id.
+     */
+    public static byte[] toBytes(final String inId) {
+        if (inId == null || inId.length() != ID_LENGTH) {
+            throw new IllegalArgumentException("Not a compact id: " + inId);
+        }
+        long theHighBits = 0L;
+        long theLowBits = 0L;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            final char theCharacter = inId.charAt(i);
+            final int theValue = theCharacter < DECODING_VALUES.length ? DECODING_VALUES[theCharacter] : -1;
+            if (theValue < 0 || (i == 0 && theValue > 7)) {
+                throw new IllegalArgumentException("Not a compact id: " + inId);
+            }
+            theHighBits = (theHighBits << 5) | (theLowBits >>> 59);
+            theLowBits = (theLowBits << 5) | theValue;
+        }
+        return ByteBuffer.allocate(BINARY_ID_LENGTH).putLong(theHighBits).putLong(theLowBits).array();
+    }
+
+    /**
+     * Converts the binary form of an id to the string form.
+     *
+     * @param inId Binary form of id.
+     * @return String form of id.
+     * @throws IllegalArgumentException If the supplied bytes are not an id.
+     */
+    public static String fromBytes(final byte[] inId) {
+        if (inId == null || inId.length != BINARY_ID_LENGTH) {
+            throw new IllegalArgumentException("A compact id must consist of " + BINARY_ID_LENGTH + " bytes");
+        }
+        final ByteBuffer theBuffer = ByteBuffer.wrap(inId);
+        return encode(theBuffer.getLong(), theBuffer.getLong());
+    }
+
+    /**
+     * Encodes the supplied 128-bit number in Crockford's base 32, most significant character first.
+     * The first character holds the three most significant bits.
+     *
+     * @param inHighBits Most significant 64 bits.
+     * @param inLowBits Least significant 64 bits.
+     * @return Encoded number.
+     */
+    protected static String encode(final long inHighBits, final long inLowBits) {
+        final char[] theCharacters = new char[ID_LENGTH];
+        long theHighBits = inHighBits;
+        long theLowBits = inLowBits;
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            theCharacters[i] = ENCODING_CHARACTERS[(int) (theLowBits & 31)];
+            theLowBits = (theLowBits >>> 5) | (theHighBits << 59);
+            theHighBits >>>= 5;
+        }
+        return new String(theCharacters);
+    }
+
+    /**
+     * Converts ids between the string form used by entities and the binary form stored in DynamoDB.
+     * Applicable to id attributes that are not the key of an existing table, since the type of
+     * key attributes is part of the key schema of tables.
+     */
+    public static class BinaryConverter implements DynamoDBTypeConverter<ByteBuffer, String> {
+        @Override
+        public ByteBuffer convert(final String inId) {
+            return ByteBuffer.wrap(toBytes(inId));
+        }
+
+        @Override
+        public String unconvert(final ByteBuffer inId) {
+            final byte[] theBytes = new byte[inId.remaining()];
+            inId.duplicate().get(theBytes);
+            return fromBytes(theBytes);
+        }
+    }
+}
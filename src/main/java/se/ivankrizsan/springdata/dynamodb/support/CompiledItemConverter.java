@@ -0,0 +1,108 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts entities to and from DynamoDB items using precompiled marshallers, which neither
+ * use reflection nor the type converters of the DynamoDB mapper.
+ * Entities of types for which there is no marshaller, as well as attributes not mapped by
+ * a marshaller, are converted by the fallback item converter.
+ * Table names are resolved by the fallback item converter once per entity type.
+ *
+ * @author Ivan Krizsan
+ */
+public class CompiledItemConverter implements ItemConverter {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected final ItemConverter mFallbackItemConverter;
+    protected final Map<Class<?>, EntityMarshaller<?>> mEntityMarshallers = new HashMap<>();
+    protected final Map<Class<?>, String> mTableNames = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an item converter using the supplied marshallers.
+     *
+     * @param inFallbackItemConverter Item converter used for entity types without marshaller.
+     * @param inEntityMarshallers Marshallers of entity types. Entities are marshalled by the
+     * marshaller of their exact type.
+     */
+    public CompiledItemConverter(
+        final ItemConverter inFallbackItemConverter,
+        final Collection<EntityMarshaller<?>> inEntityMarshallers) {
+        mFallbackItemConverter = inFallbackItemConverter;
+        for (EntityMarshaller<?> theEntityMarshaller : inEntityMarshallers) {
+            mEntityMarshallers.put(theEntityMarshaller.getEntityType(), theEntityMarshaller);
+        }
+    }
+
+    @Override
+    public String tableName(final Class<?> inEntityType) {
+        return mTableNames.computeIfAbsent(inEntityType, mFallbackItemConverter::tableName);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, AttributeValue> toItem(final T inEntity) {
+        final EntityMarshaller<T> theEntityMarshaller = entityMarshaller((Class<T>) inEntity.getClass());
+        return theEntityMarshaller != null
+            ? theEntityMarshaller.marshall(inEntity)
+            : mFallbackItemConverter.toItem(inEntity);
+    }
+
+    @Override
+    public <T> T fromItem(final Class<T> inEntityType, final Map<String, AttributeValue> inItem) {
+        final EntityMarshaller<T> theEntityMarshaller = entityMarshaller(inEntityType);
+        return theEntityMarshaller != null
+            ? theEntityMarshaller.unmarshall(inItem)
+            : mFallbackItemConverter.fromItem(inEntityType, inItem);
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> key(final Class<T> inEntityType, final Object inHashKey) {
+        final EntityMarshaller<T> theEntityMarshaller = entityMarshaller(inEntityType);
+        return theEntityMarshaller != null
+            ? theEntityMarshaller.key(inHashKey)
+            : mFallbackItemConverter.key(inEntityType, inHashKey);
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> itemKey(
+        final Class<T> inEntityType,
+        final Map<String, AttributeValue> inItem) {
+        final EntityMarshaller<T> theEntityMarshaller = entityMarshaller(inEntityType);
+        return theEntityMarshaller != null
+            ? theEntityMarshaller.itemKey(inItem)
+            : mFallbackItemConverter.itemKey(inEntityType, inItem);
+    }
+
+    @Override
+    public <T> AttributeValue attributeValue(
+        final Class<T> inEntityType,
+        final String inAttributeName,
+        final Object inValue) {
+        final EntityMarshaller<T> theEntityMarshaller = entityMarshaller(inEntityType);
+        final AttributeValue theAttributeValue = theEntityMarshaller != null
+            ? theEntityMarshaller.attributeValue(inAttributeName, inValue)
+            : null;
+        return theAttributeValue != null
+            ? theAttributeValue
+            : mFallbackItemConverter.attributeValue(inEntityType, inAttributeName, inValue);
+    }
+
+    /**
+     * Retrieves the marshaller of the supplied entity type.
+     *
+     * @param inEntityType Entity type.
+     * @param <T> Entity type.
+     * @return Entity marshaller, null if there is no marshaller for the entity type.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> EntityMarshaller<T> entityMarshaller(final Class<T> inEntityType) {
+        return (EntityMarshaller<T>) mEntityMarshallers.get(inEntityType);
+    }
+}
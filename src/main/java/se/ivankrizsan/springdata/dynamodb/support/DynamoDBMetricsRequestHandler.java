@@ -0,0 +1,249 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request handler for the DynamoDB client that records metrics of DynamoDB requests in
+ * a Micrometer meter registry.
+ * The following metrics are recorded, tagged by table and operation:
+ * <ul>
+ *     <li>dynamodb.client.requests - Timer measuring the latency of requests, including retries,
+ *     with p50, p99 and p999 percentiles. Also tagged with the outcome of requests.</li>
+ *     <li>dynamodb.client.retries - Counter counting retried request attempts.</li>
+ *     <li>dynamodb.client.throttles - Counter counting request attempts rejected due to throttling.</li>
+ *     <li>dynamodb.client.consumed.capacity - Distribution summary of the capacity units consumed by requests.</li>
+ * </ul>
+ * Requests that can report consumed capacity are modified to request the total consumed capacity,
+ * unless consumed capacity already has been requested.
+ * Requests accessing multiple tables are tagged with the table name "multiple", except for consumed
+ * capacity, which is reported per table.
+ *
+ * @author Ivan Krizsan
+ */
+public class DynamoDBMetricsRequestHandler extends RequestHandler2 {
+    /* Constant(s): */
+    public static final String REQUESTS_METER_NAME = "dynamodb.client.requests";
+    public static final String RETRIES_METER_NAME = "dynamodb.client.retries";
+    public static final String THROTTLES_METER_NAME = "dynamodb.client.throttles";
+    public static final String CONSUMED_CAPACITY_METER_NAME = "dynamodb.client.consumed.capacity";
+    public static final String TABLE_TAG = "table";
+    public static final String OPERATION_TAG = "operation";
+    public static final String OUTCOME_TAG = "outcome";
+    protected static final String MULTIPLE_TABLES = "multiple";
+    protected static final String NO_TABLE = "none";
+    protected static final String UNKNOWN_OPERATION = "unknown";
+    protected static final HandlerContextKey<Long> START_NANOS_KEY =
+        new HandlerContextKey<>(DynamoDBMetricsRequestHandler.class.getName() + ".startNanos");
+    protected static final HandlerContextKey<Integer> ATTEMPTS_KEY =
+        new HandlerContextKey<>(DynamoDBMetricsRequestHandler.class.getName() + ".attempts");
+
+    /* Instance variable(s): */
+    protected final MeterRegistry mMeterRegistry;
+    protected final boolean mRequestConsumedCapacity;
+    /** Accessor methods found on request and result classes, keyed by class and method name. */
+    protected final Map<String, Optional<Method>> mAccessorMethods = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a request handler recording metrics in the supplied meter registry.
+     *
+     * @param inMeterRegistry Meter registry in which to record metrics.
+     * @param inRequestConsumedCapacity True if requests are to be modified to request the
+     * total consumed capacity, false otherwise.
+     */
+    public DynamoDBMetricsRequestHandler(
+        final MeterRegistry inMeterRegistry,
+        final boolean inRequestConsumedCapacity) {
+        mMeterRegistry = inMeterRegistry;
+        mRequestConsumedCapacity = inRequestConsumedCapacity;
+    }
+
+    @Override
+    public AmazonWebServiceRequest beforeExecution(final AmazonWebServiceRequest inRequest) {
+        if (mRequestConsumedCapacity && invokeAccessor(inRequest, "getReturnConsumedCapacity") == null) {
+            accessor(inRequest.getClass(), "setReturnConsumedCapacity", String.class).ifPresent(theSetter ->
+                ReflectionUtils.invokeMethod(theSetter, inRequest, ReturnConsumedCapacity.TOTAL.toString()));
+        }
+        return inRequest;
+    }
+
+    @Override
+    public void beforeRequest(final Request<?> inRequest) {
+        inRequest.addHandlerContext(START_NANOS_KEY, System.nanoTime());
+        inRequest.addHandlerContext(ATTEMPTS_KEY, 0);
+    }
+
+    @Override
+    public void afterAttempt(final HandlerAfterAttemptContext inContext) {
+        final Request<?> theRequest = inContext.getRequest();
+        final Integer thePreviousAttempts = theRequest.getHandlerContext(ATTEMPTS_KEY);
+        final int theAttempts = thePreviousAttempts == null ? 1 : thePreviousAttempts + 1;
+        theRequest.addHandlerContext(ATTEMPTS_KEY, theAttempts);
+
+        final Tags theTags = tags(theRequest);
+        if (theAttempts > 1) {
+            Counter.builder(RETRIES_METER_NAME).tags(theTags).register(mMeterRegistry).increment();
+        }
+        final Exception theException = inContext.getException();
+        if (theException instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) theException)) {
+            Counter.builder(THROTTLES_METER_NAME).tags(theTags).register(mMeterRegistry).increment();
+        }
+    }
+
+    @Override
+    public void afterResponse(final Request<?> inRequest, final Response<?> inResponse) {
+        recordLatency(inRequest, "success");
+
+        final Object theConsumedCapacity = inResponse == null
+            ? null
+            : invokeAccessor(inResponse.getAwsResponse(), "getConsumedCapacity");
+        if (theConsumedCapacity instanceof ConsumedCapacity) {
+            recordConsumedCapacity(inRequest, (ConsumedCapacity) theConsumedCapacity);
+        } else if (theConsumedCapacity instanceof Collection) {
+            for (Object theTableConsumedCapacity : (Collection<?>) theConsumedCapacity) {
+                recordConsumedCapacity(inRequest, (ConsumedCapacity) theTableConsumedCapacity);
+            }
+        }
+    }
+
+    @Override
+    public void afterError(final Request<?> inRequest, final Response<?> inResponse, final Exception inException) {
+        recordLatency(inRequest, "error");
+    }
+
+    /**
+     * Records the time elapsed since the supplied request was started.
+     *
+     * @param inRequest Completed request.
+     * @param inOutcome Outcome of request.
+     */
+    protected void recordLatency(final Request<?> inRequest, final String inOutcome) {
+        final Long theStartNanos = inRequest.getHandlerContext(START_NANOS_KEY);
+        if (theStartNanos != null) {
+            Timer
+                .builder(REQUESTS_METER_NAME)
+                .tags(tags(inRequest))
+                .tag(OUTCOME_TAG, inOutcome)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(mMeterRegistry)
+                .record(System.nanoTime() - theStartNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the supplied capacity consumed by the supplied request.
+     *
+     * @param inRequest Request that consumed capacity.
+     * @param inConsumedCapacity Consumed capacity.
+     */
+    protected void recordConsumedCapacity(final Request<?> inRequest, final ConsumedCapacity inConsumedCapacity) {
+        if (inConsumedCapacity.getCapacityUnits() != null) {
+            DistributionSummary
+                .builder(CONSUMED_CAPACITY_METER_NAME)
+                .baseUnit("capacity units")
+                .tags(
+                    TABLE_TAG, inConsumedCapacity.getTableName() != null ? inConsumedCapacity.getTableName() : NO_TABLE,
+                    OPERATION_TAG, operation(inRequest))
+                .register(mMeterRegistry)
+                .record(inConsumedCapacity.getCapacityUnits());
+        }
+    }
+
+    /**
+     * Creates table and operation tags for the supplied request.
+     *
+     * @param inRequest Request.
+     * @return Tags.
+     */
+    protected Tags tags(final Request<?> inRequest) {
+        return Tags.of(TABLE_TAG, tableName(inRequest.getOriginalRequest()), OPERATION_TAG, operation(inRequest));
+    }
+
+    /**
+     * Determines the name of the DynamoDB operation performed by the supplied request.
+     *
+     * @param inRequest Request.
+     * @return Operation name, for example PutItem.
+     */
+    protected String operation(final Request<?> inRequest) {
+        final String theOperationName = inRequest.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        return theOperationName != null ? theOperationName : UNKNOWN_OPERATION;
+    }
+
+    /**
+     * Determines the name of the table accessed by the supplied request.
+     *
+     * @param inRequest Request.
+     * @return Table name, "multiple" if the request accesses multiple tables, "none" if
+     * the request does not access a table.
+     */
+    protected String tableName(final AmazonWebServiceRequest inRequest) {
+        final Object theTableName = invokeAccessor(inRequest, "getTableName");
+        if (theTableName instanceof String) {
+            return (String) theTableName;
+        }
+        final Object theRequestItems = invokeAccessor(inRequest, "getRequestItems");
+        if (theRequestItems instanceof Map && !((Map<?, ?>) theRequestItems).isEmpty()) {
+            final Map<?, ?> theRequestItemsMap = (Map<?, ?>) theRequestItems;
+            return theRequestItemsMap.size() == 1
+                ? String.valueOf(theRequestItemsMap.keySet().iterator().next())
+                : MULTIPLE_TABLES;
+        }
+        return NO_TABLE;
+    }
+
+    /**
+     * Invokes the no-argument accessor method with the supplied name on the supplied object.
+     *
+     * @param inTarget Object on which to invoke accessor. May be null.
+     * @param inMethodName Name of accessor method.
+     * @return Value returned by accessor, null if the object or the accessor does not exist.
+     */
+    protected Object invokeAccessor(final Object inTarget, final String inMethodName) {
+        if (inTarget == null) {
+            return null;
+        }
+        return accessor(inTarget.getClass(), inMethodName)
+            .map(theMethod -> ReflectionUtils.invokeMethod(theMethod, inTarget))
+            .orElse(null);
+    }
+
+    /**
+     * Finds the public method with the supplied name and parameter types in the supplied class.
+     * Methods that have been looked up are cached.
+     *
+     * @param inClass Class in which to find method.
+     * @param inMethodName Name of method.
+     * @param inParameterTypes Method parameter types.
+     * @return Optional containing method, empty optional if no such method exists.
+     */
+    protected Optional<Method> accessor(
+        final Class<?> inClass,
+        final String inMethodName,
+        final Class<?>... inParameterTypes) {
+        return mAccessorMethods.computeIfAbsent(
+            inClass.getName() + "#" + inMethodName,
+            theKey -> Optional.ofNullable(ReflectionUtils.findMethod(inClass, inMethodName, inParameterTypes)));
+    }
+}
@@ -0,0 +1,339 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
+import com.amazonaws.services.dynamodbv2.model.StreamViewType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Provisions the tables of DynamoDB entity types, as an alternative to the table creation of
+ * Spring Data DynamoDB which creates tables one at a time.
+ * The tables of all entity types are described, created if they do not exist and waited for
+ * concurrently, so that the time spent provisioning is that of the slowest table rather than
+ * the sum of all tables.
+ * Tables are created with on-demand or provisioned billing and all attributes are projected into
+ * secondary indexes, so that entities found using an index are complete.
+ * Existing tables are never modified; an existing table which key schema or secondary indexes
+ * differ from those of its entity type is reported as mismatched. The only modification of
+ * existing tables is enabling their streams on request.
+ *
+ * @author Ivan Krizsan
+ */
+public class DynamoDBSchemaManager {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBSchemaManager.class);
+    protected static final int MAX_CONCURRENCY = 16;
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final DynamoDBMapper mDynamoDBMapper;
+    protected final BillingMode mBillingMode;
+    protected final long mReadCapacityUnits;
+    protected final long mWriteCapacityUnits;
+    protected final int mWaitTimeoutMillis;
+    protected final int mPollIntervalMillis;
+
+    /**
+     * Outcome of provisioning the table of an entity type.
+     */
+    public enum TableOutcome {
+        /** The table did not exist and has been created. */
+        CREATED,
+        /** The table already existed with the expected key schema and secondary indexes. */
+        UNCHANGED,
+        /** The table already existed but its key schema or secondary indexes differ from the expected. */
+        MISMATCHED
+    }
+
+    /**
+     * Creates a schema manager creating tables with the supplied billing mode.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inDynamoDBMapper DynamoDB mapper from which table definitions and names are obtained.
+     * @param inBillingMode Billing mode of created tables.
+     * @param inReadCapacityUnits Read capacity units of created tables and indexes, if provisioned billing.
+     * @param inWriteCapacityUnits Write capacity units of created tables and indexes, if provisioned billing.
+     * @param inWaitTimeoutMillis Maximum time to wait for a table to become active, in milliseconds.
+     * @param inPollIntervalMillis Interval at which to poll the status of a table, in milliseconds.
+     */
+    public DynamoDBSchemaManager(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final DynamoDBMapper inDynamoDBMapper,
+        final BillingMode inBillingMode,
+        final long inReadCapacityUnits,
+        final long inWriteCapacityUnits,
+        final int inWaitTimeoutMillis,
+        final int inPollIntervalMillis) {
+        Assert.notNull(inBillingMode, "The billing mode must not be null");
+        Assert.isTrue(inPollIntervalMillis > 0, "The poll interval must be positive");
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mDynamoDBMapper = inDynamoDBMapper;
+        mBillingMode = inBillingMode;
+        mReadCapacityUnits = inReadCapacityUnits;
+        mWriteCapacityUnits = inWriteCapacityUnits;
+        mWaitTimeoutMillis = inWaitTimeoutMillis;
+        mPollIntervalMillis = inPollIntervalMillis;
+    }
+
+    /**
+     * Finds the concrete entity types annotated with @DynamoDBTable in the supplied package
+     * and its sub-packages.
+     * Abstract entity types are excluded, since their tables are only used if explicitly requested.
+     *
+     * @param inBasePackage Package in which to find entity types.
+     * @return Entity types, ordered by name.
+     */
+    public static List<Class<?>> findEntityTypes(final String inBasePackage) {
+        final ClassPathScanningCandidateComponentProvider theScanner =
+            new ClassPathScanningCandidateComponentProvider(false);
+        theScanner.addIncludeFilter(new AnnotationTypeFilter(DynamoDBTable.class));
+        return theScanner
+            .findCandidateComponents(inBasePackage)
+            .stream()
+            .map(BeanDefinition::getBeanClassName)
+            .sorted()
+            .map(theClassName -> ClassUtils.resolveClassName(
+                theClassName, DynamoDBSchemaManager.class.getClassLoader()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates the tables of the supplied entity types that do not exist and waits until the tables
+     * of all the entity types are active.
+     * Tables are described, created and waited for concurrently.
+     *
+     * @param inEntityTypes Entity types which tables to provision.
+     * @return Outcome of provisioning the table of each entity type, keyed by table name
+     * and in the order of the entity types.
+     * @throws IllegalStateException If the table of any of the entity types could not be provisioned.
+     */
+    public Map<String, TableOutcome> createTablesIfNotExist(final Collection<Class<?>> inEntityTypes) {
+        if (inEntityTypes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final long theStartTime = System.currentTimeMillis();
+        final List<CreateTableRequest> theCreateTableRequests = inEntityTypes
+            .stream()
+            .map(this::createTableRequest)
+            .collect(Collectors.toList());
+
+        final ExecutorService theExecutor = Executors.newFixedThreadPool(
+            Math.min(theCreateTableRequests.size(), MAX_CONCURRENCY),
+            new CustomizableThreadFactory("ddb-schema-"));
+        try {
+            final List<CompletableFuture<TableOutcome>> theOutcomeFutures = theCreateTableRequests
+                .stream()
+                .map(theRequest -> CompletableFuture.supplyAsync(() -> createTableIfNotExists(theRequest), theExecutor))
+                .collect(Collectors.toList());
+            CompletableFuture.allOf(theOutcomeFutures.toArray(new CompletableFuture<?>[0])).join();
+
+            final Map<String, TableOutcome> theOutcomes = new LinkedHashMap<>();
+            for (int i = 0; i < theCreateTableRequests.size(); i++) {
+                theOutcomes.put(theCreateTableRequests.get(i).getTableName(), theOutcomeFutures.get(i).join());
+            }
+            LOGGER.info("Provisioned {} tables in {} ms: {}",
+                theOutcomes.size(), System.currentTimeMillis() - theStartTime, theOutcomes);
+            return theOutcomes;
+        } catch (final CompletionException theException) {
+            throw new IllegalStateException("Provisioning tables failed", theException.getCause());
+        } finally {
+            theExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Enables the stream of the table of the supplied entity type, unless a stream is already
+     * enabled, and waits until the table is active.
+     * An already enabled stream is retained even if it has another view type than the supplied.
+     *
+     * @param inEntityType Entity type which table must exist.
+     * @param inStreamViewType Information written to the stream when an item is modified.
+     * @return ARN of the stream of the table.
+     * @throws IllegalStateException If the stream could not be enabled.
+     */
+    public String enableStream(final Class<?> inEntityType, final StreamViewType inStreamViewType) {
+        final String theTableName = mDynamoDBMapper.generateCreateTableRequest(inEntityType).getTableName();
+        final TableDescription theTableDescription = mAmazonDynamoDB
+            .describeTable(new DescribeTableRequest().withTableName(theTableName))
+            .getTable();
+        final StreamSpecification theStreamSpecification = theTableDescription.getStreamSpecification();
+        if (theStreamSpecification != null && Boolean.TRUE.equals(theStreamSpecification.getStreamEnabled())) {
+            if (!inStreamViewType.toString().equals(theStreamSpecification.getStreamViewType())) {
+                LOGGER.warn("Table {} has a stream with view type {} instead of {}",
+                    theTableName, theStreamSpecification.getStreamViewType(), inStreamViewType);
+            }
+            return theTableDescription.getLatestStreamArn();
+        }
+
+        mAmazonDynamoDB.updateTable(new UpdateTableRequest()
+            .withTableName(theTableName)
+            .withStreamSpecification(new StreamSpecification()
+                .withStreamEnabled(true)
+                .withStreamViewType(inStreamViewType)));
+        waitUntilActive(theTableName);
+        LOGGER.info("Enabled stream with view type {} on table {}", inStreamViewType, theTableName);
+        return mAmazonDynamoDB
+            .describeTable(new DescribeTableRequest().withTableName(theTableName))
+            .getTable()
+            .getLatestStreamArn();
+    }
+
+    /**
+     * Creates a create table request for the table of the supplied entity type, including
+     * its secondary indexes, with the billing mode of this schema manager.
+     *
+     * @param inEntityType Entity type.
+     * @return Create table request.
+     */
+    public CreateTableRequest createTableRequest(final Class<?> inEntityType) {
+        final CreateTableRequest theCreateTableRequest = mDynamoDBMapper.generateCreateTableRequest(inEntityType);
+        final Projection theAllAttributesProjection = new Projection().withProjectionType(ProjectionType.ALL);
+        final ProvisionedThroughput theProvisionedThroughput = mBillingMode == BillingMode.PROVISIONED
+            ? new ProvisionedThroughput(mReadCapacityUnits, mWriteCapacityUnits)
+            : null;
+        theCreateTableRequest
+            .withBillingMode(mBillingMode)
+            .withProvisionedThroughput(theProvisionedThroughput);
+        if (theCreateTableRequest.getGlobalSecondaryIndexes() != null) {
+            theCreateTableRequest
+                .getGlobalSecondaryIndexes()
+                .forEach(theIndex -> theIndex
+                    .withProvisionedThroughput(theProvisionedThroughput)
+                    .withProjection(theAllAttributesProjection));
+        }
+        if (theCreateTableRequest.getLocalSecondaryIndexes() != null) {
+            theCreateTableRequest
+                .getLocalSecondaryIndexes()
+                .forEach(theIndex -> theIndex.withProjection(theAllAttributesProjection));
+        }
+        return theCreateTableRequest;
+    }
+
+    /**
+     * Creates the table specified by the supplied request unless it exists and waits until
+     * the table is active.
+     *
+     * @param inCreateTableRequest Create table request.
+     * @return Outcome of provisioning the table.
+     */
+    protected TableOutcome createTableIfNotExists(final CreateTableRequest inCreateTableRequest) {
+        final String theTableName = inCreateTableRequest.getTableName();
+        TableOutcome theOutcome;
+        try {
+            final TableDescription theTableDescription = mAmazonDynamoDB
+                .describeTable(new DescribeTableRequest().withTableName(theTableName))
+                .getTable();
+            theOutcome = matchesSchema(inCreateTableRequest, theTableDescription)
+                ? TableOutcome.UNCHANGED
+                : TableOutcome.MISMATCHED;
+        } catch (final ResourceNotFoundException theNotFoundException) {
+            try {
+                mAmazonDynamoDB.createTable(inCreateTableRequest);
+                theOutcome = TableOutcome.CREATED;
+            } catch (final ResourceInUseException theInUseException) {
+                /* Table created by someone else since it was described. */
+                theOutcome = TableOutcome.UNCHANGED;
+            }
+        }
+        if (theOutcome == TableOutcome.MISMATCHED) {
+            LOGGER.warn("Table {} exists but its key schema or secondary indexes differ from the expected",
+                theTableName);
+        }
+
+        waitUntilActive(theTableName);
+        return theOutcome;
+    }
+
+    /**
+     * Waits until the table with the supplied name is active.
+     *
+     * @param inTableName Table name.
+     * @throws IllegalStateException If the table did not become active or if interrupted while waiting.
+     */
+    protected void waitUntilActive(final String inTableName) {
+        try {
+            TableUtils.waitUntilActive(mAmazonDynamoDB, inTableName, mWaitTimeoutMillis, mPollIntervalMillis);
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for table " + inTableName, theException);
+        } catch (final TableUtils.TableNeverTransitionedToStateException theException) {
+            throw new IllegalStateException("Table " + inTableName + " did not become active", theException);
+        }
+    }
+
+    /**
+     * Determines whether the supplied existing table has the key schema and secondary indexes
+     * of the supplied create table request.
+     * Billing mode, capacity and index projections are not compared, since they do not affect
+     * which requests the table accepts.
+     *
+     * @param inCreateTableRequest Create table request specifying the expected table.
+     * @param inTableDescription Description of existing table.
+     * @return True if the table matches the request, false otherwise.
+     */
+    protected static boolean matchesSchema(
+        final CreateTableRequest inCreateTableRequest,
+        final TableDescription inTableDescription) {
+        return Objects.equals(inCreateTableRequest.getKeySchema(), inTableDescription.getKeySchema())
+            && indexNames(inCreateTableRequest.getGlobalSecondaryIndexes(), GlobalSecondaryIndex::getIndexName)
+                .equals(indexNames(
+                    inTableDescription.getGlobalSecondaryIndexes(), GlobalSecondaryIndexDescription::getIndexName))
+            && indexNames(inCreateTableRequest.getLocalSecondaryIndexes(), LocalSecondaryIndex::getIndexName)
+                .equals(indexNames(
+                    inTableDescription.getLocalSecondaryIndexes(), LocalSecondaryIndexDescription::getIndexName));
+    }
+
+    /**
+     * Retrieves the names of the supplied indexes.
+     *
+     * @param inIndexes Indexes. May be null.
+     * @param inIndexNameGetter Retrieves the name of an index.
+     * @param <I> Index type.
+     * @return Index names, empty if there are no indexes.
+     */
+    protected static <I> Set<String> indexNames(
+        final Collection<I> inIndexes,
+        final Function<I, String> inIndexNameGetter) {
+        return inIndexes == null
+            ? Collections.emptySet()
+            : inIndexes.stream().map(inIndexNameGetter).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,96 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import org.springframework.util.Assert;
+import se.ivankrizsan.springdata.dynamodb.domain.StreamCheckpoint;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checkpoint store that stores checkpoints in a DynamoDB table, so that a consumer can resume
+ * consuming a stream where it left off after having been restarted, which suits consumers that
+ * must see every change, such as consumers maintaining views.
+ * Checkpoints are identified by consumer name and node name, so that several consumers can share
+ * the table and each node running a consumer keeps its own checkpoints. Every node consumes every
+ * shard, as needed by consumers such as cache invalidation, and one node having consumed a shard
+ * does not make other nodes skip it.
+ * Checkpoints are cached in memory after having been read or written, since only one consumer
+ * with a given name is expected to run on a node at a time.
+ *
+ * @author Ivan Krizsan
+ */
+public class DynamoDBStreamCheckpointStore implements StreamCheckpointStore {
+    /* Constant(s): */
+    protected static final String ID_SEPARATOR = "#";
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final String mTableName;
+    protected final String mConsumerName;
+    protected final String mNodeName;
+    /** Cached checkpoints keyed by checkpoint id, empty if there is no checkpoint. */
+    protected final Map<String, Optional<String>> mCheckpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a checkpoint store storing the checkpoints of the consumer with the supplied name
+     * running on the node with the supplied name.
+     *
+     * @param inAmazonDynamoDB DynamoDB client.
+     * @param inItemConverter Item converter.
+     * @param inConsumerName Name of consumer which checkpoints to store.
+     * @param inNodeName Name of node on which the consumer runs. Must be stable across restarts
+     * of the node and unique among the nodes running the consumer.
+     */
+    public DynamoDBStreamCheckpointStore(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final String inConsumerName,
+        final String inNodeName) {
+        Assert.hasText(inConsumerName, "The consumer name must not be empty");
+        Assert.hasText(inNodeName, "The node name must not be empty");
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mTableName = inItemConverter.tableName(StreamCheckpoint.class);
+        mConsumerName = inConsumerName;
+        mNodeName = inNodeName;
+    }
+
+    @Override
+    public String checkpoint(final String inStreamArn, final String inShardId) {
+        return mCheckpoints
+            .computeIfAbsent(checkpointId(inStreamArn, inShardId), theCheckpointId -> Optional
+                .ofNullable(mAmazonDynamoDB
+                    .getItem(new GetItemRequest()
+                        .withTableName(mTableName)
+                        .withKey(mItemConverter.key(StreamCheckpoint.class, theCheckpointId))
+                        .withConsistentRead(true))
+                    .getItem())
+                .map(theItem -> mItemConverter.fromItem(StreamCheckpoint.class, theItem).getSequenceNumber()))
+            .orElse(null);
+    }
+
+    @Override
+    public void saveCheckpoint(final String inStreamArn, final String inShardId, final String inCheckpoint) {
+        final String theCheckpointId = checkpointId(inStreamArn, inShardId);
+        mAmazonDynamoDB.putItem(new PutItemRequest()
+            .withTableName(mTableName)
+            .withItem(mItemConverter.toItem(new StreamCheckpoint(theCheckpointId, inCheckpoint))));
+        mCheckpoints.put(theCheckpointId, Optional.ofNullable(inCheckpoint));
+    }
+
+    /**
+     * Creates the id of the checkpoint of the supplied shard, unique to the consumer and the node.
+     *
+     * @param inStreamArn ARN of stream containing the shard.
+     * @param inShardId Shard id.
+     * @return Checkpoint id.
+     */
+    protected String checkpointId(final String inStreamArn, final String inShardId) {
+        return mConsumerName + ID_SEPARATOR + mNodeName + ID_SEPARATOR + inStreamArn + ID_SEPARATOR + inShardId;
+    }
+}
@@ -0,0 +1,188 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read-through cache of entities keyed by id.
+ * Entries are evicted when the cache exceeds its maximum size and when they have
+ * been in the cache longer than the time-to-live.
+ * Entities that are not found are not cached, so only existing entities occupy the cache.
+ * Cached values are shared between all readers and must not be modified. Mutable entities should
+ * therefore not be cached themselves; cache their items instead and create a new entity per lookup.
+ * A disabled cache always delegates to the loader and records no statistics.
+ *
+ * @param <K> Entity id type.
+ * @param <V> Entity type.
+ * @author Ivan Krizsan
+ */
+public class EntityCache<K, V> {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    /** Underlying cache, null if caching is disabled. */
+    protected final Cache<K, V> mCache;
+
+    /**
+     * Creates a cache with the supplied maximum size and time-to-live.
+     *
+     * @param inMaximumSize Maximum number of entities in the cache.
+     * @param inTimeToLive Time after which an entity is evicted from the cache.
+     */
+    public EntityCache(final long inMaximumSize, final Duration inTimeToLive) {
+        this(inMaximumSize, inTimeToLive, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a cache with the supplied maximum size and time-to-live that reads time
+     * from the supplied ticker and performs maintenance, such as evictions, on the supplied executor.
+     *
+     * @param inMaximumSize Maximum number of entities in the cache.
+     * @param inTimeToLive Time after which an entity is evicted from the cache.
+     * @param inTicker Time source.
+     * @param inMaintenanceExecutor Executor on which cache maintenance is performed.
+     */
+    protected EntityCache(
+        final long inMaximumSize,
+        final Duration inTimeToLive,
+        final Ticker inTicker,
+        final Executor inMaintenanceExecutor) {
+        Assert.isTrue(inMaximumSize > 0, "Maximum cache size must be positive");
+        Assert.isTrue(!inTimeToLive.isNegative() && !inTimeToLive.isZero(), "Time-to-live must be positive");
+        mCache = Caffeine
+            .newBuilder()
+            .maximumSize(inMaximumSize)
+            .expireAfterWrite(inTimeToLive)
+            .ticker(inTicker)
+            .executor(inMaintenanceExecutor)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Creates a disabled cache.
+     */
+    protected EntityCache() {
+        mCache = null;
+    }
+
+    /**
+     * Creates a cache that does not cache any entities.
+     *
+     * @param <K> Entity id type.
+     * @param <V> Entity type.
+     * @return Disabled cache.
+     */
+    public static <K, V> EntityCache<K, V> disabled() {
+        return new EntityCache<>();
+    }
+
+    /**
+     * Retrieves the entity with the supplied id from the cache, loading it using the supplied
+     * loader if it is not cached.
+     * Concurrent retrievals of the same id that is not cached will only load the entity once.
+     *
+     * @param inId Entity id.
+     * @param inLoader Loads the entity with a given id, returns null if there is no such entity.
+     * @return Optional containing the entity, empty optional if there is no entity with the id.
+     */
+    public Optional<V> get(final K inId, final Function<K, V> inLoader) {
+        if (mCache == null) {
+            return Optional.ofNullable(inLoader.apply(inId));
+        }
+        return Optional.ofNullable(mCache.get(inId, inLoader));
+    }
+
+    /**
+     * Retrieves the entity with the supplied id from the cache without loading it if it is not cached.
+     *
+     * @param inId Entity id.
+     * @return Optional containing the cached entity, empty optional if the entity is not cached.
+     */
+    public Optional<V> getIfPresent(final K inId) {
+        return mCache == null ? Optional.empty() : Optional.ofNullable(mCache.getIfPresent(inId));
+    }
+
+    /**
+     * Retrieves the entities with the supplied ids that are in the cache without loading the
+     * entities that are not cached.
+     *
+     * @param inIds Entity ids.
+     * @return Cached entities keyed by id, empty map if no entity is cached.
+     */
+    public Map<K, V> getAllPresent(final Iterable<K> inIds) {
+        return mCache == null ? Collections.emptyMap() : mCache.getAllPresent(inIds);
+    }
+
+    /**
+     * Adds the supplied entities, which have been loaded from the database, to the cache.
+     *
+     * @param inEntities Entities keyed by id.
+     */
+    public void putAll(final Map<K, V> inEntities) {
+        if (mCache != null) {
+            mCache.putAll(inEntities);
+        }
+    }
+
+    /**
+     * Removes the entity with the supplied id from the cache.
+     * Should be called after the entity has been modified or deleted in the database.
+     *
+     * @param inId Entity id.
+     */
+    public void invalidate(final K inId) {
+        if (mCache != null) {
+            mCache.invalidate(inId);
+        }
+    }
+
+    /**
+     * Removes the entities with the supplied ids from the cache.
+     *
+     * @param inIds Entity ids.
+     */
+    public void invalidateAll(final Iterable<K> inIds) {
+        if (mCache != null) {
+            mCache.invalidateAll(inIds);
+        }
+    }
+
+    /**
+     * Removes all entities from the cache.
+     */
+    public void invalidateAll() {
+        if (mCache != null) {
+            mCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Retrieves statistics containing the hit, miss and eviction counts of the cache.
+     *
+     * @return Cache statistics, empty statistics if caching is disabled.
+     */
+    public CacheStats statistics() {
+        return mCache == null ? CacheStats.empty() : mCache.stats();
+    }
+
+    /**
+     * Determines whether the cache is enabled.
+     *
+     * @return True if entities are cached, false otherwise.
+     */
+    public boolean isEnabled() {
+        return mCache != null;
+    }
+}
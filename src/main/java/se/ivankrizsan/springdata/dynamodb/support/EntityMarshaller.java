@@ -0,0 +1,65 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * Converts entities of one type to and from DynamoDB items without reflection.
+ * Implementations must produce the same items as the table model of the DynamoDB mapper
+ * for the entity type, including generating auto-generated attributes in the same way.
+ *
+ * @param <T> Entity type.
+ * @author Ivan Krizsan
+ */
+public interface EntityMarshaller<T> {
+
+    /**
+     * Retrieves the type of entities converted by the marshaller.
+     *
+     * @return Entity type.
+     */
+    Class<T> getEntityType();
+
+    /**
+     * Generates values for auto-generated attributes of the supplied entity, sets them on
+     * the entity and converts the entity to a DynamoDB item.
+     *
+     * @param inEntity Entity to convert.
+     * @return DynamoDB item containing the attributes of the entity.
+     */
+    Map<String, AttributeValue> marshall(T inEntity);
+
+    /**
+     * Converts the supplied DynamoDB item to an entity.
+     *
+     * @param inItem DynamoDB item.
+     * @return Entity containing the attributes of the item.
+     */
+    T unmarshall(Map<String, AttributeValue> inItem);
+
+    /**
+     * Creates the primary key of the entity that has the supplied hash key.
+     *
+     * @param inHashKey Hash key of entity.
+     * @return Primary key attributes.
+     */
+    Map<String, AttributeValue> key(Object inHashKey);
+
+    /**
+     * Extracts the primary key attributes from the supplied DynamoDB item.
+     *
+     * @param inItem DynamoDB item containing the key attributes.
+     * @return Primary key attributes.
+     */
+    Map<String, AttributeValue> itemKey(Map<String, AttributeValue> inItem);
+
+    /**
+     * Converts the supplied value of the property mapped to the supplied attribute to an attribute value.
+     *
+     * @param inAttributeName Name of attribute.
+     * @param inValue Property value.
+     * @return Attribute value, null if the marshaller does not map the attribute.
+     */
+    AttributeValue attributeValue(String inAttributeName, Object inValue);
+}
@@ -0,0 +1,242 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Detects hot keys, that is keys of items or index partitions that are accessed much more frequently
+ * than others and thus risk being throttled since the capacity of a table is divided among its partitions.
+ * A sample of the accesses is recorded per table and operation in bounded-memory sketches estimating
+ * the most frequently accessed keys, so that recording adds little overhead to accesses.
+ * At the end of every report interval, the most frequently accessed keys of the interval are reported,
+ * logged if they exceed the hot key share, and recording starts over in new sketches.
+ * The last report is available through a JMX operation, if JMX is enabled, and as the following
+ * metrics, tagged with table name, operation, rank and key:
+ * <ul>
+ *     <li>dynamodb.hotkeys.accesses - Gauge with the estimated number of accesses of a key
+ *     in the last report interval.</li>
+ *     <li>dynamodb.hotkeys.share - Gauge with the estimated share of the accesses of a table and operation
+ *     that accessed a key in the last report interval.</li>
+ * </ul>
+ *
+ * @author Ivan Krizsan
+ */
+@ManagedResource(
+    objectName = "se.ivankrizsan.springdata.dynamodb:name=hotKeyDetector",
+    description = "Most frequently accessed keys of DynamoDB tables")
+public class HotKeyDetector implements AutoCloseable {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotKeyDetector.class);
+    public static final String ACCESSES_METER_NAME = "dynamodb.hotkeys.accesses";
+    public static final String SHARE_METER_NAME = "dynamodb.hotkeys.share";
+    public static final String TABLE_TAG = "table";
+    public static final String OPERATION_TAG = "operation";
+    public static final String RANK_TAG = "rank";
+    public static final String KEY_TAG = "key";
+    /** Operation reading an item by its key. */
+    public static final String READ_OPERATION = "read";
+    /** Operation writing or deleting an item by its key. */
+    public static final String WRITE_OPERATION = "write";
+    /** Prefix of operations querying an index, followed by the name of the index. */
+    public static final String QUERY_OPERATION_PREFIX = "query:";
+    /** Number of counters per hash function of sketches. */
+    protected static final int SKETCH_WIDTH = 2048;
+    /** Minimum number of candidate keys of sketches, which keep four times the number of reported keys. */
+    protected static final int MIN_CANDIDATE_CAPACITY = 32;
+
+    /* Instance variable(s): */
+    protected final double mSampleRate;
+    protected final int mReportedKeyCount;
+    protected final double mHotKeyShare;
+    protected final long mReportIntervalMillis;
+    /** Sketches of the current report interval keyed by table name and operation. */
+    protected final AtomicReference<Map<List<String>, HotKeySketch>> mSketches =
+        new AtomicReference<>(new ConcurrentHashMap<>());
+    /** Most frequently accessed keys of the last report interval keyed by table name and operation. */
+    protected volatile Map<List<String>, List<HotKeySketch.HotKey>> mLastReport = Collections.emptyMap();
+    protected final MultiGauge mAccessesGauge;
+    protected final MultiGauge mShareGauge;
+    protected ScheduledExecutorService mReportExecutor;
+
+    /**
+     * Creates a hot key detector that reports the most frequently accessed keys once started.
+     *
+     * @param inSampleRate Share of accesses that are recorded, greater than 0 and at most 1.
+     * @param inReportedKeyCount Number of most frequently accessed keys reported per table and operation.
+     * @param inHotKeyShare Share of the accesses of a table and operation above which a key is logged as hot.
+     * @param inReportIntervalMillis Interval between reports, in milliseconds.
+     * @param inMeterRegistry Meter registry in which to record metrics.
+     */
+    public HotKeyDetector(
+        final double inSampleRate,
+        final int inReportedKeyCount,
+        final double inHotKeyShare,
+        final long inReportIntervalMillis,
+        final MeterRegistry inMeterRegistry) {
+        Assert.isTrue(inSampleRate > 0.0 && inSampleRate <= 1.0,
+            "The sample rate must be greater than 0 and at most 1");
+        Assert.isTrue(inReportedKeyCount > 0, "The number of reported keys must be positive");
+        Assert.isTrue(inReportIntervalMillis > 0, "The report interval must be positive");
+        mSampleRate = inSampleRate;
+        mReportedKeyCount = inReportedKeyCount;
+        mHotKeyShare = inHotKeyShare;
+        mReportIntervalMillis = inReportIntervalMillis;
+        mAccessesGauge = MultiGauge.builder(ACCESSES_METER_NAME).register(inMeterRegistry);
+        mShareGauge = MultiGauge.builder(SHARE_METER_NAME).baseUnit("ratio").register(inMeterRegistry);
+    }
+
+    /**
+     * Creates the name of the operation querying the index with the supplied name.
+     *
+     * @param inIndexName Name of index.
+     * @return Name of operation.
+     */
+    public static String queryOperation(final String inIndexName) {
+        return QUERY_OPERATION_PREFIX + inIndexName;
+    }
+
+    /**
+     * Records an access of the supplied key by the supplied operation on the supplied table,
+     * if the access is sampled.
+     *
+     * @param inTableName Name of accessed table.
+     * @param inOperation Name of operation.
+     * @param inKey Accessed key, such as the hash key of an item or an index.
+     */
+    public void record(final String inTableName, final String inOperation, final String inKey) {
+        if (mSampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= mSampleRate) {
+            return;
+        }
+        mSketches
+            .get()
+            .computeIfAbsent(List.of(inTableName, inOperation), theTableOperation ->
+                new HotKeySketch(SKETCH_WIDTH, Math.max(MIN_CANDIDATE_CAPACITY, 4 * mReportedKeyCount)))
+            .record(inKey);
+    }
+
+    /**
+     * Starts reporting the most frequently accessed keys at the end of every report interval.
+     */
+    public synchronized void start() {
+        if (mReportExecutor == null) {
+            final CustomizableThreadFactory theThreadFactory = new CustomizableThreadFactory("ddb-hotkeys-");
+            theThreadFactory.setDaemon(true);
+            mReportExecutor = Executors.newSingleThreadScheduledExecutor(theThreadFactory);
+            mReportExecutor.scheduleAtFixedRate(() -> {
+                try {
+                    report();
+                } catch (final RuntimeException theException) {
+                    LOGGER.error("Reporting hot keys failed", theException);
+                }
+            }, mReportIntervalMillis, mReportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops reporting.
+     */
+    @Override
+    public synchronized void close() {
+        if (mReportExecutor != null) {
+            mReportExecutor.shutdownNow();
+            mReportExecutor = null;
+        }
+    }
+
+    /**
+     * Ends the current report interval, reporting the most frequently accessed keys of the interval
+     * and starting to record accesses in new sketches.
+     * Accesses recorded concurrently with the end of an interval may not be included in any report.
+     */
+    public void report() {
+        final Map<List<String>, HotKeySketch> theSketches = mSketches.getAndSet(new ConcurrentHashMap<>());
+        final Map<List<String>, List<HotKeySketch.HotKey>> theReport = new TreeMap<>(
+            (theFirst, theSecond) -> String.join("/", theFirst).compareTo(String.join("/", theSecond)));
+        final List<MultiGauge.Row<?>> theAccessesRows = new ArrayList<>();
+        final List<MultiGauge.Row<?>> theShareRows = new ArrayList<>();
+        for (Map.Entry<List<String>, HotKeySketch> theEntry : theSketches.entrySet()) {
+            final String theTableName = theEntry.getKey().get(0);
+            final String theOperation = theEntry.getKey().get(1);
+            final List<HotKeySketch.HotKey> theHotKeys = new ArrayList<>();
+            int theRank = 1;
+            for (HotKeySketch.HotKey theSampledKey : theEntry.getValue().topKeys(mReportedKeyCount)) {
+                final HotKeySketch.HotKey theHotKey = new HotKeySketch.HotKey(theSampledKey.getKey(),
+                    Math.round(theSampledKey.getCount() / mSampleRate), theSampledKey.getShare());
+                theHotKeys.add(theHotKey);
+                final Tags theTags = Tags.of(TABLE_TAG, theTableName, OPERATION_TAG, theOperation,
+                    RANK_TAG, Integer.toString(theRank++), KEY_TAG, theHotKey.getKey());
+                theAccessesRows.add(MultiGauge.Row.of(theTags, theHotKey.getCount()));
+                theShareRows.add(MultiGauge.Row.of(theTags, theHotKey.getShare()));
+                if (theHotKey.getShare() > mHotKeyShare) {
+                    LOGGER.warn("Hot key {} of table {}: {} of about {} {} accesses",
+                        theHotKey.getKey(),
+                        theTableName,
+                        String.format(Locale.ROOT, "%.1f%%", theHotKey.getShare() * 100),
+                        Math.round(theEntry.getValue().totalCount() / mSampleRate),
+                        theOperation);
+                }
+            }
+            theReport.put(theEntry.getKey(), Collections.unmodifiableList(theHotKeys));
+        }
+        mAccessesGauge.register(theAccessesRows, true);
+        mShareGauge.register(theShareRows, true);
+        mLastReport = Collections.unmodifiableMap(theReport);
+    }
+
+    /**
+     * Retrieves the most frequently accessed keys of the last report interval.
+     *
+     * @return Most frequently accessed keys, most frequent first, keyed by a list containing
+     * table name and operation.
+     */
+    public Map<List<String>, List<HotKeySketch.HotKey>> lastReport() {
+        return mLastReport;
+    }
+
+    /**
+     * Formats the most frequently accessed keys of the last report interval.
+     *
+     * @return Report with one line per table and operation.
+     */
+    @ManagedOperation(description = "Most frequently accessed keys of the last report interval")
+    public String formatLastReport() {
+        final StringBuilder theReport = new StringBuilder();
+        for (Map.Entry<List<String>, List<HotKeySketch.HotKey>> theEntry : mLastReport.entrySet()) {
+            theReport
+                .append(theEntry.getKey().get(0))
+                .append(' ')
+                .append(theEntry.getKey().get(1))
+                .append(':');
+            for (HotKeySketch.HotKey theHotKey : theEntry.getValue()) {
+                theReport
+                    .append(' ')
+                    .append(theHotKey.getKey())
+                    .append('=')
+                    .append(theHotKey.getCount())
+                    .append(String.format(Locale.ROOT, " (%.1f%%)", theHotKey.getShare() * 100));
+            }
+            theReport.append('\n');
+        }
+        return theReport.toString();
+    }
+}
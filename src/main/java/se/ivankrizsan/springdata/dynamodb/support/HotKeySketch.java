@@ -0,0 +1,228 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded-memory estimator of the most frequent keys in a stream of keys, used to find hot keys.
+ * Key frequencies are estimated using a count-min sketch, which never underestimates frequencies
+ * and overestimates them by at most a small fraction of the total count with high probability.
+ * Keys which estimated frequency is among the highest are kept as candidates for the most frequent
+ * keys. When the number of candidates exceeds twice the candidate capacity, the least frequent
+ * candidates are pruned and only keys at least as frequent as the least frequent remaining
+ * candidate are admitted as candidates.
+ * Keys are recorded without locking: sketch counters are updated atomically and candidates are
+ * kept in a concurrent map. Pruning is done by one recording thread at a time, while other threads
+ * continue recording.
+ *
+ * @author Ivan Krizsan
+ */
+public class HotKeySketch {
+    /* Constant(s): */
+    protected static final int DEPTH = 4;
+
+    /**
+     * Key with its estimated frequency.
+     */
+    public static class HotKey {
+        /* Instance variable(s): */
+        protected final String mKey;
+        protected final long mCount;
+        protected final double mShare;
+
+        /**
+         * Creates a hot key.
+         *
+         * @param inKey Key.
+         * @param inCount Estimated number of times the key was recorded.
+         * @param inShare Estimated share of all recorded keys that were the key, between 0 and 1.
+         */
+        public HotKey(final String inKey, final long inCount, final double inShare) {
+            mKey = inKey;
+            mCount = inCount;
+            mShare = inShare;
+        }
+
+        /**
+         * Retrieves the key.
+         *
+         * @return Key.
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        /**
+         * Retrieves the estimated number of times the key was recorded.
+         *
+         * @return Estimated count.
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * Retrieves the estimated share of all recorded keys that were the key.
+         *
+         * @return Estimated share, between 0 and 1.
+         */
+        public double getShare() {
+            return mShare;
+        }
+
+        @Override
+        public String toString() {
+            return mKey + "=" + mCount;
+        }
+    }
+
+    /* Instance variable(s): */
+    protected final int mWidthMask;
+    /** Sketch counters, one row of width counters per hash function. */
+    protected final AtomicLongArray mCounters;
+    protected final LongAdder mTotalCount = new LongAdder();
+    protected final int mCandidateCapacity;
+    /** Candidate keys with the highest estimated counts at the time they were last recorded. */
+    protected final Map<String, Long> mCandidates = new ConcurrentHashMap<>();
+    /** Minimum estimated count of keys admitted as candidates once the candidates have been pruned. */
+    protected volatile long mAdmissionThreshold;
+    protected final ReentrantLock mPruneLock = new ReentrantLock();
+
+    /**
+     * Creates a sketch.
+     *
+     * @param inWidth Number of counters per hash function, rounded up to a power of two. The estimation
+     * error is inversely proportional to the width.
+     * @param inCandidateCapacity Number of most frequent keys that are kept as candidates.
+     */
+    public HotKeySketch(final int inWidth, final int inCandidateCapacity) {
+        Assert.isTrue(inWidth > 0 && inWidth <= 1 << 24, "The width must be between 1 and 2^24");
+        Assert.isTrue(inCandidateCapacity > 0, "The candidate capacity must be positive");
+        final int theWidth =
+            Integer.highestOneBit(inWidth) == inWidth ? inWidth : Integer.highestOneBit(inWidth) << 1;
+        mWidthMask = theWidth - 1;
+        mCounters = new AtomicLongArray(DEPTH * theWidth);
+        mCandidateCapacity = inCandidateCapacity;
+    }
+
+    /**
+     * Records one occurrence of the supplied key.
+     *
+     * @param inKey Key.
+     */
+    public void record(final String inKey) {
+        final int theHash = spread(inKey.hashCode());
+        final int theSecondHash = spread(theHash + 0x9E3779B9) | 1;
+        long theEstimate = Long.MAX_VALUE;
+        for (int theRow = 0; theRow < DEPTH; theRow++) {
+            theEstimate = Math.min(theEstimate, mCounters.incrementAndGet(index(theRow, theHash, theSecondHash)));
+        }
+        mTotalCount.increment();
+
+        if (theEstimate >= mAdmissionThreshold || mCandidates.size() < mCandidateCapacity) {
+            mCandidates.put(inKey, theEstimate);
+            if (mCandidates.size() > 2 * mCandidateCapacity && mPruneLock.tryLock()) {
+                try {
+                    prune();
+                } finally {
+                    mPruneLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of times the supplied key has been recorded.
+     *
+     * @param inKey Key.
+     * @return Estimated count, never lower than the actual count.
+     */
+    public long estimate(final String inKey) {
+        final int theHash = spread(inKey.hashCode());
+        final int theSecondHash = spread(theHash + 0x9E3779B9) | 1;
+        long theEstimate = Long.MAX_VALUE;
+        for (int theRow = 0; theRow < DEPTH; theRow++) {
+            theEstimate = Math.min(theEstimate, mCounters.get(index(theRow, theHash, theSecondHash)));
+        }
+        return theEstimate;
+    }
+
+    /**
+     * Retrieves the number of recorded keys.
+     *
+     * @return Total count.
+     */
+    public long totalCount() {
+        return mTotalCount.sum();
+    }
+
+    /**
+     * Retrieves the most frequent keys.
+     *
+     * @param inCount Maximum number of keys to retrieve, at most the candidate capacity.
+     * @return Most frequent keys, most frequent first.
+     */
+    public List<HotKey> topKeys(final int inCount) {
+        final long theTotalCount = Math.max(1L, totalCount());
+        return new ArrayList<>(mCandidates.keySet())
+            .stream()
+            .map(theKey -> {
+                final long theCount = estimate(theKey);
+                return new HotKey(theKey, theCount, Math.min(1.0, (double) theCount / theTotalCount));
+            })
+            .sorted(Comparator.comparingLong(HotKey::getCount).reversed().thenComparing(HotKey::getKey))
+            .limit(Math.min(inCount, mCandidateCapacity))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes the least frequent candidates, keeping the candidate capacity most frequent ones,
+     * and raises the admission threshold to the count of the least frequent remaining candidate.
+     */
+    protected void prune() {
+        final List<Map.Entry<String, Long>> theCandidates = new ArrayList<>(mCandidates.entrySet());
+        theCandidates.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (int theIndex = mCandidateCapacity; theIndex < theCandidates.size(); theIndex++) {
+            mCandidates.remove(theCandidates.get(theIndex).getKey(), theCandidates.get(theIndex).getValue());
+        }
+        mAdmissionThreshold = theCandidates.get(mCandidateCapacity - 1).getValue();
+    }
+
+    /**
+     * Calculates the index of the counter of the supplied key hash codes in the supplied sketch row,
+     * using double hashing to derive one hash function per row.
+     *
+     * @param inRow Sketch row.
+     * @param inHash Spread hash code of key.
+     * @param inSecondHash Second, odd, hash code of key.
+     * @return Index of counter.
+     */
+    protected int index(final int inRow, final int inHash, final int inSecondHash) {
+        return inRow * (mWidthMask + 1) + ((inHash + inRow * inSecondHash) & mWidthMask);
+    }
+
+    /**
+     * Spreads the bits of the supplied hash code, so that similar keys map to different counters.
+     *
+     * @param inHash Hash code.
+     * @return Spread hash code.
+     */
+    protected static int spread(final int inHash) {
+        int theHash = inHash;
+        theHash ^= theHash >>> 16;
+        theHash *= 0x85EBCA6B;
+        theHash ^= theHash >>> 13;
+        theHash *= 0xC2B2AE35;
+        theHash ^= theHash >>> 16;
+        return theHash;
+    }
+}
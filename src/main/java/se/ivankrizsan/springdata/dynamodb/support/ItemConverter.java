@@ -0,0 +1,74 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * Converts entities to and from DynamoDB items, for use by components that issue
+ * low-level DynamoDB requests.
+ *
+ * @author Ivan Krizsan
+ */
+public interface ItemConverter {
+
+    /**
+     * Resolves the name of the table in which entities of the supplied type are stored,
+     * including any table name prefix.
+     *
+     * @param inEntityType Entity type.
+     * @return Table name.
+     */
+    String tableName(Class<?> inEntityType);
+
+    /**
+     * Generates values for auto-generated attributes of the supplied entity, sets them on
+     * the entity and converts the entity to a DynamoDB item.
+     *
+     * @param inEntity Entity to convert.
+     * @param <T> Entity type.
+     * @return DynamoDB item containing the attributes of the entity.
+     */
+    <T> Map<String, AttributeValue> toItem(T inEntity);
+
+    /**
+     * Converts the supplied DynamoDB item to an entity of the supplied type.
+     *
+     * @param inEntityType Entity type.
+     * @param inItem DynamoDB item.
+     * @param <T> Entity type.
+     * @return Entity containing the attributes of the item.
+     */
+    <T> T fromItem(Class<T> inEntityType, Map<String, AttributeValue> inItem);
+
+    /**
+     * Creates the primary key of the entity of the supplied type that has the supplied hash key.
+     *
+     * @param inEntityType Entity type. Must not have a range key.
+     * @param inHashKey Hash key of entity.
+     * @param <T> Entity type.
+     * @return Primary key attributes.
+     */
+    <T> Map<String, AttributeValue> key(Class<T> inEntityType, Object inHashKey);
+
+    /**
+     * Extracts the primary key attributes from the supplied DynamoDB item of an entity of the supplied type.
+     *
+     * @param inEntityType Entity type.
+     * @param inItem DynamoDB item containing the key attributes.
+     * @param <T> Entity type.
+     * @return Primary key attributes.
+     */
+    <T> Map<String, AttributeValue> itemKey(Class<T> inEntityType, Map<String, AttributeValue> inItem);
+
+    /**
+     * Converts the supplied value of the property mapped to the supplied attribute to an attribute value.
+     *
+     * @param inEntityType Entity type.
+     * @param inAttributeName Name of attribute.
+     * @param inValue Property value.
+     * @param <T> Entity type.
+     * @return Attribute value.
+     */
+    <T> AttributeValue attributeValue(Class<T> inEntityType, String inAttributeName, Object inValue);
+}
@@ -0,0 +1,128 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies recorded concurrently by multiple threads, from which percentiles can be read.
+ * Values are counted in log-linear buckets: values below 128 are counted exactly and larger values
+ * in buckets which width is at most 1/64 of the values counted in the bucket, so percentiles are
+ * accurate to within 1.6 percent over the whole range of positive long values, using constant memory.
+ * The unit of values is chosen by the caller.
+ *
+ * @author Ivan Krizsan
+ */
+public class LatencyHistogram {
+    /* Constant(s): */
+    protected static final int SUB_BUCKET_BITS = 7;
+    protected static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    protected static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    protected static final int BUCKET_COUNT = Long.SIZE - SUB_BUCKET_BITS;
+
+    /* Instance variable(s): */
+    protected final AtomicLongArray mCounts = new AtomicLongArray((BUCKET_COUNT + 1) * SUB_BUCKET_HALF_COUNT);
+    protected final LongAdder mSum = new LongAdder();
+    protected final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records the supplied value. Negative values are recorded as zero.
+     *
+     * @param inValue Value to record.
+     */
+    public void record(final long inValue) {
+        final long theValue = Math.max(0L, inValue);
+        mCounts.incrementAndGet(index(theValue));
+        mSum.add(theValue);
+        mMax.accumulateAndGet(theValue, Math::max);
+    }
+
+    /**
+     * Retrieves the number of recorded values.
+     *
+     * @return Number of recorded values.
+     */
+    public long count() {
+        long theCount = 0;
+        for (int theIndex = 0; theIndex < mCounts.length(); theIndex++) {
+            theCount += mCounts.get(theIndex);
+        }
+        return theCount;
+    }
+
+    /**
+     * Retrieves the largest recorded value.
+     *
+     * @return Largest value, zero if no values have been recorded.
+     */
+    public long max() {
+        return mMax.get();
+    }
+
+    /**
+     * Calculates the mean of the recorded values.
+     *
+     * @return Mean value, zero if no values have been recorded.
+     */
+    public double mean() {
+        final long theCount = count();
+        return theCount == 0 ? 0.0 : mSum.doubleValue() / theCount;
+    }
+
+    /**
+     * Finds the value below or at which the supplied percentage of the recorded values are.
+     *
+     * @param inPercentile Percentile, between 0 and 100.
+     * @return Largest value equivalent to the recorded values in the bucket of the percentile, but
+     * at most the largest recorded value. Zero if no values have been recorded.
+     */
+    public long valueAtPercentile(final double inPercentile) {
+        Assert.isTrue(inPercentile >= 0.0 && inPercentile <= 100.0, "The percentile must be between 0 and 100");
+        final long[] theCounts = new long[mCounts.length()];
+        long theTotalCount = 0;
+        for (int theIndex = 0; theIndex < theCounts.length; theIndex++) {
+            theCounts[theIndex] = mCounts.get(theIndex);
+            theTotalCount += theCounts[theIndex];
+        }
+        if (theTotalCount == 0) {
+            return 0L;
+        }
+
+        final long theTargetCount = Math.max(1L, (long) Math.ceil(inPercentile / 100.0 * theTotalCount));
+        long theCumulativeCount = 0;
+        for (int theIndex = 0; theIndex < theCounts.length; theIndex++) {
+            theCumulativeCount += theCounts[theIndex];
+            if (theCumulativeCount >= theTargetCount) {
+                return Math.min(highestEquivalentValue(theIndex), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Calculates the index of the counter counting the supplied value.
+     *
+     * @param inValue Non-negative value.
+     * @return Counter index.
+     */
+    protected static int index(final long inValue) {
+        final int theBucket = Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(inValue) - (SUB_BUCKET_BITS - 1));
+        return theBucket * SUB_BUCKET_HALF_COUNT + (int) (inValue >>> theBucket);
+    }
+
+    /**
+     * Calculates the largest value counted by the counter with the supplied index.
+     *
+     * @param inIndex Counter index.
+     * @return Largest value of counter.
+     */
+    protected static long highestEquivalentValue(final int inIndex) {
+        final int theBucket = Math.max(0, inIndex / SUB_BUCKET_HALF_COUNT - 1);
+        final long theSubBucket = inIndex - (long) theBucket * SUB_BUCKET_HALF_COUNT;
+        final long theLowestValue = theSubBucket << theBucket;
+        final long theHighestValue = theLowestValue + (1L << theBucket) - 1;
+        return theHighestValue < 0 ? Long.MAX_VALUE : theHighestValue;
+    }
+}
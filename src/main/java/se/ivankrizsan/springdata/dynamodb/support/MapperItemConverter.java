@@ -0,0 +1,146 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAutoGenerateStrategy;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts entities to and from DynamoDB items using the table models of the DynamoDB mapper,
+ * for use by components that issue low-level DynamoDB requests.
+ * Auto-generated keys and timestamps are generated and set on entities converted to items,
+ * in the same way as the DynamoDB mapper does when saving an entity.
+ *
+ * @author Ivan Krizsan
+ */
+public class MapperItemConverter implements ItemConverter {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected final DynamoDBMapper mDynamoDBMapper;
+    protected final DynamoDBMapperConfig mDynamoDBMapperConfig;
+
+    /**
+     * Creates an item converter using the table models of the supplied mapper.
+     *
+     * @param inDynamoDBMapper DynamoDB mapper from which entity table models are obtained.
+     * @param inDynamoDBMapperConfig DynamoDB mapper configuration used to resolve table names.
+     */
+    public MapperItemConverter(
+        final DynamoDBMapper inDynamoDBMapper,
+        final DynamoDBMapperConfig inDynamoDBMapperConfig) {
+        mDynamoDBMapper = inDynamoDBMapper;
+        mDynamoDBMapperConfig = withDefaults(inDynamoDBMapperConfig);
+    }
+
+    @Override
+    public String tableName(final Class<?> inEntityType) {
+        return mDynamoDBMapperConfig.getTableNameResolver().getTableName(inEntityType, mDynamoDBMapperConfig);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, AttributeValue> toItem(final T inEntity) {
+        final DynamoDBMapperTableModel<T> theTableModel = tableModel((Class<T>) inEntity.getClass());
+        for (DynamoDBMapperFieldModel<T, Object> theField : theTableModel.fields()) {
+            final DynamoDBAutoGenerateStrategy theStrategy = theField.getGenerateStrategy();
+            if (theStrategy == DynamoDBAutoGenerateStrategy.ALWAYS
+                || (theStrategy == DynamoDBAutoGenerateStrategy.CREATE && theField.get(inEntity) == null)) {
+                theField.set(inEntity, theField.generate(theField.get(inEntity)));
+            }
+        }
+        return theTableModel.convert(inEntity);
+    }
+
+    @Override
+    public <T> T fromItem(final Class<T> inEntityType, final Map<String, AttributeValue> inItem) {
+        return tableModel(inEntityType).unconvert(inItem);
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> key(final Class<T> inEntityType, final Object inHashKey) {
+        return tableModel(inEntityType).convertKey(inHashKey, null);
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> itemKey(
+        final Class<T> inEntityType,
+        final Map<String, AttributeValue> inItem) {
+        final Map<String, AttributeValue> theKey = new HashMap<>();
+        for (DynamoDBMapperFieldModel<T, Object> theKeyField : tableModel(inEntityType).keys()) {
+            theKey.put(theKeyField.name(), inItem.get(theKeyField.name()));
+        }
+        return theKey;
+    }
+
+    @Override
+    public <T> AttributeValue attributeValue(
+        final Class<T> inEntityType,
+        final String inAttributeName,
+        final Object inValue) {
+        return tableModel(inEntityType).field(inAttributeName).convert(inValue);
+    }
+
+    /**
+     * Retrieves the table model of the supplied entity type.
+     *
+     * @param inEntityType Entity type.
+     * @param <T> Entity type.
+     * @return Table model.
+     */
+    protected <T> DynamoDBMapperTableModel<T> tableModel(final Class<T> inEntityType) {
+        return mDynamoDBMapper.getTableModel(inEntityType, mDynamoDBMapperConfig);
+    }
+
+    /**
+     * Creates a mapper configuration with the settings of the supplied configuration, using the
+     * settings of the default mapper configuration for settings not set in the supplied configuration.
+     *
+     * @param inDynamoDBMapperConfig DynamoDB mapper configuration.
+     * @return Complete DynamoDB mapper configuration.
+     */
+    protected static DynamoDBMapperConfig withDefaults(final DynamoDBMapperConfig inDynamoDBMapperConfig) {
+        final DynamoDBMapperConfig theDefaults = DynamoDBMapperConfig.DEFAULT;
+        return new DynamoDBMapperConfig.Builder()
+            .withSaveBehavior(
+                orDefault(inDynamoDBMapperConfig.getSaveBehavior(), theDefaults.getSaveBehavior()))
+            .withConsistentReads(
+                orDefault(inDynamoDBMapperConfig.getConsistentReads(), theDefaults.getConsistentReads()))
+            .withTableNameOverride(
+                orDefault(inDynamoDBMapperConfig.getTableNameOverride(), theDefaults.getTableNameOverride()))
+            .withTableNameResolver(
+                orDefault(inDynamoDBMapperConfig.getTableNameResolver(), theDefaults.getTableNameResolver()))
+            .withObjectTableNameResolver(orDefault(
+                inDynamoDBMapperConfig.getObjectTableNameResolver(), theDefaults.getObjectTableNameResolver()))
+            .withPaginationLoadingStrategy(orDefault(
+                inDynamoDBMapperConfig.getPaginationLoadingStrategy(), theDefaults.getPaginationLoadingStrategy()))
+            .withRequestMetricCollector(orDefault(
+                inDynamoDBMapperConfig.getRequestMetricCollector(), theDefaults.getRequestMetricCollector()))
+            .withConversionSchema(
+                orDefault(inDynamoDBMapperConfig.getConversionSchema(), theDefaults.getConversionSchema()))
+            .withBatchWriteRetryStrategy(orDefault(
+                inDynamoDBMapperConfig.getBatchWriteRetryStrategy(), theDefaults.getBatchWriteRetryStrategy()))
+            .withBatchLoadRetryStrategy(orDefault(
+                inDynamoDBMapperConfig.getBatchLoadRetryStrategy(), theDefaults.getBatchLoadRetryStrategy()))
+            .withTypeConverterFactory(orDefault(
+                inDynamoDBMapperConfig.getTypeConverterFactory(), theDefaults.getTypeConverterFactory()))
+            .build();
+    }
+
+    /**
+     * Returns the supplied value, or the supplied default value if the value is null.
+     *
+     * @param inValue Value.
+     * @param inDefault Default value.
+     * @param <V> Value type.
+     * @return Value or default value.
+     */
+    protected static <V> V orDefault(final V inValue, final V inDefault) {
+        return inValue != null ? inValue : inDefault;
+    }
+}
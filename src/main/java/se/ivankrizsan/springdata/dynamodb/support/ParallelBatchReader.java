@@ -0,0 +1,189 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Reads entities from DynamoDB by hash key using BatchGetItem requests.
+ * Duplicate keys are removed and the remaining keys are split into chunks of at most 100 keys,
+ * which is the maximum number of keys allowed in one BatchGetItem request, and the chunks are
+ * dispatched concurrently on the supplied executor.
+ * Unprocessed keys are retried with exponential backoff and full jitter.
+ *
+ * @author Ivan Krizsan
+ */
+public class ParallelBatchReader {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelBatchReader.class);
+    /** Maximum number of keys in one BatchGetItem request. */
+    public static final int MAX_BATCH_GET_KEYS = 100;
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final Executor mExecutor;
+    protected final int mMaxRetries;
+    protected final RetryBackoff mRetryBackoff;
+
+    /**
+     * Creates a batch reader using the supplied DynamoDB client and executor.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to issue BatchGetItem requests.
+     * @param inItemConverter Converts DynamoDB items to entities.
+     * @param inExecutor Executor on which chunks are dispatched. Should be bounded.
+     * @param inMaxRetries Maximum number of times unprocessed keys of a chunk are retried.
+     * @param inBaseBackoffMillis Base delay, in milliseconds, before retrying unprocessed keys.
+     * @param inMaxBackoffMillis Maximum delay, in milliseconds, before retrying unprocessed keys.
+     */
+    public ParallelBatchReader(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inMaxRetries,
+        final long inBaseBackoffMillis,
+        final long inMaxBackoffMillis) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mExecutor = inExecutor;
+        mMaxRetries = inMaxRetries;
+        mRetryBackoff = new RetryBackoff(inBaseBackoffMillis, inMaxBackoffMillis);
+    }
+
+    /**
+     * Loads the entities of the supplied type that have the supplied hash keys using
+     * concurrently dispatched BatchGetItem requests.
+     * Entities that do not exist are omitted from the result.
+     *
+     * @param inEntityType Type of entities to load. Must not have a range key.
+     * @param inHashKeys Hash keys of entities to load. May contain duplicates.
+     * @param <T> Entity type.
+     * @return Loaded entities, in no particular order.
+     * @throws DataRetrievalFailureException If some keys remain unprocessed after the maximum
+     * number of retries, or if a request fails.
+     */
+    public <T> List<T> batchLoad(final Class<T> inEntityType, final Collection<?> inHashKeys) {
+        return toEntities(inEntityType, batchLoadItems(inEntityType, inHashKeys));
+    }
+
+    /**
+     * Loads the items of the entities of the supplied type that have the supplied hash keys using
+     * concurrently dispatched BatchGetItem requests, without converting the items to entities.
+     * Items that do not exist are omitted from the result.
+     * No request is issued if no hash keys are supplied.
+     *
+     * @param inEntityType Type of entities to load. Must not have a range key.
+     * @param inHashKeys Hash keys of entities to load. May contain duplicates.
+     * @return Loaded items, in no particular order.
+     * @throws DataRetrievalFailureException If some keys remain unprocessed after the maximum
+     * number of retries, or if a request fails.
+     */
+    public List<Map<String, AttributeValue>> batchLoadItems(
+        final Class<?> inEntityType,
+        final Collection<?> inHashKeys) {
+        final String theTableName = mItemConverter.tableName(inEntityType);
+        final List<Map<String, AttributeValue>> theKeys = new LinkedHashSet<>(inHashKeys)
+            .stream()
+            .map(theHashKey -> mItemConverter.key(inEntityType, theHashKey))
+            .collect(Collectors.toList());
+        if (theKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (theKeys.size() <= MAX_BATCH_GET_KEYS) {
+            return readChunk(theTableName, theKeys);
+        }
+
+        final List<CompletableFuture<List<Map<String, AttributeValue>>>> theChunkFutures = new ArrayList<>();
+        for (int theChunkStart = 0; theChunkStart < theKeys.size(); theChunkStart += MAX_BATCH_GET_KEYS) {
+            final List<Map<String, AttributeValue>> theChunk =
+                theKeys.subList(theChunkStart, Math.min(theChunkStart + MAX_BATCH_GET_KEYS, theKeys.size()));
+            theChunkFutures.add(CompletableFuture.supplyAsync(() -> readChunk(theTableName, theChunk), mExecutor));
+        }
+        LOGGER.debug("Dispatched {} keys in {} chunks", theKeys.size(), theChunkFutures.size());
+
+        final List<Map<String, AttributeValue>> theItems = new ArrayList<>(theKeys.size());
+        for (CompletableFuture<List<Map<String, AttributeValue>>> theChunkFuture : theChunkFutures) {
+            try {
+                theItems.addAll(theChunkFuture.join());
+            } catch (final CompletionException theException) {
+                throw theException.getCause() instanceof RuntimeException
+                    ? (RuntimeException) theException.getCause()
+                    : theException;
+            }
+        }
+        return theItems;
+    }
+
+    /**
+     * Reads one chunk of keys, retrying unprocessed keys until all keys have been read.
+     *
+     * @param inTableName Name of table to read from.
+     * @param inKeys Keys of items to read. At most 100 keys.
+     * @return Items read.
+     * @throws DataRetrievalFailureException If some keys remain unprocessed after the maximum
+     * number of retries, or if a request fails.
+     */
+    protected List<Map<String, AttributeValue>> readChunk(
+        final String inTableName,
+        final List<Map<String, AttributeValue>> inKeys) {
+        final List<Map<String, AttributeValue>> theItems = new ArrayList<>(inKeys.size());
+        Map<String, KeysAndAttributes> thePendingKeys = Map.of(inTableName, new KeysAndAttributes().withKeys(inKeys));
+        int theRetry = 0;
+        while (true) {
+            final BatchGetItemResult theResult;
+            try {
+                theResult = mAmazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(thePendingKeys));
+            } catch (final RuntimeException theException) {
+                throw new DataRetrievalFailureException("Reading items from table " + inTableName + " failed",
+                    theException);
+            }
+            theItems.addAll(theResult.getResponses().getOrDefault(inTableName, Collections.emptyList()));
+
+            thePendingKeys = theResult.getUnprocessedKeys() != null
+                ? theResult.getUnprocessedKeys()
+                : Collections.emptyMap();
+            if (thePendingKeys.isEmpty()) {
+                return theItems;
+            }
+            if (theRetry >= mMaxRetries) {
+                throw new DataRetrievalFailureException("Giving up on unprocessed keys of table " + inTableName
+                    + " after " + theRetry + " retries");
+            }
+
+            try {
+                Thread.sleep(mRetryBackoff.delayMillis(theRetry));
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                throw new DataRetrievalFailureException("Interrupted retrying unprocessed keys", theException);
+            }
+            theRetry++;
+        }
+    }
+
+    /**
+     * Converts the supplied items to entities of the supplied type.
+     */
+    private <T> List<T> toEntities(final Class<T> inEntityType, final List<Map<String, AttributeValue>> inItems) {
+        final List<T> theEntities = new ArrayList<>(inItems.size());
+        for (Map<String, AttributeValue> theItem : inItems) {
+            theEntities.add(mItemConverter.fromItem(inEntityType, theItem));
+        }
+        return theEntities;
+    }
+}
@@ -0,0 +1,286 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Writes entities to DynamoDB using BatchWriteItem requests.
+ * The entities are split into chunks of at most 25 items, which is the maximum number
+ * of items allowed in one BatchWriteItem request, and the chunks are dispatched
+ * concurrently on the supplied executor.
+ * BatchWriteItem rejects requests that write the same item more than once, so if several
+ * writes have the same key, only the last of them is written.
+ * Unprocessed items are retried with exponential backoff and full jitter.
+ * The rate at which batch writes consume write capacity may be limited by a capacity rate limiter.
+ * Auto-generated keys and timestamps are generated and set on the entities before
+ * they are written.
+ *
+ * @author Ivan Krizsan
+ */
+public class ParallelBatchWriter {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelBatchWriter.class);
+    /** Maximum number of items in one BatchWriteItem request. */
+    public static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final Executor mExecutor;
+    protected final int mMaxRetries;
+    protected final RetryBackoff mRetryBackoff;
+    protected final CapacityRateLimiter mCapacityRateLimiter;
+
+    /**
+     * Creates a batch writer using the supplied DynamoDB client and executor.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to issue BatchWriteItem requests.
+     * @param inItemConverter Converts entities to DynamoDB items.
+     * @param inExecutor Executor on which chunks are dispatched. Should be bounded.
+     * @param inMaxRetries Maximum number of times unprocessed items of a chunk are retried.
+     * @param inBaseBackoffMillis Base delay, in milliseconds, before retrying unprocessed items.
+     * @param inMaxBackoffMillis Maximum delay, in milliseconds, before retrying unprocessed items.
+     */
+    public ParallelBatchWriter(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inMaxRetries,
+        final long inBaseBackoffMillis,
+        final long inMaxBackoffMillis) {
+        this(inAmazonDynamoDB, inItemConverter, inExecutor, inMaxRetries, inBaseBackoffMillis, inMaxBackoffMillis,
+            CapacityRateLimiter.unlimited());
+    }
+
+    /**
+     * Creates a batch writer using the supplied DynamoDB client and executor that limits the rate
+     * at which batch writes consume write capacity.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to issue BatchWriteItem requests.
+     * @param inItemConverter Converts entities to DynamoDB items.
+     * @param inExecutor Executor on which chunks are dispatched. Should be bounded.
+     * @param inMaxRetries Maximum number of times unprocessed items of a chunk are retried.
+     * @param inBaseBackoffMillis Base delay, in milliseconds, before retrying unprocessed items.
+     * @param inMaxBackoffMillis Maximum delay, in milliseconds, before retrying unprocessed items.
+     * @param inCapacityRateLimiter Limits the rate at which batch writes consume write capacity.
+     */
+    public ParallelBatchWriter(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inMaxRetries,
+        final long inBaseBackoffMillis,
+        final long inMaxBackoffMillis,
+        final CapacityRateLimiter inCapacityRateLimiter) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mExecutor = inExecutor;
+        mMaxRetries = inMaxRetries;
+        mRetryBackoff = new RetryBackoff(inBaseBackoffMillis, inMaxBackoffMillis);
+        mCapacityRateLimiter = inCapacityRateLimiter;
+    }
+
+    /**
+     * Saves the supplied entities using concurrently dispatched BatchWriteItem requests.
+     * Auto-generated attributes, such as keys and timestamps, are set on the supplied entities.
+     * If several entities have the same key, only the last of them is written.
+     *
+     * @param inEntities Entities to save. May be of different types.
+     * @return Batches that could not be written, empty list if all entities were written.
+     */
+    public List<DynamoDBMapper.FailedBatch> batchSave(final Iterable<?> inEntities) {
+        final Map<List<Object>, Map.Entry<String, WriteRequest>> theWriteRequests = new LinkedHashMap<>();
+        for (Object theEntity : inEntities) {
+            final String theTableName = mItemConverter.tableName(theEntity.getClass());
+            final Map<String, AttributeValue> theItem = mItemConverter.toItem(theEntity);
+            theWriteRequests.put(
+                List.of(theTableName, mItemConverter.itemKey(theEntity.getClass(), theItem)),
+                Map.entry(theTableName, new WriteRequest().withPutRequest(new PutRequest().withItem(theItem))));
+        }
+        return writeInChunks(new ArrayList<>(theWriteRequests.values()));
+    }
+
+    /**
+     * Deletes the entities of the supplied type that have the supplied hash keys using
+     * concurrently dispatched BatchWriteItem requests.
+     *
+     * @param inEntityType Type of entities to delete. Must not have a range key.
+     * @param inHashKeys Hash keys of entities to delete. May contain duplicates.
+     * @return Batches that could not be written, empty list if all entities were deleted.
+     */
+    public List<DynamoDBMapper.FailedBatch> batchDelete(final Class<?> inEntityType, final Iterable<?> inHashKeys) {
+        final String theTableName = mItemConverter.tableName(inEntityType);
+        final Map<Map<String, AttributeValue>, Map.Entry<String, WriteRequest>> theWriteRequests =
+            new LinkedHashMap<>();
+        for (Object theHashKey : inHashKeys) {
+            final Map<String, AttributeValue> theKey = mItemConverter.key(inEntityType, theHashKey);
+            theWriteRequests.put(theKey, Map.entry(
+                theTableName,
+                new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(theKey))));
+        }
+        return writeInChunks(new ArrayList<>(theWriteRequests.values()));
+    }
+
+    /**
+     * Puts the supplied items into the table with the supplied name using one BatchWriteItem request,
+     * that is dispatched on the executor of this writer, retrying unprocessed items.
+     *
+     * @param inTableName Name of table to put items into.
+     * @param inItems Items to put. At most 25 items.
+     * @return Future completed with the failed batch if some items could not be written, null otherwise.
+     */
+    public CompletableFuture<DynamoDBMapper.FailedBatch> putItemsAsync(
+        final String inTableName,
+        final List<Map<String, AttributeValue>> inItems) {
+        Assert.isTrue(inItems.size() <= MAX_BATCH_WRITE_ITEMS, "At most 25 items can be put in one batch");
+        final List<WriteRequest> theWriteRequests = new ArrayList<>(inItems.size());
+        for (Map<String, AttributeValue> theItem : inItems) {
+            theWriteRequests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(theItem)));
+        }
+        return CompletableFuture.supplyAsync(() -> writeChunk(Map.of(inTableName, theWriteRequests)), mExecutor);
+    }
+
+    /**
+     * Splits the supplied write requests into chunks that each fit in one BatchWriteItem request
+     * and writes the chunks concurrently.
+     *
+     * @param inWriteRequests Write requests, each associated with the name of the table it is to be
+     * written to. Must not contain more than one write request per key.
+     * @return Batches that could not be written.
+     */
+    protected List<DynamoDBMapper.FailedBatch> writeInChunks(
+        final List<Map.Entry<String, WriteRequest>> inWriteRequests) {
+        final List<CompletableFuture<DynamoDBMapper.FailedBatch>> theChunkFutures = new ArrayList<>();
+        for (int theChunkStart = 0; theChunkStart < inWriteRequests.size(); theChunkStart += MAX_BATCH_WRITE_ITEMS) {
+            final Map<String, List<WriteRequest>> theChunk = new LinkedHashMap<>();
+            inWriteRequests
+                .subList(theChunkStart, Math.min(theChunkStart + MAX_BATCH_WRITE_ITEMS, inWriteRequests.size()))
+                .forEach(theEntry ->
+                    theChunk.computeIfAbsent(theEntry.getKey(), k -> new ArrayList<>()).add(theEntry.getValue()));
+            theChunkFutures.add(CompletableFuture.supplyAsync(() -> writeChunk(theChunk), mExecutor));
+        }
+
+        LOGGER.debug("Dispatched {} write requests in {} chunks", inWriteRequests.size(), theChunkFutures.size());
+        return theChunkFutures
+            .stream()
+            .map(CompletableFuture::join)
+            .filter(theFailedBatch -> theFailedBatch != null)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes one chunk of write requests, retrying unprocessed items until all items
+     * have been written or the maximum number of retries has been reached.
+     *
+     * @param inChunk Write requests keyed by table name. At most 25 write requests in total.
+     * @return Failed batch if some write requests could not be written, null otherwise.
+     */
+    protected DynamoDBMapper.FailedBatch writeChunk(final Map<String, List<WriteRequest>> inChunk) {
+        Map<String, List<WriteRequest>> thePendingItems = inChunk;
+        int theRetry = 0;
+        while (true) {
+            final BatchWriteItemResult theResult;
+            try {
+                theResult = batchWriteItem(thePendingItems);
+            } catch (final Exception theException) {
+                return failedBatch(thePendingItems, theException);
+            }
+
+            thePendingItems = theResult.getUnprocessedItems() != null
+                ? theResult.getUnprocessedItems()
+                : Collections.emptyMap();
+            if (thePendingItems.isEmpty()) {
+                return null;
+            }
+            if (theRetry >= mMaxRetries) {
+                LOGGER.warn("Giving up on unprocessed items after {} retries", theRetry);
+                return failedBatch(thePendingItems, null);
+            }
+
+            try {
+                Thread.sleep(mRetryBackoff.delayMillis(theRetry));
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                return failedBatch(thePendingItems, theException);
+            }
+            theRetry++;
+        }
+    }
+
+    /**
+     * Writes the supplied items using one BatchWriteItem request, waiting for write capacity of the
+     * tables to become available and charging the write capacity consumed by the request, if batch
+     * writes are rate limited. Tables for which items are left unprocessed are considered throttled.
+     * If the consumed capacity is not reported, one capacity unit per written item is charged,
+     * which is the capacity consumed by writes of items of at most 1 KB.
+     *
+     * @param inItems Write requests keyed by table name.
+     * @return Result of BatchWriteItem request.
+     */
+    protected BatchWriteItemResult batchWriteItem(final Map<String, List<WriteRequest>> inItems) {
+        final BatchWriteItemRequest theRequest = new BatchWriteItemRequest().withRequestItems(inItems);
+        if (!mCapacityRateLimiter.isLimited()) {
+            return mAmazonDynamoDB.batchWriteItem(theRequest);
+        }
+        theRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        inItems.keySet().forEach(theTableName ->
+            mCapacityRateLimiter.acquire(theTableName, CapacityRateLimiter.CapacityType.WRITE));
+        final BatchWriteItemResult theResult = mAmazonDynamoDB.batchWriteItem(theRequest);
+        final Map<String, List<WriteRequest>> theUnprocessedItems = theResult.getUnprocessedItems() != null
+            ? theResult.getUnprocessedItems()
+            : Collections.emptyMap();
+        if (theResult.getConsumedCapacity() != null && !theResult.getConsumedCapacity().isEmpty()) {
+            for (ConsumedCapacity theConsumedCapacity : theResult.getConsumedCapacity()) {
+                if (theConsumedCapacity.getCapacityUnits() != null) {
+                    mCapacityRateLimiter.consume(theConsumedCapacity.getTableName(),
+                        CapacityRateLimiter.CapacityType.WRITE, theConsumedCapacity.getCapacityUnits());
+                }
+            }
+        } else {
+            inItems.forEach((theTableName, theWriteRequests) -> mCapacityRateLimiter.consume(
+                theTableName,
+                CapacityRateLimiter.CapacityType.WRITE,
+                theWriteRequests.size() - theUnprocessedItems.getOrDefault(theTableName, List.of()).size()));
+        }
+        theUnprocessedItems.keySet().forEach(theTableName ->
+            mCapacityRateLimiter.throttled(theTableName, CapacityRateLimiter.CapacityType.WRITE));
+        return theResult;
+    }
+
+    /**
+     * Creates a failed batch containing the supplied unprocessed items and exception.
+     *
+     * @param inUnprocessedItems Items that were not written.
+     * @param inException Exception that caused the failure, or null.
+     * @return Failed batch.
+     */
+    protected static DynamoDBMapper.FailedBatch failedBatch(
+        final Map<String, List<WriteRequest>> inUnprocessedItems,
+        final Exception inException) {
+        final DynamoDBMapper.FailedBatch theFailedBatch = new DynamoDBMapper.FailedBatch();
+        theFailedBatch.setUnprocessedItems(new HashMap<>(inUnprocessedItems));
+        theFailedBatch.setException(inException);
+        return theFailedBatch;
+    }
+}
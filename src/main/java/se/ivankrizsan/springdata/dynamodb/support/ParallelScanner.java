@@ -0,0 +1,468 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans DynamoDB tables in parallel by dividing each table into segments that are
+ * scanned concurrently on the supplied executor.
+ * The result of a scan is a lazily consumed stream. At most a configurable number of
+ * result pages is buffered between the segment scans and the consumer of the stream,
+ * which makes the segment scans wait when the consumer is slower than the scans.
+ * Streams returned by this scanner should be closed when not fully consumed, in order to
+ * stop the segment scans. Segment scans waiting longer than the scan timeout for the consumer
+ * to take a page abandon the scan, so that streams that are never closed do not occupy
+ * the threads of the executor indefinitely. Likewise, a consumer waiting longer than the
+ * scan timeout for a page fails with a query timeout exception.
+ * The rate at which table scans consume read capacity may be limited by a capacity rate limiter.
+ *
+ * @author Ivan Krizsan
+ */
+public class ParallelScanner {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelScanner.class);
+    /** Interval at which segment scans and consumers waiting on the buffer check whether the scan has ended. */
+    protected static final long POLL_MILLIS = 100L;
+    /** Default maximum time to wait for the consumer to take a page or for a page to become available. */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60000L;
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final ItemConverter mItemConverter;
+    protected final Executor mExecutor;
+    protected final int mBufferedPages;
+    protected final CapacityRateLimiter mCapacityRateLimiter;
+    protected final long mTimeoutMillis;
+
+    /**
+     * Creates a parallel scanner.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to scan entity tables.
+     * @param inItemConverter Converts scanned items to entities.
+     * @param inExecutor Executor on which segments are scanned.
+     * @param inBufferedPages Maximum number of result pages buffered per scan.
+     */
+    public ParallelScanner(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inBufferedPages) {
+        this(inAmazonDynamoDB, inItemConverter, inExecutor, inBufferedPages, CapacityRateLimiter.unlimited());
+    }
+
+    /**
+     * Creates a parallel scanner that limits the rate at which table scans consume read capacity.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to scan entity tables.
+     * @param inItemConverter Converts scanned items to entities.
+     * @param inExecutor Executor on which segments are scanned.
+     * @param inBufferedPages Maximum number of result pages buffered per scan.
+     * @param inCapacityRateLimiter Limits the rate at which table scans consume read capacity.
+     */
+    public ParallelScanner(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inBufferedPages,
+        final CapacityRateLimiter inCapacityRateLimiter) {
+        this(inAmazonDynamoDB, inItemConverter, inExecutor, inBufferedPages, inCapacityRateLimiter,
+            DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a parallel scanner that limits the rate at which table scans consume read capacity
+     * and abandons scans which consumer or segment scans wait longer than the supplied timeout.
+     *
+     * @param inAmazonDynamoDB DynamoDB client used to scan entity tables.
+     * @param inItemConverter Converts scanned items to entities.
+     * @param inExecutor Executor on which segments are scanned.
+     * @param inBufferedPages Maximum number of result pages buffered per scan.
+     * @param inCapacityRateLimiter Limits the rate at which table scans consume read capacity.
+     * @param inTimeoutMillis Maximum time, in milliseconds, that segment scans wait for the consumer
+     * to take a page and that the consumer waits for a page.
+     */
+    public ParallelScanner(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final ItemConverter inItemConverter,
+        final Executor inExecutor,
+        final int inBufferedPages,
+        final CapacityRateLimiter inCapacityRateLimiter,
+        final long inTimeoutMillis) {
+        Assert.isTrue(inBufferedPages > 0, "At least one page must be buffered");
+        Assert.isTrue(inTimeoutMillis > 0, "Scan timeout must be positive");
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mItemConverter = inItemConverter;
+        mExecutor = inExecutor;
+        mBufferedPages = inBufferedPages;
+        mCapacityRateLimiter = inCapacityRateLimiter;
+        mTimeoutMillis = inTimeoutMillis;
+    }
+
+    /**
+     * Scans the table containing entities of the supplied type, dividing the table
+     * into the supplied number of segments.
+     *
+     * @param inEntityType Type of entities to scan for.
+     * @param inTotalSegments Number of segments to divide the table into.
+     * @param <T> Entity type.
+     * @return Stream of entities. Should be closed if not fully consumed.
+     */
+    public <T> Stream<T> scan(final Class<T> inEntityType, final int inTotalSegments) {
+        return scan(inEntityType, inTotalSegments, new ScanRequest());
+    }
+
+    /**
+     * Scans the table containing entities of the supplied type using the supplied scan request
+     * as template for the requests of each segment, dividing the table into the supplied
+     * number of segments.
+     * The template may contain, for instance, a filter expression.
+     *
+     * @param inEntityType Type of entities to scan for.
+     * @param inTotalSegments Number of segments to divide the table into.
+     * @param inScanRequestTemplate Scan request that is copied for each page request. The table name,
+     * segment and exclusive start key are set on the copies.
+     * @param <T> Entity type.
+     * @return Stream of entities. Should be closed if not fully consumed.
+     */
+    public <T> Stream<T> scan(
+        final Class<T> inEntityType,
+        final int inTotalSegments,
+        final ScanRequest inScanRequestTemplate) {
+        final String theTableName = mItemConverter.tableName(inEntityType);
+        return scan(inTotalSegments, (inSegment, inExclusiveStartKey) -> {
+            final ScanRequest theScanRequest = inScanRequestTemplate
+                .clone()
+                .withTableName(theTableName)
+                .withSegment(inSegment)
+                .withTotalSegments(inTotalSegments)
+                .withExclusiveStartKey(inExclusiveStartKey);
+            final ScanResult theScanResult = scanPage(theScanRequest);
+            final List<T> theEntities = new ArrayList<>(theScanResult.getItems().size());
+            for (Map<String, AttributeValue> theItem : theScanResult.getItems()) {
+                theEntities.add(mItemConverter.fromItem(inEntityType, theItem));
+            }
+            return new SegmentPage<>(theEntities, theScanResult.getLastEvaluatedKey());
+        });
+    }
+
+    /**
+     * Scans the table with the supplied name, dividing the table into the supplied number of segments,
+     * without converting the scanned items to entities.
+     *
+     * @param inTableName Name of table to scan.
+     * @param inTotalSegments Number of segments to divide the table into.
+     * @return Stream of items. Should be closed if not fully consumed.
+     */
+    public Stream<Map<String, AttributeValue>> scanItems(final String inTableName, final int inTotalSegments) {
+        return scan(inTotalSegments, (inSegment, inExclusiveStartKey) -> {
+            final ScanResult theScanResult = scanPage(new ScanRequest()
+                .withTableName(inTableName)
+                .withSegment(inSegment)
+                .withTotalSegments(inTotalSegments)
+                .withExclusiveStartKey(inExclusiveStartKey));
+            return new SegmentPage<>(theScanResult.getItems(), theScanResult.getLastEvaluatedKey());
+        });
+    }
+
+    /**
+     * Scans one page of a table, waiting for read capacity of the table to become available and
+     * charging the read capacity consumed by the scan, if scans are rate limited.
+     * If the consumed capacity is not reported, half a capacity unit per scanned item is charged,
+     * which is the capacity consumed by eventually consistent reads of items of at most 4 KB.
+     *
+     * @param inScanRequest Scan request.
+     * @return Scan result.
+     */
+    protected ScanResult scanPage(final ScanRequest inScanRequest) {
+        if (!mCapacityRateLimiter.isLimited()) {
+            return mAmazonDynamoDB.scan(inScanRequest);
+        }
+        if (inScanRequest.getReturnConsumedCapacity() == null) {
+            inScanRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        }
+        mCapacityRateLimiter.acquire(inScanRequest.getTableName(), CapacityRateLimiter.CapacityType.READ);
+        final ScanResult theScanResult = mAmazonDynamoDB.scan(inScanRequest);
+        final ConsumedCapacity theConsumedCapacity = theScanResult.getConsumedCapacity();
+        final double theConsumedCapacityUnits =
+            theConsumedCapacity != null && theConsumedCapacity.getCapacityUnits() != null
+                ? theConsumedCapacity.getCapacityUnits()
+                : 0.5 * (theScanResult.getScannedCount() != null ? theScanResult.getScannedCount() : 0);
+        mCapacityRateLimiter.consume(
+            inScanRequest.getTableName(), CapacityRateLimiter.CapacityType.READ, theConsumedCapacityUnits);
+        return theScanResult;
+    }
+
+    /**
+     * Scans using the supplied page reader, reading the supplied number of segments concurrently.
+     *
+     * @param inTotalSegments Number of segments to divide the table into.
+     * @param inPageReader Reads one page of a segment.
+     * @param <T> Type of stream elements.
+     * @return Stream of elements. Should be closed if not fully consumed.
+     */
+    public <T> Stream<T> scan(final int inTotalSegments, final SegmentPageReader<T> inPageReader) {
+        Assert.isTrue(inTotalSegments > 0, "At least one segment must be scanned");
+
+        final ScanState<T> theScanState = new ScanState<>(mBufferedPages, inTotalSegments, mTimeoutMillis);
+        final List<CompletableFuture<Void>> theSegmentFutures = new ArrayList<>();
+        for (int theSegment = 0; theSegment < inTotalSegments; theSegment++) {
+            final int theCurrentSegment = theSegment;
+            theSegmentFutures.add(CompletableFuture.runAsync(
+                () -> scanSegment(theCurrentSegment, inPageReader, theScanState), mExecutor));
+        }
+
+        return StreamSupport
+            .stream(new ScanSpliterator<>(theScanState), false)
+            .onClose(() -> {
+                theScanState.mCancelled = true;
+                theSegmentFutures.forEach(theFuture -> theFuture.cancel(false));
+                theScanState.mPages.clear();
+            });
+    }
+
+    /**
+     * Scans all pages of one segment, putting the pages in the buffer of the supplied scan.
+     * The segment always ends with a completion page, or a failure page containing the runtime
+     * exception or error thrown reading the segment, unless the scan has been cancelled.
+     *
+     * @param inSegment Segment to scan.
+     * @param inPageReader Reads one page of the segment.
+     * @param inScanState Scan to which the segment belongs.
+     * @param <T> Type of scanned elements.
+     */
+    protected <T> void scanSegment(
+        final int inSegment,
+        final SegmentPageReader<T> inPageReader,
+        final ScanState<T> inScanState) {
+        try {
+            Map<String, AttributeValue> theExclusiveStartKey = null;
+            do {
+                if (inScanState.mCancelled) {
+                    return;
+                }
+                final SegmentPage<T> thePage = inPageReader.readPage(inSegment, theExclusiveStartKey);
+                if (!thePage.mItems.isEmpty() && !offer(inScanState, thePage)) {
+                    return;
+                }
+                theExclusiveStartKey = thePage.mLastEvaluatedKey;
+            } while (theExclusiveStartKey != null && !theExclusiveStartKey.isEmpty());
+            offer(inScanState, SegmentPage.segmentCompleted());
+        } catch (final RuntimeException | Error theException) {
+            LOGGER.warn("Exception occurred scanning segment {}", inSegment, theException);
+            offer(inScanState, SegmentPage.segmentFailed(theException));
+        }
+    }
+
+    /**
+     * Puts the supplied page in the buffer of the supplied scan, waiting for space to
+     * become available if the buffer is full.
+     * If the consumer has not taken a page within the scan timeout, the scan is abandoned,
+     * since the stream of the scan has most likely been discarded without being closed.
+     *
+     * @param inScanState Scan to which the page belongs.
+     * @param inPage Page to put in the buffer.
+     * @param <T> Type of scanned elements.
+     * @return True if the page was put in the buffer, false if the scan was cancelled or abandoned.
+     */
+    protected <T> boolean offer(final ScanState<T> inScanState, final SegmentPage<T> inPage) {
+        final long theDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(inScanState.mTimeoutMillis);
+        try {
+            while (!inScanState.mCancelled) {
+                if (inScanState.mPages.offer(inPage, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                if (System.nanoTime() - theDeadline > 0) {
+                    LOGGER.warn("Abandoning scan, since no page has been taken from the scan stream in {} ms",
+                        inScanState.mTimeoutMillis);
+                    inScanState.mAbandoned = true;
+                    inScanState.mCancelled = true;
+                    inScanState.mPages.clear();
+                }
+            }
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Reads one page of a segment of a parallel scan.
+     *
+     * @param <T> Type of elements in the page.
+     */
+    @FunctionalInterface
+    public interface SegmentPageReader<T> {
+        /**
+         * Reads the page of the supplied segment that starts after the supplied key.
+         *
+         * @param inSegment Segment to read.
+         * @param inExclusiveStartKey Key after which to start reading, null to start at the
+         * beginning of the segment.
+         * @return Page read.
+         */
+        SegmentPage<T> readPage(int inSegment, Map<String, AttributeValue> inExclusiveStartKey);
+    }
+
+    /**
+     * One page of results from a segment of a parallel scan.
+     *
+     * @param <T> Type of elements in the page.
+     */
+    public static class SegmentPage<T> {
+        /* Instance variable(s): */
+        protected final List<T> mItems;
+        protected final Map<String, AttributeValue> mLastEvaluatedKey;
+        protected final boolean mSegmentCompleted;
+        protected final Throwable mException;
+
+        /**
+         * Creates a page containing the supplied items.
+         *
+         * @param inItems Items in page.
+         * @param inLastEvaluatedKey Key of the last evaluated item, null if last page of segment.
+         */
+        public SegmentPage(final List<T> inItems, final Map<String, AttributeValue> inLastEvaluatedKey) {
+            this(inItems, inLastEvaluatedKey, false, null);
+        }
+
+        protected SegmentPage(
+            final List<T> inItems,
+            final Map<String, AttributeValue> inLastEvaluatedKey,
+            final boolean inSegmentCompleted,
+            final Throwable inException) {
+            mItems = inItems;
+            mLastEvaluatedKey = inLastEvaluatedKey;
+            mSegmentCompleted = inSegmentCompleted;
+            mException = inException;
+        }
+
+        protected static <T> SegmentPage<T> segmentCompleted() {
+            return new SegmentPage<>(Collections.emptyList(), null, true, null);
+        }
+
+        protected static <T> SegmentPage<T> segmentFailed(final Throwable inException) {
+            return new SegmentPage<>(Collections.emptyList(), null, true, inException);
+        }
+    }
+
+    /**
+     * State of one parallel scan shared by the segment scans and the consumer of the scan stream.
+     *
+     * @param <T> Type of scanned elements.
+     */
+    protected static class ScanState<T> {
+        /* Instance variable(s): */
+        protected final BlockingQueue<SegmentPage<T>> mPages;
+        protected final long mTimeoutMillis;
+        protected int mRemainingSegments;
+        protected volatile boolean mCancelled;
+        /** True if the scan was cancelled by a segment scan that timed out waiting for the consumer. */
+        protected volatile boolean mAbandoned;
+
+        protected ScanState(final int inBufferedPages, final int inTotalSegments, final long inTimeoutMillis) {
+            mPages = new ArrayBlockingQueue<>(inBufferedPages);
+            mRemainingSegments = inTotalSegments;
+            mTimeoutMillis = inTimeoutMillis;
+        }
+    }
+
+    /**
+     * Spliterator that takes pages from the buffer of a parallel scan until all
+     * segments have been completely scanned.
+     *
+     * @param <T> Type of scanned elements.
+     */
+    protected static class ScanSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        /* Instance variable(s): */
+        protected final ScanState<T> mScanState;
+        protected Iterator<T> mCurrentPage = Collections.emptyIterator();
+
+        protected ScanSpliterator(final ScanState<T> inScanState) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            mScanState = inScanState;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> inAction) {
+            while (!mCurrentPage.hasNext()) {
+                if (mScanState.mRemainingSegments == 0) {
+                    return false;
+                }
+                final SegmentPage<T> thePage = takePage();
+                if (thePage.mException instanceof Error) {
+                    throw (Error) thePage.mException;
+                }
+                if (thePage.mException != null) {
+                    throw (RuntimeException) thePage.mException;
+                }
+                if (thePage.mSegmentCompleted) {
+                    mScanState.mRemainingSegments--;
+                } else {
+                    mCurrentPage = thePage.mItems.iterator();
+                }
+            }
+            inAction.accept(mCurrentPage.next());
+            return true;
+        }
+
+        /**
+         * Takes the next page from the buffer of the scan, waiting at most the scan timeout
+         * for a page to become available. The scan is cancelled if no page becomes available.
+         *
+         * @return Page taken from the buffer.
+         * @throws QueryTimeoutException If no page became available within the scan timeout.
+         * @throws DataRetrievalFailureException If the scan has been cancelled or abandoned.
+         */
+        protected SegmentPage<T> takePage() {
+            final long theDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(mScanState.mTimeoutMillis);
+            try {
+                while (true) {
+                    if (mScanState.mCancelled) {
+                        throw new DataRetrievalFailureException(mScanState.mAbandoned
+                            ? "Scan was abandoned since its results were not consumed within "
+                                + mScanState.mTimeoutMillis + " ms"
+                            : "Scan has been cancelled");
+                    }
+                    final SegmentPage<T> thePage = mScanState.mPages.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (thePage != null) {
+                        return thePage;
+                    }
+                    if (System.nanoTime() - theDeadline > 0) {
+                        mScanState.mCancelled = true;
+                        throw new QueryTimeoutException(
+                            "No scan results became available within " + mScanState.mTimeoutMillis + " ms");
+                    }
+                }
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                mScanState.mCancelled = true;
+                throw new IllegalStateException("Interrupted waiting for scan results", theException);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Update of a subset of the top-level attributes of an item that is applied to update item
+ * requests as an update expression, so that only the updated attributes are sent to DynamoDB
+ * instead of the entire item.
+ * Updated attributes that are present in the item from which values are taken are set,
+ * attributes absent from the item are removed.
+ * Attribute names are always substituted by expression attribute name placeholders, which
+ * allows for updating attributes which names are DynamoDB reserved words.
+ *
+ * @author Ivan Krizsan
+ */
+public class PartialUpdate {
+    /* Constant(s): */
+    protected static final String NAME_PLACEHOLDER_PREFIX = "#updated";
+    protected static final String VALUE_PLACEHOLDER_PREFIX = ":updated";
+
+    /* Instance variable(s): */
+    protected final Set<String> mAttributeNames;
+
+    /**
+     * Creates an update of the supplied attributes.
+     *
+     * @param inAttributeNames Names of attributes to update. Duplicates are ignored.
+     */
+    public PartialUpdate(final Collection<String> inAttributeNames) {
+        Assert.notEmpty(inAttributeNames, "At least one attribute must be updated");
+        mAttributeNames = new LinkedHashSet<>(inAttributeNames);
+    }
+
+    /**
+     * Creates an update of the supplied attributes.
+     *
+     * @param inAttributeNames Names of attributes to update.
+     * @return Partial update.
+     */
+    public static PartialUpdate of(final String... inAttributeNames) {
+        return new PartialUpdate(Arrays.asList(inAttributeNames));
+    }
+
+    /**
+     * Retrieves the names of the updated attributes.
+     *
+     * @return Updated attribute names.
+     */
+    public Set<String> getAttributeNames() {
+        return mAttributeNames;
+    }
+
+    /**
+     * Applies the update to the supplied update item request, taking the values of the updated
+     * attributes from the supplied item.
+     *
+     * @param inUpdateItemRequest Update item request.
+     * @param inItem Item containing the new values of the updated attributes.
+     * @return The supplied request.
+     */
+    public UpdateItemRequest applyTo(
+        final UpdateItemRequest inUpdateItemRequest,
+        final Map<String, AttributeValue> inItem) {
+        final StringBuilder theSetActions = new StringBuilder();
+        final StringBuilder theRemoveActions = new StringBuilder();
+        final Map<String, String> theExpressionAttributeNames = new HashMap<>();
+        final Map<String, AttributeValue> theExpressionAttributeValues = new HashMap<>();
+        for (String theAttributeName : mAttributeNames) {
+            final String theNamePlaceholder = NAME_PLACEHOLDER_PREFIX + theExpressionAttributeNames.size();
+            theExpressionAttributeNames.put(theNamePlaceholder, theAttributeName);
+            final AttributeValue theValue = inItem.get(theAttributeName);
+            if (theValue != null) {
+                final String theValuePlaceholder = VALUE_PLACEHOLDER_PREFIX + theExpressionAttributeValues.size();
+                theExpressionAttributeValues.put(theValuePlaceholder, theValue);
+                appendAction(theSetActions, theNamePlaceholder + " = " + theValuePlaceholder);
+            } else {
+                appendAction(theRemoveActions, theNamePlaceholder);
+            }
+        }
+
+        final StringBuilder theUpdateExpression = new StringBuilder();
+        if (theSetActions.length() > 0) {
+            theUpdateExpression.append("SET ").append(theSetActions);
+        }
+        if (theRemoveActions.length() > 0) {
+            if (theUpdateExpression.length() > 0) {
+                theUpdateExpression.append(' ');
+            }
+            theUpdateExpression.append("REMOVE ").append(theRemoveActions);
+        }
+        if (inUpdateItemRequest.getExpressionAttributeNames() != null) {
+            theExpressionAttributeNames.putAll(inUpdateItemRequest.getExpressionAttributeNames());
+        }
+        if (inUpdateItemRequest.getExpressionAttributeValues() != null) {
+            theExpressionAttributeValues.putAll(inUpdateItemRequest.getExpressionAttributeValues());
+        }
+        return inUpdateItemRequest
+            .withUpdateExpression(theUpdateExpression.toString())
+            .withExpressionAttributeNames(theExpressionAttributeNames)
+            .withExpressionAttributeValues(
+                theExpressionAttributeValues.isEmpty() ? null : theExpressionAttributeValues);
+    }
+
+    /**
+     * Appends the supplied action to the supplied comma-separated list of actions.
+     *
+     * @param inActions Actions to append to.
+     * @param inAction Action to append.
+     */
+    protected static void appendAction(final StringBuilder inActions, final String inAction) {
+        if (inActions.length() > 0) {
+            inActions.append(", ");
+        }
+        inActions.append(inAction);
+    }
+}
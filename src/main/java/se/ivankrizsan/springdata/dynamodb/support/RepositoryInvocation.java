@@ -0,0 +1,206 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation of a repository method in progress, to which the DynamoDB requests made by the
+ * invocation are attributed.
+ * The current invocation is bound to the invoking thread. Tasks performing requests on behalf of
+ * the invocation on other threads are attributed to the invocation if they are submitted to an
+ * executor that propagates the current invocation.
+ * Invocations made while another invocation is in progress are nested in it, and their items and
+ * pages are attributed to the enclosing invocations as well.
+ *
+ * @author Ivan Krizsan
+ */
+public class RepositoryInvocation {
+    /* Constant(s): */
+    protected static final ThreadLocal<RepositoryInvocation> CURRENT_INVOCATION = new ThreadLocal<>();
+
+    /* Instance variable(s): */
+    protected final String mRepositoryName;
+    protected final String mMethodName;
+    protected final RepositoryInvocation mEnclosingInvocation;
+    protected final LongAdder mItemsReturned = new LongAdder();
+    protected final LongAdder mItemsScanned = new LongAdder();
+    protected final LongAdder mPages = new LongAdder();
+    /** Names of tables which scans by the invocation have been flagged. */
+    protected final Set<String> mFlaggedScanTables = ConcurrentHashMap.newKeySet();
+    protected volatile boolean mRejected;
+
+    /**
+     * Creates an invocation of the supplied repository method.
+     *
+     * @param inRepositoryName Name of repository.
+     * @param inMethodName Name of repository method.
+     * @param inEnclosingInvocation Invocation in progress when the invocation was made, null if none.
+     */
+    protected RepositoryInvocation(
+        final String inRepositoryName,
+        final String inMethodName,
+        final RepositoryInvocation inEnclosingInvocation) {
+        mRepositoryName = inRepositoryName;
+        mMethodName = inMethodName;
+        mEnclosingInvocation = inEnclosingInvocation;
+    }
+
+    /**
+     * Begins an invocation of the supplied repository method and binds it to the current thread.
+     * The invocation must be ended on the same thread.
+     *
+     * @param inRepositoryName Name of repository.
+     * @param inMethodName Name of repository method.
+     * @return Invocation.
+     */
+    public static RepositoryInvocation begin(final String inRepositoryName, final String inMethodName) {
+        final RepositoryInvocation theInvocation =
+            new RepositoryInvocation(inRepositoryName, inMethodName, CURRENT_INVOCATION.get());
+        CURRENT_INVOCATION.set(theInvocation);
+        return theInvocation;
+    }
+
+    /**
+     * Ends the invocation, binding the enclosing invocation, if any, to the current thread.
+     */
+    public void end() {
+        if (mEnclosingInvocation != null) {
+            CURRENT_INVOCATION.set(mEnclosingInvocation);
+        } else {
+            CURRENT_INVOCATION.remove();
+        }
+    }
+
+    /**
+     * Retrieves the invocation bound to the current thread.
+     *
+     * @return Current invocation, null if no repository method is being invoked.
+     */
+    public static RepositoryInvocation current() {
+        return CURRENT_INVOCATION.get();
+    }
+
+    /**
+     * Creates an executor that executes tasks on the supplied executor, attributing requests
+     * made by the tasks to the invocation that was current when the tasks were submitted.
+     *
+     * @param inExecutor Executor executing tasks.
+     * @return Propagating executor.
+     */
+    public static Executor propagating(final Executor inExecutor) {
+        return theTask -> {
+            final RepositoryInvocation theInvocation = CURRENT_INVOCATION.get();
+            if (theInvocation == null) {
+                inExecutor.execute(theTask);
+                return;
+            }
+            inExecutor.execute(() -> {
+                final RepositoryInvocation thePreviousInvocation = CURRENT_INVOCATION.get();
+                CURRENT_INVOCATION.set(theInvocation);
+                try {
+                    theTask.run();
+                } finally {
+                    if (thePreviousInvocation != null) {
+                        CURRENT_INVOCATION.set(thePreviousInvocation);
+                    } else {
+                        CURRENT_INVOCATION.remove();
+                    }
+                }
+            });
+        };
+    }
+
+    /**
+     * Records items read by a request of the invocation.
+     *
+     * @param inItemsReturned Number of items returned by the request.
+     * @param inItemsScanned Number of items read by DynamoDB, including items not matching filters.
+     * @param inPages Number of result pages, one for each scan or query request.
+     */
+    public void recordItems(final long inItemsReturned, final long inItemsScanned, final int inPages) {
+        for (RepositoryInvocation theInvocation = this; theInvocation != null;
+            theInvocation = theInvocation.mEnclosingInvocation) {
+            theInvocation.mItemsReturned.add(inItemsReturned);
+            theInvocation.mItemsScanned.add(inItemsScanned);
+            theInvocation.mPages.add(inPages);
+        }
+    }
+
+    /**
+     * Flags a scan of the supplied table by the invocation.
+     *
+     * @param inTableName Name of scanned table.
+     * @return True if scans of the table had not been flagged before, false otherwise.
+     */
+    public boolean flagScan(final String inTableName) {
+        return mFlaggedScanTables.add(inTableName);
+    }
+
+    /**
+     * Marks the invocation as rejected.
+     */
+    public void reject() {
+        mRejected = true;
+    }
+
+    /**
+     * Determines whether the invocation has been rejected.
+     *
+     * @return True if a request of the invocation has been rejected, false otherwise.
+     */
+    public boolean isRejected() {
+        return mRejected;
+    }
+
+    /**
+     * Retrieves the name of the repository.
+     *
+     * @return Repository name.
+     */
+    public String getRepositoryName() {
+        return mRepositoryName;
+    }
+
+    /**
+     * Retrieves the name of the repository method.
+     *
+     * @return Method name.
+     */
+    public String getMethodName() {
+        return mMethodName;
+    }
+
+    /**
+     * Retrieves the number of items returned by the requests of the invocation.
+     *
+     * @return Number of items returned.
+     */
+    public long getItemsReturned() {
+        return mItemsReturned.sum();
+    }
+
+    /**
+     * Retrieves the number of items read by DynamoDB for the requests of the invocation.
+     *
+     * @return Number of items scanned.
+     */
+    public long getItemsScanned() {
+        return mItemsScanned.sum();
+    }
+
+    /**
+     * Retrieves the number of scan and query result pages fetched by the invocation.
+     *
+     * @return Number of pages.
+     */
+    public long getPages() {
+        return mPages.sum();
+    }
+
+    @Override
+    public String toString() {
+        return mRepositoryName + "." + mMethodName;
+    }
+}
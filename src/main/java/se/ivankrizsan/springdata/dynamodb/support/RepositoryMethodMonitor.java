@@ -0,0 +1,356 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Monitors invocations of repository methods, recording the time taken by each repository method
+ * and the items and pages read by the DynamoDB requests made by it, and guards against repository
+ * methods that resolve to scans of large tables.
+ * Repositories are monitored by proxies created by this monitor, which bind the invocation of
+ * a repository method to the invoking thread. DynamoDB requests are attributed to the current
+ * invocation by registering this monitor as a request handler of the DynamoDB client. Requests
+ * made on other threads are only attributed to the invocation if the tasks making them are submitted
+ * to executors propagating the current invocation, see {@link RepositoryInvocation#propagating}.
+ * Items read from lazily consumed results after the repository method has returned are not recorded.
+ * Scan guard: if a repository method that is not in the allow-list scans a table containing more
+ * than the maximum number of items, the scan is logged and counted once per invocation and table
+ * and, depending on the mode, rejected with an {@link InvalidDataAccessApiUsageException}.
+ * The number of items in a table is retrieved from the table description, which DynamoDB updates
+ * about every six hours, and is cached for a configurable time.
+ * Allow-list entries have the form Repository.method, for instance CirclesRepository.findAll,
+ * or Repository.* to allow all methods of a repository.
+ * The following metrics are recorded, tagged with repository and method:
+ * <ul>
+ *     <li>dynamodb.repository.invocations - Timer measuring the duration of invocations, with p50, p99
+ *     and p999 percentiles. Also tagged with the outcome of invocations.</li>
+ *     <li>dynamodb.repository.items.returned - Distribution summary of the items returned by DynamoDB
+ *     per invocation.</li>
+ *     <li>dynamodb.repository.items.scanned - Distribution summary of the items read by DynamoDB
+ *     per invocation, including items not matching filters.</li>
+ *     <li>dynamodb.repository.pages - Distribution summary of the scan and query result pages fetched
+ *     per invocation.</li>
+ *     <li>dynamodb.repository.scans.flagged - Counter counting invocations flagged for scanning a large
+ *     table. Also tagged with the table name.</li>
+ * </ul>
+ *
+ * @author Ivan Krizsan
+ */
+public class RepositoryMethodMonitor extends RequestHandler2 {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryMethodMonitor.class);
+    public static final String INVOCATIONS_METER_NAME = "dynamodb.repository.invocations";
+    public static final String ITEMS_RETURNED_METER_NAME = "dynamodb.repository.items.returned";
+    public static final String ITEMS_SCANNED_METER_NAME = "dynamodb.repository.items.scanned";
+    public static final String PAGES_METER_NAME = "dynamodb.repository.pages";
+    public static final String FLAGGED_SCANS_METER_NAME = "dynamodb.repository.scans.flagged";
+    public static final String REPOSITORY_TAG = "repository";
+    public static final String METHOD_TAG = "method";
+    public static final String OUTCOME_TAG = "outcome";
+    public static final String TABLE_TAG = "table";
+    protected static final String ALL_METHODS = "*";
+    /** Item count of tables which description could not be retrieved. */
+    protected static final long UNKNOWN_ITEM_COUNT = -1L;
+
+    /**
+     * Action taken when a repository method that is not allowed to scan large tables does so.
+     */
+    public enum ScanGuardMode {
+        /** Scans are not guarded. */
+        OFF,
+        /** Scans are logged and counted. */
+        LOG,
+        /** Scans are logged, counted and rejected. */
+        REJECT
+    }
+
+    /* Instance variable(s): */
+    protected final MeterRegistry mMeterRegistry;
+    protected final ScanGuardMode mScanGuardMode;
+    protected final long mMaxScannedTableItems;
+    protected final Set<String> mAllowedMethods;
+    protected final Function<String, TableDescription> mTableDescriber;
+    /** Number of items of tables keyed by table name. */
+    protected final Cache<String, Long> mTableItemCounts;
+
+    /**
+     * Creates a repository method monitor.
+     *
+     * @param inMeterRegistry Meter registry in which to record metrics.
+     * @param inScanGuardMode Action taken when a repository method scans a large table.
+     * @param inMaxScannedTableItems Maximum number of items of tables that any repository method may scan.
+     * @param inAllowedMethods Repository methods allowed to scan tables of any size.
+     * @param inTableDescriber Retrieves the description of the table with a supplied name.
+     * @param inTableItemCountTimeToLive Time for which the number of items of a table is cached.
+     */
+    public RepositoryMethodMonitor(
+        final MeterRegistry inMeterRegistry,
+        final ScanGuardMode inScanGuardMode,
+        final long inMaxScannedTableItems,
+        final Collection<String> inAllowedMethods,
+        final Function<String, TableDescription> inTableDescriber,
+        final Duration inTableItemCountTimeToLive) {
+        Assert.isTrue(inMaxScannedTableItems >= 0,
+            "The maximum number of scanned table items must not be negative");
+        mMeterRegistry = inMeterRegistry;
+        mScanGuardMode = inScanGuardMode;
+        mMaxScannedTableItems = inMaxScannedTableItems;
+        mAllowedMethods = Set.copyOf(inAllowedMethods);
+        mTableDescriber = inTableDescriber;
+        mTableItemCounts = Caffeine.newBuilder().expireAfterWrite(inTableItemCountTimeToLive).build();
+    }
+
+    /**
+     * Creates a proxy of the supplied repository that monitors invocations of its methods.
+     *
+     * @param inRepository Repository to monitor.
+     * @param <R> Repository type.
+     * @return Monitoring proxy implementing the interfaces of a Spring Data repository, or extending
+     * the class of any other repository.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R monitor(final R inRepository) {
+        final String theRepositoryName = repositoryName(inRepository);
+        final ProxyFactory theProxyFactory = new ProxyFactory(inRepository);
+        theProxyFactory.setProxyTargetClass(!(inRepository instanceof Repository));
+        theProxyFactory.addAdvice((MethodInterceptor) theInvocation -> invoke(theRepositoryName, theInvocation));
+        return (R) theProxyFactory.getProxy(inRepository.getClass().getClassLoader());
+    }
+
+    /**
+     * Invokes the supplied repository method, recording the duration of the invocation and
+     * the items and pages read by it. Methods declared by Object are not monitored.
+     *
+     * @param inRepositoryName Name of repository.
+     * @param inMethodInvocation Repository method invocation.
+     * @return Result of the repository method.
+     * @throws Throwable If the repository method fails.
+     */
+    protected Object invoke(final String inRepositoryName, final MethodInvocation inMethodInvocation)
+        throws Throwable {
+        if (ReflectionUtils.isObjectMethod(inMethodInvocation.getMethod())) {
+            return inMethodInvocation.proceed();
+        }
+        final RepositoryInvocation theInvocation =
+            RepositoryInvocation.begin(inRepositoryName, inMethodInvocation.getMethod().getName());
+        final long theStartNanos = System.nanoTime();
+        boolean theSuccessFlag = false;
+        try {
+            final Object theResult = inMethodInvocation.proceed();
+            theSuccessFlag = true;
+            return theResult;
+        } finally {
+            theInvocation.end();
+            record(theInvocation, System.nanoTime() - theStartNanos,
+                theSuccessFlag ? "success" : theInvocation.isRejected() ? "rejected" : "error");
+        }
+    }
+
+    @Override
+    public AmazonWebServiceRequest beforeExecution(final AmazonWebServiceRequest inRequest) {
+        if (mScanGuardMode != ScanGuardMode.OFF && inRequest instanceof ScanRequest) {
+            final RepositoryInvocation theInvocation = RepositoryInvocation.current();
+            if (theInvocation != null) {
+                guardScan(theInvocation, ((ScanRequest) inRequest).getTableName());
+            }
+        }
+        return inRequest;
+    }
+
+    @Override
+    public void afterResponse(final Request<?> inRequest, final Response<?> inResponse) {
+        final RepositoryInvocation theInvocation = RepositoryInvocation.current();
+        if (theInvocation == null || inResponse == null) {
+            return;
+        }
+        final Object theResult = inResponse.getAwsResponse();
+        if (theResult instanceof ScanResult) {
+            final ScanResult theScanResult = (ScanResult) theResult;
+            theInvocation.recordItems(count(theScanResult.getCount()), count(theScanResult.getScannedCount()), 1);
+        } else if (theResult instanceof QueryResult) {
+            final QueryResult theQueryResult = (QueryResult) theResult;
+            theInvocation.recordItems(count(theQueryResult.getCount()), count(theQueryResult.getScannedCount()), 1);
+        } else if (theResult instanceof GetItemResult) {
+            final long theItemCount = ((GetItemResult) theResult).getItem() != null ? 1L : 0L;
+            theInvocation.recordItems(theItemCount, theItemCount, 0);
+        } else if (theResult instanceof BatchGetItemResult) {
+            final long theItemCount = ((BatchGetItemResult) theResult)
+                .getResponses()
+                .values()
+                .stream()
+                .mapToLong(List::size)
+                .sum();
+            theInvocation.recordItems(theItemCount, theItemCount, 0);
+        }
+    }
+
+    /**
+     * Flags a scan of the supplied table by the supplied invocation if the invocation is not allowed
+     * to scan the table, rejecting the scan if so configured.
+     *
+     * @param inInvocation Repository method invocation making the scan.
+     * @param inTableName Name of scanned table.
+     * @throws InvalidDataAccessApiUsageException If the scan is rejected.
+     */
+    protected void guardScan(final RepositoryInvocation inInvocation, final String inTableName) {
+        if (inTableName == null || isScanAllowed(inInvocation)) {
+            return;
+        }
+        final long theItemCount = mTableItemCounts.get(inTableName, this::tableItemCount);
+        if (theItemCount <= mMaxScannedTableItems) {
+            return;
+        }
+        if (inInvocation.flagScan(inTableName)) {
+            Counter
+                .builder(FLAGGED_SCANS_METER_NAME)
+                .tags(tags(inInvocation))
+                .tag(TABLE_TAG, inTableName)
+                .register(mMeterRegistry)
+                .increment();
+            LOGGER.warn("{} scans table {} containing about {} items", inInvocation, inTableName, theItemCount);
+        }
+        if (mScanGuardMode == ScanGuardMode.REJECT) {
+            inInvocation.reject();
+            throw new InvalidDataAccessApiUsageException(String.format(
+                "%s is not allowed to scan table %s containing about %d items, only methods in the scan guard "
+                    + "allow-list may scan tables containing more than %d items",
+                inInvocation, inTableName, theItemCount, mMaxScannedTableItems));
+        }
+    }
+
+    /**
+     * Determines whether the supplied invocation is allowed to scan tables of any size.
+     *
+     * @param inInvocation Repository method invocation.
+     * @return True if the repository method is in the allow-list, false otherwise.
+     */
+    protected boolean isScanAllowed(final RepositoryInvocation inInvocation) {
+        return mAllowedMethods.contains(inInvocation.toString())
+            || mAllowedMethods.contains(inInvocation.getRepositoryName() + "." + ALL_METHODS);
+    }
+
+    /**
+     * Retrieves the number of items in the table with the supplied name.
+     *
+     * @param inTableName Table name.
+     * @return Number of items, -1 if the table description could not be retrieved.
+     */
+    protected long tableItemCount(final String inTableName) {
+        try {
+            final Long theItemCount = mTableDescriber.apply(inTableName).getItemCount();
+            return theItemCount != null ? theItemCount : UNKNOWN_ITEM_COUNT;
+        } catch (final RuntimeException theException) {
+            LOGGER.warn("Retrieving the number of items of table {} failed", inTableName, theException);
+            return UNKNOWN_ITEM_COUNT;
+        }
+    }
+
+    /**
+     * Records the duration of the supplied invocation and the items and pages read by it.
+     *
+     * @param inInvocation Ended repository method invocation.
+     * @param inDurationNanos Duration of invocation, in nanoseconds.
+     * @param inOutcome Outcome of invocation.
+     */
+    protected void record(
+        final RepositoryInvocation inInvocation,
+        final long inDurationNanos,
+        final String inOutcome) {
+        final Tags theTags = tags(inInvocation);
+        Timer
+            .builder(INVOCATIONS_METER_NAME)
+            .tags(theTags)
+            .tag(OUTCOME_TAG, inOutcome)
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(mMeterRegistry)
+            .record(inDurationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary
+            .builder(ITEMS_RETURNED_METER_NAME)
+            .baseUnit("items")
+            .tags(theTags)
+            .register(mMeterRegistry)
+            .record(inInvocation.getItemsReturned());
+        DistributionSummary
+            .builder(ITEMS_SCANNED_METER_NAME)
+            .baseUnit("items")
+            .tags(theTags)
+            .register(mMeterRegistry)
+            .record(inInvocation.getItemsScanned());
+        DistributionSummary
+            .builder(PAGES_METER_NAME)
+            .baseUnit("pages")
+            .tags(theTags)
+            .register(mMeterRegistry)
+            .record(inInvocation.getPages());
+    }
+
+    /**
+     * Creates repository and method tags for the supplied invocation.
+     *
+     * @param inInvocation Repository method invocation.
+     * @return Tags.
+     */
+    protected static Tags tags(final RepositoryInvocation inInvocation) {
+        return Tags.of(REPOSITORY_TAG, inInvocation.getRepositoryName(), METHOD_TAG, inInvocation.getMethodName());
+    }
+
+    /**
+     * Determines the name of the supplied repository, which is the simple name of the application
+     * repository interface it implements.
+     *
+     * @param inRepository Repository.
+     * @return Repository name.
+     */
+    protected static String repositoryName(final Object inRepository) {
+        return ClassUtils
+            .getAllInterfacesAsSet(inRepository)
+            .stream()
+            .filter(theInterface -> Repository.class.isAssignableFrom(theInterface)
+                && !theInterface.getName().startsWith("org.springframework."))
+            .map(Class::getSimpleName)
+            .findFirst()
+            .orElse(inRepository.getClass().getSimpleName());
+    }
+
+    /**
+     * Converts the supplied item count reported by DynamoDB to a number.
+     *
+     * @param inCount Item count. May be null.
+     * @return Item count, zero if no count was reported.
+     */
+    protected static long count(final Integer inCount) {
+        return inCount != null ? inCount : 0L;
+    }
+}
@@ -0,0 +1,48 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter, used to delay retries of unprocessed keys and items of
+ * batched requests.
+ * The delay before a retry is a random delay between zero and a ceiling that doubles with each
+ * retry, starting at the base delay and limited by the maximum delay, so that clients retrying
+ * at the same time spread their retries instead of retrying in lockstep.
+ *
+ * @author Ivan Krizsan
+ */
+public class RetryBackoff {
+    /* Constant(s): */
+    protected static final int MAX_DOUBLINGS = 30;
+
+    /* Instance variable(s): */
+    protected final long mBaseDelayMillis;
+    protected final long mMaxDelayMillis;
+
+    /**
+     * Creates a backoff with the supplied base and maximum delays.
+     *
+     * @param inBaseDelayMillis Base delay, in milliseconds, before the first retry.
+     * @param inMaxDelayMillis Maximum delay, in milliseconds, before any retry.
+     */
+    public RetryBackoff(final long inBaseDelayMillis, final long inMaxDelayMillis) {
+        Assert.isTrue(inBaseDelayMillis >= 0, "The base delay must not be negative");
+        Assert.isTrue(inMaxDelayMillis >= 0, "The maximum delay must not be negative");
+        mBaseDelayMillis = inBaseDelayMillis;
+        mMaxDelayMillis = inMaxDelayMillis;
+    }
+
+    /**
+     * Calculates the delay before the supplied retry.
+     *
+     * @param inRetry Zero-based retry number.
+     * @return Delay in milliseconds.
+     */
+    public long delayMillis(final int inRetry) {
+        final long theBackoffCeiling =
+            Math.min(mMaxDelayMillis, mBaseDelayMillis * (1L << Math.min(inRetry, MAX_DOUBLINGS)));
+        return ThreadLocalRandom.current().nextLong(theBackoffCeiling + 1);
+    }
+}
@@ -0,0 +1,288 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls, such as queries, so that only one of the calls is executed
+ * and its result, or failure, is shared with all callers that made the same call while it was in flight.
+ * Calls are identified by keys, typically consisting of the name of the method and its arguments.
+ * Optionally, results are kept for a short time-to-live after the call has completed and returned
+ * to callers making the same call during that time. Null results are not kept.
+ * Results are shared between all callers and must not be modified.
+ * Invalidation, which should be done after the data read by calls has been modified, discards both
+ * kept results and in-flight calls, so that calls made after the invalidation read the modified data.
+ * A disabled single-flight executes every call and records no statistics.
+ *
+ * @param <K> Call key type.
+ * @author Ivan Krizsan
+ */
+public class SingleFlight<K> {
+    /* Constant(s): */
+
+    /**
+     * Counts of the calls made through a single-flight.
+     */
+    public static class Statistics {
+        /* Instance variable(s): */
+        protected final long mRequestCount;
+        protected final long mExecutionCount;
+        protected final long mSharedCount;
+        protected final long mResultHitCount;
+
+        /**
+         * Creates statistics.
+         *
+         * @param inRequestCount Number of calls made.
+         * @param inExecutionCount Number of calls that were executed.
+         * @param inSharedCount Number of calls that shared the result of an identical in-flight call.
+         * @param inResultHitCount Number of calls that were returned a kept result of an identical call.
+         */
+        public Statistics(
+            final long inRequestCount,
+            final long inExecutionCount,
+            final long inSharedCount,
+            final long inResultHitCount) {
+            mRequestCount = inRequestCount;
+            mExecutionCount = inExecutionCount;
+            mSharedCount = inSharedCount;
+            mResultHitCount = inResultHitCount;
+        }
+
+        /**
+         * Retrieves the number of calls made.
+         *
+         * @return Number of calls.
+         */
+        public long getRequestCount() {
+            return mRequestCount;
+        }
+
+        /**
+         * Retrieves the number of calls that were executed.
+         *
+         * @return Number of executed calls.
+         */
+        public long getExecutionCount() {
+            return mExecutionCount;
+        }
+
+        /**
+         * Retrieves the number of calls that shared the result of an identical in-flight call.
+         *
+         * @return Number of shared calls.
+         */
+        public long getSharedCount() {
+            return mSharedCount;
+        }
+
+        /**
+         * Retrieves the number of calls that were returned a kept result of an identical completed call.
+         *
+         * @return Number of kept result hits.
+         */
+        public long getResultHitCount() {
+            return mResultHitCount;
+        }
+
+        /**
+         * Calculates the number of calls that were not executed.
+         *
+         * @return Number of deduplicated calls.
+         */
+        public long getDeduplicatedCount() {
+            return mSharedCount + mResultHitCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{requestCount=" + mRequestCount + ", executionCount=" + mExecutionCount
+                + ", sharedCount=" + mSharedCount + ", resultHitCount=" + mResultHitCount + "}";
+        }
+    }
+
+    /* Instance variable(s): */
+    protected final boolean mEnabled;
+    /** Calls in flight keyed by call key. */
+    protected final Map<K, CompletableFuture<Object>> mInFlightCalls = new ConcurrentHashMap<>();
+    /** Results of completed calls keyed by call key, null if results are not kept. */
+    protected final Cache<K, Object> mResults;
+    /** Incremented on invalidation, so that calls started before an invalidation do not keep their results. */
+    protected final AtomicLong mGeneration = new AtomicLong();
+    protected final LongAdder mRequestCount = new LongAdder();
+    protected final LongAdder mExecutionCount = new LongAdder();
+    protected final LongAdder mSharedCount = new LongAdder();
+    protected final LongAdder mResultHitCount = new LongAdder();
+
+    /**
+     * Creates a single-flight that keeps results for the supplied time-to-live.
+     *
+     * @param inMaximumResults Maximum number of kept results.
+     * @param inResultTimeToLive Time for which results are kept after their call has completed,
+     * zero if results are not to be kept.
+     */
+    public SingleFlight(final long inMaximumResults, final Duration inResultTimeToLive) {
+        this(inMaximumResults, inResultTimeToLive, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a single-flight that keeps results for the supplied time-to-live, reading time
+     * from the supplied ticker and performing maintenance of kept results on the supplied executor.
+     *
+     * @param inMaximumResults Maximum number of kept results.
+     * @param inResultTimeToLive Time for which results are kept after their call has completed,
+     * zero if results are not to be kept.
+     * @param inTicker Time source.
+     * @param inMaintenanceExecutor Executor on which maintenance of kept results is performed.
+     */
+    protected SingleFlight(
+        final long inMaximumResults,
+        final Duration inResultTimeToLive,
+        final Ticker inTicker,
+        final Executor inMaintenanceExecutor) {
+        Assert.isTrue(inMaximumResults > 0, "Maximum number of kept results must be positive");
+        Assert.isTrue(!inResultTimeToLive.isNegative(), "Result time-to-live must not be negative");
+        mEnabled = true;
+        mResults = inResultTimeToLive.isZero()
+            ? null
+            : Caffeine
+                .newBuilder()
+                .maximumSize(inMaximumResults)
+                .expireAfterWrite(inResultTimeToLive)
+                .ticker(inTicker)
+                .executor(inMaintenanceExecutor)
+                .build();
+    }
+
+    /**
+     * Creates a disabled single-flight.
+     */
+    protected SingleFlight() {
+        mEnabled = false;
+        mResults = null;
+    }
+
+    /**
+     * Creates a single-flight that executes every call.
+     *
+     * @param <K> Call key type.
+     * @return Disabled single-flight.
+     */
+    public static <K> SingleFlight<K> disabled() {
+        return new SingleFlight<>();
+    }
+
+    /**
+     * Executes the supplied call, unless an identical call is in flight or its result is kept,
+     * in which case the result of the identical call is returned.
+     * Runtime exceptions and errors thrown by the call are thrown to all callers sharing the call.
+     *
+     * @param inKey Key identifying the call, must implement equals and hashCode.
+     * @param inCall Call to execute.
+     * @param <R> Result type, must be the same for all calls with the same key.
+     * @return Result of the call.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R execute(final K inKey, final Supplier<R> inCall) {
+        if (!mEnabled) {
+            return inCall.get();
+        }
+        mRequestCount.increment();
+        if (mResults != null) {
+            final Object theKeptResult = mResults.getIfPresent(inKey);
+            if (theKeptResult != null) {
+                mResultHitCount.increment();
+                return (R) theKeptResult;
+            }
+        }
+
+        final CompletableFuture<Object> theCall = new CompletableFuture<>();
+        final CompletableFuture<Object> theInFlightCall = mInFlightCalls.putIfAbsent(inKey, theCall);
+        if (theInFlightCall != null) {
+            mSharedCount.increment();
+            return (R) join(theInFlightCall);
+        }
+
+        mExecutionCount.increment();
+        final long theGeneration = mGeneration.get();
+        try {
+            final R theResult = inCall.get();
+            if (mResults != null && theResult != null && theGeneration == mGeneration.get()) {
+                mResults.put(inKey, theResult);
+            }
+            theCall.complete(theResult);
+            return theResult;
+        } catch (final RuntimeException | Error theException) {
+            theCall.completeExceptionally(theException);
+            throw theException;
+        } finally {
+            mInFlightCalls.remove(inKey, theCall);
+        }
+    }
+
+    /**
+     * Discards all kept results and in-flight calls, so that subsequent calls are executed.
+     * Callers already sharing an in-flight call still receive its result.
+     */
+    public void invalidateAll() {
+        if (mEnabled) {
+            mGeneration.incrementAndGet();
+            mInFlightCalls.clear();
+            if (mResults != null) {
+                mResults.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Retrieves statistics containing the number of calls made, executed and deduplicated.
+     *
+     * @return Statistics, all counts zero if the single-flight is disabled.
+     */
+    public Statistics statistics() {
+        return new Statistics(
+            mRequestCount.sum(), mExecutionCount.sum(), mSharedCount.sum(), mResultHitCount.sum());
+    }
+
+    /**
+     * Determines whether the single-flight is enabled.
+     *
+     * @return True if identical calls are coalesced, false otherwise.
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Waits for the supplied in-flight call to complete.
+     *
+     * @param inCall In-flight call.
+     * @return Result of the call.
+     */
+    protected static Object join(final CompletableFuture<Object> inCall) {
+        try {
+            return inCall.join();
+        } catch (final CompletionException theException) {
+            if (theException.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) theException.getCause();
+            }
+            if (theException.getCause() instanceof Error) {
+                throw (Error) theException.getCause();
+            }
+            throw theException;
+        }
+    }
+}
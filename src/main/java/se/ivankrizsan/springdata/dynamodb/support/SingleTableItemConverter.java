@@ -0,0 +1,87 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+
+/**
+ * Converts entities of a type hierarchy that are all stored in one single table to and from
+ * DynamoDB items using a marshaller of the base type of the hierarchy.
+ * The marshaller is responsible for writing and interpreting a type discriminator, so that
+ * items are materialized as entities of the correct subtype.
+ *
+ * @param <B> Base type of entities stored in the table.
+ * @author Ivan Krizsan
+ */
+public class SingleTableItemConverter<B> implements ItemConverter {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected final String mTableName;
+    protected final EntityMarshaller<B> mEntityMarshaller;
+
+    /**
+     * Creates an item converter storing entities in the table with the supplied name.
+     *
+     * @param inTableName Name of table, including any table name prefix.
+     * @param inEntityMarshaller Marshaller of entities of the base type and all its subtypes.
+     */
+    public SingleTableItemConverter(final String inTableName, final EntityMarshaller<B> inEntityMarshaller) {
+        mTableName = inTableName;
+        mEntityMarshaller = inEntityMarshaller;
+    }
+
+    @Override
+    public String tableName(final Class<?> inEntityType) {
+        verifyEntityType(inEntityType);
+        return mTableName;
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> toItem(final T inEntity) {
+        verifyEntityType(inEntity.getClass());
+        return mEntityMarshaller.marshall(mEntityMarshaller.getEntityType().cast(inEntity));
+    }
+
+    @Override
+    public <T> T fromItem(final Class<T> inEntityType, final Map<String, AttributeValue> inItem) {
+        verifyEntityType(inEntityType);
+        return inEntityType.cast(mEntityMarshaller.unmarshall(inItem));
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> key(final Class<T> inEntityType, final Object inHashKey) {
+        verifyEntityType(inEntityType);
+        return mEntityMarshaller.key(inHashKey);
+    }
+
+    @Override
+    public <T> Map<String, AttributeValue> itemKey(
+        final Class<T> inEntityType,
+        final Map<String, AttributeValue> inItem) {
+        verifyEntityType(inEntityType);
+        return mEntityMarshaller.itemKey(inItem);
+    }
+
+    @Override
+    public <T> AttributeValue attributeValue(
+        final Class<T> inEntityType,
+        final String inAttributeName,
+        final Object inValue) {
+        verifyEntityType(inEntityType);
+        final AttributeValue theAttributeValue = mEntityMarshaller.attributeValue(inAttributeName, inValue);
+        Assert.notNull(theAttributeValue, "Attribute " + inAttributeName + " is not mapped");
+        return theAttributeValue;
+    }
+
+    /**
+     * Verifies that entities of the supplied type are stored in the table of the converter.
+     *
+     * @param inEntityType Entity type.
+     */
+    protected void verifyEntityType(final Class<?> inEntityType) {
+        Assert.isAssignable(mEntityMarshaller.getEntityType(), inEntityType,
+            "Entities of the type are not stored in table " + mTableName);
+    }
+}
@@ -0,0 +1,64 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the position up to which each shard of a table stream has been consumed, so that
+ * consuming a shard can be resumed after the last handled change.
+ * Shards that have been consumed to their end are marked with {@link #SHARD_END}.
+ *
+ * @author Ivan Krizsan
+ */
+public interface StreamCheckpointStore {
+    /* Constant(s): */
+    /** Checkpoint of shards that have been closed and consumed to their end. */
+    String SHARD_END = "SHARD_END";
+
+    /**
+     * Creates a checkpoint store that keeps checkpoints in memory, which suits consumers that
+     * only need to see changes made while they are running, such as cache invalidation.
+     *
+     * @return New in-memory checkpoint store.
+     */
+    static StreamCheckpointStore inMemory() {
+        return new InMemory();
+    }
+
+    /**
+     * Retrieves the checkpoint of the supplied shard.
+     *
+     * @param inStreamArn ARN of stream containing the shard.
+     * @param inShardId Shard id.
+     * @return Sequence number of the last handled record of the shard, {@link #SHARD_END} if the
+     * shard has been consumed to its end or null if no record of the shard has been handled.
+     */
+    String checkpoint(String inStreamArn, String inShardId);
+
+    /**
+     * Stores the checkpoint of the supplied shard.
+     *
+     * @param inStreamArn ARN of stream containing the shard.
+     * @param inShardId Shard id.
+     * @param inCheckpoint Sequence number of the last handled record of the shard or {@link #SHARD_END}.
+     */
+    void saveCheckpoint(String inStreamArn, String inShardId, String inCheckpoint);
+
+    /**
+     * Checkpoint store that keeps checkpoints in memory.
+     */
+    class InMemory implements StreamCheckpointStore {
+        /* Instance variable(s): */
+        protected final Map<String, String> mCheckpoints = new ConcurrentHashMap<>();
+
+        @Override
+        public String checkpoint(final String inStreamArn, final String inShardId) {
+            return mCheckpoints.get(inStreamArn + "/" + inShardId);
+        }
+
+        @Override
+        public void saveCheckpoint(final String inStreamArn, final String inShardId, final String inCheckpoint) {
+            mCheckpoints.put(inStreamArn + "/" + inShardId, inCheckpoint);
+        }
+    }
+}
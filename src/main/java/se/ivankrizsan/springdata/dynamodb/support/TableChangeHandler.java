@@ -0,0 +1,28 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.Record;
+
+import java.util.List;
+
+/**
+ * Handles changes of the items of a table read from the stream of the table.
+ * Changes are delivered at least once: if handling changes fails, or if the consumer stops before
+ * the changes have been checkpointed, the changes are delivered again. Handlers should therefore
+ * be idempotent, for instance by writing the state found in the stream records rather than
+ * applying differences.
+ *
+ * @author Ivan Krizsan
+ */
+@FunctionalInterface
+public interface TableChangeHandler {
+    /**
+     * Handles the supplied changes of items of the supplied table.
+     * Changes of an item are supplied in the order in which they were made.
+     *
+     * @param inTableName Name of table which items have changed.
+     * @param inRecords Stream records describing the changes.
+     * @throws RuntimeException If handling the changes failed, in which case the changes will be
+     * delivered again.
+     */
+    void handleChanges(String inTableName, List<Record> inRecords);
+}
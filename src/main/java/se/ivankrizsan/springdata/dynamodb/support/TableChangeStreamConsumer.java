@@ -0,0 +1,349 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpiredIteratorException;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.TrimmedDataAccessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Consumes the streams of tables and feeds the changes of the items of each table to the handlers
+ * subscribed to the table, as an alternative to periodically scanning tables to compute derived data.
+ * The shards of the streams are polled at a fixed interval from one thread. Each shard is read
+ * from where it was left off using the shard iterator returned by the previous read, until no more
+ * records are available. A child shard, created when a shard is split, is not read until its
+ * parent shard has been read to its end, so that changes of an item are always handled in order.
+ * After all handlers have handled a batch of records, the sequence number of the last record is
+ * stored as checkpoint of the shard. Shards without checkpoint are read from the initial position
+ * when the stream is first polled and from the oldest record if the shard appears later.
+ * If a handler fails, the batch is delivered again at the next poll, so changes are delivered
+ * at least once.
+ * Streams must have been enabled on the tables.
+ * Each node running a consumer reads every shard of the streams, using checkpoints of its own.
+ * DynamoDB Streams throttles reads if more than two readers read a shard concurrently, so no more
+ * than two nodes should run a consumer of the same stream. Deployments with more nodes need a
+ * fan-out design instead, in which one reader republishes the changes to all nodes, for instance
+ * using Kinesis Data Streams for DynamoDB.
+ * The following metrics are recorded, tagged with the table name:
+ * <ul>
+ *     <li>dynamodb.streams.records - Counter counting handled records.</li>
+ *     <li>dynamodb.streams.failures - Counter counting batches of records that handlers failed to handle.</li>
+ *     <li>dynamodb.streams.lag - Timer measuring the age of the last record of each handled batch.</li>
+ * </ul>
+ *
+ * @author Ivan Krizsan
+ */
+public class TableChangeStreamConsumer implements AutoCloseable {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableChangeStreamConsumer.class);
+    public static final String RECORDS_METER_NAME = "dynamodb.streams.records";
+    public static final String FAILURES_METER_NAME = "dynamodb.streams.failures";
+    public static final String LAG_METER_NAME = "dynamodb.streams.lag";
+    public static final String TABLE_TAG = "table";
+    /** Maximum number of reads of one shard in one poll, so that one busy shard does not starve the others. */
+    protected static final int MAX_READS_PER_POLL = 100;
+
+    /* Instance variable(s): */
+    protected final AmazonDynamoDB mAmazonDynamoDB;
+    protected final AmazonDynamoDBStreams mAmazonDynamoDBStreams;
+    protected final StreamCheckpointStore mCheckpointStore;
+    protected final ShardIteratorType mInitialPosition;
+    protected final int mMaxRecordsPerRead;
+    protected final long mPollIntervalMillis;
+    protected final MeterRegistry mMeterRegistry;
+    /** Handlers keyed by the name of the table to which they are subscribed. */
+    protected final Map<String, List<TableChangeHandler>> mHandlers = new ConcurrentHashMap<>();
+    /** Iterators from which to continue reading shards, keyed by stream ARN and shard id. */
+    protected final Map<String, String> mShardIterators = new ConcurrentHashMap<>();
+    /** ARNs of streams which shards have been positioned at the initial position. */
+    protected final Set<String> mStartedStreams = ConcurrentHashMap.newKeySet();
+    protected ScheduledExecutorService mPollExecutor;
+
+    /**
+     * Creates a stream consumer that polls the streams of the subscribed tables once started.
+     *
+     * @param inAmazonDynamoDB DynamoDB client, used to find the streams of tables.
+     * @param inAmazonDynamoDBStreams DynamoDB streams client, used to read streams.
+     * @param inCheckpointStore Stores the position up to which shards have been consumed.
+     * @param inInitialPosition Position from which shards without checkpoint are read when first polled,
+     * either the oldest record or the latest.
+     * @param inMaxRecordsPerRead Maximum number of records read in one request, at most 1000.
+     * @param inPollIntervalMillis Interval between polls, in milliseconds.
+     * @param inMeterRegistry Meter registry in which to record metrics.
+     */
+    public TableChangeStreamConsumer(
+        final AmazonDynamoDB inAmazonDynamoDB,
+        final AmazonDynamoDBStreams inAmazonDynamoDBStreams,
+        final StreamCheckpointStore inCheckpointStore,
+        final ShardIteratorType inInitialPosition,
+        final int inMaxRecordsPerRead,
+        final long inPollIntervalMillis,
+        final MeterRegistry inMeterRegistry) {
+        Assert.isTrue(inInitialPosition == ShardIteratorType.TRIM_HORIZON
+            || inInitialPosition == ShardIteratorType.LATEST,
+            "The initial position must be TRIM_HORIZON or LATEST");
+        Assert.isTrue(inMaxRecordsPerRead > 0 && inMaxRecordsPerRead <= 1000,
+            "The maximum number of records per read must be between 1 and 1000");
+        Assert.isTrue(inPollIntervalMillis > 0, "The poll interval must be positive");
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mAmazonDynamoDBStreams = inAmazonDynamoDBStreams;
+        mCheckpointStore = inCheckpointStore;
+        mInitialPosition = inInitialPosition;
+        mMaxRecordsPerRead = inMaxRecordsPerRead;
+        mPollIntervalMillis = inPollIntervalMillis;
+        mMeterRegistry = inMeterRegistry;
+    }
+
+    /**
+     * Subscribes the supplied handler to the changes of the items of the supplied table.
+     * Handlers may be subscribed before or after the consumer has been started.
+     *
+     * @param inTableName Name of table which stream to consume.
+     * @param inHandler Handler to which to feed changes.
+     */
+    public void subscribe(final String inTableName, final TableChangeHandler inHandler) {
+        Assert.notNull(inTableName, "The table name must not be null");
+        Assert.notNull(inHandler, "The handler must not be null");
+        mHandlers.computeIfAbsent(inTableName, theTableName -> new CopyOnWriteArrayList<>()).add(inHandler);
+    }
+
+    /**
+     * Starts polling the streams of the subscribed tables.
+     */
+    public synchronized void start() {
+        if (mPollExecutor == null) {
+            final CustomizableThreadFactory theThreadFactory = new CustomizableThreadFactory("ddb-streams-");
+            theThreadFactory.setDaemon(true);
+            mPollExecutor = Executors.newSingleThreadScheduledExecutor(theThreadFactory);
+            mPollExecutor.scheduleWithFixedDelay(this::poll, 0L, mPollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops polling, waiting for an ongoing poll to complete.
+     */
+    @Override
+    public synchronized void close() {
+        if (mPollExecutor != null) {
+            mPollExecutor.shutdown();
+            try {
+                mPollExecutor.awaitTermination(mPollIntervalMillis + 10000L, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+            }
+            mPollExecutor = null;
+        }
+    }
+
+    /**
+     * Reads the available records of the streams of all subscribed tables and feeds them to the handlers.
+     * Failures are logged and consuming the failed stream is retried at the next poll.
+     */
+    protected void poll() {
+        mHandlers.forEach((theTableName, theHandlers) -> {
+            try {
+                pollTable(theTableName, theHandlers);
+            } catch (final RuntimeException theException) {
+                LOGGER.warn("Consuming the stream of table {} failed", theTableName, theException);
+            }
+        });
+    }
+
+    /**
+     * Reads the available records of the stream of the supplied table and feeds them to the supplied handlers.
+     *
+     * @param inTableName Table name.
+     * @param inHandlers Handlers subscribed to the table.
+     */
+    protected void pollTable(final String inTableName, final List<TableChangeHandler> inHandlers) {
+        final String theStreamArn = mAmazonDynamoDB.describeTable(inTableName).getTable().getLatestStreamArn();
+        if (theStreamArn == null) {
+            LOGGER.debug("Table {} has no stream", inTableName);
+            return;
+        }
+        final boolean theFirstPoll = !mStartedStreams.contains(theStreamArn);
+        final List<Shard> theShards = describeShards(theStreamArn);
+        final Set<String> theShardIds = theShards.stream().map(Shard::getShardId).collect(Collectors.toSet());
+        for (Shard theShard : theShards) {
+            final String theParentShardId = theShard.getParentShardId();
+            final boolean theParentConsumed = theParentShardId == null
+                || !theShardIds.contains(theParentShardId)
+                || StreamCheckpointStore.SHARD_END.equals(mCheckpointStore.checkpoint(theStreamArn, theParentShardId));
+            if (theParentConsumed) {
+                consumeShard(inTableName, inHandlers, theStreamArn, theShard.getShardId(), theFirstPoll);
+            }
+        }
+        mStartedStreams.add(theStreamArn);
+    }
+
+    /**
+     * Reads the available records of the supplied shard and feeds them to the supplied handlers,
+     * storing a checkpoint after each handled batch of records.
+     *
+     * @param inTableName Table name.
+     * @param inHandlers Handlers subscribed to the table.
+     * @param inStreamArn ARN of stream of the table.
+     * @param inShardId Shard id.
+     * @param inFirstPoll True if the stream is polled for the first time.
+     */
+    protected void consumeShard(
+        final String inTableName,
+        final List<TableChangeHandler> inHandlers,
+        final String inStreamArn,
+        final String inShardId,
+        final boolean inFirstPoll) {
+        final String theCheckpoint = mCheckpointStore.checkpoint(inStreamArn, inShardId);
+        if (StreamCheckpointStore.SHARD_END.equals(theCheckpoint)) {
+            return;
+        }
+        final String theIteratorKey = inStreamArn + "/" + inShardId;
+        String theShardIterator = mShardIterators.get(theIteratorKey);
+        if (theShardIterator == null) {
+            theShardIterator = theCheckpoint != null
+                ? shardIterator(inStreamArn, inShardId, ShardIteratorType.AFTER_SEQUENCE_NUMBER, theCheckpoint)
+                : shardIterator(inStreamArn, inShardId,
+                    inFirstPoll ? mInitialPosition : ShardIteratorType.TRIM_HORIZON, null);
+        }
+
+        for (int theRead = 0; theRead < MAX_READS_PER_POLL && theShardIterator != null; theRead++) {
+            final GetRecordsResult theResult;
+            try {
+                theResult = mAmazonDynamoDBStreams.getRecords(new GetRecordsRequest()
+                    .withShardIterator(theShardIterator)
+                    .withLimit(mMaxRecordsPerRead));
+            } catch (final ExpiredIteratorException theException) {
+                /* Read again from the checkpoint at the next poll. */
+                mShardIterators.remove(theIteratorKey);
+                return;
+            } catch (final TrimmedDataAccessException theException) {
+                LOGGER.warn("Records of shard {} of table {} were trimmed before having been consumed",
+                    inShardId, inTableName);
+                theShardIterator = shardIterator(inStreamArn, inShardId, ShardIteratorType.TRIM_HORIZON, null);
+                continue;
+            }
+
+            final List<Record> theRecords = theResult.getRecords();
+            if (!theRecords.isEmpty()) {
+                try {
+                    for (TableChangeHandler theHandler : inHandlers) {
+                        theHandler.handleChanges(inTableName, theRecords);
+                    }
+                } catch (final RuntimeException theException) {
+                    LOGGER.warn("Handling {} changes of table {} failed, will retry",
+                        theRecords.size(), inTableName, theException);
+                    Counter.builder(FAILURES_METER_NAME).tag(TABLE_TAG, inTableName).register(mMeterRegistry)
+                        .increment();
+                    mShardIterators.put(theIteratorKey, shardIterator(inStreamArn, inShardId,
+                        ShardIteratorType.AT_SEQUENCE_NUMBER, theRecords.get(0).getDynamodb().getSequenceNumber()));
+                    return;
+                }
+                final Record theLastRecord = theRecords.get(theRecords.size() - 1);
+                mCheckpointStore.saveCheckpoint(
+                    inStreamArn, inShardId, theLastRecord.getDynamodb().getSequenceNumber());
+                recordMetrics(inTableName, theRecords.size(), theLastRecord);
+            }
+
+            theShardIterator = theResult.getNextShardIterator();
+            if (theRecords.isEmpty()) {
+                break;
+            }
+        }
+
+        if (theShardIterator == null) {
+            LOGGER.debug("Shard {} of table {} has been consumed to its end", inShardId, inTableName);
+            mCheckpointStore.saveCheckpoint(inStreamArn, inShardId, StreamCheckpointStore.SHARD_END);
+            mShardIterators.remove(theIteratorKey);
+        } else {
+            mShardIterators.put(theIteratorKey, theShardIterator);
+        }
+    }
+
+    /**
+     * Retrieves all shards of the supplied stream, including closed shards which records have
+     * not yet been trimmed.
+     *
+     * @param inStreamArn Stream ARN.
+     * @return Shards.
+     */
+    protected List<Shard> describeShards(final String inStreamArn) {
+        final List<Shard> theShards = new ArrayList<>();
+        String theLastShardId = null;
+        do {
+            final StreamDescription theStreamDescription = mAmazonDynamoDBStreams
+                .describeStream(new DescribeStreamRequest()
+                    .withStreamArn(inStreamArn)
+                    .withExclusiveStartShardId(theLastShardId))
+                .getStreamDescription();
+            theShards.addAll(theStreamDescription.getShards());
+            theLastShardId = theStreamDescription.getLastEvaluatedShardId();
+        } while (theLastShardId != null);
+        return theShards;
+    }
+
+    /**
+     * Retrieves an iterator reading the supplied shard from the supplied position.
+     *
+     * @param inStreamArn Stream ARN.
+     * @param inShardId Shard id.
+     * @param inShardIteratorType Position from which to read.
+     * @param inSequenceNumber Sequence number relative to which to read, null for positions that
+     * are not relative to a record.
+     * @return Shard iterator.
+     */
+    protected String shardIterator(
+        final String inStreamArn,
+        final String inShardId,
+        final ShardIteratorType inShardIteratorType,
+        final String inSequenceNumber) {
+        return mAmazonDynamoDBStreams
+            .getShardIterator(new GetShardIteratorRequest()
+                .withStreamArn(inStreamArn)
+                .withShardId(inShardId)
+                .withShardIteratorType(inShardIteratorType)
+                .withSequenceNumber(inSequenceNumber))
+            .getShardIterator();
+    }
+
+    /**
+     * Records the number of handled records and the age of the last handled record.
+     *
+     * @param inTableName Table name.
+     * @param inRecordCount Number of handled records.
+     * @param inLastRecord Last handled record.
+     */
+    protected void recordMetrics(final String inTableName, final int inRecordCount, final Record inLastRecord) {
+        Counter.builder(RECORDS_METER_NAME).tag(TABLE_TAG, inTableName).register(mMeterRegistry)
+            .increment(inRecordCount);
+        if (inLastRecord.getDynamodb().getApproximateCreationDateTime() != null) {
+            Timer.builder(LAG_METER_NAME).tag(TABLE_TAG, inTableName).register(mMeterRegistry).record(
+                Math.max(0L, System.currentTimeMillis()
+                    - inLastRecord.getDynamodb().getApproximateCreationDateTime().getTime()),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialsignin.spring.data.dynamodb.exception.BatchWriteException;
+import org.socialsignin.spring.data.dynamodb.utils.ExceptionHandler;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the items of entity tables to, and imports items into entity tables from, snapshot files.
+ * A snapshot file is a GZIP-compressed file containing one item per line, in the JSON format of
+ * the DynamoDB API in which each attribute value is an object with the type of the value as its
+ * only key, for example {"id":{"S":"1"},"radius":{"N":"5"}}.
+ * Items are exported using a parallel scan and imported using concurrently dispatched BatchWriteItem
+ * requests. Both are streamed, so that the memory used is bounded by the number of buffered scan
+ * pages and the number of batches in flight, regardless of the size of the table.
+ * Imports may be limited to a maximum number of items per second in order to not consume all
+ * write capacity of the table.
+ * Items are imported as they are stored in the snapshot, bypassing entity caches and aggregates.
+ *
+ * @author Ivan Krizsan
+ */
+public class TableSnapshotter implements ExceptionHandler {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableSnapshotter.class);
+    protected static final int IO_BUFFER_SIZE = 64 * 1024;
+    protected static final JsonFactory JSON_FACTORY = new JsonFactory();
+    protected static final SerializedString LINE_SEPARATOR = new SerializedString("\n");
+
+    /* Instance variable(s): */
+    protected final ItemConverter mItemConverter;
+    protected final ParallelScanner mParallelScanner;
+    protected final ParallelBatchWriter mParallelBatchWriter;
+    protected final int mScanSegments;
+    protected final int mMaxBatchesInFlight;
+    protected final long mMaxItemsPerSecond;
+
+    /**
+     * Creates a snapshotter that exports and imports tables of entities.
+     *
+     * @param inItemConverter Item converter, used to resolve the names of entity tables.
+     * @param inParallelScanner Parallel scanner used to read tables being exported.
+     * @param inParallelBatchWriter Batch writer used to write items being imported.
+     * @param inScanSegments Number of segments tables are divided into when exported.
+     * @param inMaxBatchesInFlight Maximum number of batches being written concurrently when importing.
+     * @param inMaxItemsPerSecond Maximum number of items written per second when importing, 0 for no limit.
+     */
+    public TableSnapshotter(
+        final ItemConverter inItemConverter,
+        final ParallelScanner inParallelScanner,
+        final ParallelBatchWriter inParallelBatchWriter,
+        final int inScanSegments,
+        final int inMaxBatchesInFlight,
+        final long inMaxItemsPerSecond) {
+        Assert.isTrue(inMaxBatchesInFlight > 0, "At least one batch must be allowed in flight");
+        Assert.isTrue(inMaxItemsPerSecond >= 0, "The maximum number of items per second must not be negative");
+        mItemConverter = inItemConverter;
+        mParallelScanner = inParallelScanner;
+        mParallelBatchWriter = inParallelBatchWriter;
+        mScanSegments = inScanSegments;
+        mMaxBatchesInFlight = inMaxBatchesInFlight;
+        mMaxItemsPerSecond = inMaxItemsPerSecond;
+    }
+
+    /**
+     * Exports all items in the table containing entities of the supplied type to the supplied file.
+     * An existing file is overwritten.
+     *
+     * @param inEntityType Type of entities in table to export.
+     * @param inFile Snapshot file to write.
+     * @return Number of exported items.
+     */
+    public long exportTable(final Class<?> inEntityType, final Path inFile) {
+        final String theTableName = mItemConverter.tableName(inEntityType);
+        long theItemCount = 0;
+        try (Stream<Map<String, AttributeValue>> theItems = mParallelScanner.scanItems(theTableName, mScanSegments);
+             OutputStream theOutputStream = new GZIPOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(inFile), IO_BUFFER_SIZE), IO_BUFFER_SIZE);
+             JsonGenerator theGenerator = JSON_FACTORY.createGenerator(theOutputStream)) {
+            theGenerator.setRootValueSeparator(LINE_SEPARATOR);
+            final Iterator<Map<String, AttributeValue>> theIterator = theItems.iterator();
+            while (theIterator.hasNext()) {
+                writeItem(theGenerator, theIterator.next());
+                theItemCount++;
+            }
+            theGenerator.writeRaw(LINE_SEPARATOR);
+        } catch (final IOException theException) {
+            throw new UncheckedIOException("Exporting table " + theTableName + " failed", theException);
+        }
+        LOGGER.info("Exported {} items from table {} to {}", theItemCount, theTableName, inFile);
+        return theItemCount;
+    }
+
+    /**
+     * Imports all items in the supplied snapshot file into the table containing entities of the supplied type.
+     * Items are put into the table, replacing existing items with the same keys. Items that are
+     * not in the snapshot are retained.
+     *
+     * @param inEntityType Type of entities in table to import into.
+     * @param inFile Snapshot file to read.
+     * @return Number of imported items.
+     * @throws BatchWriteException If some items could not be written.
+     */
+    public long importTable(final Class<?> inEntityType, final Path inFile) {
+        final String theTableName = mItemConverter.tableName(inEntityType);
+        final Semaphore theBatchPermits = new Semaphore(mMaxBatchesInFlight);
+        final Queue<DynamoDBMapper.FailedBatch> theFailedBatches = new ConcurrentLinkedQueue<>();
+        final long theStartNanos = System.nanoTime();
+        long theItemCount = 0;
+        try (InputStream theInputStream = new GZIPInputStream(
+                 new BufferedInputStream(Files.newInputStream(inFile), IO_BUFFER_SIZE), IO_BUFFER_SIZE);
+             JsonParser theParser = JSON_FACTORY.createParser(theInputStream)) {
+            List<Map<String, AttributeValue>> theBatch = new ArrayList<>(ParallelBatchWriter.MAX_BATCH_WRITE_ITEMS);
+            while (theParser.nextToken() == JsonToken.START_OBJECT) {
+                theBatch.add(readItem(theParser));
+                theItemCount++;
+                if (theBatch.size() == ParallelBatchWriter.MAX_BATCH_WRITE_ITEMS) {
+                    writeBatch(theTableName, theBatch, theBatchPermits, theFailedBatches);
+                    theBatch = new ArrayList<>(ParallelBatchWriter.MAX_BATCH_WRITE_ITEMS);
+                    awaitRate(theStartNanos, theItemCount);
+                }
+            }
+            if (!theBatch.isEmpty()) {
+                writeBatch(theTableName, theBatch, theBatchPermits, theFailedBatches);
+            }
+        } catch (final IOException theException) {
+            throw new UncheckedIOException("Importing into table " + theTableName + " failed", theException);
+        } finally {
+            theBatchPermits.acquireUninterruptibly(mMaxBatchesInFlight);
+        }
+
+        if (!theFailedBatches.isEmpty()) {
+            throw repackageToException(new ArrayList<>(theFailedBatches), BatchWriteException.class);
+        }
+        LOGGER.info("Imported {} items from {} into table {}", theItemCount, inFile, theTableName);
+        return theItemCount;
+    }
+
+    /**
+     * Dispatches a BatchWriteItem request writing the supplied items, waiting until the number of
+     * batches in flight is below the maximum.
+     *
+     * @param inTableName Name of table to write items to.
+     * @param inItems Items to write. At most 25 items.
+     * @param inBatchPermits Permits of batches in flight.
+     * @param inFailedBatches Batches that could not be written, to which failed batches are added.
+     */
+    protected void writeBatch(
+        final String inTableName,
+        final List<Map<String, AttributeValue>> inItems,
+        final Semaphore inBatchPermits,
+        final Queue<DynamoDBMapper.FailedBatch> inFailedBatches) {
+        inBatchPermits.acquireUninterruptibly();
+        final CompletableFuture<DynamoDBMapper.FailedBatch> theBatchFuture;
+        try {
+            theBatchFuture = mParallelBatchWriter.putItemsAsync(inTableName, inItems);
+        } catch (final RuntimeException theException) {
+            inBatchPermits.release();
+            throw theException;
+        }
+        theBatchFuture.whenComplete((theFailedBatch, theException) -> {
+            if (theFailedBatch != null) {
+                inFailedBatches.add(theFailedBatch);
+            } else if (theException != null) {
+                final List<WriteRequest> theWriteRequests = new ArrayList<>(inItems.size());
+                inItems.forEach(theItem ->
+                    theWriteRequests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(theItem))));
+                inFailedBatches.add(ParallelBatchWriter.failedBatch(
+                    Map.of(inTableName, theWriteRequests), new IllegalStateException(theException)));
+            }
+            inBatchPermits.release();
+        });
+    }
+
+    /**
+     * Waits until the supplied number of items may have been written without exceeding
+     * the maximum number of items per second, if any.
+     *
+     * @param inStartNanos Time at which the import started, as given by {@link System#nanoTime()}.
+     * @param inItemCount Number of items written since the import started.
+     */
+    protected void awaitRate(final long inStartNanos, final long inItemCount) {
+        if (mMaxItemsPerSecond == 0) {
+            return;
+        }
+        final long theEarliestNanos = inStartNanos + inItemCount * TimeUnit.SECONDS.toNanos(1) / mMaxItemsPerSecond;
+        final long theWaitNanos = theEarliestNanos - System.nanoTime();
+        if (theWaitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(theWaitNanos);
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to import more items", theException);
+            }
+        }
+    }
+
+    /**
+     * Writes the supplied item as a JSON object.
+     *
+     * @param inGenerator JSON generator to write to.
+     * @param inItem Item to write.
+     * @throws IOException If writing fails.
+     */
+    protected static void writeItem(
+        final JsonGenerator inGenerator,
+        final Map<String, AttributeValue> inItem) throws IOException {
+        inGenerator.writeStartObject();
+        for (Map.Entry<String, AttributeValue> theAttribute : inItem.entrySet()) {
+            inGenerator.writeFieldName(theAttribute.getKey());
+            writeValue(inGenerator, theAttribute.getValue());
+        }
+        inGenerator.writeEndObject();
+    }
+
+    /**
+     * Writes the supplied attribute value as a JSON object with the type of the value as its only key.
+     *
+     * @param inGenerator JSON generator to write to.
+     * @param inValue Attribute value to write.
+     * @throws IOException If writing fails.
+     */
+    protected static void writeValue(final JsonGenerator inGenerator, final AttributeValue inValue) throws IOException {
+        inGenerator.writeStartObject();
+        if (inValue.getS() != null) {
+            inGenerator.writeStringField("S", inValue.getS());
+        } else if (inValue.getN() != null) {
+            inGenerator.writeStringField("N", inValue.getN());
+        } else if (inValue.getB() != null) {
+            inGenerator.writeFieldName("B");
+            writeBinary(inGenerator, inValue.getB());
+        } else if (inValue.getSS() != null) {
+            writeStrings(inGenerator, "SS", inValue.getSS());
+        } else if (inValue.getNS() != null) {
+            writeStrings(inGenerator, "NS", inValue.getNS());
+        } else if (inValue.getBS() != null) {
+            inGenerator.writeArrayFieldStart("BS");
+            for (ByteBuffer theBinary : inValue.getBS()) {
+                writeBinary(inGenerator, theBinary);
+            }
+            inGenerator.writeEndArray();
+        } else if (inValue.getM() != null) {
+            inGenerator.writeFieldName("M");
+            writeItem(inGenerator, inValue.getM());
+        } else if (inValue.getL() != null) {
+            inGenerator.writeArrayFieldStart("L");
+            for (AttributeValue theElement : inValue.getL()) {
+                writeValue(inGenerator, theElement);
+            }
+            inGenerator.writeEndArray();
+        } else if (inValue.getBOOL() != null) {
+            inGenerator.writeBooleanField("BOOL", inValue.getBOOL());
+        } else if (inValue.getNULL() != null) {
+            inGenerator.writeBooleanField("NULL", inValue.getNULL());
+        }
+        inGenerator.writeEndObject();
+    }
+
+    /**
+     * Writes the supplied binary value as a Base64-encoded JSON string, without modifying the
+     * position of the buffer.
+     *
+     * @param inGenerator JSON generator to write to.
+     * @param inBinary Binary value to write.
+     * @throws IOException If writing fails.
+     */
+    protected static void writeBinary(final JsonGenerator inGenerator, final ByteBuffer inBinary) throws IOException {
+        final byte[] theBytes = new byte[inBinary.remaining()];
+        inBinary.duplicate().get(theBytes);
+        inGenerator.writeBinary(theBytes);
+    }
+
+    /**
+     * Writes the supplied strings as a JSON array field with the supplied name.
+     *
+     * @param inGenerator JSON generator to write to.
+     * @param inFieldName Name of array field.
+     * @param inStrings Strings to write.
+     * @throws IOException If writing fails.
+     */
+    protected static void writeStrings(
+        final JsonGenerator inGenerator,
+        final String inFieldName,
+        final List<String> inStrings) throws IOException {
+        inGenerator.writeArrayFieldStart(inFieldName);
+        for (String theString : inStrings) {
+            inGenerator.writeString(theString);
+        }
+        inGenerator.writeEndArray();
+    }
+
+    /**
+     * Reads an item from a JSON object, the start of which is the current token of the supplied parser.
+     *
+     * @param inParser JSON parser positioned at the start of the object.
+     * @return Item read.
+     * @throws IOException If reading fails or the object is not an item.
+     */
+    protected static Map<String, AttributeValue> readItem(final JsonParser inParser) throws IOException {
+        final Map<String, AttributeValue> theItem = new LinkedHashMap<>();
+        while (inParser.nextToken() == JsonToken.FIELD_NAME) {
+            final String theAttributeName = inParser.getCurrentName();
+            expect(inParser, JsonToken.START_OBJECT);
+            theItem.put(theAttributeName, readValue(inParser));
+        }
+        return theItem;
+    }
+
+    /**
+     * Reads an attribute value from a JSON object with the type of the value as its only key,
+     * the start of which is the current token of the supplied parser.
+     *
+     * @param inParser JSON parser positioned at the start of the object.
+     * @return Attribute value read.
+     * @throws IOException If reading fails or the object is not an attribute value.
+     */
+    protected static AttributeValue readValue(final JsonParser inParser) throws IOException {
+        expect(inParser, JsonToken.FIELD_NAME);
+        final String theType = inParser.getCurrentName();
+        final AttributeValue theValue = new AttributeValue();
+        inParser.nextToken();
+        switch (theType) {
+            case "S":
+                theValue.setS(inParser.getText());
+                break;
+            case "N":
+                theValue.setN(inParser.getText());
+                break;
+            case "B":
+                theValue.setB(ByteBuffer.wrap(inParser.getBinaryValue()));
+                break;
+            case "SS":
+                theValue.setSS(readStrings(inParser));
+                break;
+            case "NS":
+                theValue.setNS(readStrings(inParser));
+                break;
+            case "BS":
+                final List<ByteBuffer> theBinaries = new ArrayList<>();
+                while (inParser.nextToken() != JsonToken.END_ARRAY) {
+                    theBinaries.add(ByteBuffer.wrap(inParser.getBinaryValue()));
+                }
+                theValue.setBS(theBinaries);
+                break;
+            case "M":
+                theValue.setM(readItem(inParser));
+                break;
+            case "L":
+                final List<AttributeValue> theElements = new ArrayList<>();
+                while (inParser.nextToken() == JsonToken.START_OBJECT) {
+                    theElements.add(readValue(inParser));
+                }
+                theValue.setL(theElements);
+                break;
+            case "BOOL":
+                theValue.setBOOL(inParser.getBooleanValue());
+                break;
+            case "NULL":
+                theValue.setNULL(inParser.getBooleanValue());
+                break;
+            default:
+                throw new IOException("Unknown attribute value type " + theType);
+        }
+        expect(inParser, JsonToken.END_OBJECT);
+        return theValue;
+    }
+
+    /**
+     * Reads the elements of the JSON array of strings, the start of which is the current token of
+     * the supplied parser.
+     *
+     * @param inParser JSON parser positioned at the start of the array.
+     * @return Strings read.
+     * @throws IOException If reading fails.
+     */
+    protected static List<String> readStrings(final JsonParser inParser) throws IOException {
+        final List<String> theStrings = new ArrayList<>();
+        while (inParser.nextToken() != JsonToken.END_ARRAY) {
+            theStrings.add(inParser.getText());
+        }
+        return theStrings;
+    }
+
+    /**
+     * Advances the supplied parser to the next token, which is expected to be of the supplied type.
+     *
+     * @param inParser JSON parser to advance.
+     * @param inExpectedToken Expected type of the next token.
+     * @throws IOException If reading fails or the next token is of another type.
+     */
+    protected static void expect(final JsonParser inParser, final JsonToken inExpectedToken) throws IOException {
+        if (inParser.nextToken() != inExpectedToken) {
+            throw new IOException("Expected " + inExpectedToken + " but found " + inParser.currentToken()
+                + " at " + inParser.getCurrentLocation());
+        }
+    }
+}
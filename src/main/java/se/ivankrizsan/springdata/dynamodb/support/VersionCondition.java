@@ -0,0 +1,154 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optimistic locking condition that is applied to write requests as a condition expression,
+ * so that an item is only written if its version is the version the writer expects.
+ * An expected version of null means that the writer expects an item that has never been
+ * written with a version.
+ * Update item requests are in addition conditional on the item existing, so that a partial
+ * update never creates a new item.
+ *
+ * @author Ivan Krizsan
+ */
+public class VersionCondition {
+    /* Constant(s): */
+    protected static final String KEY_NAME_PLACEHOLDER = "#conditionKey";
+    protected static final String VERSION_NAME_PLACEHOLDER = "#conditionVersion";
+    protected static final String VERSION_VALUE_PLACEHOLDER = ":conditionVersion";
+
+    /* Instance variable(s): */
+    protected final String mKeyAttributeName;
+    protected final String mVersionAttributeName;
+    protected final AttributeValue mExpectedVersion;
+
+    /**
+     * Creates a condition on the supplied version attribute having the supplied value.
+     *
+     * @param inKeyAttributeName Name of hash key attribute.
+     * @param inVersionAttributeName Name of version attribute.
+     * @param inExpectedVersion Expected version, null if the version attribute is expected not to exist.
+     */
+    public VersionCondition(
+        final String inKeyAttributeName,
+        final String inVersionAttributeName,
+        final AttributeValue inExpectedVersion) {
+        mKeyAttributeName = inKeyAttributeName;
+        mVersionAttributeName = inVersionAttributeName;
+        mExpectedVersion = inExpectedVersion;
+    }
+
+    /**
+     * Applies the condition to the supplied put item request.
+     *
+     * @param inPutItemRequest Put item request.
+     * @return The supplied request.
+     */
+    public PutItemRequest applyTo(final PutItemRequest inPutItemRequest) {
+        return inPutItemRequest
+            .withConditionExpression(versionCondition())
+            .withExpressionAttributeNames(mergeNames(inPutItemRequest.getExpressionAttributeNames(), false))
+            .withExpressionAttributeValues(mergeValues(inPutItemRequest.getExpressionAttributeValues()));
+    }
+
+    /**
+     * Applies the condition to the supplied delete item request.
+     *
+     * @param inDeleteItemRequest Delete item request.
+     * @return The supplied request.
+     */
+    public DeleteItemRequest applyTo(final DeleteItemRequest inDeleteItemRequest) {
+        return inDeleteItemRequest
+            .withConditionExpression(versionCondition())
+            .withExpressionAttributeNames(mergeNames(inDeleteItemRequest.getExpressionAttributeNames(), false))
+            .withExpressionAttributeValues(mergeValues(inDeleteItemRequest.getExpressionAttributeValues()));
+    }
+
+    /**
+     * Applies the condition to the supplied update item request.
+     *
+     * @param inUpdateItemRequest Update item request.
+     * @return The supplied request.
+     */
+    public UpdateItemRequest applyTo(final UpdateItemRequest inUpdateItemRequest) {
+        return inUpdateItemRequest
+            .withConditionExpression("attribute_exists(" + KEY_NAME_PLACEHOLDER + ") AND " + versionCondition())
+            .withExpressionAttributeNames(mergeNames(inUpdateItemRequest.getExpressionAttributeNames(), true))
+            .withExpressionAttributeValues(mergeValues(inUpdateItemRequest.getExpressionAttributeValues()));
+    }
+
+    /**
+     * Applies the condition to the supplied put item request of the non-blocking DynamoDB client.
+     *
+     * @param inPutItemRequest Put item request.
+     * @return New put item request with the condition.
+     */
+    public software.amazon.awssdk.services.dynamodb.model.PutItemRequest applyTo(
+        final software.amazon.awssdk.services.dynamodb.model.PutItemRequest inPutItemRequest) {
+        return inPutItemRequest
+            .toBuilder()
+            .conditionExpression(versionCondition())
+            .expressionAttributeNames(mergeNames(inPutItemRequest.expressionAttributeNames(), false))
+            .expressionAttributeValues(AttributeValues.toV2(
+                mergeValues(AttributeValues.toV1(inPutItemRequest.expressionAttributeValues()))))
+            .build();
+    }
+
+    /**
+     * Creates the condition expression on the version attribute.
+     *
+     * @return Version condition expression.
+     */
+    protected String versionCondition() {
+        return mExpectedVersion != null
+            ? VERSION_NAME_PLACEHOLDER + " = " + VERSION_VALUE_PLACEHOLDER
+            : "attribute_not_exists(" + VERSION_NAME_PLACEHOLDER + ")";
+    }
+
+    /**
+     * Merges the name placeholders of the condition with the supplied name placeholders of a request.
+     * DynamoDB rejects requests with unused placeholders, so the key name placeholder is only
+     * included if the key attribute is part of the condition.
+     *
+     * @param inExpressionAttributeNames Expression attribute names of request. May be null.
+     * @param inKeyConditionFlag True if the condition includes the key attribute, false otherwise.
+     * @return Merged expression attribute names.
+     */
+    protected Map<String, String> mergeNames(
+        final Map<String, String> inExpressionAttributeNames,
+        final boolean inKeyConditionFlag) {
+        final Map<String, String> theExpressionAttributeNames = new HashMap<>();
+        if (inKeyConditionFlag) {
+            theExpressionAttributeNames.put(KEY_NAME_PLACEHOLDER, mKeyAttributeName);
+        }
+        theExpressionAttributeNames.put(VERSION_NAME_PLACEHOLDER, mVersionAttributeName);
+        if (inExpressionAttributeNames != null) {
+            theExpressionAttributeNames.putAll(inExpressionAttributeNames);
+        }
+        return theExpressionAttributeNames;
+    }
+
+    /**
+     * Merges the value placeholder of the condition with the supplied value placeholders of a request.
+     *
+     * @param inExpressionAttributeValues Expression attribute values of request. May be null.
+     * @return Merged expression attribute values, null if there are none.
+     */
+    protected Map<String, AttributeValue> mergeValues(final Map<String, AttributeValue> inExpressionAttributeValues) {
+        final Map<String, AttributeValue> theExpressionAttributeValues = new HashMap<>();
+        if (mExpectedVersion != null) {
+            theExpressionAttributeValues.put(VERSION_VALUE_PLACEHOLDER, mExpectedVersion);
+        }
+        if (inExpressionAttributeValues != null) {
+            theExpressionAttributeValues.putAll(inExpressionAttributeValues);
+        }
+        return theExpressionAttributeValues.isEmpty() ? null : theExpressionAttributeValues;
+    }
+}
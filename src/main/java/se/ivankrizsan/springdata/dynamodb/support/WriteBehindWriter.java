@@ -0,0 +1,257 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Writes entities behind the callers that save them: saved entities are held in a bounded queue
+ * and written in batches, using the supplied batch writer, at the end of every flush window.
+ * Repeated saves of an entity with the same type and id within one flush window are coalesced,
+ * so that only the last saved state of the entity is written. Entities without id are never
+ * coalesced.
+ * When the queue is full, callers saving entities not already in the queue are blocked until
+ * the queue has been flushed, which throttles producers to the rate at which entities can be written.
+ * Batched writes are not conditional, so the last saved state of an entity wins regardless of
+ * its version.
+ * The following metrics are recorded:
+ * <ul>
+ *     <li>dynamodb.writebehind.queue.size - Gauge of the number of entities waiting to be written.</li>
+ *     <li>dynamodb.writebehind.flushes - Timer measuring the latency of flushes.</li>
+ *     <li>dynamodb.writebehind.coalesced - Counter counting saves that replaced a queued entity.</li>
+ *     <li>dynamodb.writebehind.failed - Counter counting entities that could not be written.</li>
+ * </ul>
+ *
+ * @author Ivan Krizsan
+ */
+public class WriteBehindWriter implements AutoCloseable {
+    /* Constant(s): */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindWriter.class);
+    public static final String QUEUE_SIZE_METER_NAME = "dynamodb.writebehind.queue.size";
+    public static final String FLUSHES_METER_NAME = "dynamodb.writebehind.flushes";
+    public static final String COALESCED_METER_NAME = "dynamodb.writebehind.coalesced";
+    public static final String FAILED_METER_NAME = "dynamodb.writebehind.failed";
+
+    /* Instance variable(s): */
+    protected final ParallelBatchWriter mParallelBatchWriter;
+    protected final Function<Object, ?> mIdExtractor;
+    protected final int mCapacity;
+    protected final ScheduledExecutorService mFlushExecutor;
+    protected final ReentrantLock mLock = new ReentrantLock();
+    protected final Condition mNotFull = mLock.newCondition();
+    /** Entities waiting to be written, in the order first saved, keyed by entity type and id. */
+    protected Map<Object, PendingWrite> mPendingWrites = new LinkedHashMap<>();
+    protected boolean mClosed;
+    protected final Timer mFlushTimer;
+    protected final Counter mCoalescedCounter;
+    protected final Counter mFailedCounter;
+
+    /**
+     * Creates a write-behind writer that flushes the queue at the end of every flush window.
+     *
+     * @param inParallelBatchWriter Batch writer used to write queued entities.
+     * @param inIdExtractor Retrieves the id of an entity, null if the entity has no id.
+     * @param inCapacity Maximum number of entities waiting to be written.
+     * @param inFlushWindowMillis Flush window length, in milliseconds.
+     * @param inMeterRegistry Meter registry in which to record metrics.
+     */
+    public WriteBehindWriter(
+        final ParallelBatchWriter inParallelBatchWriter,
+        final Function<Object, ?> inIdExtractor,
+        final int inCapacity,
+        final long inFlushWindowMillis,
+        final MeterRegistry inMeterRegistry) {
+        Assert.isTrue(inCapacity > 0, "The capacity must be positive");
+        Assert.isTrue(inFlushWindowMillis > 0, "The flush window must be positive");
+        mParallelBatchWriter = inParallelBatchWriter;
+        mIdExtractor = inIdExtractor;
+        mCapacity = inCapacity;
+        Gauge.builder(QUEUE_SIZE_METER_NAME, this, WriteBehindWriter::size).register(inMeterRegistry);
+        mFlushTimer = Timer.builder(FLUSHES_METER_NAME).register(inMeterRegistry);
+        mCoalescedCounter = Counter.builder(COALESCED_METER_NAME).register(inMeterRegistry);
+        mFailedCounter = Counter.builder(FAILED_METER_NAME).register(inMeterRegistry);
+        final CustomizableThreadFactory theThreadFactory = new CustomizableThreadFactory("ddb-write-behind-");
+        theThreadFactory.setDaemon(true);
+        mFlushExecutor = Executors.newSingleThreadScheduledExecutor(theThreadFactory);
+        mFlushExecutor.scheduleWithFixedDelay(
+            this::flushQuietly, inFlushWindowMillis, inFlushWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the supplied entity to be written at the end of the current flush window, replacing
+     * any queued entity of the same type with the same id.
+     * Blocks while the queue is full, unless the entity replaces a queued entity.
+     *
+     * @param inEntity Entity to write.
+     * @return Future that is completed when the entity, or an entity replacing it, has been written
+     * and completed exceptionally if the entity could not be written.
+     * @throws IllegalStateException If the writer has been closed.
+     */
+    public CompletableFuture<Void> write(final Object inEntity) {
+        Assert.notNull(inEntity, "The entity must not be null!");
+        final Object theId = mIdExtractor.apply(inEntity);
+        final Object theKey = theId != null ? List.of(inEntity.getClass(), theId) : new Object();
+        mLock.lock();
+        try {
+            verifyOpen();
+            final PendingWrite theQueuedWrite = mPendingWrites.get(theKey);
+            if (theQueuedWrite != null) {
+                theQueuedWrite.mEntity = inEntity;
+                mCoalescedCounter.increment();
+                return theQueuedWrite.mFuture;
+            }
+            while (mPendingWrites.size() >= mCapacity) {
+                mFlushExecutor.execute(this::flushQuietly);
+                mNotFull.awaitUninterruptibly();
+                verifyOpen();
+            }
+            final PendingWrite thePendingWrite = new PendingWrite(inEntity);
+            mPendingWrites.put(theKey, thePendingWrite);
+            return thePendingWrite.mFuture;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all queued entities, blocking until they have been written.
+     * Flushes are serialized, so that writes of the same entity are never reordered.
+     */
+    public synchronized void flush() {
+        final Map<Object, PendingWrite> theWrites;
+        mLock.lock();
+        try {
+            theWrites = mPendingWrites;
+            mPendingWrites = new LinkedHashMap<>();
+            mNotFull.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+        if (theWrites.isEmpty()) {
+            return;
+        }
+
+        final List<Object> theEntities = new ArrayList<>(theWrites.size());
+        theWrites.values().forEach(theWrite -> theEntities.add(theWrite.mEntity));
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches;
+        try {
+            theFailedBatches = mFlushTimer.recordCallable(() -> mParallelBatchWriter.batchSave(theEntities));
+        } catch (final Exception theException) {
+            mFailedCounter.increment(theEntities.size());
+            theWrites.values().forEach(theWrite -> theWrite.mFuture.completeExceptionally(theException));
+            throw new IllegalStateException("Flushing write-behind queue failed", theException);
+        }
+
+        if (theFailedBatches.isEmpty()) {
+            theWrites.values().forEach(theWrite -> theWrite.mFuture.complete(null));
+        } else {
+            /* Failed batches contain items rather than entities, so all writes of the flush are failed. */
+            final int theFailedCount = theFailedBatches
+                .stream()
+                .mapToInt(theFailedBatch -> theFailedBatch
+                    .getUnprocessedItems()
+                    .values()
+                    .stream()
+                    .mapToInt(List::size)
+                    .sum())
+                .sum();
+            mFailedCounter.increment(theFailedCount);
+            LOGGER.warn("{} of {} queued entities could not be written", theFailedCount, theEntities.size());
+            final Exception theException = theFailedBatches.get(0).getException() != null
+                ? theFailedBatches.get(0).getException()
+                : new IllegalStateException(theFailedCount + " entities could not be written");
+            theWrites.values().forEach(theWrite -> theWrite.mFuture.completeExceptionally(theException));
+        }
+    }
+
+    /**
+     * Retrieves the number of entities waiting to be written.
+     *
+     * @return Queue size.
+     */
+    public int size() {
+        mLock.lock();
+        try {
+            return mPendingWrites.size();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting entities, writes all queued entities and stops the flush thread.
+     */
+    @Override
+    public void close() {
+        mLock.lock();
+        try {
+            mClosed = true;
+            mNotFull.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+        mFlushExecutor.shutdown();
+        try {
+            mFlushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Writes all queued entities, logging instead of propagating any failure, for use by the flush thread.
+     */
+    protected void flushQuietly() {
+        try {
+            flush();
+        } catch (final Exception theException) {
+            LOGGER.error("Flushing write-behind queue failed", theException);
+        }
+    }
+
+    /**
+     * Verifies that the writer has not been closed. Must be invoked holding the lock.
+     */
+    protected void verifyOpen() {
+        if (mClosed) {
+            throw new IllegalStateException("The write-behind writer has been closed");
+        }
+    }
+
+    /**
+     * Entity waiting to be written and the future completed when it has been written.
+     */
+    protected static class PendingWrite {
+        /* Instance variable(s): */
+        protected Object mEntity;
+        protected final CompletableFuture<Void> mFuture = new CompletableFuture<>();
+
+        /**
+         * Creates a pending write of the supplied entity.
+         *
+         * @param inEntity Entity to write.
+         */
+        protected PendingWrite(final Object inEntity) {
+            mEntity = inEntity;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps two-dimensional integer coordinates onto a Z-order (Morton) curve for use as keys of
+ * a spatial index.
+ * The coordinate plane is divided into square partitions with a side of 2^partitionBits
+ * coordinate units. The partition of a position is the hash key of the index and the position
+ * on the Z-order curve, which orders positions within a partition, is the range key.
+ * Positions that are close to each other in the plane tend to be close to each other on the
+ * curve, so a bounding box is covered by one key range per partition that it overlaps.
+ *
+ * @author Ivan Krizsan
+ */
+public final class ZOrderCurve {
+    /* Constant(s): */
+    /** Offset that maps signed 32-bit coordinates onto unsigned 32-bit coordinates, retaining order. */
+    protected static final long COORDINATE_OFFSET = 1L << 31;
+
+    /**
+     * Hidden constructor of utility class.
+     */
+    private ZOrderCurve() {
+    }
+
+    /**
+     * Calculates the partition containing the supplied position.
+     *
+     * @param inX X-coordinate of position.
+     * @param inY Y-coordinate of position.
+     * @param inPartitionBits Number of bits of each coordinate that are within a partition.
+     * @return Partition number, which is not negative.
+     */
+    public static long partition(final int inX, final int inY, final int inPartitionBits) {
+        return interleave(unsigned(inX), unsigned(inY)) >>> (2 * inPartitionBits);
+    }
+
+    /**
+     * Calculates the position of the supplied coordinates on the Z-order curve.
+     * Keys compare as signed numbers in the same order as the positions on the curve,
+     * which allows the keys to be stored as DynamoDB numbers.
+     *
+     * @param inX X-coordinate of position.
+     * @param inY Y-coordinate of position.
+     * @return Position key.
+     */
+    public static long key(final int inX, final int inY) {
+        return interleave(unsigned(inX), unsigned(inY)) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Covers the supplied bounding box, inclusive, with one key range per partition that it overlaps.
+     * Each range contains all positions within the part of the bounding box in the partition,
+     * but may also contain positions outside the bounding box which must be filtered out.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param inPartitionBits Number of bits of each coordinate that are within a partition.
+     * @return Key ranges, one per overlapped partition.
+     */
+    public static List<KeyRange> ranges(
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY,
+        final int inPartitionBits) {
+        Assert.isTrue(inMinX <= inMaxX && inMinY <= inMaxY, "Bounding box minimum must not exceed maximum");
+        final List<KeyRange> theRanges = new ArrayList<>();
+        final long thePartitionMask = (1L << inPartitionBits) - 1;
+        final long theMinX = unsigned(inMinX);
+        final long theMaxX = unsigned(inMaxX);
+        final long theMinY = unsigned(inMinY);
+        final long theMaxY = unsigned(inMaxY);
+        for (long theCellY = theMinY >>> inPartitionBits; theCellY <= theMaxY >>> inPartitionBits; theCellY++) {
+            for (long theCellX = theMinX >>> inPartitionBits; theCellX <= theMaxX >>> inPartitionBits; theCellX++) {
+                final long theCellMinX = theCellX << inPartitionBits;
+                final long theCellMinY = theCellY << inPartitionBits;
+                final long theFromKey = interleave(
+                    Math.max(theMinX, theCellMinX),
+                    Math.max(theMinY, theCellMinY));
+                final long theToKey = interleave(
+                    Math.min(theMaxX, theCellMinX + thePartitionMask),
+                    Math.min(theMaxY, theCellMinY + thePartitionMask));
+                theRanges.add(new KeyRange(
+                    interleave(theCellX, theCellY),
+                    theFromKey ^ Long.MIN_VALUE,
+                    theToKey ^ Long.MIN_VALUE));
+            }
+        }
+        return theRanges;
+    }
+
+    /**
+     * Calculates the number of partitions overlapped by the supplied bounding box, inclusive,
+     * without creating the key ranges.
+     *
+     * @param inMinX Minimum x-coordinate of bounding box.
+     * @param inMinY Minimum y-coordinate of bounding box.
+     * @param inMaxX Maximum x-coordinate of bounding box.
+     * @param inMaxY Maximum y-coordinate of bounding box.
+     * @param inPartitionBits Number of bits of each coordinate that are within a partition.
+     * @return Number of partitions.
+     */
+    public static long partitionCount(
+        final int inMinX,
+        final int inMinY,
+        final int inMaxX,
+        final int inMaxY,
+        final int inPartitionBits) {
+        final long theColumns = (unsigned(inMaxX) >>> inPartitionBits) - (unsigned(inMinX) >>> inPartitionBits) + 1;
+        final long theRows = (unsigned(inMaxY) >>> inPartitionBits) - (unsigned(inMinY) >>> inPartitionBits) + 1;
+        return theColumns * theRows;
+    }
+
+    /**
+     * Maps the supplied signed coordinate onto an unsigned coordinate, retaining order.
+     *
+     * @param inCoordinate Coordinate.
+     * @return Unsigned coordinate in the range 0 to 2^32 - 1.
+     */
+    protected static long unsigned(final int inCoordinate) {
+        return inCoordinate + COORDINATE_OFFSET;
+    }
+
+    /**
+     * Interleaves the bits of the supplied unsigned coordinates, with the bits of the x-coordinate
+     * in the even bit positions and the bits of the y-coordinate in the odd bit positions.
+     *
+     * @param inX Unsigned x-coordinate, at most 32 bits.
+     * @param inY Unsigned y-coordinate, at most 32 bits.
+     * @return Interleaved bits.
+     */
+    protected static long interleave(final long inX, final long inY) {
+        return spread(inX) | (spread(inY) << 1);
+    }
+
+    /**
+     * Spreads the lower 32 bits of the supplied value to the even bit positions of the result.
+     *
+     * @param inValue Value to spread.
+     * @return Spread bits.
+     */
+    protected static long spread(final long inValue) {
+        long theValue = inValue & 0xFFFFFFFFL;
+        theValue = (theValue | (theValue << 16)) & 0x0000FFFF0000FFFFL;
+        theValue = (theValue | (theValue << 8)) & 0x00FF00FF00FF00FFL;
+        theValue = (theValue | (theValue << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        theValue = (theValue | (theValue << 2)) & 0x3333333333333333L;
+        theValue = (theValue | (theValue << 1)) & 0x5555555555555555L;
+        return theValue;
+    }
+
+    /**
+     * Range of keys, inclusive, within one partition of the Z-order curve.
+     */
+    public static class KeyRange {
+        /* Instance variable(s): */
+        protected final long mPartition;
+        protected final long mFromKey;
+        protected final long mToKey;
+
+        /**
+         * Creates a key range.
+         *
+         * @param inPartition Partition containing the range.
+         * @param inFromKey First key in range.
+         * @param inToKey Last key in range.
+         */
+        public KeyRange(final long inPartition, final long inFromKey, final long inToKey) {
+            mPartition = inPartition;
+            mFromKey = inFromKey;
+            mToKey = inToKey;
+        }
+
+        /**
+         * Retrieves the partition containing the range.
+         *
+         * @return Partition number.
+         */
+        public long getPartition() {
+            return mPartition;
+        }
+
+        /**
+         * Retrieves the first key in the range.
+         *
+         * @return First key.
+         */
+        public long getFromKey() {
+            return mFromKey;
+        }
+
+        /**
+         * Retrieves the last key in the range.
+         *
+         * @return Last key.
+         */
+        public long getToKey() {
+            return mToKey;
+        }
+    }
+}
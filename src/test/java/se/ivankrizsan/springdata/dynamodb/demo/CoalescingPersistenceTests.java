@@ -0,0 +1,107 @@
+package se.ivankrizsan.springdata.dynamodb.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+
+import java.util.List;
+
+/**
+ * Tests of the coalescing of identical finder calls, with results kept so that subsequent
+ * identical calls share the result of the first call.
+ *
+ * @author Ivan Krizsan
+ */
+@SpringBootTest(classes = {
+    PersistenceConfiguration.class,
+    PersistenceTestConfiguration.class
+})
+@TestPropertySource(
+    locations = "classpath:/application.properties",
+    properties = {
+        "amazon.dynamodb.coalescing.enabled=true",
+        "amazon.dynamodb.coalescing.ttl=60000"
+    })
+class CoalescingPersistenceTests {
+    /* Constant(s): */
+    protected final static String RED = "red";
+    protected final static int RADIUS = 5;
+
+    /* Instance variable(s): */
+    @Autowired
+    protected CirclesRepository mCirclesRepository;
+
+    /**
+     * Cleans up after each test by deleting all circles.
+     */
+    @AfterEach
+    public void cleanup() {
+        mCirclesRepository.deleteAll();
+    }
+
+    /**
+     * Tests finding all circles twice and modifying the circle found by the first call.
+     * Expected result:
+     * The second call should share the result of the first call, but return a circle of its own
+     * which is not affected by the modification.
+     */
+    @Test
+    public void findAllNotSharingShapesTest() {
+        mCirclesRepository.save(createCircle());
+
+        final List<Circle> theFirstCircles = mCirclesRepository.findAll();
+        theFirstCircles.get(0).setRadius(RADIUS + 1);
+        final long theResultHitCount = mCirclesRepository.coalescingStatistics().getResultHitCount();
+        final List<Circle> theSecondCircles = mCirclesRepository.findAll();
+
+        Assertions.assertEquals(theResultHitCount + 1,
+            mCirclesRepository.coalescingStatistics().getResultHitCount(),
+            "The second call should share the result of the first call");
+        Assertions.assertNotSame(theFirstCircles.get(0), theSecondCircles.get(0),
+            "The calls should not share circles");
+        Assertions.assertEquals(RADIUS, theSecondCircles.get(0).getRadius(),
+            "The circle of the second call should not be modified");
+    }
+
+    /**
+     * Tests finding the circles of a colour twice and modifying the circle found by the first call.
+     * Expected result:
+     * The second call should share the result of the first call, but return a circle of its own
+     * which is not affected by the modification.
+     */
+    @Test
+    public void findByColourNotSharingShapesTest() {
+        mCirclesRepository.save(createCircle());
+
+        final List<Circle> theFirstCircles = mCirclesRepository.findCirclesByColour(RED);
+        theFirstCircles.get(0).setRadius(RADIUS + 1);
+        final long theResultHitCount = mCirclesRepository.coalescingStatistics().getResultHitCount();
+        final List<Circle> theSecondCircles = mCirclesRepository.findCirclesByColour(RED);
+
+        Assertions.assertEquals(theResultHitCount + 1,
+            mCirclesRepository.coalescingStatistics().getResultHitCount(),
+            "The second call should share the result of the first call");
+        Assertions.assertNotSame(theFirstCircles.get(0), theSecondCircles.get(0),
+            "The calls should not share circles");
+        Assertions.assertEquals(RADIUS, theSecondCircles.get(0).getRadius(),
+            "The circle of the second call should not be modified");
+    }
+
+    /**
+     * Create a new red circle.
+     *
+     * @return A new circle.
+     */
+    protected static Circle createCircle() {
+        final Circle theCircle = new Circle();
+        theCircle.setRadius(RADIUS);
+        theCircle.setPosition(12, 14);
+        theCircle.setColour(RED);
+        return theCircle;
+    }
+}
@@ -4,8 +4,15 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
 import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.collections4.IterableUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -14,15 +21,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.TestPropertySource;
 import se.ivankrizsan.springdata.dynamodb.domain.Circle;
 import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
 import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
 import se.ivankrizsan.springdata.dynamodb.repositories.RectanglesRepository;
+import se.ivankrizsan.springdata.dynamodb.repositories.ShapesRepository;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBMetricsRequestHandler;
+import se.ivankrizsan.springdata.dynamodb.support.RepositoryMethodMonitor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Examples of persistence in DynamoDB with Spring Data DynamoDB.
@@ -33,7 +52,12 @@ import java.util.Map;
     PersistenceConfiguration.class,
     PersistenceTestConfiguration.class
 })
-@TestPropertySource("classpath:/application.properties")
+@TestPropertySource(
+    locations = "classpath:/application.properties",
+    properties = {
+        "amazon.dynamodb.singletable.enabled=true",
+        "amazon.dynamodb.cache.enabled=true"
+    })
 class DynamoDBPersistenceTests {
     /* Constant(s): */
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBPersistenceTests.class);
@@ -42,6 +66,7 @@ class DynamoDBPersistenceTests {
     protected final static String RECTANGLE_COLOUR = "red";
     protected final static int MANY_CIRCLES_COUNT = 500;
     protected final static String[] COLOURS = { "red", "green", "blue", "purple", "black", "white" };
+    protected final static int SCAN_SEGMENTS = 3;
 
     /* Instance variable(s): */
     @Autowired
@@ -49,9 +74,13 @@ class DynamoDBPersistenceTests {
     @Autowired
     protected RectanglesRepository mRectanglesRepository;
     @Autowired
+    protected ShapesRepository mShapesRepository;
+    @Autowired
     protected DynamoDBMapper mDynamoDBMapper;
     @Autowired
     protected AmazonDynamoDB mAmazonDynamoDB;
+    @Autowired
+    protected MeterRegistry mMeterRegistry;
 
     /**
      * Cleans up after each test by deleting the contents of the database tables.
@@ -61,6 +90,7 @@ class DynamoDBPersistenceTests {
         LOGGER.info("Deleting contents of database tables");
         mCirclesRepository.deleteAll();
         mRectanglesRepository.deleteAll();
+        mShapesRepository.deleteAll();
     }
 
     /**
@@ -157,6 +187,96 @@ class DynamoDBPersistenceTests {
         }
     }
 
+    /**
+     * Tests persisting many circles in one batch and retrieving all circles.
+     * Expected result:
+     * All the persisted circles should have been assigned an id and a last update time.
+     * Retrieving all circles should yield the same number of circles as persisted.
+     * The retrieved circles should be identical to the persisted ones.
+     */
+    @Test
+    public void persistManyCirclesInBatchTest() {
+        /* Create the circles to be persisted. */
+        final List<Circle> theOriginalCircles = new ArrayList<>();
+        for (int i = 1; i < MANY_CIRCLES_COUNT + 1; i++) {
+            final Circle theOriginalCircle = new Circle();
+            theOriginalCircle.setPosition(12 + i, 14 + i);
+            theOriginalCircle.setColour(CIRCLE_COLOUR);
+            theOriginalCircle.setRadius(i);
+            theOriginalCircles.add(theOriginalCircle);
+        }
+
+        /* Persist the circles in one batch. */
+        final List<Circle> thePersistedCirclesList =
+            IterableUtils.toList(mCirclesRepository.saveAll(theOriginalCircles));
+
+        /* Verify that ids and last update times have been set on the persisted circles. */
+        final Map<Integer, Circle> thePersistedCircles = new HashMap<>();
+        for (Circle thePersistedCircle : thePersistedCirclesList) {
+            Assertions.assertNotNull(thePersistedCircle.getId(), "Circle id should have been set");
+            Assertions.assertNotNull(
+                thePersistedCircle.getLastUpdateTime(),
+                "Circle last update time should have been set");
+            thePersistedCircles.put(thePersistedCircle.getRadius(), thePersistedCircle);
+        }
+
+        /* Find all circles in the repository. */
+        final List<Circle> theFoundCircles = IterableUtils.toList(mCirclesRepository.findAll());
+
+        /* Verify the number of persisted circles. */
+        Assertions.assertEquals(
+            MANY_CIRCLES_COUNT,
+            theFoundCircles.size(), "A lot of circles should have been persisted");
+
+        /* Verify properties of the circles. */
+        for (Circle theActualCircle : theFoundCircles) {
+            final Circle theExpectedCircle = thePersistedCircles.get(theActualCircle.getRadius());
+            Assertions.assertEquals(theExpectedCircle,
+                theActualCircle,
+                "Circle properties should match");
+        }
+    }
+
+    /**
+     * Tests persisting many circles and retrieving all circles as a stream
+     * using a parallel scan.
+     * Expected result:
+     * The stream should contain the same number of circles as persisted.
+     * The streamed circles should be identical to the persisted ones.
+     */
+    @Test
+    public void streamManyCirclesTest() {
+        /* Create and persist the circles. */
+        final List<Circle> theOriginalCircles = new ArrayList<>();
+        for (int i = 1; i < MANY_CIRCLES_COUNT + 1; i++) {
+            final Circle theOriginalCircle = createCircle();
+            theOriginalCircle.setRadius(i);
+            theOriginalCircles.add(theOriginalCircle);
+        }
+        final Map<String, Circle> thePersistedCircles = new HashMap<>();
+        mCirclesRepository
+            .saveAll(theOriginalCircles)
+            .forEach(theCircle -> thePersistedCircles.put(theCircle.getId(), theCircle));
+
+        /* Stream all the circles using a parallel scan. */
+        final List<Circle> theStreamedCircles;
+        try (Stream<Circle> theCirclesStream = mCirclesRepository.findAllAsStream(SCAN_SEGMENTS)) {
+            theStreamedCircles = theCirclesStream.collect(Collectors.toList());
+        }
+
+        /* Verify the streamed circles. */
+        Assertions.assertEquals(
+            MANY_CIRCLES_COUNT,
+            theStreamedCircles.size(),
+            "All the persisted circles should have been streamed");
+        for (Circle theActualCircle : theStreamedCircles) {
+            Assertions.assertEquals(
+                thePersistedCircles.get(theActualCircle.getId()),
+                theActualCircle,
+                "Circle properties should match");
+        }
+    }
+
     /**
      * Tests persisting one circle and one rectangle and retrieving all the
      * circles and rectangles.
@@ -194,6 +314,242 @@ class DynamoDBPersistenceTests {
 
     }
 
+    /**
+     * Tests persisting circles and rectangles in the single shapes table and finding
+     * shapes of different types in one request.
+     * Expected result:
+     * Finding shapes by colour should yield both the red circle and the red rectangle,
+     * materialized as a circle and a rectangle identical to the persisted ones.
+     * Finding a shape by id and finding shapes by position should yield the shape
+     * of the correct type.
+     * Finding all shapes should yield all persisted shapes.
+     */
+    @Test
+    public void singleTableShapesTest() {
+        /* Create and persist one red circle, one red rectangle and one green circle. */
+        final Circle theRedCircle = createCircle();
+        theRedCircle.setColour(RECTANGLE_COLOUR);
+        final Rectangle theRedRectangle = createRectangle();
+        final Circle theGreenCircle = createCircle();
+        theGreenCircle.setColour("green");
+        mShapesRepository.saveAll(List.of(theRedCircle, theRedRectangle));
+        mShapesRepository.save(theGreenCircle);
+
+        /* Find the red shapes, the rectangle by id and the shapes at the position of the rectangle. */
+        final List<Shape> theRedShapes = mShapesRepository.findByColour(RECTANGLE_COLOUR);
+        final Optional<Shape> theShapeFoundById = mShapesRepository.findById(theRedRectangle.getId());
+        final List<Shape> theShapesAtPosition =
+            mShapesRepository.findByPosition(theRedRectangle.getX(), theRedRectangle.getY());
+
+        /* Verify the found shapes. */
+        Assertions.assertEquals(2, theRedShapes.size(), "Two red shapes should be found");
+        Assertions.assertTrue(theRedShapes.contains(theRedCircle), "The red circle should be found");
+        Assertions.assertTrue(theRedShapes.contains(theRedRectangle), "The red rectangle should be found");
+        Assertions.assertEquals(
+            Optional.of(theRedRectangle),
+            theShapeFoundById,
+            "The rectangle found by id should be identical to the persisted one");
+        Assertions.assertEquals(
+            List.of(theRedRectangle),
+            theShapesAtPosition,
+            "Only the rectangle should be found at its position");
+        Assertions.assertEquals(3, mShapesRepository.findAll().size(), "All shapes should be found");
+    }
+
+    /**
+     * Tests finding all shapes stored in the single shapes table, which is scanned in segments
+     * on the threads of the scan executor.
+     * Expected result:
+     * The items scanned on the scan executor threads should be attributed to the invocation of
+     * the find all method of the shapes repository.
+     */
+    @Test
+    public void singleTableShapesMonitoredTest() {
+        mShapesRepository.saveAll(List.of(createCircle(), createRectangle(), createCircle()));
+        final double theScannedItemsBefore = scannedItems("findAll");
+
+        mShapesRepository.findAll();
+
+        Assertions.assertEquals(3.0, scannedItems("findAll") - theScannedItemsBefore,
+            "The items scanned in all segments should be attributed to the find all invocation");
+    }
+
+    /**
+     * Tests finding circles and shapes of all types within a bounding box that crosses
+     * spatial index partition boundaries.
+     * Expected result:
+     * Exactly the circles and shapes located within the bounding box, including those on
+     * its edges, should be found.
+     */
+    @Test
+    public void findWithinTest() {
+        /* Create and persist circles and rectangles in a grid around a partition corner. */
+        final int thePartitionSize = 1 << Shape.SPATIAL_PARTITION_BITS;
+        final List<Circle> theCircles = new ArrayList<>();
+        final List<Rectangle> theRectangles = new ArrayList<>();
+        for (int theX = thePartitionSize - 10; theX <= thePartitionSize + 10; theX += 5) {
+            for (int theY = -10; theY <= 10; theY += 5) {
+                final Circle theCircle = createCircle();
+                theCircle.setPosition(theX, theY);
+                theCircles.add(theCircle);
+                final Rectangle theRectangle = createRectangle();
+                theRectangle.setPosition(theX, theY);
+                theRectangles.add(theRectangle);
+            }
+        }
+        mCirclesRepository.saveAll(theCircles);
+        mShapesRepository.saveAll(theCircles);
+        mShapesRepository.saveAll(theRectangles);
+
+        /* Find the circles and shapes within a bounding box. */
+        final int theMinX = thePartitionSize - 5;
+        final int theMaxX = thePartitionSize + 5;
+        final List<Circle> theFoundCircles = mCirclesRepository.findWithin(theMinX, -5, theMaxX, 4);
+        final List<Shape> theFoundShapes = mShapesRepository.findWithin(theMinX, -5, theMaxX, 4);
+
+        /* Verify the found circles and shapes. */
+        Assertions.assertEquals(3 * 2, theFoundCircles.size(), "Circles within bounding box should be found");
+        Assertions.assertTrue(
+            theFoundCircles
+                .stream()
+                .allMatch(theCircle -> theCircle.getX() >= theMinX && theCircle.getX() <= theMaxX
+                    && theCircle.getY() >= -5 && theCircle.getY() <= 4),
+            "Only circles within the bounding box should be found");
+        Assertions.assertEquals(
+            3 * 2 * 2,
+            theFoundShapes.size(),
+            "Circles and rectangles within bounding box should be found");
+        Assertions.assertEquals(
+            3 * 2,
+            theFoundShapes.stream().filter(theShape -> theShape instanceof Rectangle).count(),
+            "Rectangles within bounding box should be found");
+    }
+
+    /**
+     * Tests finding circles and shapes of all types reading only some of their attributes.
+     * Expected result:
+     * The found circles and shapes should have their id and the projected properties set.
+     * Properties that are not projected should have their default values.
+     * Shapes of all types should be of their concrete types.
+     */
+    @Test
+    public void projectedFindTest() {
+        /* Create and persist a circle and a rectangle. */
+        final Circle theCircle = createCircle();
+        mCirclesRepository.save(theCircle);
+        mShapesRepository.save(createCircle());
+        final Rectangle theRectangle = createRectangle();
+        mShapesRepository.save(theRectangle);
+
+        /* Find the circle and the shapes reading only their position. */
+        final Circle theFoundCircle = mCirclesRepository.findByIdProjected(theCircle.getId(), "x", "y").get();
+        final List<Circle> theFoundCircles = mCirclesRepository.findWithinProjected(0, 0, 100, 100, "colour");
+        final List<Shape> theFoundShapes = mShapesRepository.findAllProjected("x", "y");
+
+        /* Verify the found circle and shapes. */
+        Assertions.assertEquals(theCircle.getId(), theFoundCircle.getId(), "Circle id should be read");
+        Assertions.assertEquals(theCircle.getX(), theFoundCircle.getX(), "Projected x should be read");
+        Assertions.assertEquals(theCircle.getY(), theFoundCircle.getY(), "Projected y should be read");
+        Assertions.assertNull(theFoundCircle.getColour(), "Colour should not be read");
+        Assertions.assertEquals(Circle.DEFAULT_RADIUS, theFoundCircle.getRadius(), "Radius should not be read");
+        Assertions.assertNull(theFoundCircle.getLastUpdateTime(), "Last update time should not be read");
+
+        Assertions.assertEquals(1, theFoundCircles.size(), "The circle should be found within bounding box");
+        Assertions.assertEquals(
+            CIRCLE_COLOUR, theFoundCircles.get(0).getColour(), "Projected colour should be read");
+        Assertions.assertEquals(0, theFoundCircles.get(0).getX(), "Position should not be read");
+
+        Assertions.assertEquals(2, theFoundShapes.size(), "All shapes should be found");
+        final Shape theFoundRectangle = theFoundShapes
+            .stream()
+            .filter(theShape -> theShape instanceof Rectangle)
+            .findFirst()
+            .get();
+        Assertions.assertEquals(theRectangle.getId(), theFoundRectangle.getId(), "Rectangle id should be read");
+        Assertions.assertEquals(theRectangle.getX(), theFoundRectangle.getX(), "Projected x should be read");
+        Assertions.assertEquals(
+            Rectangle.DEFAULT_HEIGHT, ((Rectangle) theFoundRectangle).getHeight(), "Height should not be read");
+    }
+
+    /**
+     * Tests moving a circle and a shape using partial updates and updating a stale copy of the circle.
+     * Expected result:
+     * The moved circle and shape should be found at their new positions, with their other
+     * properties unchanged and their versions incremented.
+     * Updating the stale copy of the circle should fail with an optimistic locking failure and
+     * leave the circle unchanged.
+     */
+    @Test
+    public void partialUpdateTest() {
+        /* Create and persist a circle in the circles table and a rectangle in the shapes table. */
+        final Circle theCircle = mCirclesRepository.save(createCircle());
+        final Circle theStaleCircle = mCirclesRepository.findById(theCircle.getId()).get();
+        final Rectangle theRectangle = mShapesRepository.save(createRectangle());
+
+        /* Move the circle and the rectangle. */
+        mCirclesRepository.updatePosition(theCircle, 300, -40);
+        mShapesRepository.updatePosition(theRectangle, 310, -50);
+
+        /* Verify the moved circle and rectangle. */
+        final Circle theMovedCircle = mCirclesRepository.findById(theCircle.getId()).get();
+        Assertions.assertEquals(theCircle, theMovedCircle, "The moved circle should be found");
+        Assertions.assertEquals(300, theMovedCircle.getX(), "The circle x-coordinate should be updated");
+        Assertions.assertEquals(CIRCLE_RADIUS, theMovedCircle.getRadius(), "The circle radius should be unchanged");
+        Assertions.assertEquals(
+            theStaleCircle.getVersion() + 1,
+            theMovedCircle.getVersion(),
+            "The circle version should be incremented");
+        Assertions.assertEquals(
+            List.of(theMovedCircle),
+            mCirclesRepository.findWithin(300, -40, 300, -40),
+            "The circle should be found at its new position");
+        Assertions.assertEquals(
+            List.of(theRectangle),
+            mShapesRepository.findByPosition(310, -50),
+            "The rectangle should be found at its new position");
+
+        /* Update the stale copy of the circle. */
+        theStaleCircle.setRadius(CIRCLE_RADIUS * 2);
+        Assertions.assertThrows(
+            OptimisticLockingFailureException.class,
+            () -> mCirclesRepository.update(theStaleCircle, "radius"),
+            "Updating a stale circle should fail");
+        Assertions.assertEquals(
+            theMovedCircle,
+            mCirclesRepository.findById(theCircle.getId()).get(),
+            "The circle should be unchanged");
+    }
+
+    /**
+     * Tests deleting a shape from the shapes table that has been updated since it was read.
+     * Expected result:
+     * Deleting the stale copy of the shape should fail with an optimistic locking failure and
+     * leave the shape in the table.
+     * Deleting the updated shape should succeed.
+     */
+    @Test
+    public void staleDeleteFromShapesTableTest() {
+        /* Create and persist a rectangle in the shapes table and update it. */
+        final Rectangle theRectangle = mShapesRepository.save(createRectangle());
+        final Rectangle theStaleRectangle = (Rectangle) mShapesRepository.findById(theRectangle.getId()).get();
+        mShapesRepository.updatePosition(theRectangle, 320, -60);
+
+        /* Delete the stale copy of the rectangle. */
+        Assertions.assertThrows(
+            OptimisticLockingFailureException.class,
+            () -> mShapesRepository.delete(theStaleRectangle),
+            "Deleting a stale rectangle should fail");
+        Assertions.assertTrue(
+            mShapesRepository.findById(theRectangle.getId()).isPresent(),
+            "The rectangle should not be deleted");
+
+        /* Delete the updated rectangle. */
+        mShapesRepository.delete(theRectangle);
+        Assertions.assertFalse(
+            mShapesRepository.findById(theRectangle.getId()).isPresent(),
+            "The rectangle should be deleted");
+    }
+
     /**
      * Tests finding circles by colour.
      * Uses a custom query method declared in the repository.
@@ -225,6 +581,281 @@ class DynamoDBPersistenceTests {
             "The colour of the found circle should be blue");
     }
 
+    /**
+     * Tests counting circles, in total and by colour, and summing their areas when aggregates
+     * are not enabled.
+     * Expected result:
+     * All circles should be counted, only the blue circle should be counted by colour and
+     * the areas of all circles should be summed.
+     */
+    @Test
+    public void countCirclesTest() {
+        /* Create and persist circles of different colour. */
+        for (String theColour : COLOURS) {
+            final Circle theCircle = createCircle();
+            theCircle.setColour(theColour);
+            mCirclesRepository.save(theCircle);
+        }
+
+        /* Verify the counts and the area sum. */
+        Assertions.assertEquals(COLOURS.length, mCirclesRepository.count(), "All circles should be counted");
+        Assertions.assertEquals(
+            1,
+            mCirclesRepository.countByColour(CIRCLE_COLOUR),
+            "Only the blue circle should be counted");
+        Assertions.assertEquals(
+            COLOURS.length * createCircle().area(),
+            mCirclesRepository.areaSum(),
+            1e-9,
+            "The areas of all circles should be summed");
+    }
+
+    /**
+     * Tests saving a circle without blocking that has been updated since it was read.
+     * Expected result:
+     * Saving the stale copy of the circle should fail with an optimistic locking failure,
+     * leave the version of the stale copy unchanged and leave the circle unchanged.
+     */
+    @Test
+    public void staleAsyncSaveTest() {
+        /* Create and persist a circle and update it. */
+        final Circle theCircle = mCirclesRepository.save(createCircle());
+        final Circle theStaleCircle = mCirclesRepository.findById(theCircle.getId()).get();
+        final Long theStaleVersion = theStaleCircle.getVersion();
+        mCirclesRepository.save(theCircle);
+
+        /* Save the stale copy of the circle without blocking. */
+        theStaleCircle.setRadius(CIRCLE_RADIUS * 2);
+        final CompletionException theException = Assertions.assertThrows(
+            CompletionException.class,
+            () -> mCirclesRepository.saveAsync(theStaleCircle).join(),
+            "Saving a stale circle should fail");
+        Assertions.assertTrue(
+            theException.getCause() instanceof OptimisticLockingFailureException,
+            "Saving a stale circle should fail with an optimistic locking failure");
+        Assertions.assertEquals(theStaleVersion, theStaleCircle.getVersion(), "The stale version should be restored");
+        Assertions.assertEquals(
+            CIRCLE_RADIUS,
+            mCirclesRepository.findById(theCircle.getId()).get().getRadius(),
+            "The circle should be unchanged");
+    }
+
+    /**
+     * Tests saving circles of different colours, finding one of them by id, finding all
+     * circles and finding circles by colour using the non-blocking repository operations.
+     * Expected result:
+     * All circles should have been assigned an id.
+     * The circle found by id should be identical to the saved one.
+     * All circles should be found and only the blue circle should be found when finding by colour.
+     */
+    @Test
+    public void asyncOperationsTest() {
+        /* Create and save circles of different colour without blocking. */
+        final List<CompletableFuture<Circle>> theSaveFutures = new ArrayList<>();
+        for (String theColour : COLOURS) {
+            final Circle theCircle = createCircle();
+            theCircle.setColour(theColour);
+            theSaveFutures.add(mCirclesRepository.saveAsync(theCircle));
+        }
+        final List<Circle> theSavedCircles = theSaveFutures
+            .stream()
+            .map(CompletableFuture::join)
+            .collect(Collectors.toList());
+        theSavedCircles.forEach(theCircle -> Assertions.assertNotNull(theCircle.getId(), "Id should have been set"));
+
+        /* Find one of the circles by id. */
+        final Circle theExpectedCircle = theSavedCircles.get(0);
+        final Optional<Circle> theFoundCircle = mCirclesRepository.findByIdAsync(theExpectedCircle.getId()).join();
+        Assertions.assertEquals(Optional.of(theExpectedCircle), theFoundCircle, "Circle should have been found");
+
+        /* Find all circles. */
+        final List<Circle> theAllCircles = new CopyOnWriteArrayList<>();
+        mCirclesRepository.findAllAsync().subscribe(theAllCircles::add).join();
+        Assertions.assertEquals(COLOURS.length, theAllCircles.size(), "All circles should have been found");
+
+        /* Find the blue circles. */
+        final List<Circle> theBlueCircles = new CopyOnWriteArrayList<>();
+        mCirclesRepository.findCirclesByColourAsync(CIRCLE_COLOUR).subscribe(theBlueCircles::add).join();
+        Assertions.assertEquals(1, theBlueCircles.size(), "Only one circle should have a matching colour");
+        Assertions.assertEquals(
+            CIRCLE_COLOUR,
+            theBlueCircles.get(0).getColour(),
+            "The colour of the found circle should be blue");
+    }
+
+    /**
+     * Tests finding a circle by id repeatedly, modifying it and deleting it.
+     * Expected result:
+     * Only the first of the repeated retrievals of the circle should read the circle
+     * from the database, the others should be served by the entity cache.
+     * After having been modified, the modified circle should be retrieved.
+     * After having been deleted, the circle should no longer be found.
+     */
+    @Test
+    public void findCircleByIdCachedTest() {
+        /* Create and persist a circle. */
+        final Circle thePersistedCircle = mCirclesRepository.save(createCircle());
+        final String theCircleId = thePersistedCircle.getId();
+        final CacheStats theInitialStatistics = mCirclesRepository.cacheStatistics();
+
+        /* Find the circle by id a number of times. */
+        for (int i = 0; i < 5; i++) {
+            final Optional<Circle> theFoundCircle = mCirclesRepository.findById(theCircleId);
+            Assertions.assertEquals(Optional.of(thePersistedCircle), theFoundCircle, "Circle should be found");
+        }
+
+        /* Verify that only the first retrieval missed the cache. */
+        final CacheStats theStatistics = mCirclesRepository.cacheStatistics().minus(theInitialStatistics);
+        Assertions.assertEquals(1, theStatistics.missCount(), "Only the first retrieval should miss the cache");
+        Assertions.assertEquals(4, theStatistics.hitCount(), "The other retrievals should hit the cache");
+
+        /* Modify the circle and verify that the modified circle is found. */
+        final Circle theModifiedCircle = createCircle();
+        theModifiedCircle.setId(theCircleId);
+        theModifiedCircle.setVersion(thePersistedCircle.getVersion());
+        theModifiedCircle.setRadius(CIRCLE_RADIUS * 2);
+        mCirclesRepository.save(theModifiedCircle);
+        Assertions.assertEquals(
+            CIRCLE_RADIUS * 2,
+            mCirclesRepository.findById(theCircleId).map(Circle::getRadius).orElse(0),
+            "The modified circle should be found");
+
+        /* Delete the circle and verify that it no longer exists. */
+        mCirclesRepository.deleteById(theCircleId);
+        Assertions.assertFalse(mCirclesRepository.existsById(theCircleId), "Circle should have been deleted");
+    }
+
+    /**
+     * Tests modifying a cached circle that has been modified in the database since it was cached
+     * and saving it, which fails.
+     * Expected result:
+     * Each retrieval of the circle should yield a new circle instance.
+     * The save should fail with an optimistic locking failure and subsequent retrievals should
+     * yield the circle as it is in the database, not the modified circle.
+     */
+    @Test
+    public void failedSaveOfCachedCircleTest() {
+        /* Create and persist a circle and find it, so that it is cached. */
+        final Circle thePersistedCircle = mCirclesRepository.save(createCircle());
+        final String theCircleId = thePersistedCircle.getId();
+        final Circle theFoundCircle = mCirclesRepository.findById(theCircleId).orElseThrow();
+        Assertions.assertNotSame(theFoundCircle, mCirclesRepository.findById(theCircleId).orElseThrow(),
+            "Each retrieval should yield a new circle instance");
+
+        /* Modify the circle in the database without going through the repository. */
+        mDynamoDBMapper.save(mCirclesRepository.findById(theCircleId).orElseThrow());
+
+        /* Modify the found circle and try to save it. */
+        theFoundCircle.setRadius(CIRCLE_RADIUS * 2);
+        Assertions.assertThrows(OptimisticLockingFailureException.class,
+            () -> mCirclesRepository.save(theFoundCircle),
+            "Saving the circle should fail since it has been modified in the database");
+
+        /* Verify that the circle as it is in the database is found. */
+        Assertions.assertEquals(
+            CIRCLE_RADIUS,
+            mCirclesRepository.findById(theCircleId).map(Circle::getRadius).orElse(0),
+            "The circle as it is in the database should be found");
+    }
+
+    /**
+     * Tests finding many circles by id, supplying some ids twice and one id of a circle that does not exist.
+     * Expected result:
+     * Each existing circle should be found once, in the order in which its id was first supplied.
+     * The found circles should be identical to the persisted ones.
+     */
+    @Test
+    public void findAllCirclesByIdTest() {
+        /* Create and persist the circles. */
+        final List<Circle> theOriginalCircles = new ArrayList<>();
+        for (int i = 1; i < MANY_CIRCLES_COUNT + 1; i++) {
+            final Circle theOriginalCircle = createCircle();
+            theOriginalCircle.setRadius(i);
+            theOriginalCircles.add(theOriginalCircle);
+        }
+        final List<Circle> thePersistedCircles = IterableUtils.toList(mCirclesRepository.saveAll(theOriginalCircles));
+
+        /* Find one circle by id so that it is cached. */
+        mCirclesRepository.findById(thePersistedCircles.get(0).getId());
+
+        /* Find all circles by id, supplying duplicate ids and the id of a circle that does not exist. */
+        final List<String> theIds = thePersistedCircles
+            .stream()
+            .map(Circle::getId)
+            .collect(Collectors.toList());
+        final List<String> theRequestedIds = new ArrayList<>(theIds);
+        theRequestedIds.addAll(theIds.subList(0, 10));
+        theRequestedIds.add("no-such-circle");
+        final List<Circle> theFoundCircles = mCirclesRepository.findAllById(theRequestedIds);
+
+        /* Verify the found circles. */
+        Assertions.assertEquals(thePersistedCircles, theFoundCircles,
+            "Each persisted circle should be found once, in the order of the supplied ids");
+    }
+
+    /**
+     * Tests that metrics are recorded for requests issued by the DynamoDB client.
+     * Expected result:
+     * The latency of the request saving a circle and the capacity it consumed should have been
+     * recorded, tagged with the circles table and the operation used to save the circle.
+     */
+    @Test
+    public void clientMetricsTest() {
+        /* Save a circle, which the DynamoDB mapper does using an UpdateItem request. */
+        mCirclesRepository.save(createCircle());
+
+        /* Verify the metrics recorded for the circles table. */
+        final String theCirclesTableName =
+            mDynamoDBMapper.generateCreateTableRequest(Circle.class).getTableName();
+        final Timer theUpdateItemTimer = mMeterRegistry
+            .get(DynamoDBMetricsRequestHandler.REQUESTS_METER_NAME)
+            .tags("table", theCirclesTableName, "operation", "UpdateItem")
+            .timer();
+        Assertions.assertTrue(theUpdateItemTimer.count() > 0, "Latency of saving circles should have been recorded");
+        Assertions.assertTrue(
+            mMeterRegistry
+                .get(DynamoDBMetricsRequestHandler.CONSUMED_CAPACITY_METER_NAME)
+                .tags("table", theCirclesTableName, "operation", "UpdateItem")
+                .summary()
+                .totalAmount() > 0,
+            "Capacity consumed saving circles should have been recorded");
+    }
+
+    /**
+     * Tests that the table in which circles are persisted has a global secondary index
+     * on the colour of circles, which allows circles to be found by colour using queries.
+     * Expected result:
+     * The circles table should have a colour index projecting all attributes, with the
+     * colour attribute as hash key.
+     */
+    @Test
+    public void colourIndexProvisionedTest() {
+        /* Describe the circles table. */
+        final String theCirclesTableName =
+            mDynamoDBMapper.generateCreateTableRequest(Circle.class).getTableName();
+        final List<GlobalSecondaryIndexDescription> theIndexes = mAmazonDynamoDB
+            .describeTable(theCirclesTableName)
+            .getTable()
+            .getGlobalSecondaryIndexes();
+
+        /* Verify the colour index. */
+        Assertions.assertNotNull(theIndexes, "The circles table should have global secondary indexes");
+        final GlobalSecondaryIndexDescription theColourIndex = theIndexes
+            .stream()
+            .filter(theIndex -> Shape.COLOUR_INDEX_NAME.equals(theIndex.getIndexName()))
+            .findFirst()
+            .orElse(null);
+        Assertions.assertNotNull(theColourIndex, "The circles table should have a colour index");
+        Assertions.assertEquals(
+            "colour",
+            theColourIndex.getKeySchema().get(0).getAttributeName(),
+            "The colour index hash key should be the colour attribute");
+        Assertions.assertEquals(
+            ProjectionType.ALL.toString(),
+            theColourIndex.getProjection().getProjectionType(),
+            "All attributes should be projected into the colour index");
+    }
+
     /**
      * Creates a DynamoDB table for the supplied entity type.
      * Not currently used, but included as an example showing how to create a DynamoDB
@@ -243,13 +874,20 @@ class DynamoDBPersistenceTests {
             theCreateTableRequest.setProvisionedThroughput(
                 theEntityTableProvisionedThroughput);
 
-            /* Set provisioned throughput for global secondary indexes, if any. */
+            /*
+             * Set provisioned throughput and projection for global secondary indexes, if any.
+             * All attributes are projected into the indexes so that entities found using
+             * an index are complete.
+             */
             final List<GlobalSecondaryIndex> theEntityTableGlobalSecondaryIndexes =
                 theCreateTableRequest.getGlobalSecondaryIndexes();
             if (theEntityTableGlobalSecondaryIndexes != null && theEntityTableGlobalSecondaryIndexes.size() > 0) {
                 theCreateTableRequest
                     .getGlobalSecondaryIndexes()
-                    .forEach(v -> v.setProvisionedThroughput(theEntityTableProvisionedThroughput));
+                    .forEach(v -> {
+                        v.setProvisionedThroughput(theEntityTableProvisionedThroughput);
+                        v.setProjection(new Projection().withProjectionType(ProjectionType.ALL));
+                    });
             }
 
             /* Create table in which to persist entities. */
@@ -275,6 +913,22 @@ class DynamoDBPersistenceTests {
         return theRectangle;
     }
 
+    /**
+     * Retrieves the total number of items scanned by invocations of the supplied method of
+     * the shapes repository.
+     *
+     * @param inMethodName Name of repository method.
+     * @return Number of items scanned, zero if the method has not been invoked.
+     */
+    protected double scannedItems(final String inMethodName) {
+        final DistributionSummary theSummary = mMeterRegistry
+            .find(RepositoryMethodMonitor.ITEMS_SCANNED_METER_NAME)
+            .tags(RepositoryMethodMonitor.REPOSITORY_TAG, ShapesRepository.class.getSimpleName(),
+                RepositoryMethodMonitor.METHOD_TAG, inMethodName)
+            .summary();
+        return theSummary != null ? theSummary.totalAmount() : 0.0;
+    }
+
     /**
      * Create a new circle setting its properties.
      *
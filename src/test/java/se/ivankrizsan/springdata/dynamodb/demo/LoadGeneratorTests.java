@@ -0,0 +1,146 @@
+package se.ivankrizsan.springdata.dynamodb.demo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+import se.ivankrizsan.springdata.dynamodb.repositories.RectanglesRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the load generator generating load on the shape repositories.
+ *
+ * @author Ivan Krizsan
+ */
+class LoadGeneratorTests {
+    /* Constant(s): */
+    protected final static int ITEM_COUNT = 100;
+
+    /* Instance variable(s): */
+    protected CirclesRepository mCirclesRepository;
+    protected RectanglesRepository mRectanglesRepository;
+
+    /**
+     * Creates mock repositories before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mCirclesRepository = Mockito.mock(CirclesRepository.class);
+        mRectanglesRepository = Mockito.mock(RectanglesRepository.class);
+    }
+
+    /**
+     * Tests parsing an operation mix.
+     * Expected result:
+     * Operation names should be case-insensitive and whitespace should be ignored.
+     */
+    @Test
+    public void parseOperationMixTest() {
+        final Map<LoadGenerator.Operation, Integer> theOperationMix =
+            LoadGenerator.parseOperationMix("save:10, FIND_BY_ID : 90");
+
+        Assertions.assertEquals(
+            Map.of(LoadGenerator.Operation.SAVE, 10, LoadGenerator.Operation.FIND_BY_ID, 90),
+            theOperationMix,
+            "The operation mix should contain the weights of the listed operations");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> LoadGenerator.parseOperationMix("SAVE:10,DROP_TABLE:1"),
+            "Unknown operations should be rejected");
+    }
+
+    /**
+     * Tests generating load at a target rate with an operation mix.
+     * Expected result:
+     * The number of operations started should be the target rate multiplied by the duration.
+     * Only operations in the operation mix should be executed and measured, and failing operations
+     * should be counted as errors. Saves should only address the preloaded shapes.
+     */
+    @Test
+    public void operationMixTest() {
+        Mockito
+            .when(mCirclesRepository.save(Mockito.any(Circle.class)))
+            .thenThrow(new IllegalStateException("Simulated failure"));
+        final LoadGenerator theLoadGenerator = new LoadGenerator(
+            mCirclesRepository,
+            mRectanglesRepository,
+            LoadGenerator.parseOperationMix("SAVE:1,FIND_BY_ID:3"),
+            4,
+            2000.0,
+            ITEM_COUNT,
+            0.99,
+            0L,
+            500L);
+
+        final Map<LoadGenerator.Operation, LoadGenerator.OperationStatistics> theStatistics = theLoadGenerator.run();
+
+        Assertions.assertEquals(
+            Set.of(LoadGenerator.Operation.SAVE, LoadGenerator.Operation.FIND_BY_ID),
+            theStatistics.keySet(),
+            "Only operations in the mix should be measured");
+        final long theSaveCount = theStatistics.get(LoadGenerator.Operation.SAVE).getResponseTimes().count();
+        final long theFindCount = theStatistics.get(LoadGenerator.Operation.FIND_BY_ID).getResponseTimes().count();
+        Assertions.assertEquals(1000L, theSaveCount + theFindCount,
+            "The target rate multiplied by the duration operations should be started");
+        Assertions.assertTrue(theFindCount > theSaveCount, "Finding by id should be the most frequent operation");
+        Assertions.assertTrue(theStatistics.get(LoadGenerator.Operation.SAVE).getErrors() > 0,
+            "Failed saves of circles should be counted");
+        Assertions.assertEquals(0L, theStatistics.get(LoadGenerator.Operation.FIND_BY_ID).getErrors(),
+            "No finds should fail");
+        Mockito.verify(mCirclesRepository, Mockito.never()).findAll();
+        Mockito.verify(mCirclesRepository, Mockito.atLeastOnce()).save(Mockito.any(Circle.class));
+        Mockito.verify(mCirclesRepository, Mockito.never()).save(Mockito.argThat((Circle theCircle) ->
+            !theCircle.getId().matches("load-circle-\\d+")));
+        Assertions.assertFalse(
+            LoadGenerator.formatReport(theStatistics, 500L).contains(LoadGenerator.Operation.FIND_ALL.name()),
+            "Operations not in the mix should not be reported");
+    }
+
+    /**
+     * Tests generating load at a target rate that the repositories cannot sustain.
+     * Expected result:
+     * Operations delayed by slow preceding operations should have response times including the delay,
+     * so the response times should be much longer than the service times.
+     */
+    @Test
+    public void coordinatedOmissionCorrectedTest() {
+        Mockito
+            .when(mCirclesRepository.findById(Mockito.anyString()))
+            .thenAnswer(theInvocation -> {
+                Thread.sleep(50L);
+                return Optional.empty();
+            });
+        Mockito
+            .when(mRectanglesRepository.findById(Mockito.anyString()))
+            .thenAnswer(theInvocation -> {
+                Thread.sleep(50L);
+                return Optional.empty();
+            });
+        final LoadGenerator theLoadGenerator = new LoadGenerator(
+            mCirclesRepository,
+            mRectanglesRepository,
+            LoadGenerator.parseOperationMix("FIND_BY_ID:1"),
+            1,
+            100.0,
+            ITEM_COUNT,
+            0.0,
+            0L,
+            200L);
+
+        final LoadGenerator.OperationStatistics theStatistics =
+            theLoadGenerator.run().get(LoadGenerator.Operation.FIND_BY_ID);
+
+        Assertions.assertEquals(20L, theStatistics.getResponseTimes().count(), "All operations should be measured");
+        Assertions.assertTrue(
+            theStatistics.getResponseTimes().max() >= TimeUnit.MILLISECONDS.toNanos(500L),
+            "The last operation should have waited for the preceding slow operations");
+        Assertions.assertTrue(
+            theStatistics.getServiceTimes().valueAtPercentile(50.0) < TimeUnit.MILLISECONDS.toNanos(500L),
+            "The service times should not include the waiting");
+    }
+}
@@ -1,95 +1,81 @@
 package se.ivankrizsan.springdata.dynamodb.demo;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.testcontainers.containers.GenericContainer;
-import org.testcontainers.containers.wait.strategy.HostPortWaitStrategy;
-import org.testcontainers.utility.DockerImageName;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBMetricsRequestHandler;
+import se.ivankrizsan.springdata.dynamodb.support.InMemoryAmazonDynamoDB;
+import se.ivankrizsan.springdata.dynamodb.support.InMemoryDynamoDbAsyncClient;
+import se.ivankrizsan.springdata.dynamodb.support.RepositoryMethodMonitor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 /**
  * Persistence configuration used by tests.
+ * Replaces the DynamoDB clients with clients of an in-memory DynamoDB stand-in, so that
+ * tests neither require a DynamoDB instance nor a Docker daemon.
  *
  * @author Ivan Krizsan
  */
 @Configuration
 public class PersistenceTestConfiguration {
     /* Constant(s): */
-    private static final Logger LOGGER =
-        LoggerFactory.getLogger(PersistenceTestConfiguration.class);
-    protected final static int DYNAMODB_PORT = 8000;
-
-    /* Dependencies: */
-
 
     /**
-     * Creates a local DynamoDB instance running in a Docker container.
-     * Ensures that the container is started before bean creation completes, in
-     * order to be able to obtain the host port on which the DynamoDB instance is available.
+     * Creates a meter registry in which metrics recorded during tests are kept in memory.
      *
-     * @return DynamoDB Testcontainers container.
+     * @return Meter registry bean.
      */
     @Bean
-    public GenericContainer dynamoDBContainer() {
-        final GenericContainer theDynamoDBContainer =
-            new GenericContainer(DockerImageName.parse("amazon/dynamodb-local:latest"))
-                .withExposedPorts(DYNAMODB_PORT);
-        theDynamoDBContainer.waitingFor(new HostPortWaitStrategy());
-        theDynamoDBContainer.start();
-        return theDynamoDBContainer;
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
     }
 
     /**
-     * Creates a DynamoDB client bean for the DynamoDB instance running in the supplied
-     * container with the supplied credentials.
+     * Creates a DynamoDB client bean for an in-memory DynamoDB stand-in.
      * Must be named "amazonDynamoDB", otherwise Spring Data DynamoDB initialization will fail.
      *
-     * @param inDynamoDBCredentials DynamoDB credentials.
-     * @param inDynamoDBContainer DynamoDB Testcontainers container.
+     * @param inMetricsRequestHandler Request handler recording metrics of DynamoDB requests.
+     * @param inRepositoryMethodMonitor Monitor attributing requests to repository methods.
      * @return DynamoDB client bean.
      */
     @Bean(destroyMethod = "shutdown")
-    public AmazonDynamoDB amazonDynamoDB(
-        final AWSCredentials inDynamoDBCredentials,
-        @Qualifier("dynamoDBContainer") final GenericContainer inDynamoDBContainer) {
-
-        /* Construct the DynamoDB instance URL pointing at the Testcontainers container. */
-        final String theDynamoDbEndpoint = "http://"
-            + inDynamoDBContainer.getHost()
-            + ":"
-            + inDynamoDBContainer.getMappedPort(DYNAMODB_PORT);
-
-        LOGGER.info("DynamoDB endpoint URL: {}", theDynamoDbEndpoint);
-
-        final AmazonDynamoDB theDynamoDBClient = AmazonDynamoDBClientBuilder
-            .standard()
-            .withCredentials(new AWSStaticCredentialsProvider(inDynamoDBCredentials))
-            .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
-                theDynamoDbEndpoint,
-                ""))
-            .build();
+    public InMemoryAmazonDynamoDB amazonDynamoDB(
+        final DynamoDBMetricsRequestHandler inMetricsRequestHandler,
+        final RepositoryMethodMonitor inRepositoryMethodMonitor) {
+        return new InMemoryAmazonDynamoDB(inMetricsRequestHandler, inRepositoryMethodMonitor);
+    }
 
-        return theDynamoDBClient;
+    /**
+     * Creates a non-blocking DynamoDB client bean accessing the same in-memory DynamoDB stand-in
+     * as the supplied DynamoDB client.
+     *
+     * @param inAmazonDynamoDB In-memory DynamoDB client.
+     * @return Non-blocking DynamoDB client bean.
+     */
+    @Bean(destroyMethod = "close")
+    public DynamoDbAsyncClient dynamoDbAsyncClient(final InMemoryAmazonDynamoDB inAmazonDynamoDB) {
+        return new InMemoryDynamoDbAsyncClient(inAmazonDynamoDB);
     }
 
     /**
-     * Creates a DynamoDB mapper bean using the supplied DynamoDB client.
+     * Creates a DynamoDB mapper bean using the supplied DynamoDB client and mapper configuration.
+     * The mapper configuration must be used, since it contains the table name prefix that
+     * is also applied by other components accessing the entity tables.
      * Note that the bean name must be dynamoDB-DynamoDBMapper in order to
      * override the DynamoDB mapper bean from Spring Data DynamoDB.
      *
      * @param inDynamoDBClient DynamoDB client to be used by mapper.
+     * @param inDynamoDBMapperConfig DynamoDB mapper configuration.
      * @return DynamoDB mapper bean.
      */
     @Bean(name = "dynamoDB-DynamoDBMapper")
-    public DynamoDBMapper dynamoDBMapper(final AmazonDynamoDB inDynamoDBClient) {
-        return new DynamoDBMapper(inDynamoDBClient);
+    public DynamoDBMapper dynamoDBMapper(
+        final AmazonDynamoDB inDynamoDBClient,
+        final DynamoDBMapperConfig inDynamoDBMapperConfig) {
+        return new DynamoDBMapper(inDynamoDBClient, inDynamoDBMapperConfig);
     }
 }
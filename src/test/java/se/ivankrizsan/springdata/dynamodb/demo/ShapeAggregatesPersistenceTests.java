@@ -0,0 +1,158 @@
+package se.ivankrizsan.springdata.dynamodb.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.repositories.CirclesRepository;
+
+import java.util.List;
+
+/**
+ * Tests of the maintenance of shape aggregates as shapes are saved and deleted using
+ * the repository operations.
+ *
+ * @author Ivan Krizsan
+ */
+@SpringBootTest(classes = {
+    PersistenceConfiguration.class,
+    PersistenceTestConfiguration.class
+})
+@TestPropertySource(
+    locations = "classpath:/application.properties",
+    properties = "amazon.dynamodb.aggregates.enabled=true")
+class ShapeAggregatesPersistenceTests {
+    /* Constant(s): */
+    protected final static String RED = "red";
+    protected final static String BLUE = "blue";
+    protected final static double AREA_DELTA = 1e-9;
+
+    /* Instance variable(s): */
+    @Autowired
+    protected CirclesRepository mCirclesRepository;
+
+    /**
+     * Cleans up after each test by deleting all circles, which also empties the aggregates.
+     */
+    @AfterEach
+    public void cleanup() {
+        mCirclesRepository.deleteAll();
+    }
+
+    /**
+     * Tests saving a new circle and saving it again with a new colour and radius.
+     * Expected result:
+     * The aggregates should count the circle once, with its last saved colour and area.
+     */
+    @Test
+    public void saveTest() {
+        final Circle theCircle = mCirclesRepository.save(createCircle(RED, 2));
+        assertAggregates(1, 0, 1, circleArea(2));
+
+        theCircle.setColour(BLUE);
+        theCircle.setRadius(3);
+        mCirclesRepository.save(theCircle);
+        assertAggregates(0, 1, 1, circleArea(3));
+    }
+
+    /**
+     * Tests saving a number of circles, some of them new and some of them already saved.
+     * Expected result:
+     * Each circle should be counted once, with its last saved colour and area, regardless of
+     * whether it already existed.
+     */
+    @Test
+    public void saveAllTest() {
+        final Circle theSavedCircle = mCirclesRepository.save(createCircle(RED, 1));
+        theSavedCircle.setColour(BLUE);
+
+        mCirclesRepository.saveAll(List.of(theSavedCircle, createCircle(RED, 2), createCircle(BLUE, 3)));
+        assertAggregates(1, 2, 3, circleArea(1) + circleArea(2) + circleArea(3));
+    }
+
+    /**
+     * Tests deleting a circle.
+     * Expected result:
+     * The deleted circle should be removed from the aggregates.
+     */
+    @Test
+    public void deleteTest() {
+        final Circle theRedCircle = mCirclesRepository.save(createCircle(RED, 2));
+        mCirclesRepository.save(createCircle(BLUE, 3));
+
+        mCirclesRepository.delete(theRedCircle);
+        assertAggregates(0, 1, 1, circleArea(3));
+    }
+
+    /**
+     * Tests deleting a number of circles of which one has already been deleted and one has
+     * been modified since it was read.
+     * Expected result:
+     * The already deleted circle should not be removed from the aggregates a second time and
+     * the modified circle should be removed in its stored state, not in its state when read.
+     */
+    @Test
+    public void deleteAllTest() {
+        final Circle theDeletedCircle = mCirclesRepository.save(createCircle(RED, 1));
+        final Circle theModifiedCircle = mCirclesRepository.save(createCircle(RED, 2));
+        final Circle theStaleCircle = mCirclesRepository.findById(theModifiedCircle.getId()).get();
+        final Circle theKeptCircle = mCirclesRepository.save(createCircle(BLUE, 3));
+        mCirclesRepository.delete(theDeletedCircle);
+        theModifiedCircle.setColour(BLUE);
+        theModifiedCircle.setRadius(4);
+        mCirclesRepository.save(theModifiedCircle);
+
+        mCirclesRepository.deleteAll(List.of(theDeletedCircle, theStaleCircle));
+        assertAggregates(0, 1, 1, circleArea(3));
+        Assertions.assertTrue(
+            mCirclesRepository.findById(theKeptCircle.getId()).isPresent(),
+            "The circle not deleted should be kept");
+    }
+
+    /**
+     * Verifies the aggregates of the circles.
+     *
+     * @param inExpectedRedCount Expected number of red circles.
+     * @param inExpectedBlueCount Expected number of blue circles.
+     * @param inExpectedCount Expected number of circles.
+     * @param inExpectedAreaSum Expected sum of the areas of all circles.
+     */
+    protected void assertAggregates(
+        final long inExpectedRedCount,
+        final long inExpectedBlueCount,
+        final long inExpectedCount,
+        final double inExpectedAreaSum) {
+        Assertions.assertEquals(inExpectedRedCount, mCirclesRepository.countByColour(RED), "Red circle count");
+        Assertions.assertEquals(inExpectedBlueCount, mCirclesRepository.countByColour(BLUE), "Blue circle count");
+        Assertions.assertEquals(inExpectedCount, mCirclesRepository.count(), "Circle count");
+        Assertions.assertEquals(inExpectedAreaSum, mCirclesRepository.areaSum(), AREA_DELTA, "Circle area sum");
+    }
+
+    /**
+     * Computes the area of a circle with the supplied radius.
+     *
+     * @param inRadius Circle radius.
+     * @return Circle area.
+     */
+    protected static double circleArea(final int inRadius) {
+        return Math.PI * inRadius * inRadius;
+    }
+
+    /**
+     * Create a new circle with the supplied colour and radius.
+     *
+     * @param inColour Circle colour.
+     * @param inRadius Circle radius.
+     * @return A new circle.
+     */
+    protected static Circle createCircle(final String inColour, final int inRadius) {
+        final Circle theCircle = new Circle();
+        theCircle.setRadius(inRadius);
+        theCircle.setPosition(12, 14);
+        theCircle.setColour(inColour);
+        return theCircle;
+    }
+}
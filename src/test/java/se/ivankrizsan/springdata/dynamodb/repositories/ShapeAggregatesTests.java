@@ -0,0 +1,126 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeAggregate;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.CircleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.RectangleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.CompiledItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBSchemaManager;
+import se.ivankrizsan.springdata.dynamodb.support.InMemoryAmazonDynamoDB;
+import se.ivankrizsan.springdata.dynamodb.support.MapperItemConverter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests of the aggregates of shapes that are maintained as shapes are written.
+ *
+ * @author Ivan Krizsan
+ */
+class ShapeAggregatesTests {
+    /* Constant(s): */
+    protected final static int SHARDS = 4;
+    protected final static double AREA_DELTA = 1e-9;
+
+    /* Instance variable(s): */
+    protected InMemoryAmazonDynamoDB mAmazonDynamoDB;
+    protected ShapeAggregates mShapeAggregates;
+
+    /**
+     * Creates shape aggregates stored in an in-memory DynamoDB before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = new InMemoryAmazonDynamoDB();
+        final DynamoDBMapperConfig theDynamoDBMapperConfig = DynamoDBMapperConfig.DEFAULT;
+        final DynamoDBMapper theDynamoDBMapper = new DynamoDBMapper(mAmazonDynamoDB, theDynamoDBMapperConfig);
+        new DynamoDBSchemaManager(mAmazonDynamoDB, theDynamoDBMapper, BillingMode.PAY_PER_REQUEST, 0L, 0L, 10000, 10)
+            .createTablesIfNotExist(List.of(ShapeAggregate.class));
+        mShapeAggregates = new ShapeAggregates(
+            mAmazonDynamoDB,
+            new CompiledItemConverter(
+                new MapperItemConverter(theDynamoDBMapper, theDynamoDBMapperConfig),
+                List.of(new CircleMarshaller(), new RectangleMarshaller())),
+            SHARDS);
+    }
+
+    /**
+     * Tests creating, recolouring and deleting circles.
+     * Expected result:
+     * The aggregates of all circles and of the circles of each colour should reflect the
+     * circles that remain, with their current colours.
+     * The aggregates of rectangles should be unaffected.
+     */
+    @Test
+    public void recordChangesTest() {
+        final Circle theBlueCircle = createCircle("circle-1", "blue", 1);
+        final Circle theRedCircle = createCircle("circle-2", "red", 2);
+        final Circle theGreenCircle = createCircle("circle-3", "green", 3);
+        mShapeAggregates.recordChanges(
+            Circle.class, Collections.emptyList(), List.of(theBlueCircle, theRedCircle, theGreenCircle));
+
+        final Circle theRecolouredCircle = createCircle("circle-1", "red", 1);
+        mShapeAggregates.recordChange(Circle.class, theBlueCircle, theRecolouredCircle);
+        mShapeAggregates.recordChange(Circle.class, theGreenCircle, null);
+
+        final ShapeAggregate theAllCircles = mShapeAggregates.all(Circle.class);
+        Assertions.assertEquals(2, theAllCircles.getCount(), "Two circles should remain");
+        Assertions.assertEquals(
+            theRecolouredCircle.area() + theRedCircle.area(),
+            theAllCircles.getAreaSum(),
+            AREA_DELTA,
+            "The areas of the remaining circles should be summed");
+        Assertions.assertEquals(2, mShapeAggregates.colour(Circle.class, "red").getCount(),
+            "Both remaining circles should be red");
+        Assertions.assertEquals(0, mShapeAggregates.colour(Circle.class, "blue").getCount(),
+            "No circle should be blue");
+        Assertions.assertEquals(0, mShapeAggregates.colour(Circle.class, "green").getCount(),
+            "No circle should be green");
+        Assertions.assertEquals(0, mShapeAggregates.all(Rectangle.class).getCount(),
+            "Rectangles should not be affected");
+    }
+
+    /**
+     * Tests rebuilding the aggregates of circles that have drifted from the circles.
+     * Expected result:
+     * The aggregates should reflect only the supplied circles.
+     */
+    @Test
+    public void rebuildTest() {
+        for (int i = 0; i < SHARDS * 3; i++) {
+            mShapeAggregates.recordChange(Circle.class, null, createCircle("circle-" + i, "blue", 1));
+        }
+        final Circle theCircle = createCircle("circle-1", "red", 5);
+
+        mShapeAggregates.rebuild(Circle.class, List.of(theCircle));
+
+        Assertions.assertEquals(1, mShapeAggregates.all(Circle.class).getCount(), "One circle should be counted");
+        Assertions.assertEquals(0, mShapeAggregates.colour(Circle.class, "blue").getCount(),
+            "The drifted aggregate should be discarded");
+        Assertions.assertEquals(theCircle.area(), mShapeAggregates.colour(Circle.class, "red").getAreaSum(),
+            AREA_DELTA, "The area of the circle should be summed");
+    }
+
+    /**
+     * Creates a circle with the supplied id, colour and radius.
+     *
+     * @param inId Circle id.
+     * @param inColour Circle colour.
+     * @param inRadius Circle radius.
+     * @return New circle.
+     */
+    protected static Circle createCircle(final String inId, final String inColour, final int inRadius) {
+        final Circle theCircle = new Circle();
+        theCircle.setId(inId);
+        theCircle.setColour(inColour);
+        theCircle.setRadius(inRadius);
+        return theCircle;
+    }
+}
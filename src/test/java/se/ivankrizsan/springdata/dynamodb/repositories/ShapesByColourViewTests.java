@@ -0,0 +1,145 @@
+package se.ivankrizsan.springdata.dynamodb.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeByColour;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.CircleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.RectangleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.support.CompiledItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.DynamoDBSchemaManager;
+import se.ivankrizsan.springdata.dynamodb.support.InMemoryAmazonDynamoDB;
+import se.ivankrizsan.springdata.dynamodb.support.ItemConverter;
+import se.ivankrizsan.springdata.dynamodb.support.MapperItemConverter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the view of shapes grouped by colour that is maintained from the streams of the shape tables.
+ *
+ * @author Ivan Krizsan
+ */
+class ShapesByColourViewTests {
+    /* Constant(s): */
+    protected final static double AREA_DELTA = 1e-9;
+
+    /* Instance variable(s): */
+    protected ItemConverter mItemConverter;
+    protected ShapesByColourView mShapesByColourView;
+    protected long mSequenceNumber;
+
+    /**
+     * Creates a view stored in an in-memory DynamoDB before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        final InMemoryAmazonDynamoDB theAmazonDynamoDB = new InMemoryAmazonDynamoDB();
+        final DynamoDBMapperConfig theDynamoDBMapperConfig = DynamoDBMapperConfig.DEFAULT;
+        final DynamoDBMapper theDynamoDBMapper = new DynamoDBMapper(theAmazonDynamoDB, theDynamoDBMapperConfig);
+        new DynamoDBSchemaManager(theAmazonDynamoDB, theDynamoDBMapper, BillingMode.PAY_PER_REQUEST, 0L, 0L, 10000, 10)
+            .createTablesIfNotExist(List.of(ShapeByColour.class));
+        mItemConverter = new CompiledItemConverter(
+            new MapperItemConverter(theDynamoDBMapper, theDynamoDBMapperConfig),
+            List.of(new CircleMarshaller(), new RectangleMarshaller()));
+        mShapesByColourView = new ShapesByColourView(theAmazonDynamoDB, mItemConverter);
+    }
+
+    /**
+     * Tests handling the creation, recolouring and deletion of circles.
+     * Expected result:
+     * The view should contain one entry per remaining circle, in the group of its current colour.
+     */
+    @Test
+    public void applyChangesTest() {
+        final Circle theBlueCircle = createCircle("circle-1", "blue", 1);
+        final Circle theRedCircle = createCircle("circle-2", "red", 2);
+        final Circle theRecolouredCircle = createCircle("circle-1", "red", 3);
+        final Circle theGreenCircle = createCircle("circle-3", "green", 4);
+
+        mShapesByColourView.handler(Circle.class).handleChanges("circles", List.of(
+            record(OperationType.INSERT, null, theBlueCircle),
+            record(OperationType.INSERT, null, theRedCircle),
+            record(OperationType.MODIFY, theBlueCircle, theRecolouredCircle),
+            record(OperationType.REMOVE, theRedCircle, null)));
+        mShapesByColourView.handler(Circle.class).handleChanges("circles", List.of(
+            record(OperationType.INSERT, null, theGreenCircle)));
+
+        Assertions.assertTrue(mShapesByColourView.findByColour("blue").isEmpty(),
+            "The recoloured circle should have been removed from its old colour");
+        final List<ShapeByColour> theRedEntries = mShapesByColourView.findByColour("red");
+        Assertions.assertEquals(1, theRedEntries.size(), "Only the recoloured circle should be red");
+        Assertions.assertEquals(ShapesByColourView.shapeKey(Circle.class, "circle-1"),
+            theRedEntries.get(0).getShapeKey(), "The entry should identify the recoloured circle");
+        Assertions.assertEquals(theRecolouredCircle.area(), theRedEntries.get(0).getArea(), AREA_DELTA,
+            "The entry should contain the area of the recoloured circle");
+        Assertions.assertEquals(1, mShapesByColourView.findByColour("green").size(),
+            "The green circle should be in the view");
+    }
+
+    /**
+     * Tests handling the same changes twice, as happens when changes are delivered again.
+     * Expected result:
+     * The view should be the same as if the changes had been handled once.
+     */
+    @Test
+    public void redeliveredChangesTest() {
+        final Circle theBlueCircle = createCircle("circle-1", "blue", 1);
+        final Circle theRecolouredCircle = createCircle("circle-1", "red", 1);
+        final List<Record> theRecords = List.of(
+            record(OperationType.INSERT, null, theBlueCircle),
+            record(OperationType.MODIFY, theBlueCircle, theRecolouredCircle));
+
+        mShapesByColourView.applyChanges(Circle.class, theRecords);
+        mShapesByColourView.applyChanges(Circle.class, theRecords);
+
+        Assertions.assertTrue(mShapesByColourView.findByColour("blue").isEmpty(), "No circle should be blue");
+        Assertions.assertEquals(1, mShapesByColourView.findByColour("red").size(), "One circle should be red");
+    }
+
+    /**
+     * Creates a stream record describing a change of a circle.
+     *
+     * @param inOperationType Type of change.
+     * @param inOldCircle Circle before the change, null if the circle was created.
+     * @param inNewCircle Circle after the change, null if the circle was deleted.
+     * @return Stream record containing new and old images.
+     */
+    protected Record record(final OperationType inOperationType, final Circle inOldCircle, final Circle inNewCircle) {
+        final String theId = inOldCircle != null ? inOldCircle.getId() : inNewCircle.getId();
+        final StreamRecord theStreamRecord = new StreamRecord()
+            .withKeys(Map.of("id", new AttributeValue(theId)))
+            .withSequenceNumber(Long.toString(++mSequenceNumber));
+        if (inOldCircle != null) {
+            theStreamRecord.withOldImage(mItemConverter.toItem(inOldCircle));
+        }
+        if (inNewCircle != null) {
+            theStreamRecord.withNewImage(mItemConverter.toItem(inNewCircle));
+        }
+        return new Record().withEventName(inOperationType.toString()).withDynamodb(theStreamRecord);
+    }
+
+    /**
+     * Creates a circle with the supplied id, colour and radius.
+     *
+     * @param inId Circle id.
+     * @param inColour Circle colour.
+     * @param inRadius Circle radius.
+     * @return New circle.
+     */
+    protected static Circle createCircle(final String inId, final String inColour, final int inRadius) {
+        final Circle theCircle = new Circle();
+        theCircle.setId(inId);
+        theCircle.setColour(inColour);
+        theCircle.setRadius(inRadius);
+        return theCircle;
+    }
+}
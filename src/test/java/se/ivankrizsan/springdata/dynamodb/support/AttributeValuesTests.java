@@ -0,0 +1,73 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of conversion of attribute values between version 1 and version 2 of the AWS SDK.
+ *
+ * @author Ivan Krizsan
+ */
+class AttributeValuesTests {
+
+    /**
+     * Tests converting an item containing attribute values of all types to version 2
+     * attribute values and back to version 1 attribute values.
+     * Expected result:
+     * The item converted back should be equal to the original item.
+     */
+    @Test
+    public void roundTripTest() {
+        final Map<String, AttributeValue> theOriginalItem = new LinkedHashMap<>();
+        theOriginalItem.put("string", new AttributeValue().withS("blue"));
+        theOriginalItem.put("number", new AttributeValue().withN("42"));
+        theOriginalItem.put("binary", new AttributeValue().withB(bytes("binary")));
+        theOriginalItem.put("stringSet", new AttributeValue().withSS("a", "b"));
+        theOriginalItem.put("numberSet", new AttributeValue().withNS("1", "2"));
+        theOriginalItem.put("binarySet", new AttributeValue().withBS(bytes("x"), bytes("y")));
+        theOriginalItem.put("map", new AttributeValue().withM(Map.of("nested", new AttributeValue().withS("value"))));
+        theOriginalItem.put("list", new AttributeValue().withL(List.of(
+            new AttributeValue().withN("1"),
+            new AttributeValue().withS("two"))));
+        theOriginalItem.put("boolean", new AttributeValue().withBOOL(true));
+        theOriginalItem.put("null", new AttributeValue().withNULL(true));
+
+        final Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> theV2Item =
+            AttributeValues.toV2(theOriginalItem);
+        final Map<String, AttributeValue> theRoundTripItem = AttributeValues.toV1(theV2Item);
+
+        Assertions.assertEquals("blue", theV2Item.get("string").s(), "String attribute should have been converted");
+        Assertions.assertEquals(
+            List.of("1", "2"),
+            theV2Item.get("numberSet").ns(),
+            "Number set attribute should have been converted");
+        Assertions.assertEquals(theOriginalItem, theRoundTripItem, "Round trip item should equal original item");
+    }
+
+    /**
+     * Tests converting a null item.
+     * Expected result:
+     * The result of the conversion should be null.
+     */
+    @Test
+    public void nullItemTest() {
+        Assertions.assertNull(AttributeValues.toV2((Map<String, AttributeValue>) null), "Result should be null");
+    }
+
+    /**
+     * Creates a byte buffer containing the UTF-8 bytes of the supplied string.
+     *
+     * @param inString String which bytes to put in buffer.
+     * @return Byte buffer.
+     */
+    protected ByteBuffer bytes(final String inString) {
+        return ByteBuffer.wrap(inString.getBytes(StandardCharsets.UTF_8));
+    }
+}
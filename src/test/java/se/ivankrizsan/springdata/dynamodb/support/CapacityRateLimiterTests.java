@@ -0,0 +1,164 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the rate limiter that limits background operations to a share of the capacity of tables.
+ *
+ * @author Ivan Krizsan
+ */
+class CapacityRateLimiterTests {
+    /* Constant(s): */
+    protected final static String PROVISIONED_TABLE_NAME = "provisioned";
+    protected final static String ON_DEMAND_TABLE_NAME = "on-demand";
+    protected final static double CAPACITY_SHARE = 0.5;
+    protected final static double ON_DEMAND_CAPACITY_UNITS = 1000;
+    protected final static double RATE_DELTA = 1e-9;
+    protected final static long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Tests the rates of a table with provisioned capacity and of a table with on-demand capacity.
+     * Expected result:
+     * The rates should be the capacity share of the provisioned read and write capacity of the
+     * provisioned table and of the on-demand capacity of the on-demand table.
+     */
+    @Test
+    public void tableRatesTest() {
+        final CapacityRateLimiter theRateLimiter = createRateLimiter();
+
+        Assertions.assertEquals(50.0,
+            theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ), RATE_DELTA,
+            "The read rate should be a share of the provisioned read capacity");
+        Assertions.assertEquals(10.0,
+            theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.WRITE), RATE_DELTA,
+            "The write rate should be a share of the provisioned write capacity");
+        Assertions.assertEquals(500.0,
+            theRateLimiter.rate(ON_DEMAND_TABLE_NAME, CapacityRateLimiter.CapacityType.READ), RATE_DELTA,
+            "The read rate should be a share of the on-demand capacity");
+    }
+
+    /**
+     * Tests observing a throttled scan of a table through the request handler interface.
+     * Expected result:
+     * The read rate of the table should be halved and the write rate should be unaffected.
+     */
+    @Test
+    public void throttledRequestTest() {
+        final CapacityRateLimiter theRateLimiter = createRateLimiter();
+        theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ);
+        theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.WRITE);
+        final ProvisionedThroughputExceededException theException =
+            new ProvisionedThroughputExceededException("Throttled");
+        theException.setErrorCode("ProvisionedThroughputExceededException");
+
+        theRateLimiter.afterAttempt(HandlerAfterAttemptContext
+            .builder()
+            .withRequest(new DefaultRequest<>(new ScanRequest(PROVISIONED_TABLE_NAME), "AmazonDynamoDBv2"))
+            .withException(theException)
+            .build());
+
+        Assertions.assertEquals(25.0,
+            theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ), RATE_DELTA,
+            "The read rate should have been halved");
+        Assertions.assertEquals(10.0,
+            theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.WRITE), RATE_DELTA,
+            "The write rate should be unaffected");
+    }
+
+    /**
+     * Tests adapting the rate of a token bucket to throttling.
+     * Expected result:
+     * The rate should be halved when throttled, but only once for throttling occurring close in time.
+     * The rate should recover by a tenth of the maximum rate per second after a second without
+     * throttling, up to the maximum rate.
+     */
+    @Test
+    public void adaptRateTest() {
+        final long theStartNanos = 0L;
+        final CapacityRateLimiter.TokenBucket theTokenBucket = new CapacityRateLimiter.TokenBucket(100, theStartNanos);
+
+        Assertions.assertTrue(theTokenBucket.throttled(theStartNanos), "The first throttling should decrease the rate");
+        Assertions.assertFalse(theTokenBucket.throttled(theStartNanos + TimeUnit.MILLISECONDS.toNanos(10)),
+            "Throttling close in time should not decrease the rate further");
+        Assertions.assertEquals(50.0, theTokenBucket.mRate, RATE_DELTA, "The rate should have been halved");
+
+        theTokenBucket.refill(theStartNanos + ONE_SECOND_NANOS);
+        Assertions.assertEquals(60.0, theTokenBucket.mRate, RATE_DELTA, "The rate should increase after a second");
+        theTokenBucket.refill(theStartNanos + ONE_SECOND_NANOS + ONE_SECOND_NANOS / 2);
+        Assertions.assertEquals(60.0, theTokenBucket.mRate, RATE_DELTA,
+            "The rate should increase at most once per second");
+        theTokenBucket.refill(theStartNanos + 10 * ONE_SECOND_NANOS);
+        theTokenBucket.refill(theStartNanos + 20 * ONE_SECOND_NANOS);
+        theTokenBucket.refill(theStartNanos + 30 * ONE_SECOND_NANOS);
+        theTokenBucket.refill(theStartNanos + 40 * ONE_SECOND_NANOS);
+        theTokenBucket.refill(theStartNanos + 50 * ONE_SECOND_NANOS);
+        Assertions.assertEquals(100.0, theTokenBucket.mRate, RATE_DELTA,
+            "The rate should not exceed the maximum rate");
+    }
+
+    /**
+     * Tests consuming more tokens than the token bucket holds.
+     * Expected result:
+     * The bucket should be in debt and the time to wait should be the time needed to refill the debt.
+     */
+    @Test
+    public void debtTest() {
+        final CapacityRateLimiter.TokenBucket theTokenBucket = new CapacityRateLimiter.TokenBucket(10, 0L);
+
+        theTokenBucket.consume(30, 0L);
+
+        Assertions.assertEquals(2 * ONE_SECOND_NANOS, theTokenBucket.waitNanos(0L),
+            "Waiting should last until the debt has been refilled");
+        Assertions.assertEquals(0L, theTokenBucket.waitNanos(2 * ONE_SECOND_NANOS),
+            "The debt should have been refilled");
+    }
+
+    /**
+     * Tests an unlimited rate limiter.
+     * Expected result:
+     * Acquiring capacity should not wait and the rate should be unlimited.
+     */
+    @Test
+    public void unlimitedTest() {
+        final CapacityRateLimiter theRateLimiter = CapacityRateLimiter.unlimited();
+
+        theRateLimiter.consume(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ, 1000000);
+        theRateLimiter.acquire(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ);
+
+        Assertions.assertFalse(theRateLimiter.isLimited(), "The rate limiter should not limit operations");
+        Assertions.assertEquals(Double.POSITIVE_INFINITY,
+            theRateLimiter.rate(PROVISIONED_TABLE_NAME, CapacityRateLimiter.CapacityType.READ),
+            "The rate should be unlimited");
+    }
+
+    /**
+     * Creates a rate limiter for a table with 100 read and 20 write capacity units and
+     * a table with on-demand capacity.
+     *
+     * @return New rate limiter.
+     */
+    protected static CapacityRateLimiter createRateLimiter() {
+        final Map<String, TableDescription> theTables = Map.of(
+            PROVISIONED_TABLE_NAME, new TableDescription()
+                .withTableName(PROVISIONED_TABLE_NAME)
+                .withProvisionedThroughput(new ProvisionedThroughputDescription()
+                    .withReadCapacityUnits(100L)
+                    .withWriteCapacityUnits(20L)),
+            ON_DEMAND_TABLE_NAME, new TableDescription()
+                .withTableName(ON_DEMAND_TABLE_NAME)
+                .withProvisionedThroughput(new ProvisionedThroughputDescription()
+                    .withReadCapacityUnits(0L)
+                    .withWriteCapacityUnits(0L)));
+        return new CapacityRateLimiter(theTables::get, CAPACITY_SHARE, ON_DEMAND_CAPACITY_UNITS);
+    }
+}
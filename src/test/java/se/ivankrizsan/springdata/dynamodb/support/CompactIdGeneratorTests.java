@@ -0,0 +1,127 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests of the generator of compact, time-ordered ids.
+ *
+ * @author Ivan Krizsan
+ */
+class CompactIdGeneratorTests {
+    /* Constant(s): */
+    protected final static long TIMESTAMP_MILLIS = 1_600_000_000_000L;
+    protected final static int THREADS_COUNT = 8;
+    protected final static int IDS_PER_THREAD_COUNT = 10000;
+
+    /**
+     * Tests generating ids with increasing timestamps.
+     * Expected result:
+     * The ids should be 26 characters long, sort in the order of their timestamps and
+     * the timestamps should be retrievable from the ids.
+     */
+    @Test
+    public void timeOrderedIdsTest() {
+        final List<String> theIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            theIds.add(CompactIdGenerator.newId(TIMESTAMP_MILLIS + i));
+        }
+
+        final List<String> theSortedIds = new ArrayList<>(theIds);
+        theSortedIds.sort(null);
+        Assertions.assertEquals(theIds, theSortedIds, "Ids should sort in the order of their timestamps");
+        for (int i = 0; i < theIds.size(); i++) {
+            Assertions.assertEquals(CompactIdGenerator.ID_LENGTH, theIds.get(i).length(),
+                "Ids should be 26 characters long");
+            Assertions.assertEquals(TIMESTAMP_MILLIS + i, CompactIdGenerator.timestampMillis(theIds.get(i)),
+                "The timestamp should be retrievable from the id");
+        }
+    }
+
+    /**
+     * Tests converting ids between the string and the binary form.
+     * Expected result:
+     * Converting an id to the binary form and back should yield the original id, also when
+     * converted using the type converter.
+     * Binary ids should compare in the same order as the string ids.
+     */
+    @Test
+    public void binaryRoundTripTest() {
+        final String theEarlierId = CompactIdGenerator.newId(TIMESTAMP_MILLIS);
+        final String theLaterId = CompactIdGenerator.newId(TIMESTAMP_MILLIS + 1);
+        final CompactIdGenerator.BinaryConverter theConverter = new CompactIdGenerator.BinaryConverter();
+
+        final byte[] theEarlierBytes = CompactIdGenerator.toBytes(theEarlierId);
+        final byte[] theLaterBytes = CompactIdGenerator.toBytes(theLaterId);
+
+        Assertions.assertEquals(CompactIdGenerator.BINARY_ID_LENGTH, theEarlierBytes.length,
+            "Binary ids should be 16 bytes long");
+        Assertions.assertEquals(theEarlierId, CompactIdGenerator.fromBytes(theEarlierBytes),
+            "The binary id should convert back to the original id");
+        Assertions.assertArrayEquals(theEarlierBytes, CompactIdGenerator.toBytes(theEarlierId.toLowerCase()),
+            "Decoding should be case-insensitive");
+        Assertions.assertEquals(theLaterId, theConverter.unconvert(theConverter.convert(theLaterId)),
+            "The type converter should convert the id back to the original id");
+        Assertions.assertTrue(Arrays.compareUnsigned(theEarlierBytes, theLaterBytes) < 0,
+            "Binary ids should compare in the order of their timestamps");
+        Assertions.assertEquals(ByteBuffer.wrap(theLaterBytes), theConverter.convert(theLaterId),
+            "The type converter should produce the binary id");
+    }
+
+    /**
+     * Tests converting strings that are not ids.
+     * Expected result:
+     * An exception should be thrown for strings of the wrong length, strings containing
+     * characters outside the alphabet and strings representing numbers larger than 128 bits.
+     */
+    @Test
+    public void invalidIdTest() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CompactIdGenerator.toBytes("01ARZ3NDEKTSV4RRFFQ69G5FA"), "A too short id should be rejected");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CompactIdGenerator.toBytes("01ARZ3NDEKTSV4RRFFQ69G5FAU"), "An id containing U should be rejected");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CompactIdGenerator.toBytes("81ARZ3NDEKTSV4RRFFQ69G5FAV"),
+            "An id exceeding 128 bits should be rejected");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CompactIdGenerator.fromBytes(new byte[15]), "A too short binary id should be rejected");
+    }
+
+    /**
+     * Tests generating ids concurrently in multiple threads.
+     * Expected result:
+     * All generated ids should be unique.
+     */
+    @Test
+    public void concurrentUniqueIdsTest() throws Exception {
+        final Set<String> theIds = ConcurrentHashMap.newKeySet();
+        final ExecutorService theExecutor = Executors.newFixedThreadPool(THREADS_COUNT);
+        try {
+            final List<Future<?>> theFutures = new ArrayList<>();
+            for (int i = 0; i < THREADS_COUNT; i++) {
+                theFutures.add(theExecutor.submit(() -> {
+                    for (int j = 0; j < IDS_PER_THREAD_COUNT; j++) {
+                        theIds.add(new CompactIdGenerator().generate(null));
+                    }
+                }));
+            }
+            for (Future<?> theFuture : theFutures) {
+                theFuture.get();
+            }
+        } finally {
+            theExecutor.shutdownNow();
+        }
+
+        Assertions.assertEquals(THREADS_COUNT * IDS_PER_THREAD_COUNT, theIds.size(), "All ids should be unique");
+    }
+}
@@ -0,0 +1,138 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.CircleMarshaller;
+import se.ivankrizsan.springdata.dynamodb.domain.marshalling.RectangleMarshaller;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the item converter that converts entities using precompiled marshallers.
+ *
+ * @author Ivan Krizsan
+ */
+class CompiledItemConverterTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME_PREFIX = "test_";
+
+    /* Instance variable(s): */
+    protected DynamoDBMapper mDynamoDBMapper;
+    protected DynamoDBMapperConfig mDynamoDBMapperConfig;
+    protected CompiledItemConverter mCompiledItemConverter;
+
+    /**
+     * Creates an item converter with marshallers for circles and rectangles before each test.
+     * The DynamoDB client of the mapper is never invoked.
+     */
+    @BeforeEach
+    public void setup() {
+        mDynamoDBMapperConfig = new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(TABLE_NAME_PREFIX))
+            .build();
+        mDynamoDBMapper = new DynamoDBMapper(Mockito.mock(AmazonDynamoDB.class), mDynamoDBMapperConfig);
+        mCompiledItemConverter = new CompiledItemConverter(
+            new MapperItemConverter(mDynamoDBMapper, mDynamoDBMapperConfig),
+            List.of(new CircleMarshaller(), new RectangleMarshaller()));
+    }
+
+    /**
+     * Tests converting a new circle to an item and back.
+     * Expected result:
+     * The circle should have been assigned an id and a last update time.
+     * The item should be identical to the item created by the DynamoDB mapper from the circle.
+     * The circle converted from the item should be equal to the circle converted by the DynamoDB mapper.
+     */
+    @Test
+    public void circleTest() {
+        final Circle theCircle = new Circle();
+        theCircle.setPosition(-12, 34);
+        theCircle.setColour("blue");
+        theCircle.setRadius(56);
+
+        final Map<String, AttributeValue> theItem = mCompiledItemConverter.toItem(theCircle);
+
+        Assertions.assertNotNull(theCircle.getId(), "Circle id should have been generated");
+        Assertions.assertNotNull(theCircle.getLastUpdateTime(), "Circle last update time should have been set");
+        Assertions.assertEquals(
+            mDynamoDBMapper.getTableModel(Circle.class).convert(theCircle),
+            theItem,
+            "Item should be identical to the item created by the DynamoDB mapper");
+        final Circle theConvertedCircle = mCompiledItemConverter.fromItem(Circle.class, theItem);
+        Assertions.assertEquals(
+            mDynamoDBMapper.getTableModel(Circle.class).unconvert(theItem),
+            theConvertedCircle,
+            "Circle should be equal to the circle converted by the DynamoDB mapper");
+        Assertions.assertEquals(theCircle, theConvertedCircle, "Circle should survive the round trip");
+    }
+
+    /**
+     * Tests converting a rectangle without colour to an item and converting an item that
+     * lacks the rectangle dimensions to a rectangle.
+     * Expected result:
+     * The item should be identical to the item created by the DynamoDB mapper and contain no colour.
+     * Dimensions absent from the item should retain their default values, as when converted
+     * by the DynamoDB mapper.
+     */
+    @Test
+    public void rectangleAbsentAttributesTest() {
+        final Rectangle theRectangle = new Rectangle();
+        theRectangle.setId("rectangle-1");
+        theRectangle.setHeight(7);
+        theRectangle.setWidth(8);
+
+        final Map<String, AttributeValue> theItem = mCompiledItemConverter.toItem(theRectangle);
+        Assertions.assertEquals(
+            mDynamoDBMapper.getTableModel(Rectangle.class).convert(theRectangle),
+            theItem,
+            "Item should be identical to the item created by the DynamoDB mapper");
+        Assertions.assertFalse(theItem.containsKey("colour"), "Absent colour should not be written");
+
+        theItem.remove("height");
+        theItem.remove("width");
+        final Rectangle theConvertedRectangle = mCompiledItemConverter.fromItem(Rectangle.class, theItem);
+        Assertions.assertEquals(
+            mDynamoDBMapper.getTableModel(Rectangle.class).unconvert(theItem),
+            theConvertedRectangle,
+            "Rectangle should be equal to the rectangle converted by the DynamoDB mapper");
+        Assertions.assertEquals(Rectangle.DEFAULT_HEIGHT, theConvertedRectangle.getHeight(),
+            "Absent height should retain its default value");
+    }
+
+    /**
+     * Tests creating keys, attribute values and table names for shapes.
+     * Expected result:
+     * Keys, attribute values and table names should be identical to those created using the DynamoDB mapper.
+     */
+    @Test
+    public void keysAndAttributeValuesTest() {
+        final MapperItemConverter theMapperItemConverter =
+            new MapperItemConverter(mDynamoDBMapper, mDynamoDBMapperConfig);
+
+        Assertions.assertEquals(
+            theMapperItemConverter.key(Circle.class, "circle-1"),
+            mCompiledItemConverter.key(Circle.class, "circle-1"),
+            "Circle key should be identical to the key created by the DynamoDB mapper");
+        Assertions.assertEquals(
+            theMapperItemConverter.attributeValue(Rectangle.class, "colour", "red"),
+            mCompiledItemConverter.attributeValue(Rectangle.class, "colour", "red"),
+            "Colour attribute value should be identical to the value created by the DynamoDB mapper");
+        Assertions.assertEquals(
+            theMapperItemConverter.attributeValue(Rectangle.class, "width", 42),
+            mCompiledItemConverter.attributeValue(Rectangle.class, "width", 42),
+            "Width attribute value should be identical to the value created by the DynamoDB mapper");
+        Assertions.assertEquals(
+            TABLE_NAME_PREFIX + "circles",
+            mCompiledItemConverter.tableName(Circle.class),
+            "Circle table name should include the table name prefix");
+    }
+}
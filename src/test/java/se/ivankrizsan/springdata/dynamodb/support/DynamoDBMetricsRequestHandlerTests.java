@@ -0,0 +1,147 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests of the request handler recording metrics of DynamoDB requests.
+ *
+ * @author Ivan Krizsan
+ */
+class DynamoDBMetricsRequestHandlerTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME = "circles";
+
+    /* Instance variable(s): */
+    protected MeterRegistry mMeterRegistry;
+    protected DynamoDBMetricsRequestHandler mRequestHandler;
+
+    /**
+     * Creates a request handler recording metrics in an in-memory meter registry before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mMeterRegistry = new SimpleMeterRegistry();
+        mRequestHandler = new DynamoDBMetricsRequestHandler(mMeterRegistry, true);
+    }
+
+    /**
+     * Tests handling a request that is throttled once before it succeeds.
+     * Expected result:
+     * Consumed capacity should have been requested.
+     * Latency, one retry, one throttle and the consumed capacity should have been recorded,
+     * tagged with the table and operation.
+     */
+    @Test
+    public void throttledRequestTest() {
+        final PutItemRequest thePutItemRequest = new PutItemRequest().withTableName(TABLE_NAME);
+        final Request<?> theRequest = executeRequest(thePutItemRequest, "PutItem");
+
+        final AmazonServiceException theThrottlingException = new AmazonServiceException("Throttled");
+        theThrottlingException.setErrorCode("ProvisionedThroughputExceededException");
+        mRequestHandler.afterAttempt(
+            HandlerAfterAttemptContext.builder().withRequest(theRequest).withException(theThrottlingException).build());
+        mRequestHandler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(theRequest).build());
+        mRequestHandler.afterResponse(theRequest, new Response<>(
+            new PutItemResult().withConsumedCapacity(
+                new ConsumedCapacity().withTableName(TABLE_NAME).withCapacityUnits(2.0)),
+            null));
+
+        Assertions.assertEquals(
+            ReturnConsumedCapacity.TOTAL.toString(),
+            thePutItemRequest.getReturnConsumedCapacity(),
+            "Total consumed capacity should have been requested");
+        final Timer theTimer = mMeterRegistry
+            .get(DynamoDBMetricsRequestHandler.REQUESTS_METER_NAME)
+            .tags("table", TABLE_NAME, "operation", "PutItem", "outcome", "success")
+            .timer();
+        Assertions.assertEquals(1, theTimer.count(), "One request should have been timed");
+        Assertions.assertEquals(
+            1.0,
+            mMeterRegistry.get(DynamoDBMetricsRequestHandler.RETRIES_METER_NAME).tag("table", TABLE_NAME).counter().count(),
+            "One retry should have been counted");
+        Assertions.assertEquals(
+            1.0,
+            mMeterRegistry.get(DynamoDBMetricsRequestHandler.THROTTLES_METER_NAME).tag("table", TABLE_NAME).counter().count(),
+            "One throttle should have been counted");
+        final DistributionSummary theConsumedCapacity = mMeterRegistry
+            .get(DynamoDBMetricsRequestHandler.CONSUMED_CAPACITY_METER_NAME)
+            .tags("table", TABLE_NAME, "operation", "PutItem")
+            .summary();
+        Assertions.assertEquals(2.0, theConsumedCapacity.totalAmount(), "Consumed capacity should have been recorded");
+    }
+
+    /**
+     * Tests handling a batch request writing to multiple tables.
+     * Expected result:
+     * Latency should be tagged with the table name "multiple" and consumed capacity
+     * should be recorded for each table.
+     */
+    @Test
+    public void multipleTablesRequestTest() {
+        final BatchWriteItemRequest theBatchWriteRequest = new BatchWriteItemRequest().withRequestItems(Map.of(
+            "circles", Collections.emptyList(),
+            "rectangles", Collections.emptyList()));
+        final Request<?> theRequest = executeRequest(theBatchWriteRequest, "BatchWriteItem");
+        mRequestHandler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(theRequest).build());
+        mRequestHandler.afterResponse(theRequest, new Response<>(
+            new BatchWriteItemResult().withConsumedCapacity(
+                new ConsumedCapacity().withTableName("circles").withCapacityUnits(3.0),
+                new ConsumedCapacity().withTableName("rectangles").withCapacityUnits(4.0)),
+            null));
+
+        Assertions.assertEquals(
+            1,
+            mMeterRegistry.get(DynamoDBMetricsRequestHandler.REQUESTS_METER_NAME).tag("table", "multiple").timer().count(),
+            "Request accessing multiple tables should have been timed");
+        Assertions.assertEquals(
+            4.0,
+            mMeterRegistry
+                .get(DynamoDBMetricsRequestHandler.CONSUMED_CAPACITY_METER_NAME)
+                .tag("table", "rectangles")
+                .summary()
+                .totalAmount(),
+            "Consumed capacity should have been recorded per table");
+        Assertions.assertTrue(
+            mMeterRegistry.find(DynamoDBMetricsRequestHandler.RETRIES_METER_NAME).counters().isEmpty(),
+            "No retries should have been counted");
+    }
+
+    /**
+     * Lets the request handler process the supplied request up to the point where it is sent.
+     *
+     * @param inOriginalRequest Request to process.
+     * @param inOperationName Name of operation performed by request.
+     * @return Request to be sent.
+     */
+    protected Request<?> executeRequest(
+        final AmazonWebServiceRequest inOriginalRequest,
+        final String inOperationName) {
+        mRequestHandler.beforeExecution(inOriginalRequest);
+        final Request<?> theRequest = new DefaultRequest<>(inOriginalRequest, "AmazonDynamoDBv2");
+        theRequest.addHandlerContext(HandlerContextKey.OPERATION_NAME, inOperationName);
+        mRequestHandler.beforeRequest(theRequest);
+        return theRequest;
+    }
+}
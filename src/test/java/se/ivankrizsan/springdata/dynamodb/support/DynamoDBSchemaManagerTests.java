@@ -0,0 +1,157 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.Rectangle;
+import se.ivankrizsan.springdata.dynamodb.domain.Shape;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeAggregate;
+import se.ivankrizsan.springdata.dynamodb.domain.ShapeByColour;
+import se.ivankrizsan.springdata.dynamodb.domain.StreamCheckpoint;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the schema manager that provisions the tables of entity types concurrently.
+ *
+ * @author Ivan Krizsan
+ */
+class DynamoDBSchemaManagerTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME_PREFIX = "test_";
+    protected final static String CIRCLES_TABLE_NAME = TABLE_NAME_PREFIX + "circles";
+    protected final static String RECTANGLES_TABLE_NAME = TABLE_NAME_PREFIX + "rectangles";
+    protected final static int WAIT_TIMEOUT_MILLIS = 10000;
+    protected final static int POLL_INTERVAL_MILLIS = 10;
+
+    /* Instance variable(s): */
+    protected InMemoryAmazonDynamoDB mAmazonDynamoDB;
+    protected DynamoDBMapper mDynamoDBMapper;
+
+    /**
+     * Creates an empty in-memory DynamoDB and a mapper using it before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = new InMemoryAmazonDynamoDB();
+        mDynamoDBMapper = new DynamoDBMapper(mAmazonDynamoDB, new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(TABLE_NAME_PREFIX))
+            .build());
+    }
+
+    /**
+     * Tests finding the entity types in the domain package.
+     * Expected result:
+     * The concrete entity types should be found and the abstract entity types should be excluded.
+     */
+    @Test
+    public void findEntityTypesTest() {
+        final List<Class<?>> theEntityTypes =
+            DynamoDBSchemaManager.findEntityTypes(Shape.class.getPackageName());
+
+        Assertions.assertEquals(
+            List.of(Circle.class, Rectangle.class, ShapeAggregate.class, ShapeByColour.class, StreamCheckpoint.class),
+            theEntityTypes,
+            "The concrete entity types should be found");
+    }
+
+    /**
+     * Tests provisioning the tables of circles and rectangles twice, with on-demand billing.
+     * Expected result:
+     * The first time, both tables should be created with on-demand billing and all attributes
+     * projected into the colour index.
+     * The second time, both tables should be left unchanged.
+     */
+    @Test
+    public void createTablesIfNotExistTest() {
+        final DynamoDBSchemaManager theSchemaManager = createSchemaManager(BillingMode.PAY_PER_REQUEST);
+
+        final Map<String, DynamoDBSchemaManager.TableOutcome> theFirstOutcomes =
+            theSchemaManager.createTablesIfNotExist(List.of(Circle.class, Rectangle.class));
+        final Map<String, DynamoDBSchemaManager.TableOutcome> theSecondOutcomes =
+            theSchemaManager.createTablesIfNotExist(List.of(Circle.class, Rectangle.class));
+
+        Assertions.assertEquals(
+            Map.of(
+                CIRCLES_TABLE_NAME, DynamoDBSchemaManager.TableOutcome.CREATED,
+                RECTANGLES_TABLE_NAME, DynamoDBSchemaManager.TableOutcome.CREATED),
+            theFirstOutcomes,
+            "Both tables should have been created");
+        Assertions.assertEquals(
+            Map.of(
+                CIRCLES_TABLE_NAME, DynamoDBSchemaManager.TableOutcome.UNCHANGED,
+                RECTANGLES_TABLE_NAME, DynamoDBSchemaManager.TableOutcome.UNCHANGED),
+            theSecondOutcomes,
+            "Both tables should have been left unchanged");
+        final TableDescription theCirclesTable = mAmazonDynamoDB.describeTable(CIRCLES_TABLE_NAME).getTable();
+        Assertions.assertEquals(
+            BillingMode.PAY_PER_REQUEST.toString(),
+            theCirclesTable.getBillingModeSummary().getBillingMode(),
+            "The table should have on-demand billing");
+        Assertions.assertEquals(
+            ProjectionType.ALL.toString(),
+            theCirclesTable
+                .getGlobalSecondaryIndexes()
+                .stream()
+                .filter(theIndex -> Shape.COLOUR_INDEX_NAME.equals(theIndex.getIndexName()))
+                .findFirst()
+                .orElseThrow()
+                .getProjection()
+                .getProjectionType(),
+            "All attributes should be projected into the colour index");
+    }
+
+    /**
+     * Tests provisioning the table of circles when a circles table without indexes exists.
+     * Expected result:
+     * The existing table should be reported as mismatched and left unchanged.
+     */
+    @Test
+    public void mismatchedTableTest() {
+        mAmazonDynamoDB.createTable(new CreateTableRequest()
+            .withTableName(CIRCLES_TABLE_NAME)
+            .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+            .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S)));
+        final DynamoDBSchemaManager theSchemaManager = createSchemaManager(BillingMode.PROVISIONED);
+
+        final Map<String, DynamoDBSchemaManager.TableOutcome> theOutcomes =
+            theSchemaManager.createTablesIfNotExist(List.of(Circle.class));
+
+        Assertions.assertEquals(
+            Map.of(CIRCLES_TABLE_NAME, DynamoDBSchemaManager.TableOutcome.MISMATCHED),
+            theOutcomes,
+            "The existing table should be reported as mismatched");
+        Assertions.assertNull(
+            mAmazonDynamoDB.describeTable(CIRCLES_TABLE_NAME).getTable().getGlobalSecondaryIndexes(),
+            "The existing table should not have been modified");
+    }
+
+    /**
+     * Creates a schema manager creating tables with the supplied billing mode.
+     *
+     * @param inBillingMode Billing mode.
+     * @return New schema manager.
+     */
+    protected DynamoDBSchemaManager createSchemaManager(final BillingMode inBillingMode) {
+        return new DynamoDBSchemaManager(
+            mAmazonDynamoDB,
+            mDynamoDBMapper,
+            inBillingMode,
+            1L,
+            1L,
+            WAIT_TIMEOUT_MILLIS,
+            POLL_INTERVAL_MILLIS);
+    }
+}
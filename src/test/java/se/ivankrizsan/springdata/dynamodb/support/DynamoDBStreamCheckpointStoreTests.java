@@ -0,0 +1,75 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.ivankrizsan.springdata.dynamodb.domain.StreamCheckpoint;
+
+import java.util.List;
+
+/**
+ * Tests of the checkpoint store that stores stream checkpoints in a DynamoDB table.
+ *
+ * @author Ivan Krizsan
+ */
+class DynamoDBStreamCheckpointStoreTests {
+    /* Constant(s): */
+    protected final static String CONSUMER_NAME = "cache-invalidation";
+    protected final static String STREAM_ARN = "arn:aws:dynamodb:local:000000000000:table/circles/stream/1";
+    protected final static String SHARD_ID = "shard-1";
+
+    /* Instance variable(s): */
+    protected InMemoryAmazonDynamoDB mAmazonDynamoDB;
+    protected ItemConverter mItemConverter;
+
+    /**
+     * Creates the checkpoint table in an in-memory DynamoDB before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = new InMemoryAmazonDynamoDB();
+        final DynamoDBMapperConfig theDynamoDBMapperConfig = DynamoDBMapperConfig.DEFAULT;
+        final DynamoDBMapper theDynamoDBMapper = new DynamoDBMapper(mAmazonDynamoDB, theDynamoDBMapperConfig);
+        new DynamoDBSchemaManager(mAmazonDynamoDB, theDynamoDBMapper, BillingMode.PAY_PER_REQUEST, 0L, 0L, 10000, 10)
+            .createTablesIfNotExist(List.of(StreamCheckpoint.class));
+        mItemConverter = new MapperItemConverter(theDynamoDBMapper, theDynamoDBMapperConfig);
+    }
+
+    /**
+     * Tests storing checkpoints of the same consumer running on two nodes.
+     * Expected result:
+     * One node having consumed a shard to its end should not affect the checkpoint of the other
+     * node, which should continue from its own checkpoint.
+     * A new store of a node should read the checkpoint stored by the node before it was restarted.
+     */
+    @Test
+    public void checkpointsPerNodeTest() {
+        final StreamCheckpointStore theFirstNodeStore = createStore("node-1");
+        final StreamCheckpointStore theSecondNodeStore = createStore("node-2");
+
+        theSecondNodeStore.saveCheckpoint(STREAM_ARN, SHARD_ID, "100");
+        theFirstNodeStore.saveCheckpoint(STREAM_ARN, SHARD_ID, StreamCheckpointStore.SHARD_END);
+
+        Assertions.assertEquals(StreamCheckpointStore.SHARD_END, theFirstNodeStore.checkpoint(STREAM_ARN, SHARD_ID),
+            "The first node should have consumed the shard");
+        Assertions.assertEquals("100", theSecondNodeStore.checkpoint(STREAM_ARN, SHARD_ID),
+            "The second node should keep its own checkpoint");
+        Assertions.assertEquals("100", createStore("node-2").checkpoint(STREAM_ARN, SHARD_ID),
+            "The checkpoint of the second node should be read after a restart");
+        Assertions.assertNull(createStore("node-3").checkpoint(STREAM_ARN, SHARD_ID),
+            "A new node should have no checkpoint");
+    }
+
+    /**
+     * Creates a checkpoint store of the consumer running on the node with the supplied name.
+     *
+     * @param inNodeName Node name.
+     * @return Checkpoint store.
+     */
+    protected StreamCheckpointStore createStore(final String inNodeName) {
+        return new DynamoDBStreamCheckpointStore(mAmazonDynamoDB, mItemConverter, CONSUMER_NAME, inNodeName);
+    }
+}
@@ -0,0 +1,154 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests of the bounded read-through entity cache.
+ *
+ * @author Ivan Krizsan
+ */
+class EntityCacheTests {
+    /* Constant(s): */
+    protected final static long MAXIMUM_SIZE = 2;
+    protected final static Duration TIME_TO_LIVE = Duration.ofSeconds(10);
+
+    /* Instance variable(s): */
+    protected AtomicLong mNanoTime;
+    protected AtomicInteger mLoadCount;
+    protected EntityCache<String, String> mEntityCache;
+
+    /**
+     * Creates an entity cache with a manually advanced ticker and maintenance performed
+     * on the calling thread before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mNanoTime = new AtomicLong();
+        mLoadCount = new AtomicInteger();
+        mEntityCache = new EntityCache<>(MAXIMUM_SIZE, TIME_TO_LIVE, mNanoTime::get, Runnable::run);
+    }
+
+    /**
+     * Tests retrieving the same entity twice.
+     * Expected result:
+     * The entity should only be loaded once and one miss and one hit should be recorded.
+     */
+    @Test
+    public void readThroughTest() {
+        final Optional<String> theFirstEntity = mEntityCache.get("1", this::load);
+        final Optional<String> theSecondEntity = mEntityCache.get("1", this::load);
+
+        Assertions.assertEquals(Optional.of("entity-1"), theFirstEntity, "Entity should have been loaded");
+        Assertions.assertEquals(theFirstEntity, theSecondEntity, "Cached entity should have been retrieved");
+        Assertions.assertEquals(1, mLoadCount.get(), "Entity should only have been loaded once");
+        final CacheStats theStatistics = mEntityCache.statistics();
+        Assertions.assertEquals(1, theStatistics.missCount(), "One cache miss should have been recorded");
+        Assertions.assertEquals(1, theStatistics.hitCount(), "One cache hit should have been recorded");
+    }
+
+    /**
+     * Tests retrieving an entity that does not exist twice.
+     * Expected result:
+     * No entity should be retrieved and the absence of the entity should not be cached.
+     */
+    @Test
+    public void absentEntityNotCachedTest() {
+        Assertions.assertFalse(mEntityCache.get("1", theId -> null).isPresent(), "No entity should be found");
+        Assertions.assertEquals(Optional.of("entity-1"), mEntityCache.get("1", this::load), "Entity should be loaded");
+    }
+
+    /**
+     * Tests invalidating a cached entity.
+     * Expected result:
+     * The entity should be loaded again when retrieved after having been invalidated.
+     */
+    @Test
+    public void invalidateTest() {
+        mEntityCache.get("1", this::load);
+        mEntityCache.get("2", this::load);
+
+        mEntityCache.invalidate("1");
+        mEntityCache.get("1", this::load);
+        Assertions.assertEquals(3, mLoadCount.get(), "Invalidated entity should have been loaded again");
+
+        mEntityCache.invalidateAll(List.of("1", "2"));
+        mEntityCache.get("1", this::load);
+        mEntityCache.get("2", this::load);
+        Assertions.assertEquals(5, mLoadCount.get(), "Invalidated entities should have been loaded again");
+
+        mEntityCache.invalidateAll();
+        mEntityCache.get("1", this::load);
+        Assertions.assertEquals(6, mLoadCount.get(), "Cleared entity should have been loaded again");
+    }
+
+    /**
+     * Tests retrieving more entities than fit in the cache.
+     * Expected result:
+     * Entities should be evicted so that the cache does not exceed its maximum size
+     * and the evictions should be recorded.
+     */
+    @Test
+    public void sizeEvictionTest() {
+        for (int i = 0; i < MAXIMUM_SIZE + 3; i++) {
+            mEntityCache.get(Integer.toString(i), this::load);
+        }
+
+        Assertions.assertEquals(
+            3,
+            mEntityCache.statistics().evictionCount(),
+            "Entities exceeding the maximum size should have been evicted");
+    }
+
+    /**
+     * Tests retrieving an entity after its time-to-live has passed.
+     * Expected result:
+     * The entity should have been evicted and should be loaded again.
+     */
+    @Test
+    public void timeToLiveEvictionTest() {
+        mEntityCache.get("1", this::load);
+
+        mNanoTime.addAndGet(TIME_TO_LIVE.toNanos() + TimeUnit.SECONDS.toNanos(1));
+        mEntityCache.get("1", this::load);
+
+        Assertions.assertEquals(2, mLoadCount.get(), "Expired entity should have been loaded again");
+        Assertions.assertEquals(1, mEntityCache.statistics().evictionCount(), "Eviction should have been recorded");
+    }
+
+    /**
+     * Tests retrieving the same entity twice from a disabled cache.
+     * Expected result:
+     * The entity should be loaded each time and no statistics should be recorded.
+     */
+    @Test
+    public void disabledCacheTest() {
+        final EntityCache<String, String> theDisabledCache = EntityCache.disabled();
+
+        theDisabledCache.get("1", this::load);
+        theDisabledCache.get("1", this::load);
+
+        Assertions.assertEquals(2, mLoadCount.get(), "Entity should have been loaded each time");
+        Assertions.assertEquals(0, theDisabledCache.statistics().requestCount(), "No requests should be recorded");
+    }
+
+    /**
+     * Loads the entity with the supplied id, counting the number of loads.
+     *
+     * @param inId Entity id.
+     * @return Entity.
+     */
+    protected String load(final String inId) {
+        mLoadCount.incrementAndGet();
+        return "entity-" + inId;
+    }
+}
@@ -0,0 +1,130 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Tests of the detector of hot keys.
+ *
+ * @author Ivan Krizsan
+ */
+class HotKeyDetectorTests {
+    /* Constant(s): */
+    protected final static String CIRCLES_TABLE_NAME = "Circles";
+    protected final static String RECTANGLES_TABLE_NAME = "Rectangles";
+
+    /* Instance variable(s): */
+    protected SimpleMeterRegistry mMeterRegistry;
+
+    /**
+     * Creates a meter registry before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mMeterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Tests reporting accesses recorded for different tables and operations.
+     * Expected result:
+     * The most frequently accessed keys should be reported per table and operation, both in the
+     * last report and as gauges tagged with table, operation, rank and key.
+     */
+    @Test
+    public void reportTest() {
+        final HotKeyDetector theDetector = new HotKeyDetector(1.0, 2, 0.5, 60000L, mMeterRegistry);
+        recordAccesses(theDetector, CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION, "circle-1", 8);
+        recordAccesses(theDetector, CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION, "circle-2", 3);
+        recordAccesses(theDetector, CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION, "circle-3", 1);
+        recordAccesses(theDetector, RECTANGLES_TABLE_NAME, HotKeyDetector.queryOperation("colour-index"), "red", 5);
+
+        theDetector.report();
+
+        Assertions.assertEquals("[circle-1=8, circle-2=3]",
+            theDetector.lastReport().get(List.of(CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION)).toString(),
+            "The most frequently read circles should be reported");
+        Assertions.assertEquals("[red=5]", theDetector
+            .lastReport()
+            .get(List.of(RECTANGLES_TABLE_NAME, HotKeyDetector.queryOperation("colour-index")))
+            .toString(),
+            "The queried colour of rectangles should be reported");
+        final Gauge theGauge = mMeterRegistry
+            .get(HotKeyDetector.ACCESSES_METER_NAME)
+            .tag(HotKeyDetector.TABLE_TAG, CIRCLES_TABLE_NAME)
+            .tag(HotKeyDetector.OPERATION_TAG, HotKeyDetector.READ_OPERATION)
+            .tag(HotKeyDetector.RANK_TAG, "1")
+            .gauge();
+        Assertions.assertEquals("circle-1", theGauge.getId().getTag(HotKeyDetector.KEY_TAG),
+            "The most frequently read circle should be ranked first");
+        Assertions.assertEquals(8.0, theGauge.value(), "The number of accesses should be published");
+        Assertions.assertEquals(8.0 / 12, mMeterRegistry
+            .get(HotKeyDetector.SHARE_METER_NAME)
+            .tag(HotKeyDetector.KEY_TAG, "circle-1")
+            .gauge()
+            .value(), 1e-9, "The share of accesses should be published");
+        Assertions.assertTrue(theDetector.formatLastReport().contains("Circles read: circle-1=8 (66.7%)"),
+            "The formatted report should contain the most frequently read circles");
+    }
+
+    /**
+     * Tests reporting twice, with accesses only recorded before the first report.
+     * Expected result:
+     * The second report should be empty and the gauges of the first report should be removed.
+     */
+    @Test
+    public void reportIntervalTest() {
+        final HotKeyDetector theDetector = new HotKeyDetector(1.0, 2, 0.5, 60000L, mMeterRegistry);
+        recordAccesses(theDetector, CIRCLES_TABLE_NAME, HotKeyDetector.WRITE_OPERATION, "circle-1", 2);
+        theDetector.report();
+
+        theDetector.report();
+
+        Assertions.assertTrue(theDetector.lastReport().isEmpty(), "Only accesses of the interval should be reported");
+        Assertions.assertTrue(mMeterRegistry.find(HotKeyDetector.ACCESSES_METER_NAME).gauges().isEmpty(),
+            "The gauges of the previous interval should be removed");
+    }
+
+    /**
+     * Tests recording accesses with a sample rate below one.
+     * Expected result:
+     * About the sample rate share of the accesses should be recorded and the reported number
+     * of accesses should be scaled to estimate all accesses.
+     */
+    @Test
+    public void samplingTest() {
+        final HotKeyDetector theDetector = new HotKeyDetector(0.1, 1, 0.5, 60000L, mMeterRegistry);
+        recordAccesses(theDetector, CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION, "circle-1", 100000);
+
+        theDetector.report();
+
+        final HotKeySketch.HotKey theHotKey =
+            theDetector.lastReport().get(List.of(CIRCLES_TABLE_NAME, HotKeyDetector.READ_OPERATION)).get(0);
+        Assertions.assertEquals(100000.0, theHotKey.getCount(), 100000.0 * 0.05,
+            "The number of accesses should be estimated from the sample");
+    }
+
+    /**
+     * Records the supplied number of accesses of the supplied key.
+     *
+     * @param inDetector Hot key detector in which to record accesses.
+     * @param inTableName Name of accessed table.
+     * @param inOperation Name of operation.
+     * @param inKey Accessed key.
+     * @param inCount Number of accesses.
+     */
+    protected static void recordAccesses(
+        final HotKeyDetector inDetector,
+        final String inTableName,
+        final String inOperation,
+        final String inKey,
+        final int inCount) {
+        for (int theAccess = 0; theAccess < inCount; theAccess++) {
+            inDetector.record(inTableName, inOperation, inKey);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of the sketch estimating the most frequent keys.
+ *
+ * @author Ivan Krizsan
+ */
+class HotKeySketchTests {
+    /* Constant(s): */
+    protected final static int SKETCH_WIDTH = 1024;
+    protected final static int CANDIDATE_CAPACITY = 16;
+
+    /**
+     * Tests recording a few frequent keys among many infrequent keys, far more keys than the
+     * candidate capacity.
+     * Expected result:
+     * The frequent keys should be the top keys, most frequent first, with estimated counts
+     * that are at least the actual counts and close to them.
+     */
+    @Test
+    public void skewedKeysTest() {
+        final HotKeySketch theSketch = new HotKeySketch(SKETCH_WIDTH, CANDIDATE_CAPACITY);
+        for (int theRound = 0; theRound < 100; theRound++) {
+            for (int theKey = 0; theKey < 100; theKey++) {
+                theSketch.record("cold-" + theRound + "-" + theKey);
+            }
+            for (int theCount = 0; theCount < 30; theCount++) {
+                theSketch.record("hot-1");
+            }
+            for (int theCount = 0; theCount < 10; theCount++) {
+                theSketch.record("hot-2");
+            }
+        }
+
+        final List<HotKeySketch.HotKey> theTopKeys = theSketch.topKeys(2);
+
+        Assertions.assertEquals(List.of("hot-1", "hot-2"),
+            theTopKeys.stream().map(HotKeySketch.HotKey::getKey).collect(Collectors.toList()),
+            "The most frequent keys should be found, most frequent first");
+        Assertions.assertTrue(theTopKeys.get(0).getCount() >= 3000L, "Counts should not be underestimated");
+        Assertions.assertEquals(3000L, theTopKeys.get(0).getCount(), 3000L * 0.05,
+            "The estimated count should be close to the actual count");
+        Assertions.assertEquals(14000L, theSketch.totalCount(), "All keys should be counted");
+        Assertions.assertEquals(3000.0 / 14000, theTopKeys.get(0).getShare(), 0.01,
+            "The share of the most frequent key should be estimated");
+        Assertions.assertTrue(theSketch.mCandidates.size() <= 2 * CANDIDATE_CAPACITY + 1,
+            "The number of candidates should be bounded");
+    }
+
+    /**
+     * Tests retrieving top keys of an empty sketch and more top keys than recorded keys.
+     * Expected result:
+     * No keys should be retrieved from the empty sketch and only the recorded keys otherwise.
+     */
+    @Test
+    public void fewKeysTest() {
+        final HotKeySketch theSketch = new HotKeySketch(SKETCH_WIDTH, CANDIDATE_CAPACITY);
+        Assertions.assertTrue(theSketch.topKeys(5).isEmpty(), "An empty sketch should have no top keys");
+
+        theSketch.record("red");
+        theSketch.record("red");
+        theSketch.record("blue");
+
+        Assertions.assertEquals("[red=2, blue=1]", theSketch.topKeys(5).toString(),
+            "Only the recorded keys should be retrieved");
+    }
+
+    /**
+     * Tests recording keys from multiple threads concurrently.
+     * Expected result:
+     * All keys should be counted and the counts of the keys should not be underestimated.
+     */
+    @Test
+    public void concurrentRecordingTest() throws InterruptedException {
+        final HotKeySketch theSketch = new HotKeySketch(SKETCH_WIDTH, CANDIDATE_CAPACITY);
+        final ExecutorService theExecutor = Executors.newFixedThreadPool(4);
+        for (int theThread = 0; theThread < 4; theThread++) {
+            theExecutor.execute(() -> {
+                for (int theValue = 0; theValue < 10000; theValue++) {
+                    theSketch.record(theValue % 2 == 0 ? "hot" : "cold-" + theValue);
+                }
+            });
+        }
+        theExecutor.shutdown();
+        Assertions.assertTrue(theExecutor.awaitTermination(10, TimeUnit.SECONDS), "Recording should complete");
+
+        Assertions.assertEquals(40000L, theSketch.totalCount(), "All keys should be counted");
+        Assertions.assertEquals("hot", theSketch.topKeys(1).get(0).getKey(), "The hot key should be found");
+        Assertions.assertTrue(theSketch.estimate("hot") >= 20000L, "Counts should not be underestimated");
+    }
+}
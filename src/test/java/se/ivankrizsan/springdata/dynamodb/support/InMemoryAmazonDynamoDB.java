@@ -0,0 +1,950 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
+import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory stand-in for DynamoDB implementing the operations used by the repositories:
+ * CreateTable, DeleteTable, DescribeTable, ListTables, PutItem, GetItem, UpdateItem, DeleteItem,
+ * Scan, Query, BatchWriteItem and BatchGetItem.
+ * Tables, including global and local secondary indexes, are created as requested and are
+ * immediately active. Conditional writes, filters, projections, pagination, parallel scan segments
+ * and consumed capacity are supported, with the size limit of result pages and capacity units
+ * approximated as described in the DynamoDB developer guide.
+ * UpdateItem supports legacy attribute updates and update expressions with SET, REMOVE and ADD actions.
+ * The supplied request handlers are invoked around each operation in the same way as by
+ * the DynamoDB client, so that request handlers can be used with the stand-in.
+ * All data is lost when the stand-in is discarded.
+ *
+ * @author Ivan Krizsan
+ */
+public class InMemoryAmazonDynamoDB extends AbstractAmazonDynamoDB {
+    /* Constant(s): */
+    public static final String SERVICE_NAME = "AmazonDynamoDBv2";
+    protected static final String TABLE_ARN_PREFIX = "arn:aws:dynamodb:ddblocal:000000000000:table/";
+    /** Maximum size of the items evaluated to produce one result page. */
+    protected static final long MAX_PAGE_SIZE_BYTES = 1024 * 1024;
+    protected static final int MAX_BATCH_WRITE_ITEMS = 25;
+    protected static final int MAX_BATCH_GET_KEYS = 100;
+    protected static final int MAX_LIST_TABLES = 100;
+    protected static final long WRITE_CAPACITY_UNIT_BYTES = 1024;
+    protected static final long READ_CAPACITY_UNIT_BYTES = 4096;
+
+    /* Instance variable(s): */
+    protected final Map<String, InMemoryTable> mTables = new ConcurrentHashMap<>();
+    protected final List<RequestHandler2> mRequestHandlers;
+
+    /**
+     * Creates an empty in-memory DynamoDB that invokes the supplied request handlers around
+     * each operation.
+     *
+     * @param inRequestHandlers Request handlers.
+     */
+    public InMemoryAmazonDynamoDB(final RequestHandler2... inRequestHandlers) {
+        mRequestHandlers = Arrays.asList(inRequestHandlers);
+    }
+
+    @Override
+    public CreateTableResult createTable(final CreateTableRequest inRequest) {
+        return execute("CreateTable", inRequest, theRequest -> {
+            final InMemoryTable theTable = new InMemoryTable(theRequest, TABLE_ARN_PREFIX + theRequest.getTableName());
+            if (mTables.putIfAbsent(theRequest.getTableName(), theTable) != null) {
+                final ResourceInUseException theException =
+                    new ResourceInUseException("Cannot create preexisting table: " + theRequest.getTableName());
+                throw clientException(theException, "ResourceInUseException");
+            }
+            return new CreateTableResult().withTableDescription(theTable.describe());
+        });
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(final DeleteTableRequest inRequest) {
+        return execute("DeleteTable", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            mTables.remove(theRequest.getTableName());
+            return new DeleteTableResult().withTableDescription(
+                theTable.describe().withTableStatus(TableStatus.DELETING));
+        });
+    }
+
+    @Override
+    public DescribeTableResult describeTable(final DescribeTableRequest inRequest) {
+        return execute("DescribeTable", inRequest, theRequest ->
+            new DescribeTableResult().withTable(table(theRequest.getTableName()).describe()));
+    }
+
+    @Override
+    public ListTablesResult listTables(final ListTablesRequest inRequest) {
+        return execute("ListTables", inRequest, theRequest -> {
+            final int theLimit = theRequest.getLimit() != null ? theRequest.getLimit() : MAX_LIST_TABLES;
+            final List<String> theTableNames = mTables
+                .keySet()
+                .stream()
+                .sorted()
+                .filter(theTableName -> theRequest.getExclusiveStartTableName() == null
+                    || theTableName.compareTo(theRequest.getExclusiveStartTableName()) > 0)
+                .collect(Collectors.toList());
+            final ListTablesResult theResult = new ListTablesResult()
+                .withTableNames(theTableNames.subList(0, Math.min(theLimit, theTableNames.size())));
+            if (theTableNames.size() > theLimit) {
+                theResult.setLastEvaluatedTableName(theTableNames.get(theLimit - 1));
+            }
+            return theResult;
+        });
+    }
+
+    @Override
+    public PutItemResult putItem(final PutItemRequest inRequest) {
+        return execute("PutItem", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            if (theRequest.getItem() == null) {
+                throw InMemoryExpressions.validationException("An item is required");
+            }
+            final Predicate<Map<String, AttributeValue>> theCondition = writeCondition(
+                theRequest.getConditionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getExpressionAttributeValues(),
+                theRequest.getExpected(),
+                theRequest.getConditionalOperator());
+            final Map<String, AttributeValue> theItem = copyItem(theRequest.getItem());
+
+            final Map<String, AttributeValue> theOldItem;
+            synchronized (theTable) {
+                theOldItem = theTable.get(theTable.key(theItem, theTable.getPrimaryIndex()));
+                verifyCondition(theCondition, theOldItem);
+                theTable.put(theItem);
+            }
+
+            final PutItemResult theResult = new PutItemResult().withConsumedCapacity(consumedCapacity(
+                theRequest.getReturnConsumedCapacity(),
+                theTable.getName(),
+                writeCapacityUnits(theOldItem, theItem)));
+            if (ReturnValue.ALL_OLD.toString().equals(theRequest.getReturnValues()) && theOldItem != null) {
+                theResult.setAttributes(copyItem(theOldItem));
+            }
+            return theResult;
+        });
+    }
+
+    @Override
+    public GetItemResult getItem(final GetItemRequest inRequest) {
+        return execute("GetItem", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            final Set<String> theProjection = projection(
+                theRequest.getProjectionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getAttributesToGet());
+            final Map<String, AttributeValue> theItem = theTable.get(theRequest.getKey());
+
+            final GetItemResult theResult = new GetItemResult().withConsumedCapacity(consumedCapacity(
+                theRequest.getReturnConsumedCapacity(),
+                theTable.getName(),
+                readCapacityUnits(theItem != null ? InMemoryExpressions.itemSize(theItem) : 0, theRequest.getConsistentRead())));
+            if (theItem != null) {
+                theResult.setItem(copyItem(InMemoryExpressions.project(theItem, theProjection)));
+            }
+            return theResult;
+        });
+    }
+
+    @Override
+    public UpdateItemResult updateItem(final UpdateItemRequest inRequest) {
+        return execute("UpdateItem", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            if (theRequest.getUpdateExpression() != null && theRequest.getAttributeUpdates() != null) {
+                throw InMemoryExpressions.validationException(
+                    "Can not use both expression and non-expression parameters in the same request");
+            }
+            final Predicate<Map<String, AttributeValue>> theCondition = writeCondition(
+                theRequest.getConditionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getExpressionAttributeValues(),
+                theRequest.getExpected(),
+                theRequest.getConditionalOperator());
+            final Collection<String> theKeyNames = theTable.key(theRequest.getKey(), theTable.getPrimaryIndex()).keySet();
+
+            final Map<String, AttributeValue> theOldItem;
+            final Map<String, AttributeValue> theNewItem;
+            final Set<String> theUpdatedAttributeNames = new LinkedHashSet<>();
+            synchronized (theTable) {
+                theOldItem = theTable.get(theRequest.getKey());
+                verifyCondition(theCondition, theOldItem);
+
+                theNewItem = new HashMap<>(theOldItem != null ? theOldItem : copyItem(theRequest.getKey()));
+                if (theRequest.getAttributeUpdates() != null) {
+                    theRequest.getAttributeUpdates().forEach((theAttributeName, theUpdate) -> {
+                        if (theKeyNames.contains(theAttributeName)) {
+                            throw InMemoryExpressions.validationException("Cannot update attribute "
+                                + theAttributeName + ". This attribute is part of the key");
+                        }
+                        applyAttributeUpdate(theNewItem, theAttributeName, theUpdate);
+                        theUpdatedAttributeNames.add(theAttributeName);
+                    });
+                }
+                if (theRequest.getUpdateExpression() != null) {
+                    theUpdatedAttributeNames.addAll(InMemoryExpressions.update(
+                        theRequest.getUpdateExpression(),
+                        theRequest.getExpressionAttributeNames(),
+                        theRequest.getExpressionAttributeValues(),
+                        theNewItem));
+                    theUpdatedAttributeNames.forEach(theAttributeName -> {
+                        if (theKeyNames.contains(theAttributeName)) {
+                            throw InMemoryExpressions.validationException("Cannot update attribute "
+                                + theAttributeName + ". This attribute is part of the key");
+                        }
+                    });
+                }
+                theTable.put(theNewItem);
+            }
+
+            final UpdateItemResult theResult = new UpdateItemResult().withConsumedCapacity(consumedCapacity(
+                theRequest.getReturnConsumedCapacity(),
+                theTable.getName(),
+                writeCapacityUnits(theOldItem, theNewItem)));
+            final String theReturnValues =
+                theRequest.getReturnValues() != null ? theRequest.getReturnValues() : ReturnValue.NONE.toString();
+            switch (ReturnValue.fromValue(theReturnValues)) {
+                case ALL_OLD:
+                    theResult.setAttributes(theOldItem != null ? copyItem(theOldItem) : null);
+                    break;
+                case ALL_NEW:
+                    theResult.setAttributes(copyItem(theNewItem));
+                    break;
+                case UPDATED_OLD:
+                    theResult.setAttributes(theOldItem != null
+                        ? copyItem(InMemoryExpressions.project(theOldItem, theUpdatedAttributeNames))
+                        : null);
+                    break;
+                case UPDATED_NEW:
+                    theResult.setAttributes(copyItem(InMemoryExpressions.project(theNewItem, theUpdatedAttributeNames)));
+                    break;
+                default:
+                    break;
+            }
+            return theResult;
+        });
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(final DeleteItemRequest inRequest) {
+        return execute("DeleteItem", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            final Predicate<Map<String, AttributeValue>> theCondition = writeCondition(
+                theRequest.getConditionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getExpressionAttributeValues(),
+                theRequest.getExpected(),
+                theRequest.getConditionalOperator());
+
+            final Map<String, AttributeValue> theOldItem;
+            synchronized (theTable) {
+                theOldItem = theTable.get(theRequest.getKey());
+                verifyCondition(theCondition, theOldItem);
+                if (theOldItem != null) {
+                    theTable.remove(theRequest.getKey());
+                }
+            }
+
+            final DeleteItemResult theResult = new DeleteItemResult().withConsumedCapacity(consumedCapacity(
+                theRequest.getReturnConsumedCapacity(),
+                theTable.getName(),
+                writeCapacityUnits(theOldItem, null)));
+            if (ReturnValue.ALL_OLD.toString().equals(theRequest.getReturnValues()) && theOldItem != null) {
+                theResult.setAttributes(copyItem(theOldItem));
+            }
+            return theResult;
+        });
+    }
+
+    @Override
+    public ScanResult scan(final ScanRequest inRequest) {
+        return execute("Scan", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            final InMemoryTable.InMemoryIndex theIndex = theTable.index(theRequest.getIndexName());
+            final Predicate<Map<String, AttributeValue>> theFilter = theRequest.getFilterExpression() != null
+                ? InMemoryExpressions.condition(
+                    theRequest.getFilterExpression(),
+                    theRequest.getExpressionAttributeNames(),
+                    theRequest.getExpressionAttributeValues())
+                : InMemoryExpressions.conditions(theRequest.getScanFilter(), theRequest.getConditionalOperator());
+            final Set<String> theProjection = projection(
+                theRequest.getProjectionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getAttributesToGet());
+
+            /* Scan items in primary key order, only including the items in the requested segment, if any. */
+            final Comparator<Map<String, AttributeValue>> theOrder =
+                Comparator.comparing(theItem -> theTable.encodeKey(theItem, false));
+            List<Map<String, AttributeValue>> theCandidates = theTable.items(theIndex);
+            if (theIndex != theTable.getPrimaryIndex()) {
+                theCandidates.sort(theOrder);
+            }
+            if (theRequest.getTotalSegments() != null) {
+                final int theTotalSegments = theRequest.getTotalSegments();
+                final int theSegment = theRequest.getSegment() != null ? theRequest.getSegment() : 0;
+                if (theTotalSegments < 1 || theSegment < 0 || theSegment >= theTotalSegments) {
+                    throw InMemoryExpressions.validationException("Invalid segment " + theSegment
+                        + " of " + theTotalSegments + " total segments");
+                }
+                final String theHashKeyName = theTable.getPrimaryIndex().getHashKeyName();
+                theCandidates = theCandidates
+                    .stream()
+                    .filter(theItem -> Math.floorMod(
+                        InMemoryTable.encodeValue(theItem.get(theHashKeyName)).hashCode(),
+                        theTotalSegments) == theSegment)
+                    .collect(Collectors.toList());
+            }
+
+            final ResultPage thePage = page(
+                theTable,
+                theIndex,
+                theCandidates,
+                theOrder,
+                theRequest.getExclusiveStartKey(),
+                theRequest.getLimit(),
+                theFilter);
+            return new ScanResult()
+                .withItems(Select.COUNT.toString().equals(theRequest.getSelect()) ? null : thePage.items(theProjection))
+                .withCount(thePage.mItems.size())
+                .withScannedCount(thePage.mScannedCount)
+                .withLastEvaluatedKey(thePage.mLastEvaluatedKey)
+                .withConsumedCapacity(consumedCapacity(
+                    theRequest.getReturnConsumedCapacity(),
+                    theTable.getName(),
+                    readCapacityUnits(thePage.mScannedBytes, theRequest.getConsistentRead())));
+        });
+    }
+
+    @Override
+    public QueryResult query(final QueryRequest inRequest) {
+        return execute("Query", inRequest, theRequest -> {
+            final InMemoryTable theTable = table(theRequest.getTableName());
+            final InMemoryTable.InMemoryIndex theIndex = theTable.index(theRequest.getIndexName());
+            final Predicate<Map<String, AttributeValue>> theKeyCondition;
+            if (theRequest.getKeyConditionExpression() != null) {
+                theKeyCondition = InMemoryExpressions.condition(
+                    theRequest.getKeyConditionExpression(),
+                    theRequest.getExpressionAttributeNames(),
+                    theRequest.getExpressionAttributeValues());
+            } else if (theRequest.getKeyConditions() != null) {
+                theKeyCondition = InMemoryExpressions.conditions(theRequest.getKeyConditions(), null);
+            } else {
+                throw InMemoryExpressions.validationException(
+                    "Either the KeyConditions or KeyConditionExpression parameter must be specified in the request");
+            }
+            final Predicate<Map<String, AttributeValue>> theFilter = theRequest.getFilterExpression() != null
+                ? InMemoryExpressions.condition(
+                    theRequest.getFilterExpression(),
+                    theRequest.getExpressionAttributeNames(),
+                    theRequest.getExpressionAttributeValues())
+                : InMemoryExpressions.conditions(theRequest.getQueryFilter(), theRequest.getConditionalOperator());
+            final Set<String> theProjection = projection(
+                theRequest.getProjectionExpression(),
+                theRequest.getExpressionAttributeNames(),
+                theRequest.getAttributesToGet());
+
+            /* Select the items matching the key condition, in index order or in reverse index order. */
+            Comparator<Map<String, AttributeValue>> theOrder = theTable.comparator(theIndex);
+            if (Boolean.FALSE.equals(theRequest.getScanIndexForward())) {
+                theOrder = theOrder.reversed();
+            }
+            final List<Map<String, AttributeValue>> theCandidates = theTable
+                .items(theIndex)
+                .stream()
+                .filter(theKeyCondition)
+                .sorted(theOrder)
+                .collect(Collectors.toList());
+
+            final ResultPage thePage = page(
+                theTable,
+                theIndex,
+                theCandidates,
+                theOrder,
+                theRequest.getExclusiveStartKey(),
+                theRequest.getLimit(),
+                theFilter);
+            return new QueryResult()
+                .withItems(Select.COUNT.toString().equals(theRequest.getSelect()) ? null : thePage.items(theProjection))
+                .withCount(thePage.mItems.size())
+                .withScannedCount(thePage.mScannedCount)
+                .withLastEvaluatedKey(thePage.mLastEvaluatedKey)
+                .withConsumedCapacity(consumedCapacity(
+                    theRequest.getReturnConsumedCapacity(),
+                    theTable.getName(),
+                    readCapacityUnits(thePage.mScannedBytes, theRequest.getConsistentRead())));
+        });
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(final BatchWriteItemRequest inRequest) {
+        return execute("BatchWriteItem", inRequest, theRequest -> {
+            final Map<String, List<WriteRequest>> theRequestItems = theRequest.getRequestItems() != null
+                ? theRequest.getRequestItems()
+                : Collections.emptyMap();
+            final int theWriteRequestCount = theRequestItems.values().stream().mapToInt(List::size).sum();
+            if (theWriteRequestCount < 1 || theWriteRequestCount > MAX_BATCH_WRITE_ITEMS) {
+                throw InMemoryExpressions.validationException(
+                    "Too many or too few items requested for the BatchWriteItem call");
+            }
+
+            final List<ConsumedCapacity> theConsumedCapacities = new ArrayList<>();
+            theRequestItems.forEach((theTableName, theWriteRequests) -> {
+                final InMemoryTable theTable = table(theTableName);
+                double theCapacityUnits = 0;
+                for (WriteRequest theWriteRequest : theWriteRequests) {
+                    synchronized (theTable) {
+                        if (theWriteRequest.getPutRequest() != null) {
+                            final Map<String, AttributeValue> theItem =
+                                copyItem(theWriteRequest.getPutRequest().getItem());
+                            theCapacityUnits += writeCapacityUnits(theTable.put(theItem), theItem);
+                        } else if (theWriteRequest.getDeleteRequest() != null) {
+                            theCapacityUnits += writeCapacityUnits(
+                                theTable.remove(theWriteRequest.getDeleteRequest().getKey()),
+                                null);
+                        }
+                    }
+                }
+                final ConsumedCapacity theConsumedCapacity = consumedCapacity(
+                    theRequest.getReturnConsumedCapacity(),
+                    theTableName,
+                    theCapacityUnits);
+                if (theConsumedCapacity != null) {
+                    theConsumedCapacities.add(theConsumedCapacity);
+                }
+            });
+
+            return new BatchWriteItemResult()
+                .withUnprocessedItems(Collections.emptyMap())
+                .withConsumedCapacity(theConsumedCapacities.isEmpty() ? null : theConsumedCapacities);
+        });
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(final BatchGetItemRequest inRequest) {
+        return execute("BatchGetItem", inRequest, theRequest -> {
+            final Map<String, KeysAndAttributes> theRequestItems = theRequest.getRequestItems() != null
+                ? theRequest.getRequestItems()
+                : Collections.emptyMap();
+            final int theKeyCount = theRequestItems
+                .values()
+                .stream()
+                .mapToInt(theKeysAndAttributes -> theKeysAndAttributes.getKeys().size())
+                .sum();
+            if (theKeyCount < 1 || theKeyCount > MAX_BATCH_GET_KEYS) {
+                throw InMemoryExpressions.validationException(
+                    "Too many or too few items requested for the BatchGetItem call");
+            }
+
+            final Map<String, List<Map<String, AttributeValue>>> theResponses = new LinkedHashMap<>();
+            final List<ConsumedCapacity> theConsumedCapacities = new ArrayList<>();
+            theRequestItems.forEach((theTableName, theKeysAndAttributes) -> {
+                final InMemoryTable theTable = table(theTableName);
+                final Set<String> theProjection = projection(
+                    theKeysAndAttributes.getProjectionExpression(),
+                    theKeysAndAttributes.getExpressionAttributeNames(),
+                    theKeysAndAttributes.getAttributesToGet());
+                final List<Map<String, AttributeValue>> theItems = new ArrayList<>();
+                double theCapacityUnits = 0;
+                for (Map<String, AttributeValue> theKey : theKeysAndAttributes.getKeys()) {
+                    final Map<String, AttributeValue> theItem = theTable.get(theKey);
+                    theCapacityUnits += readCapacityUnits(
+                        theItem != null ? InMemoryExpressions.itemSize(theItem) : 0,
+                        theKeysAndAttributes.getConsistentRead());
+                    if (theItem != null) {
+                        theItems.add(copyItem(InMemoryExpressions.project(theItem, theProjection)));
+                    }
+                }
+                theResponses.put(theTableName, theItems);
+                final ConsumedCapacity theConsumedCapacity = consumedCapacity(
+                    theRequest.getReturnConsumedCapacity(),
+                    theTableName,
+                    theCapacityUnits);
+                if (theConsumedCapacity != null) {
+                    theConsumedCapacities.add(theConsumedCapacity);
+                }
+            });
+
+            return new BatchGetItemResult()
+                .withResponses(theResponses)
+                .withUnprocessedKeys(Collections.emptyMap())
+                .withConsumedCapacity(theConsumedCapacities.isEmpty() ? null : theConsumedCapacities);
+        });
+    }
+
+    /**
+     * Shuts down the stand-in, discarding all tables.
+     */
+    @Override
+    public void shutdown() {
+        mTables.clear();
+    }
+
+    /**
+     * Performs an operation on the supplied request, invoking the request handlers before and
+     * after the operation in the same way as the DynamoDB client does.
+     *
+     * @param inOperationName Name of DynamoDB operation.
+     * @param inRequest Request.
+     * @param inOperation Performs the operation.
+     * @param <Q> Request type.
+     * @param <R> Result type.
+     * @return Operation result.
+     */
+    @SuppressWarnings("unchecked")
+    protected <Q extends AmazonWebServiceRequest, R> R execute(
+        final String inOperationName,
+        final Q inRequest,
+        final Function<Q, R> inOperation) {
+        AmazonWebServiceRequest theOriginalRequest = inRequest;
+        for (RequestHandler2 theRequestHandler : mRequestHandlers) {
+            theOriginalRequest = theRequestHandler.beforeExecution(theOriginalRequest);
+        }
+        final Request<Q> theRequest = new DefaultRequest<>((Q) theOriginalRequest, SERVICE_NAME);
+        theRequest.addHandlerContext(HandlerContextKey.OPERATION_NAME, inOperationName);
+        for (RequestHandler2 theRequestHandler : mRequestHandlers) {
+            theRequestHandler.beforeRequest(theRequest);
+        }
+
+        try {
+            final R theResult = inOperation.apply((Q) theOriginalRequest);
+            final Response<R> theResponse = new Response<>(theResult, null);
+            for (RequestHandler2 theRequestHandler : mRequestHandlers) {
+                theRequestHandler.afterAttempt(
+                    HandlerAfterAttemptContext.builder().withRequest(theRequest).withResponse(theResponse).build());
+                theRequestHandler.afterResponse(theRequest, theResponse);
+            }
+            return theResult;
+        } catch (final AmazonServiceException theException) {
+            for (RequestHandler2 theRequestHandler : mRequestHandlers) {
+                theRequestHandler.afterAttempt(
+                    HandlerAfterAttemptContext.builder().withRequest(theRequest).withException(theException).build());
+                theRequestHandler.afterError(theRequest, null, theException);
+            }
+            throw theException;
+        }
+    }
+
+    /**
+     * Retrieves the table with the supplied name.
+     *
+     * @param inTableName Table name.
+     * @return Table.
+     */
+    protected InMemoryTable table(final String inTableName) {
+        final InMemoryTable theTable = inTableName != null ? mTables.get(inTableName) : null;
+        if (theTable == null) {
+            throw clientException(
+                new ResourceNotFoundException("Cannot do operations on a non-existent table"),
+                "ResourceNotFoundException");
+        }
+        return theTable;
+    }
+
+    /**
+     * Creates a result page from the supplied candidate items, starting after the supplied
+     * exclusive start key.
+     * Items are evaluated until the limit is reached or the evaluated items exceed the maximum
+     * page size.
+     *
+     * @param inTable Table containing items.
+     * @param inIndex Index from which items are read.
+     * @param inCandidates Candidate items, in the order in which they are to be evaluated.
+     * @param inOrder Order of candidate items.
+     * @param inExclusiveStartKey Key of item after which to start, null to start at the first item.
+     * @param inLimit Maximum number of items to evaluate, null if unlimited.
+     * @param inFilter Filter selecting evaluated items to include in the page.
+     * @return Result page.
+     */
+    protected ResultPage page(
+        final InMemoryTable inTable,
+        final InMemoryTable.InMemoryIndex inIndex,
+        final List<Map<String, AttributeValue>> inCandidates,
+        final Comparator<Map<String, AttributeValue>> inOrder,
+        final Map<String, AttributeValue> inExclusiveStartKey,
+        final Integer inLimit,
+        final Predicate<Map<String, AttributeValue>> inFilter) {
+        if (inLimit != null && inLimit < 1) {
+            throw InMemoryExpressions.validationException("Limit must be greater than or equal to 1");
+        }
+        int theNextCandidate = 0;
+        if (inExclusiveStartKey != null && !inExclusiveStartKey.isEmpty()) {
+            while (theNextCandidate < inCandidates.size()
+                && inOrder.compare(inCandidates.get(theNextCandidate), inExclusiveStartKey) <= 0) {
+                theNextCandidate++;
+            }
+        }
+
+        final ResultPage thePage = new ResultPage();
+        while (theNextCandidate < inCandidates.size()
+            && (inLimit == null || thePage.mScannedCount < inLimit)
+            && thePage.mScannedBytes < MAX_PAGE_SIZE_BYTES) {
+            final Map<String, AttributeValue> theItem = inCandidates.get(theNextCandidate++);
+            thePage.mScannedCount++;
+            thePage.mScannedBytes += InMemoryExpressions.itemSize(theItem);
+            if (inFilter.test(theItem)) {
+                thePage.mItems.add(theItem);
+            }
+        }
+        if (theNextCandidate < inCandidates.size()) {
+            thePage.mLastEvaluatedKey = inTable.key(inCandidates.get(theNextCandidate - 1), inIndex);
+        }
+        return thePage;
+    }
+
+    /**
+     * Creates a predicate on current items from either the supplied condition expression or the supplied
+     * legacy expected attribute values.
+     * Items that do not exist are represented by empty items.
+     *
+     * @param inConditionExpression Condition expression. May be null.
+     * @param inAttributeNames Expression attribute names. May be null.
+     * @param inAttributeValues Expression attribute values. May be null.
+     * @param inExpected Legacy expected attribute values. May be null.
+     * @param inConditionalOperator Operator combining legacy expected attribute values. May be null.
+     * @return Predicate on current items.
+     */
+    protected Predicate<Map<String, AttributeValue>> writeCondition(
+        final String inConditionExpression,
+        final Map<String, String> inAttributeNames,
+        final Map<String, AttributeValue> inAttributeValues,
+        final Map<String, ExpectedAttributeValue> inExpected,
+        final String inConditionalOperator) {
+        return inConditionExpression != null
+            ? InMemoryExpressions.condition(inConditionExpression, inAttributeNames, inAttributeValues)
+            : InMemoryExpressions.expected(inExpected, inConditionalOperator);
+    }
+
+    /**
+     * Verifies that the supplied current item satisfies the supplied condition.
+     *
+     * @param inCondition Condition.
+     * @param inCurrentItem Current item, null if there is no current item.
+     */
+    protected void verifyCondition(
+        final Predicate<Map<String, AttributeValue>> inCondition,
+        final Map<String, AttributeValue> inCurrentItem) {
+        if (!inCondition.test(inCurrentItem != null ? inCurrentItem : Collections.emptyMap())) {
+            throw clientException(
+                new ConditionalCheckFailedException("The conditional request failed"),
+                "ConditionalCheckFailedException");
+        }
+    }
+
+    /**
+     * Applies the supplied legacy attribute update to the supplied item.
+     *
+     * @param inItem Item to update.
+     * @param inAttributeName Name of attribute to update.
+     * @param inUpdate Attribute update.
+     */
+    protected void applyAttributeUpdate(
+        final Map<String, AttributeValue> inItem,
+        final String inAttributeName,
+        final AttributeValueUpdate inUpdate) {
+        final AttributeValue theCurrentValue = inItem.get(inAttributeName);
+        final AttributeValue theValue = inUpdate.getValue() != null ? copyValue(inUpdate.getValue()) : null;
+        final String theAction = inUpdate.getAction() != null ? inUpdate.getAction() : AttributeAction.PUT.toString();
+        switch (AttributeAction.fromValue(theAction)) {
+            case PUT:
+                inItem.put(inAttributeName, theValue);
+                break;
+            case DELETE:
+                if (theValue == null || theCurrentValue == null) {
+                    inItem.remove(inAttributeName);
+                } else {
+                    final AttributeValue theRemainingValue = setOperation(theCurrentValue, theValue, false);
+                    if (theRemainingValue == null) {
+                        inItem.remove(inAttributeName);
+                    } else {
+                        inItem.put(inAttributeName, theRemainingValue);
+                    }
+                }
+                break;
+            case ADD:
+                if (theCurrentValue == null) {
+                    inItem.put(inAttributeName, theValue);
+                } else if (theCurrentValue.getN() != null && theValue.getN() != null) {
+                    inItem.put(inAttributeName, new AttributeValue().withN(
+                        new BigDecimal(theCurrentValue.getN()).add(new BigDecimal(theValue.getN())).toPlainString()));
+                } else {
+                    inItem.put(inAttributeName, setOperation(theCurrentValue, theValue, true));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Adds the elements of the supplied operand set to, or removes them from, the supplied set.
+     *
+     * @param inSet Set attribute value.
+     * @param inOperand Set attribute value of the same type containing elements to add or remove.
+     * @param inAddFlag True if elements are to be added, false if they are to be removed.
+     * @return Resulting set attribute value, null if the resulting set is empty.
+     */
+    protected AttributeValue setOperation(
+        final AttributeValue inSet,
+        final AttributeValue inOperand,
+        final boolean inAddFlag) {
+        final String theType = InMemoryExpressions.type(inSet);
+        if (!theType.equals(InMemoryExpressions.type(inOperand))
+            || !(inSet.getSS() != null || inSet.getNS() != null || inSet.getBS() != null)) {
+            throw InMemoryExpressions.validationException(
+                "An operand in the update expression has an incorrect data type");
+        }
+        final Set<Object> theElements = new LinkedHashSet<>(setElements(inSet));
+        if (inAddFlag) {
+            theElements.addAll(setElements(inOperand));
+        } else {
+            theElements.removeAll(setElements(inOperand));
+        }
+        if (theElements.isEmpty()) {
+            return null;
+        }
+        final AttributeValue theResult = new AttributeValue();
+        if (inSet.getSS() != null) {
+            theResult.setSS(theElements.stream().map(String.class::cast).collect(Collectors.toList()));
+        } else if (inSet.getNS() != null) {
+            theResult.setNS(theElements.stream().map(String.class::cast).collect(Collectors.toList()));
+        } else {
+            theResult.setBS(theElements.stream().map(ByteBuffer.class::cast).collect(Collectors.toList()));
+        }
+        return theResult;
+    }
+
+    /**
+     * Retrieves the elements of the supplied set attribute value.
+     *
+     * @param inSet Set attribute value.
+     * @return Set elements.
+     */
+    protected Collection<?> setElements(final AttributeValue inSet) {
+        if (inSet.getSS() != null) {
+            return inSet.getSS();
+        } else if (inSet.getNS() != null) {
+            return inSet.getNS();
+        }
+        return inSet.getBS();
+    }
+
+    /**
+     * Determines the attributes to include in returned items from either the supplied projection
+     * expression or the supplied legacy attribute names.
+     *
+     * @param inProjectionExpression Projection expression. May be null.
+     * @param inAttributeNames Expression attribute names. May be null.
+     * @param inAttributesToGet Legacy names of attributes to get. May be null.
+     * @return Names of attributes to include, null if all attributes are to be included.
+     */
+    protected Set<String> projection(
+        final String inProjectionExpression,
+        final Map<String, String> inAttributeNames,
+        final List<String> inAttributesToGet) {
+        if (inProjectionExpression != null) {
+            return InMemoryExpressions.projection(inProjectionExpression, inAttributeNames);
+        }
+        return inAttributesToGet != null ? new LinkedHashSet<>(inAttributesToGet) : null;
+    }
+
+    /**
+     * Creates the consumed capacity to return for the supplied table, if requested.
+     *
+     * @param inReturnConsumedCapacity Requested consumed capacity detail. May be null.
+     * @param inTableName Table name.
+     * @param inCapacityUnits Consumed capacity units.
+     * @return Consumed capacity, null if consumed capacity was not requested.
+     */
+    protected ConsumedCapacity consumedCapacity(
+        final String inReturnConsumedCapacity,
+        final String inTableName,
+        final double inCapacityUnits) {
+        if (inReturnConsumedCapacity == null
+            || ReturnConsumedCapacity.NONE.toString().equals(inReturnConsumedCapacity)) {
+            return null;
+        }
+        final ConsumedCapacity theConsumedCapacity = new ConsumedCapacity()
+            .withTableName(inTableName)
+            .withCapacityUnits(inCapacityUnits);
+        if (ReturnConsumedCapacity.INDEXES.toString().equals(inReturnConsumedCapacity)) {
+            theConsumedCapacity.setTable(new Capacity().withCapacityUnits(inCapacityUnits));
+        }
+        return theConsumedCapacity;
+    }
+
+    /**
+     * Calculates the write capacity units consumed writing the larger of the supplied items.
+     *
+     * @param inOldItem Item before write. May be null.
+     * @param inNewItem Item after write. May be null.
+     * @return Write capacity units, at least one.
+     */
+    protected static double writeCapacityUnits(
+        final Map<String, AttributeValue> inOldItem,
+        final Map<String, AttributeValue> inNewItem) {
+        final long theSize = Math.max(
+            inOldItem != null ? InMemoryExpressions.itemSize(inOldItem) : 0,
+            inNewItem != null ? InMemoryExpressions.itemSize(inNewItem) : 0);
+        return Math.max(1, (theSize + WRITE_CAPACITY_UNIT_BYTES - 1) / WRITE_CAPACITY_UNIT_BYTES);
+    }
+
+    /**
+     * Calculates the read capacity units consumed reading the supplied number of bytes.
+     * Eventually consistent reads consume half the capacity of strongly consistent reads.
+     *
+     * @param inBytes Number of bytes read.
+     * @param inConsistentRead True if the read is strongly consistent. May be null.
+     * @return Read capacity units, at least one half.
+     */
+    protected static double readCapacityUnits(final long inBytes, final Boolean inConsistentRead) {
+        final long theUnits = Math.max(1, (inBytes + READ_CAPACITY_UNIT_BYTES - 1) / READ_CAPACITY_UNIT_BYTES);
+        return Boolean.TRUE.equals(inConsistentRead) ? theUnits : theUnits / 2.0;
+    }
+
+    /**
+     * Creates a deep copy of the supplied item, so that stored items cannot be modified by clients.
+     *
+     * @param inItem Item to copy.
+     * @return Item copy.
+     */
+    protected static Map<String, AttributeValue> copyItem(final Map<String, AttributeValue> inItem) {
+        final Map<String, AttributeValue> theCopy = new HashMap<>();
+        inItem.forEach((theAttributeName, theValue) -> theCopy.put(theAttributeName, copyValue(theValue)));
+        return theCopy;
+    }
+
+    /**
+     * Creates a deep copy of the supplied attribute value.
+     *
+     * @param inValue Attribute value to copy.
+     * @return Attribute value copy.
+     */
+    protected static AttributeValue copyValue(final AttributeValue inValue) {
+        final AttributeValue theCopy = inValue.clone();
+        if (inValue.getB() != null) {
+            theCopy.setB(inValue.getB().asReadOnlyBuffer());
+        }
+        if (inValue.getSS() != null) {
+            theCopy.setSS(new ArrayList<>(inValue.getSS()));
+        }
+        if (inValue.getNS() != null) {
+            theCopy.setNS(new ArrayList<>(inValue.getNS()));
+        }
+        if (inValue.getBS() != null) {
+            theCopy.setBS(inValue.getBS().stream().map(ByteBuffer::asReadOnlyBuffer).collect(Collectors.toList()));
+        }
+        if (inValue.getL() != null) {
+            theCopy.setL(inValue.getL().stream().map(InMemoryAmazonDynamoDB::copyValue).collect(Collectors.toList()));
+        }
+        if (inValue.getM() != null) {
+            theCopy.setM(copyItem(inValue.getM()));
+        }
+        return theCopy;
+    }
+
+    /**
+     * Initializes the supplied exception as a client error response from DynamoDB.
+     *
+     * @param inException Exception.
+     * @param inErrorCode DynamoDB error code.
+     * @param <E> Exception type.
+     * @return Initialized exception.
+     */
+    protected static <E extends AmazonServiceException> E clientException(
+        final E inException,
+        final String inErrorCode) {
+        inException.setErrorCode(inErrorCode);
+        inException.setErrorType(AmazonServiceException.ErrorType.Client);
+        inException.setStatusCode(400);
+        inException.setServiceName(SERVICE_NAME);
+        return inException;
+    }
+
+    /**
+     * Items and statistics of one page of a scan or query result.
+     */
+    protected static class ResultPage {
+        /* Instance variable(s): */
+        protected final List<Map<String, AttributeValue>> mItems = new ArrayList<>();
+        protected int mScannedCount;
+        protected long mScannedBytes;
+        protected Map<String, AttributeValue> mLastEvaluatedKey;
+
+        /**
+         * Retrieves copies of the items in the page containing the supplied attributes.
+         *
+         * @param inProjection Names of attributes to include, null to include all attributes.
+         * @return Item copies.
+         */
+        public List<Map<String, AttributeValue>> items(final Set<String> inProjection) {
+            return mItems
+                .stream()
+                .map(theItem -> copyItem(InMemoryExpressions.project(theItem, inProjection)))
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests of the in-memory DynamoDB stand-in.
+ *
+ * @author Ivan Krizsan
+ */
+class InMemoryAmazonDynamoDBTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME = "shapes";
+    protected final static String COLOUR_INDEX_NAME = "colour-radius-index";
+    protected final static int SHAPES_COUNT = 20;
+    protected final static String[] COLOURS = { "red", "green" };
+
+    /* Instance variable(s): */
+    protected InMemoryAmazonDynamoDB mAmazonDynamoDB;
+
+    /**
+     * Creates a stand-in containing a table of shapes, with a global secondary index on colour
+     * and radius, before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = new InMemoryAmazonDynamoDB();
+        mAmazonDynamoDB.createTable(new CreateTableRequest()
+            .withTableName(TABLE_NAME)
+            .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+            .withAttributeDefinitions(
+                new AttributeDefinition("id", ScalarAttributeType.S),
+                new AttributeDefinition("colour", ScalarAttributeType.S),
+                new AttributeDefinition("radius", ScalarAttributeType.N))
+            .withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
+                .withIndexName(COLOUR_INDEX_NAME)
+                .withKeySchema(
+                    new KeySchemaElement("colour", KeyType.HASH),
+                    new KeySchemaElement("radius", KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY))));
+        for (int i = 0; i < SHAPES_COUNT; i++) {
+            mAmazonDynamoDB.putItem(TABLE_NAME, Map.of(
+                "id", new AttributeValue("shape-" + i),
+                "colour", new AttributeValue(COLOURS[i % COLOURS.length]),
+                "radius", new AttributeValue().withN(Integer.toString(SHAPES_COUNT - i)),
+                "name", new AttributeValue("Shape " + i)));
+        }
+    }
+
+    /**
+     * Tests putting an item on the condition that no item with the same key exists.
+     * Expected result:
+     * The put should fail with a conditional check failed exception and the existing item
+     * should not have been replaced.
+     */
+    @Test
+    public void conditionalPutTest() {
+        final PutItemRequest thePutItemRequest = new PutItemRequest()
+            .withTableName(TABLE_NAME)
+            .withItem(Map.of("id", new AttributeValue("shape-0"), "name", new AttributeValue("Replaced")))
+            .withConditionExpression("attribute_not_exists(#id)")
+            .withExpressionAttributeNames(Map.of("#id", "id"));
+
+        Assertions.assertThrows(
+            ConditionalCheckFailedException.class,
+            () -> mAmazonDynamoDB.putItem(thePutItemRequest),
+            "Putting an item with an existing key should fail");
+        Assertions.assertEquals(
+            "Shape 0",
+            mAmazonDynamoDB.getItem(TABLE_NAME, Map.of("id", new AttributeValue("shape-0"))).getItem().get("name").getS(),
+            "The existing item should not have been replaced");
+    }
+
+    /**
+     * Tests updating an item using an update expression that is conditional on the value of an attribute.
+     * Expected result:
+     * The set attribute should have been replaced, the removed attribute should have been removed
+     * and other attributes should be unchanged.
+     * Repeating the update should fail with a conditional check failed exception.
+     */
+    @Test
+    public void conditionalUpdateExpressionTest() {
+        final Map<String, AttributeValue> theKey = Map.of("id", new AttributeValue("shape-1"));
+        final UpdateItemRequest theUpdateItemRequest = new UpdateItemRequest()
+            .withTableName(TABLE_NAME)
+            .withKey(theKey)
+            .withUpdateExpression("SET #name = :name REMOVE colour")
+            .withConditionExpression("#name = :expectedName")
+            .withExpressionAttributeNames(Map.of("#name", "name"))
+            .withExpressionAttributeValues(Map.of(
+                ":name", new AttributeValue("Updated"),
+                ":expectedName", new AttributeValue("Shape 1")));
+
+        mAmazonDynamoDB.updateItem(theUpdateItemRequest);
+        final Map<String, AttributeValue> theItem = mAmazonDynamoDB.getItem(TABLE_NAME, theKey).getItem();
+        Assertions.assertEquals("Updated", theItem.get("name").getS(), "The name should have been set");
+        Assertions.assertFalse(theItem.containsKey("colour"), "The colour should have been removed");
+        Assertions.assertEquals("19", theItem.get("radius").getN(), "The radius should be unchanged");
+
+        Assertions.assertThrows(
+            ConditionalCheckFailedException.class,
+            () -> mAmazonDynamoDB.updateItem(theUpdateItemRequest),
+            "Updating an item that does not satisfy the condition should fail");
+    }
+
+    /**
+     * Tests querying a global secondary index one item at a time, in descending range key order.
+     * Expected result:
+     * All items with the queried colour should be found once, in descending radius order,
+     * and only the key attributes projected into the index should be returned.
+     */
+    @Test
+    public void queryIndexPagesTest() {
+        final List<Integer> theRadiuses = new ArrayList<>();
+        Map<String, AttributeValue> theLastEvaluatedKey = null;
+        do {
+            final QueryResult theQueryResult = mAmazonDynamoDB.query(new QueryRequest()
+                .withTableName(TABLE_NAME)
+                .withIndexName(COLOUR_INDEX_NAME)
+                .withKeyConditionExpression("colour = :colour AND radius > :radius")
+                .withExpressionAttributeValues(Map.of(
+                    ":colour", new AttributeValue("red"),
+                    ":radius", new AttributeValue().withN("4")))
+                .withScanIndexForward(false)
+                .withLimit(1)
+                .withExclusiveStartKey(theLastEvaluatedKey));
+            for (Map<String, AttributeValue> theItem : theQueryResult.getItems()) {
+                Assertions.assertFalse(theItem.containsKey("name"), "Only key attributes should be projected");
+                theRadiuses.add(Integer.parseInt(theItem.get("radius").getN()));
+            }
+            theLastEvaluatedKey = theQueryResult.getLastEvaluatedKey();
+        } while (theLastEvaluatedKey != null);
+
+        Assertions.assertEquals(List.of(20, 18, 16, 14, 12, 10, 8, 6), theRadiuses,
+            "Red shapes with radius greater than four should be found in descending radius order");
+    }
+
+    /**
+     * Tests scanning a table in parallel segments with a filter expression.
+     * Expected result:
+     * Each item matching the filter should be found in exactly one of the segments.
+     */
+    @Test
+    public void segmentedScanTest() {
+        final int theTotalSegments = 3;
+        final Set<String> theIds = new HashSet<>();
+        int theFoundCount = 0;
+        for (int theSegment = 0; theSegment < theTotalSegments; theSegment++) {
+            final ScanResult theScanResult = mAmazonDynamoDB.scan(new ScanRequest()
+                .withTableName(TABLE_NAME)
+                .withFilterExpression("begins_with(#name, :prefix) AND NOT colour IN (:colour)")
+                .withExpressionAttributeNames(Map.of("#name", "name"))
+                .withExpressionAttributeValues(Map.of(
+                    ":prefix", new AttributeValue("Shape"),
+                    ":colour", new AttributeValue("red")))
+                .withSegment(theSegment)
+                .withTotalSegments(theTotalSegments));
+            theScanResult.getItems().forEach(theItem -> theIds.add(theItem.get("id").getS()));
+            theFoundCount += theScanResult.getCount();
+        }
+
+        Assertions.assertEquals(SHAPES_COUNT / 2, theFoundCount, "All green shapes should be found");
+        Assertions.assertEquals(theFoundCount, theIds.size(), "No shape should be found in more than one segment");
+    }
+}
@@ -0,0 +1,286 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.AmazonServiceException;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryPublisher;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking DynamoDB client performing the operations used by the asynchronous DynamoDB template
+ * on an in-memory DynamoDB stand-in, so that the same tables are accessed by the blocking and the
+ * non-blocking client.
+ * Supports PutItem, GetItem, DeleteItem, Scan and Query including the scan and query paginators.
+ * Operations are performed on the supplied executor, in order for futures to be completed
+ * by another thread than the calling thread, as with the DynamoDB client.
+ *
+ * @author Ivan Krizsan
+ */
+public class InMemoryDynamoDbAsyncClient implements DynamoDbAsyncClient {
+    /* Constant(s): */
+
+    /* Instance variable(s): */
+    protected final InMemoryAmazonDynamoDB mAmazonDynamoDB;
+    protected final Executor mExecutor;
+
+    /**
+     * Creates a client performing operations on the supplied in-memory DynamoDB on the common
+     * fork-join pool.
+     *
+     * @param inAmazonDynamoDB In-memory DynamoDB.
+     */
+    public InMemoryDynamoDbAsyncClient(final InMemoryAmazonDynamoDB inAmazonDynamoDB) {
+        this(inAmazonDynamoDB, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a client performing operations on the supplied in-memory DynamoDB on the supplied executor.
+     *
+     * @param inAmazonDynamoDB In-memory DynamoDB.
+     * @param inExecutor Executor on which operations are performed.
+     */
+    public InMemoryDynamoDbAsyncClient(final InMemoryAmazonDynamoDB inAmazonDynamoDB, final Executor inExecutor) {
+        mAmazonDynamoDB = inAmazonDynamoDB;
+        mExecutor = inExecutor;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CompletableFuture<PutItemResponse> putItem(final PutItemRequest inRequest) {
+        return perform(() -> {
+            final com.amazonaws.services.dynamodbv2.model.PutItemResult theResult = mAmazonDynamoDB.putItem(
+                new com.amazonaws.services.dynamodbv2.model.PutItemRequest()
+                    .withTableName(inRequest.tableName())
+                    .withItem(AttributeValues.toV1(inRequest.item()))
+                    .withConditionExpression(inRequest.conditionExpression())
+                    .withExpressionAttributeNames(names(inRequest.expressionAttributeNames()))
+                    .withExpressionAttributeValues(values(inRequest.expressionAttributeValues()))
+                    .withReturnValues(inRequest.returnValuesAsString())
+                    .withReturnConsumedCapacity(inRequest.returnConsumedCapacityAsString()));
+            return PutItemResponse
+                .builder()
+                .attributes(theResult.getAttributes() != null ? AttributeValues.toV2(theResult.getAttributes()) : null)
+                .build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<GetItemResponse> getItem(final GetItemRequest inRequest) {
+        return perform(() -> {
+            final com.amazonaws.services.dynamodbv2.model.GetItemResult theResult = mAmazonDynamoDB.getItem(
+                new com.amazonaws.services.dynamodbv2.model.GetItemRequest()
+                    .withTableName(inRequest.tableName())
+                    .withKey(AttributeValues.toV1(inRequest.key()))
+                    .withConsistentRead(inRequest.consistentRead())
+                    .withProjectionExpression(inRequest.projectionExpression())
+                    .withExpressionAttributeNames(names(inRequest.expressionAttributeNames()))
+                    .withReturnConsumedCapacity(inRequest.returnConsumedCapacityAsString()));
+            return GetItemResponse
+                .builder()
+                .item(theResult.getItem() != null ? AttributeValues.toV2(theResult.getItem()) : null)
+                .build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<DeleteItemResponse> deleteItem(final DeleteItemRequest inRequest) {
+        return perform(() -> {
+            final com.amazonaws.services.dynamodbv2.model.DeleteItemResult theResult = mAmazonDynamoDB.deleteItem(
+                new com.amazonaws.services.dynamodbv2.model.DeleteItemRequest()
+                    .withTableName(inRequest.tableName())
+                    .withKey(AttributeValues.toV1(inRequest.key()))
+                    .withConditionExpression(inRequest.conditionExpression())
+                    .withExpressionAttributeNames(names(inRequest.expressionAttributeNames()))
+                    .withExpressionAttributeValues(values(inRequest.expressionAttributeValues()))
+                    .withReturnValues(inRequest.returnValuesAsString())
+                    .withReturnConsumedCapacity(inRequest.returnConsumedCapacityAsString()));
+            return DeleteItemResponse
+                .builder()
+                .attributes(theResult.getAttributes() != null ? AttributeValues.toV2(theResult.getAttributes()) : null)
+                .build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<ScanResponse> scan(final ScanRequest inRequest) {
+        return perform(() -> {
+            final com.amazonaws.services.dynamodbv2.model.ScanResult theResult = mAmazonDynamoDB.scan(
+                new com.amazonaws.services.dynamodbv2.model.ScanRequest()
+                    .withTableName(inRequest.tableName())
+                    .withIndexName(inRequest.indexName())
+                    .withFilterExpression(inRequest.filterExpression())
+                    .withProjectionExpression(inRequest.projectionExpression())
+                    .withExpressionAttributeNames(names(inRequest.expressionAttributeNames()))
+                    .withExpressionAttributeValues(values(inRequest.expressionAttributeValues()))
+                    .withExclusiveStartKey(values(inRequest.exclusiveStartKey()))
+                    .withLimit(inRequest.limit())
+                    .withSegment(inRequest.segment())
+                    .withTotalSegments(inRequest.totalSegments())
+                    .withSelect(inRequest.selectAsString())
+                    .withConsistentRead(inRequest.consistentRead())
+                    .withReturnConsumedCapacity(inRequest.returnConsumedCapacityAsString()));
+            return ScanResponse
+                .builder()
+                .items(items(theResult.getItems()))
+                .count(theResult.getCount())
+                .scannedCount(theResult.getScannedCount())
+                .lastEvaluatedKey(
+                    theResult.getLastEvaluatedKey() != null ? AttributeValues.toV2(theResult.getLastEvaluatedKey()) : null)
+                .build();
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> query(final QueryRequest inRequest) {
+        return perform(() -> {
+            final com.amazonaws.services.dynamodbv2.model.QueryResult theResult = mAmazonDynamoDB.query(
+                new com.amazonaws.services.dynamodbv2.model.QueryRequest()
+                    .withTableName(inRequest.tableName())
+                    .withIndexName(inRequest.indexName())
+                    .withKeyConditionExpression(inRequest.keyConditionExpression())
+                    .withFilterExpression(inRequest.filterExpression())
+                    .withProjectionExpression(inRequest.projectionExpression())
+                    .withExpressionAttributeNames(names(inRequest.expressionAttributeNames()))
+                    .withExpressionAttributeValues(values(inRequest.expressionAttributeValues()))
+                    .withExclusiveStartKey(values(inRequest.exclusiveStartKey()))
+                    .withLimit(inRequest.limit())
+                    .withScanIndexForward(inRequest.scanIndexForward())
+                    .withSelect(inRequest.selectAsString())
+                    .withConsistentRead(inRequest.consistentRead())
+                    .withReturnConsumedCapacity(inRequest.returnConsumedCapacityAsString()));
+            return QueryResponse
+                .builder()
+                .items(items(theResult.getItems()))
+                .count(theResult.getCount())
+                .scannedCount(theResult.getScannedCount())
+                .lastEvaluatedKey(
+                    theResult.getLastEvaluatedKey() != null ? AttributeValues.toV2(theResult.getLastEvaluatedKey()) : null)
+                .build();
+        });
+    }
+
+    @Override
+    public ScanPublisher scanPaginator(final ScanRequest inRequest) {
+        return new ScanPublisher(this, inRequest);
+    }
+
+    @Override
+    public QueryPublisher queryPaginator(final QueryRequest inRequest) {
+        return new QueryPublisher(this, inRequest);
+    }
+
+    /**
+     * Performs the supplied operation on the executor of the client.
+     * Exceptions thrown by the in-memory DynamoDB are translated to the corresponding exceptions
+     * of the non-blocking client.
+     *
+     * @param inOperation Operation to perform.
+     * @param <R> Response type.
+     * @return Future completed with the response of the operation.
+     */
+    protected <R> CompletableFuture<R> perform(final Supplier<R> inOperation) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return inOperation.get();
+            } catch (final AmazonServiceException theException) {
+                throw new CompletionException(translateException(theException));
+            }
+        }, mExecutor);
+    }
+
+    /**
+     * Translates the supplied exception thrown by the in-memory DynamoDB to the corresponding
+     * exception of the non-blocking client.
+     *
+     * @param inException Exception to translate.
+     * @return Translated exception.
+     */
+    protected DynamoDbException translateException(final AmazonServiceException inException) {
+        final AwsErrorDetails theErrorDetails = AwsErrorDetails
+            .builder()
+            .errorCode(inException.getErrorCode())
+            .errorMessage(inException.getErrorMessage())
+            .serviceName(SERVICE_NAME)
+            .build();
+        final DynamoDbException.Builder theBuilder;
+        if (inException instanceof com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException) {
+            theBuilder = ConditionalCheckFailedException.builder();
+        } else if (inException instanceof com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException) {
+            theBuilder = ResourceNotFoundException.builder();
+        } else {
+            theBuilder = DynamoDbException.builder();
+        }
+        return (DynamoDbException) theBuilder
+            .message(inException.getErrorMessage())
+            .statusCode(inException.getStatusCode())
+            .awsErrorDetails(theErrorDetails)
+            .build();
+    }
+
+    /**
+     * Converts the supplied expression attribute names, which are empty if absent in a request
+     * of the non-blocking client.
+     *
+     * @param inNames Expression attribute names.
+     * @return Expression attribute names, null if there are none.
+     */
+    protected static Map<String, String> names(final Map<String, String> inNames) {
+        return inNames == null || inNames.isEmpty() ? null : inNames;
+    }
+
+    /**
+     * Converts the supplied attribute values, which are empty if absent in a request of the
+     * non-blocking client.
+     *
+     * @param inValues Attribute values.
+     * @return Attribute values, null if there are none.
+     */
+    protected static Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> values(
+        final Map<String, AttributeValue> inValues) {
+        return inValues == null || inValues.isEmpty() ? null : AttributeValues.toV1(inValues);
+    }
+
+    /**
+     * Converts the supplied items returned by the in-memory DynamoDB.
+     *
+     * @param inItems Items, null if only items were counted.
+     * @return Converted items, null if only items were counted.
+     */
+    protected static List<Map<String, AttributeValue>> items(
+        final List<Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue>> inItems) {
+        return inItems == null
+            ? null
+            : inItems.stream().map(AttributeValues::toV2).collect(Collectors.toList());
+    }
+}
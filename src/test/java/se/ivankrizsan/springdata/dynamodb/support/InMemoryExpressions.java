@@ -0,0 +1,992 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates DynamoDB expressions and legacy conditions on items held by the in-memory DynamoDB stand-in.
+ * Condition, filter and key condition expressions support comparisons, BETWEEN, IN, AND, OR, NOT,
+ * parentheses and the functions attribute_exists, attribute_not_exists, attribute_type,
+ * begins_with, contains and size.
+ * Projection expressions are limited to top-level attributes; the first element of nested
+ * attribute paths selects the top-level attribute to include.
+ * Update expressions are limited to SET and REMOVE actions on top-level attributes and ADD actions
+ * on top-level number attributes.
+ *
+ * @author Ivan Krizsan
+ */
+public final class InMemoryExpressions {
+    /* Constant(s): */
+    protected static final Pattern TOKEN_PATTERN = Pattern.compile(
+        "\\s*(<>|<=|>=|[=<>(),.\\[\\]]|#[A-Za-z0-9_]+|:[A-Za-z0-9_]+|[A-Za-z_][A-Za-z0-9_]*|[0-9]+)");
+
+    /**
+     * Hidden constructor of utility class.
+     */
+    private InMemoryExpressions() {
+    }
+
+    /**
+     * Parses the supplied condition expression into a predicate on items.
+     *
+     * @param inExpression Condition expression. May be null, in which case all items match.
+     * @param inAttributeNames Expression attribute name placeholders. May be null.
+     * @param inAttributeValues Expression attribute value placeholders. May be null.
+     * @return Predicate matching items that satisfy the condition.
+     */
+    public static Predicate<Map<String, AttributeValue>> condition(
+        final String inExpression,
+        final Map<String, String> inAttributeNames,
+        final Map<String, AttributeValue> inAttributeValues) {
+        if (inExpression == null || inExpression.isBlank()) {
+            return theItem -> true;
+        }
+        final ExpressionParser theParser = new ExpressionParser(inExpression, inAttributeNames, inAttributeValues);
+        final Predicate<Map<String, AttributeValue>> theCondition = theParser.condition();
+        theParser.expectEnd();
+        return theCondition;
+    }
+
+    /**
+     * Creates a predicate on items from the supplied legacy conditions, such as key conditions,
+     * scan filters and query filters.
+     *
+     * @param inConditions Conditions keyed by attribute name. May be null, in which case all items match.
+     * @param inConditionalOperator Operator combining the conditions, AND if null.
+     * @return Predicate matching items that satisfy the conditions.
+     */
+    public static Predicate<Map<String, AttributeValue>> conditions(
+        final Map<String, Condition> inConditions,
+        final String inConditionalOperator) {
+        if (inConditions == null || inConditions.isEmpty()) {
+            return theItem -> true;
+        }
+        final List<Predicate<Map<String, AttributeValue>>> thePredicates = new ArrayList<>();
+        inConditions.forEach((theAttributeName, theCondition) -> thePredicates.add(theItem -> compare(
+            theItem.get(theAttributeName),
+            theCondition.getComparisonOperator(),
+            theCondition.getAttributeValueList())));
+        return combine(thePredicates, inConditionalOperator);
+    }
+
+    /**
+     * Creates a predicate on items from the supplied legacy expected attribute values.
+     *
+     * @param inExpectedValues Expected attribute values keyed by attribute name. May be null,
+     * in which case all items match.
+     * @param inConditionalOperator Operator combining the expectations, AND if null.
+     * @return Predicate matching items that satisfy the expectations.
+     */
+    public static Predicate<Map<String, AttributeValue>> expected(
+        final Map<String, ExpectedAttributeValue> inExpectedValues,
+        final String inConditionalOperator) {
+        if (inExpectedValues == null || inExpectedValues.isEmpty()) {
+            return theItem -> true;
+        }
+        final List<Predicate<Map<String, AttributeValue>>> thePredicates = new ArrayList<>();
+        inExpectedValues.forEach((theAttributeName, theExpected) -> {
+            if (theExpected.getComparisonOperator() != null) {
+                final List<AttributeValue> theOperands = theExpected.getAttributeValueList() != null
+                    ? theExpected.getAttributeValueList()
+                    : Collections.singletonList(theExpected.getValue());
+                thePredicates.add(theItem -> compare(
+                    theItem.get(theAttributeName),
+                    theExpected.getComparisonOperator(),
+                    theOperands));
+            } else if (Boolean.FALSE.equals(theExpected.getExists())) {
+                thePredicates.add(theItem -> theItem.get(theAttributeName) == null);
+            } else if (theExpected.getValue() != null) {
+                thePredicates.add(theItem -> valuesEqual(theItem.get(theAttributeName), theExpected.getValue()));
+            } else {
+                thePredicates.add(theItem -> theItem.get(theAttributeName) != null);
+            }
+        });
+        return combine(thePredicates, inConditionalOperator);
+    }
+
+    /**
+     * Parses the supplied projection expression into the names of the top-level attributes to include.
+     *
+     * @param inExpression Projection expression.
+     * @param inAttributeNames Expression attribute name placeholders. May be null.
+     * @return Names of attributes to include.
+     */
+    public static Set<String> projection(final String inExpression, final Map<String, String> inAttributeNames) {
+        final ExpressionParser theParser = new ExpressionParser(inExpression, inAttributeNames, null);
+        final Set<String> theAttributeNames = new LinkedHashSet<>();
+        do {
+            theAttributeNames.add((String) theParser.path().get(0));
+        } while (theParser.accept(","));
+        theParser.expectEnd();
+        return theAttributeNames;
+    }
+
+    /**
+     * Parses the supplied update expression and applies it to the supplied item.
+     * Operands of SET and ADD actions are evaluated on the item as it was before the update.
+     *
+     * @param inExpression Update expression.
+     * @param inAttributeNames Expression attribute name placeholders. May be null.
+     * @param inAttributeValues Expression attribute value placeholders. May be null.
+     * @param inItem Item to update.
+     * @return Names of attributes that were set or removed.
+     */
+    public static Set<String> update(
+        final String inExpression,
+        final Map<String, String> inAttributeNames,
+        final Map<String, AttributeValue> inAttributeValues,
+        final Map<String, AttributeValue> inItem) {
+        final ExpressionParser theParser = new ExpressionParser(inExpression, inAttributeNames, inAttributeValues);
+        final Map<String, AttributeValue> theSetValues = new HashMap<>();
+        final Set<String> theRemovedAttributeNames = new LinkedHashSet<>();
+        do {
+            if (theParser.acceptKeyword("SET")) {
+                do {
+                    final String theAttributeName = theParser.topLevelName();
+                    theParser.expect("=");
+                    final AttributeValue theValue = theParser.operand().apply(inItem);
+                    if (theValue == null) {
+                        throw validationException(
+                            "The provided expression refers to an attribute that does not exist in the item");
+                    }
+                    theSetValues.put(theAttributeName, theValue);
+                } while (theParser.accept(","));
+            } else if (theParser.acceptKeyword("REMOVE")) {
+                do {
+                    theRemovedAttributeNames.add(theParser.topLevelName());
+                } while (theParser.accept(","));
+            } else if (theParser.acceptKeyword("ADD")) {
+                do {
+                    final String theAttributeName = theParser.topLevelName();
+                    final AttributeValue theAddend = theParser.operand().apply(inItem);
+                    final AttributeValue theCurrentValue = inItem.get(theAttributeName);
+                    if (theAddend == null || theAddend.getN() == null
+                        || (theCurrentValue != null && theCurrentValue.getN() == null)) {
+                        throw validationException("An operand in the update expression has an incorrect data type");
+                    }
+                    final BigDecimal theSum = theCurrentValue != null
+                        ? new BigDecimal(theCurrentValue.getN()).add(new BigDecimal(theAddend.getN()))
+                        : new BigDecimal(theAddend.getN());
+                    theSetValues.put(theAttributeName, new AttributeValue().withN(theSum.toPlainString()));
+                } while (theParser.accept(","));
+            } else {
+                throw theParser.syntaxError("expected SET, REMOVE or ADD");
+            }
+        } while (!theParser.peek().isEmpty());
+
+        final Set<String> theUpdatedAttributeNames = new LinkedHashSet<>(theSetValues.keySet());
+        theUpdatedAttributeNames.addAll(theRemovedAttributeNames);
+        if (theUpdatedAttributeNames.size() != theSetValues.size() + theRemovedAttributeNames.size()) {
+            throw validationException("Two document paths overlap with each other in the update expression");
+        }
+        inItem.putAll(theSetValues);
+        theRemovedAttributeNames.forEach(inItem::remove);
+        return theUpdatedAttributeNames;
+    }
+
+    /**
+     * Creates a copy of the supplied item containing only the supplied attributes.
+     *
+     * @param inItem Item to project.
+     * @param inAttributeNames Names of attributes to include, null to include all attributes.
+     * @return Projected item.
+     */
+    public static Map<String, AttributeValue> project(
+        final Map<String, AttributeValue> inItem,
+        final Set<String> inAttributeNames) {
+        if (inAttributeNames == null) {
+            return inItem;
+        }
+        return inItem
+            .entrySet()
+            .stream()
+            .filter(theEntry -> inAttributeNames.contains(theEntry.getKey()))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * Compares the supplied attribute value to the supplied operands using the supplied legacy operator.
+     *
+     * @param inValue Attribute value. Null if the attribute does not exist.
+     * @param inOperator Comparison operator.
+     * @param inOperands Operands.
+     * @return True if the comparison holds, false otherwise.
+     */
+    public static boolean compare(
+        final AttributeValue inValue,
+        final String inOperator,
+        final List<AttributeValue> inOperands) {
+        final List<AttributeValue> theOperands = inOperands != null ? inOperands : Collections.emptyList();
+        switch (ComparisonOperator.fromValue(inOperator)) {
+            case EQ:
+                return valuesEqual(inValue, operand(theOperands, 0));
+            case NE:
+                return !valuesEqual(inValue, operand(theOperands, 0));
+            case IN:
+                return theOperands.stream().anyMatch(theOperand -> valuesEqual(inValue, theOperand));
+            case LE:
+                return isComparable(inValue, operand(theOperands, 0)) && compare(inValue, theOperands.get(0)) <= 0;
+            case LT:
+                return isComparable(inValue, operand(theOperands, 0)) && compare(inValue, theOperands.get(0)) < 0;
+            case GE:
+                return isComparable(inValue, operand(theOperands, 0)) && compare(inValue, theOperands.get(0)) >= 0;
+            case GT:
+                return isComparable(inValue, operand(theOperands, 0)) && compare(inValue, theOperands.get(0)) > 0;
+            case BETWEEN:
+                return between(inValue, operand(theOperands, 0), operand(theOperands, 1));
+            case NOT_NULL:
+                return inValue != null;
+            case NULL:
+                return inValue == null;
+            case CONTAINS:
+                return contains(inValue, operand(theOperands, 0));
+            case NOT_CONTAINS:
+                return inValue != null && !contains(inValue, operand(theOperands, 0));
+            case BEGINS_WITH:
+                return beginsWith(inValue, operand(theOperands, 0));
+            default:
+                throw validationException("Unsupported comparison operator: " + inOperator);
+        }
+    }
+
+    /**
+     * Determines whether the supplied attribute values are equal.
+     * Numbers are equal if they have the same numeric value and sets are equal regardless of
+     * the order of their elements.
+     *
+     * @param inFirstValue First attribute value. May be null.
+     * @param inSecondValue Second attribute value. May be null.
+     * @return True if both values are present and equal, false otherwise.
+     */
+    public static boolean valuesEqual(final AttributeValue inFirstValue, final AttributeValue inSecondValue) {
+        if (inFirstValue == null || inSecondValue == null) {
+            return false;
+        }
+        if (inFirstValue.getN() != null && inSecondValue.getN() != null) {
+            return new BigDecimal(inFirstValue.getN()).compareTo(new BigDecimal(inSecondValue.getN())) == 0;
+        }
+        if (inFirstValue.getNS() != null && inSecondValue.getNS() != null) {
+            return numberSet(inFirstValue.getNS()).equals(numberSet(inSecondValue.getNS()));
+        }
+        if (inFirstValue.getSS() != null && inSecondValue.getSS() != null) {
+            return new HashSet<>(inFirstValue.getSS()).equals(new HashSet<>(inSecondValue.getSS()));
+        }
+        if (inFirstValue.getBS() != null && inSecondValue.getBS() != null) {
+            return new HashSet<>(inFirstValue.getBS()).equals(new HashSet<>(inSecondValue.getBS()));
+        }
+        if (inFirstValue.getL() != null && inSecondValue.getL() != null) {
+            if (inFirstValue.getL().size() != inSecondValue.getL().size()) {
+                return false;
+            }
+            for (int i = 0; i < inFirstValue.getL().size(); i++) {
+                if (!valuesEqual(inFirstValue.getL().get(i), inSecondValue.getL().get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (inFirstValue.getM() != null && inSecondValue.getM() != null) {
+            return inFirstValue.getM().keySet().equals(inSecondValue.getM().keySet())
+                && inFirstValue.getM().keySet().stream().allMatch(theKey ->
+                    valuesEqual(inFirstValue.getM().get(theKey), inSecondValue.getM().get(theKey)));
+        }
+        return inFirstValue.equals(inSecondValue);
+    }
+
+    /**
+     * Determines whether the supplied attribute values are scalars of the same type that can be ordered.
+     *
+     * @param inFirstValue First attribute value. May be null.
+     * @param inSecondValue Second attribute value. May be null.
+     * @return True if both values are strings, numbers or binaries, false otherwise.
+     */
+    public static boolean isComparable(final AttributeValue inFirstValue, final AttributeValue inSecondValue) {
+        return inFirstValue != null && inSecondValue != null
+            && ((inFirstValue.getS() != null && inSecondValue.getS() != null)
+            || (inFirstValue.getN() != null && inSecondValue.getN() != null)
+            || (inFirstValue.getB() != null && inSecondValue.getB() != null));
+    }
+
+    /**
+     * Orders the supplied attribute values, which must be comparable.
+     * Strings are ordered by their characters, numbers by their numeric values and binaries by
+     * their unsigned bytes.
+     *
+     * @param inFirstValue First attribute value.
+     * @param inSecondValue Second attribute value.
+     * @return Negative, zero or positive integer as the first value is less than, equal to or
+     * greater than the second value.
+     */
+    public static int compare(final AttributeValue inFirstValue, final AttributeValue inSecondValue) {
+        if (inFirstValue.getS() != null && inSecondValue.getS() != null) {
+            return inFirstValue.getS().compareTo(inSecondValue.getS());
+        }
+        if (inFirstValue.getN() != null && inSecondValue.getN() != null) {
+            return new BigDecimal(inFirstValue.getN()).compareTo(new BigDecimal(inSecondValue.getN()));
+        }
+        if (inFirstValue.getB() != null && inSecondValue.getB() != null) {
+            final ByteBuffer theFirstBytes = inFirstValue.getB().duplicate();
+            final ByteBuffer theSecondBytes = inSecondValue.getB().duplicate();
+            while (theFirstBytes.hasRemaining() && theSecondBytes.hasRemaining()) {
+                final int theResult = Integer.compare(
+                    Byte.toUnsignedInt(theFirstBytes.get()),
+                    Byte.toUnsignedInt(theSecondBytes.get()));
+                if (theResult != 0) {
+                    return theResult;
+                }
+            }
+            return Integer.compare(theFirstBytes.remaining(), theSecondBytes.remaining());
+        }
+        throw validationException("Attribute values of different types cannot be compared");
+    }
+
+    /**
+     * Estimates the size of the supplied item in bytes in the same way as DynamoDB,
+     * that is the lengths of the attribute names plus the sizes of the attribute values.
+     *
+     * @param inItem Item.
+     * @return Item size in bytes.
+     */
+    public static long itemSize(final Map<String, AttributeValue> inItem) {
+        long theSize = 0;
+        for (Map.Entry<String, AttributeValue> theAttribute : inItem.entrySet()) {
+            theSize += utf8Length(theAttribute.getKey()) + valueSize(theAttribute.getValue());
+        }
+        return theSize;
+    }
+
+    /**
+     * Determines the DynamoDB data type of the supplied attribute value.
+     *
+     * @param inValue Attribute value.
+     * @return Data type, for example S or NS.
+     */
+    public static String type(final AttributeValue inValue) {
+        if (inValue.getS() != null) {
+            return "S";
+        } else if (inValue.getN() != null) {
+            return "N";
+        } else if (inValue.getB() != null) {
+            return "B";
+        } else if (inValue.getSS() != null) {
+            return "SS";
+        } else if (inValue.getNS() != null) {
+            return "NS";
+        } else if (inValue.getBS() != null) {
+            return "BS";
+        } else if (inValue.getBOOL() != null) {
+            return "BOOL";
+        } else if (inValue.getL() != null) {
+            return "L";
+        } else if (inValue.getM() != null) {
+            return "M";
+        }
+        return "NULL";
+    }
+
+    /**
+     * Creates the exception DynamoDB responds with when a request is invalid.
+     *
+     * @param inMessage Error message.
+     * @return Validation exception.
+     */
+    public static AmazonDynamoDBException validationException(final String inMessage) {
+        final AmazonDynamoDBException theException = new AmazonDynamoDBException(inMessage);
+        theException.setErrorCode("ValidationException");
+        theException.setStatusCode(400);
+        theException.setServiceName(InMemoryAmazonDynamoDB.SERVICE_NAME);
+        return theException;
+    }
+
+    /**
+     * Combines the supplied predicates using the supplied conditional operator.
+     *
+     * @param inPredicates Predicates to combine.
+     * @param inConditionalOperator AND or OR, AND if null.
+     * @return Combined predicate.
+     */
+    protected static Predicate<Map<String, AttributeValue>> combine(
+        final List<Predicate<Map<String, AttributeValue>>> inPredicates,
+        final String inConditionalOperator) {
+        final boolean theOrFlag = ConditionalOperator.OR.toString().equals(inConditionalOperator);
+        return theItem -> theOrFlag
+            ? inPredicates.stream().anyMatch(thePredicate -> thePredicate.test(theItem))
+            : inPredicates.stream().allMatch(thePredicate -> thePredicate.test(theItem));
+    }
+
+    /**
+     * Retrieves the operand at the supplied index of a legacy condition.
+     *
+     * @param inOperands Operands of condition.
+     * @param inIndex Index of operand.
+     * @return Operand.
+     */
+    protected static AttributeValue operand(final List<AttributeValue> inOperands, final int inIndex) {
+        if (inOperands.size() <= inIndex) {
+            throw validationException("Too few operands in condition");
+        }
+        return inOperands.get(inIndex);
+    }
+
+    /**
+     * Determines whether the supplied value is between the supplied bounds, inclusive.
+     *
+     * @param inValue Attribute value. May be null.
+     * @param inLowerBound Lower bound.
+     * @param inUpperBound Upper bound.
+     * @return True if the value is within the bounds, false otherwise.
+     */
+    protected static boolean between(
+        final AttributeValue inValue,
+        final AttributeValue inLowerBound,
+        final AttributeValue inUpperBound) {
+        return isComparable(inValue, inLowerBound) && isComparable(inValue, inUpperBound)
+            && compare(inValue, inLowerBound) >= 0 && compare(inValue, inUpperBound) <= 0;
+    }
+
+    /**
+     * Determines whether the supplied string or binary value begins with the supplied prefix.
+     *
+     * @param inValue Attribute value. May be null.
+     * @param inPrefix Prefix.
+     * @return True if the value begins with the prefix, false otherwise.
+     */
+    protected static boolean beginsWith(final AttributeValue inValue, final AttributeValue inPrefix) {
+        if (inValue == null || inPrefix == null) {
+            return false;
+        }
+        if (inValue.getS() != null && inPrefix.getS() != null) {
+            return inValue.getS().startsWith(inPrefix.getS());
+        }
+        if (inValue.getB() != null && inPrefix.getB() != null) {
+            final ByteBuffer theValueBytes = inValue.getB().duplicate();
+            final ByteBuffer thePrefixBytes = inPrefix.getB().duplicate();
+            if (thePrefixBytes.remaining() > theValueBytes.remaining()) {
+                return false;
+            }
+            theValueBytes.limit(theValueBytes.position() + thePrefixBytes.remaining());
+            return theValueBytes.equals(thePrefixBytes);
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the supplied value contains the supplied operand, that is whether a string
+     * contains a substring or whether a set or list contains an element.
+     *
+     * @param inValue Attribute value. May be null.
+     * @param inOperand Substring or element.
+     * @return True if the value contains the operand, false otherwise.
+     */
+    protected static boolean contains(final AttributeValue inValue, final AttributeValue inOperand) {
+        if (inValue == null || inOperand == null) {
+            return false;
+        }
+        if (inValue.getS() != null && inOperand.getS() != null) {
+            return inValue.getS().contains(inOperand.getS());
+        }
+        if (inValue.getSS() != null && inOperand.getS() != null) {
+            return inValue.getSS().contains(inOperand.getS());
+        }
+        if (inValue.getNS() != null && inOperand.getN() != null) {
+            return numberSet(inValue.getNS()).contains(new BigDecimal(inOperand.getN()).stripTrailingZeros());
+        }
+        if (inValue.getBS() != null && inOperand.getB() != null) {
+            return inValue.getBS().contains(inOperand.getB());
+        }
+        if (inValue.getL() != null) {
+            return inValue.getL().stream().anyMatch(theElement -> valuesEqual(theElement, inOperand));
+        }
+        return false;
+    }
+
+    /**
+     * Converts the supplied numbers to a set of normalized decimal numbers.
+     *
+     * @param inNumbers Numbers.
+     * @return Number set.
+     */
+    protected static Set<BigDecimal> numberSet(final Collection<String> inNumbers) {
+        return inNumbers
+            .stream()
+            .map(theNumber -> new BigDecimal(theNumber).stripTrailingZeros())
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Estimates the size of the supplied attribute value in bytes.
+     *
+     * @param inValue Attribute value.
+     * @return Value size in bytes.
+     */
+    protected static long valueSize(final AttributeValue inValue) {
+        if (inValue.getS() != null) {
+            return utf8Length(inValue.getS());
+        } else if (inValue.getN() != null) {
+            return (inValue.getN().length() + 1) / 2 + 1;
+        } else if (inValue.getB() != null) {
+            return inValue.getB().remaining();
+        } else if (inValue.getSS() != null) {
+            return inValue.getSS().stream().mapToLong(InMemoryExpressions::utf8Length).sum();
+        } else if (inValue.getNS() != null) {
+            return inValue.getNS().stream().mapToLong(theNumber -> (theNumber.length() + 1) / 2 + 1).sum();
+        } else if (inValue.getBS() != null) {
+            return inValue.getBS().stream().mapToLong(ByteBuffer::remaining).sum();
+        } else if (inValue.getL() != null) {
+            return 3 + inValue.getL().stream().mapToLong(theElement -> 1 + valueSize(theElement)).sum();
+        } else if (inValue.getM() != null) {
+            return 3 + itemSize(inValue.getM()) + inValue.getM().size();
+        }
+        return 1;
+    }
+
+    /**
+     * Determines the length of the supplied string encoded as UTF-8.
+     *
+     * @param inString String.
+     * @return Number of bytes.
+     */
+    protected static long utf8Length(final String inString) {
+        return inString.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Resolves the value at the supplied path in the supplied item.
+     *
+     * @param inItem Item.
+     * @param inPath Path consisting of attribute names and list indexes.
+     * @return Attribute value, null if there is no value at the path.
+     */
+    protected static AttributeValue resolve(final Map<String, AttributeValue> inItem, final List<Object> inPath) {
+        AttributeValue theValue = inItem.get((String) inPath.get(0));
+        for (int i = 1; i < inPath.size() && theValue != null; i++) {
+            final Object theElement = inPath.get(i);
+            if (theElement instanceof Integer) {
+                final int theIndex = (Integer) theElement;
+                theValue = theValue.getL() != null && theIndex < theValue.getL().size()
+                    ? theValue.getL().get(theIndex)
+                    : null;
+            } else {
+                theValue = theValue.getM() != null ? theValue.getM().get(theElement) : null;
+            }
+        }
+        return theValue;
+    }
+
+    /**
+     * Recursive descent parser of DynamoDB expressions.
+     */
+    protected static class ExpressionParser {
+        /* Instance variable(s): */
+        protected final String mExpression;
+        protected final List<String> mTokens = new ArrayList<>();
+        protected final Map<String, String> mAttributeNames;
+        protected final Map<String, AttributeValue> mAttributeValues;
+        protected int mPosition;
+
+        /**
+         * Creates a parser of the supplied expression.
+         *
+         * @param inExpression Expression to parse.
+         * @param inAttributeNames Expression attribute name placeholders. May be null.
+         * @param inAttributeValues Expression attribute value placeholders. May be null.
+         */
+        public ExpressionParser(
+            final String inExpression,
+            final Map<String, String> inAttributeNames,
+            final Map<String, AttributeValue> inAttributeValues) {
+            mExpression = inExpression;
+            mAttributeNames = inAttributeNames != null ? inAttributeNames : Collections.emptyMap();
+            mAttributeValues = inAttributeValues != null ? inAttributeValues : Collections.emptyMap();
+
+            final Matcher theMatcher = TOKEN_PATTERN.matcher(inExpression);
+            int theEnd = 0;
+            while (theMatcher.find() && theMatcher.start() == theEnd) {
+                mTokens.add(theMatcher.group(1));
+                theEnd = theMatcher.end();
+            }
+            if (!inExpression.substring(theEnd).isBlank()) {
+                throw syntaxError("unexpected character at position " + theEnd);
+            }
+        }
+
+        /**
+         * Parses a condition consisting of disjunctions.
+         *
+         * @return Predicate on items.
+         */
+        public Predicate<Map<String, AttributeValue>> condition() {
+            Predicate<Map<String, AttributeValue>> theCondition = conjunction();
+            while (acceptKeyword("OR")) {
+                theCondition = theCondition.or(conjunction());
+            }
+            return theCondition;
+        }
+
+        /**
+         * Parses an attribute path.
+         *
+         * @return Path consisting of attribute names and list indexes.
+         */
+        public List<Object> path() {
+            final List<Object> thePath = new ArrayList<>();
+            thePath.add(name());
+            while (true) {
+                if (accept(".")) {
+                    thePath.add(name());
+                } else if (accept("[")) {
+                    thePath.add(Integer.parseInt(next()));
+                    expect("]");
+                } else {
+                    return thePath;
+                }
+            }
+        }
+
+        /**
+         * Parses an attribute path that must consist of one single top-level attribute.
+         *
+         * @return Attribute name.
+         */
+        public String topLevelName() {
+            final List<Object> thePath = path();
+            if (thePath.size() != 1) {
+                throw syntaxError("only top-level attributes are supported");
+            }
+            return (String) thePath.get(0);
+        }
+
+        /**
+         * Consumes the next token if it is the supplied token.
+         *
+         * @param inToken Token.
+         * @return True if the token was consumed, false otherwise.
+         */
+        public boolean accept(final String inToken) {
+            if (mPosition < mTokens.size() && mTokens.get(mPosition).equals(inToken)) {
+                mPosition++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Verifies that the entire expression has been parsed.
+         */
+        public void expectEnd() {
+            if (mPosition < mTokens.size()) {
+                throw syntaxError("unexpected token " + mTokens.get(mPosition));
+            }
+        }
+
+        /**
+         * Parses a conjunction of negations.
+         *
+         * @return Predicate on items.
+         */
+        protected Predicate<Map<String, AttributeValue>> conjunction() {
+            Predicate<Map<String, AttributeValue>> theCondition = negation();
+            while (acceptKeyword("AND")) {
+                theCondition = theCondition.and(negation());
+            }
+            return theCondition;
+        }
+
+        /**
+         * Parses an optionally negated primary condition.
+         *
+         * @return Predicate on items.
+         */
+        protected Predicate<Map<String, AttributeValue>> negation() {
+            if (acceptKeyword("NOT")) {
+                return negation().negate();
+            }
+            return primary();
+        }
+
+        /**
+         * Parses a parenthesized condition, a function or a comparison.
+         *
+         * @return Predicate on items.
+         */
+        protected Predicate<Map<String, AttributeValue>> primary() {
+            if (accept("(")) {
+                final Predicate<Map<String, AttributeValue>> theCondition = condition();
+                expect(")");
+                return theCondition;
+            }
+            final String theFunctionName = peek().toLowerCase();
+            if (isFunctionCall() && !"size".equals(theFunctionName)) {
+                next();
+                expect("(");
+                final List<Object> thePath = path();
+                final Predicate<Map<String, AttributeValue>> thePredicate;
+                switch (theFunctionName) {
+                    case "attribute_exists":
+                        thePredicate = theItem -> resolve(theItem, thePath) != null;
+                        break;
+                    case "attribute_not_exists":
+                        thePredicate = theItem -> resolve(theItem, thePath) == null;
+                        break;
+                    case "attribute_type": {
+                        expect(",");
+                        final Function<Map<String, AttributeValue>, AttributeValue> theType = operand();
+                        thePredicate = theItem -> {
+                            final AttributeValue theValue = resolve(theItem, thePath);
+                            return theValue != null && type(theValue).equals(theType.apply(theItem).getS());
+                        };
+                        break;
+                    }
+                    case "begins_with": {
+                        expect(",");
+                        final Function<Map<String, AttributeValue>, AttributeValue> thePrefix = operand();
+                        thePredicate = theItem -> beginsWith(resolve(theItem, thePath), thePrefix.apply(theItem));
+                        break;
+                    }
+                    case "contains": {
+                        expect(",");
+                        final Function<Map<String, AttributeValue>, AttributeValue> theOperand = operand();
+                        thePredicate = theItem -> contains(resolve(theItem, thePath), theOperand.apply(theItem));
+                        break;
+                    }
+                    default:
+                        throw syntaxError("unsupported function " + theFunctionName);
+                }
+                expect(")");
+                return thePredicate;
+            }
+
+            final Function<Map<String, AttributeValue>, AttributeValue> theLeft = operand();
+            if (acceptKeyword("BETWEEN")) {
+                final Function<Map<String, AttributeValue>, AttributeValue> theLower = operand();
+                if (!acceptKeyword("AND")) {
+                    throw syntaxError("expected AND in BETWEEN");
+                }
+                final Function<Map<String, AttributeValue>, AttributeValue> theUpper = operand();
+                return theItem -> between(theLeft.apply(theItem), theLower.apply(theItem), theUpper.apply(theItem));
+            }
+            if (acceptKeyword("IN")) {
+                expect("(");
+                final List<Function<Map<String, AttributeValue>, AttributeValue>> theCandidates = new ArrayList<>();
+                do {
+                    theCandidates.add(operand());
+                } while (accept(","));
+                expect(")");
+                return theItem -> {
+                    final AttributeValue theValue = theLeft.apply(theItem);
+                    return theCandidates.stream().anyMatch(theCandidate ->
+                        valuesEqual(theValue, theCandidate.apply(theItem)));
+                };
+            }
+            final String theComparator = next();
+            final Function<Map<String, AttributeValue>, AttributeValue> theRight = operand();
+            switch (theComparator) {
+                case "=":
+                    return theItem -> valuesEqual(theLeft.apply(theItem), theRight.apply(theItem));
+                case "<>":
+                    return theItem -> {
+                        final AttributeValue theLeftValue = theLeft.apply(theItem);
+                        final AttributeValue theRightValue = theRight.apply(theItem);
+                        return theLeftValue != null && theRightValue != null
+                            && !valuesEqual(theLeftValue, theRightValue);
+                    };
+                case "<":
+                    return ordered(theLeft, theRight, theResult -> theResult < 0);
+                case "<=":
+                    return ordered(theLeft, theRight, theResult -> theResult <= 0);
+                case ">":
+                    return ordered(theLeft, theRight, theResult -> theResult > 0);
+                case ">=":
+                    return ordered(theLeft, theRight, theResult -> theResult >= 0);
+                default:
+                    throw syntaxError("unexpected token " + theComparator);
+            }
+        }
+
+        /**
+         * Creates a predicate ordering the supplied operands.
+         *
+         * @param inLeft Left operand.
+         * @param inRight Right operand.
+         * @param inResultPredicate Predicate on the result of comparing the operands.
+         * @return Predicate on items, false for operands that cannot be compared.
+         */
+        protected Predicate<Map<String, AttributeValue>> ordered(
+            final Function<Map<String, AttributeValue>, AttributeValue> inLeft,
+            final Function<Map<String, AttributeValue>, AttributeValue> inRight,
+            final Predicate<Integer> inResultPredicate) {
+            return theItem -> {
+                final AttributeValue theLeftValue = inLeft.apply(theItem);
+                final AttributeValue theRightValue = inRight.apply(theItem);
+                return isComparable(theLeftValue, theRightValue)
+                    && inResultPredicate.test(compare(theLeftValue, theRightValue));
+            };
+        }
+
+        /**
+         * Parses an operand, which is a value placeholder, a size function or an attribute path.
+         *
+         * @return Function retrieving the operand value from an item.
+         */
+        protected Function<Map<String, AttributeValue>, AttributeValue> operand() {
+            if (peek().startsWith(":")) {
+                final String thePlaceholder = next();
+                final AttributeValue theValue = mAttributeValues.get(thePlaceholder);
+                if (theValue == null) {
+                    throw validationException(
+                        "An expression attribute value used in expression is not defined; attribute value: "
+                            + thePlaceholder);
+                }
+                return theItem -> theValue;
+            }
+            if (isFunctionCall() && "size".equalsIgnoreCase(peek())) {
+                next();
+                expect("(");
+                final List<Object> thePath = path();
+                expect(")");
+                return theItem -> {
+                    final AttributeValue theValue = resolve(theItem, thePath);
+                    return theValue == null ? null : new AttributeValue().withN(Long.toString(size(theValue)));
+                };
+            }
+            final List<Object> thePath = path();
+            return theItem -> resolve(theItem, thePath);
+        }
+
+        /**
+         * Determines the size of the supplied value as defined by the size function.
+         *
+         * @param inValue Attribute value.
+         * @return Length of strings and binaries, number of elements of sets, lists and maps.
+         */
+        protected long size(final AttributeValue inValue) {
+            if (inValue.getS() != null) {
+                return inValue.getS().length();
+            } else if (inValue.getB() != null) {
+                return inValue.getB().remaining();
+            } else if (inValue.getSS() != null) {
+                return inValue.getSS().size();
+            } else if (inValue.getNS() != null) {
+                return inValue.getNS().size();
+            } else if (inValue.getBS() != null) {
+                return inValue.getBS().size();
+            } else if (inValue.getL() != null) {
+                return inValue.getL().size();
+            } else if (inValue.getM() != null) {
+                return inValue.getM().size();
+            }
+            return 0;
+        }
+
+        /**
+         * Parses an attribute name or name placeholder.
+         *
+         * @return Attribute name.
+         */
+        protected String name() {
+            final String theToken = next();
+            if (theToken.startsWith("#")) {
+                final String theName = mAttributeNames.get(theToken);
+                if (theName == null) {
+                    throw validationException(
+                        "An expression attribute name used in the document path is not defined; attribute name: "
+                            + theToken);
+                }
+                return theName;
+            }
+            if (!Character.isLetter(theToken.charAt(0)) && theToken.charAt(0) != '_') {
+                throw syntaxError("unexpected token " + theToken);
+            }
+            return theToken;
+        }
+
+        /**
+         * Determines whether the next tokens are the name of a function followed by a parenthesis.
+         *
+         * @return True if the next tokens start a function call, false otherwise.
+         */
+        protected boolean isFunctionCall() {
+            return mPosition + 1 < mTokens.size()
+                && Character.isLetter(mTokens.get(mPosition).charAt(0))
+                && "(".equals(mTokens.get(mPosition + 1));
+        }
+
+        /**
+         * Consumes the next token if it is the supplied keyword, regardless of case.
+         *
+         * @param inKeyword Keyword.
+         * @return True if the keyword was consumed, false otherwise.
+         */
+        protected boolean acceptKeyword(final String inKeyword) {
+            if (mPosition < mTokens.size() && mTokens.get(mPosition).equalsIgnoreCase(inKeyword)) {
+                mPosition++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes the next token, which must be the supplied token.
+         *
+         * @param inToken Expected token.
+         */
+        protected void expect(final String inToken) {
+            if (!accept(inToken)) {
+                throw syntaxError("expected " + inToken);
+            }
+        }
+
+        /**
+         * Retrieves the next token without consuming it.
+         *
+         * @return Next token, empty string at the end of the expression.
+         */
+        protected String peek() {
+            return mPosition < mTokens.size() ? mTokens.get(mPosition) : "";
+        }
+
+        /**
+         * Consumes the next token.
+         *
+         * @return Next token.
+         */
+        protected String next() {
+            if (mPosition >= mTokens.size()) {
+                throw syntaxError("unexpected end of expression");
+            }
+            return mTokens.get(mPosition++);
+        }
+
+        /**
+         * Creates an exception reporting a syntax error in the expression.
+         *
+         * @param inDetail Error detail.
+         * @return Validation exception.
+         */
+        protected AmazonDynamoDBException syntaxError(final String inDetail) {
+            return validationException("Invalid expression: " + inDetail + " in: " + mExpression);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Table of the in-memory DynamoDB stand-in, holding the items of the table ordered by primary key
+ * together with the key schemas and projections of the secondary indexes of the table.
+ * Stored items are never modified; writes replace entire items.
+ * Writes that depend on the current item, such as conditional writes and updates, must be
+ * performed while holding the monitor of the table.
+ *
+ * @author Ivan Krizsan
+ */
+public class InMemoryTable {
+    /* Constant(s): */
+    protected static final String KEY_SEPARATOR = "\u0000";
+
+    /* Instance variable(s): */
+    protected final TableDescription mTableDescription;
+    protected final InMemoryIndex mPrimaryIndex;
+    protected final Map<String, InMemoryIndex> mSecondaryIndexes = new HashMap<>();
+    protected final Map<String, String> mAttributeTypes = new HashMap<>();
+    /** Items keyed by encoded primary key. */
+    protected final ConcurrentNavigableMap<String, Map<String, AttributeValue>> mItems = new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates a table as specified by the supplied create table request.
+     *
+     * @param inCreateTableRequest Create table request.
+     * @param inTableArn ARN of table.
+     */
+    public InMemoryTable(final CreateTableRequest inCreateTableRequest, final String inTableArn) {
+        if (inCreateTableRequest.getKeySchema() == null || inCreateTableRequest.getAttributeDefinitions() == null) {
+            throw InMemoryExpressions.validationException("Key schema and attribute definitions are required");
+        }
+        for (AttributeDefinition theAttributeDefinition : inCreateTableRequest.getAttributeDefinitions()) {
+            mAttributeTypes.put(theAttributeDefinition.getAttributeName(), theAttributeDefinition.getAttributeType());
+        }
+        mPrimaryIndex = new InMemoryIndex(null, inCreateTableRequest.getKeySchema(), null);
+
+        mTableDescription = new TableDescription()
+            .withTableName(inCreateTableRequest.getTableName())
+            .withTableArn(inTableArn)
+            .withTableStatus(TableStatus.ACTIVE)
+            .withCreationDateTime(new Date())
+            .withKeySchema(inCreateTableRequest.getKeySchema())
+            .withAttributeDefinitions(inCreateTableRequest.getAttributeDefinitions())
+            .withProvisionedThroughput(throughputDescription(inCreateTableRequest.getProvisionedThroughput()));
+        if (inCreateTableRequest.getBillingMode() != null) {
+            mTableDescription.setBillingModeSummary(
+                new BillingModeSummary().withBillingMode(inCreateTableRequest.getBillingMode()));
+        }
+
+        if (inCreateTableRequest.getGlobalSecondaryIndexes() != null) {
+            final List<GlobalSecondaryIndexDescription> theIndexDescriptions = new ArrayList<>();
+            for (GlobalSecondaryIndex theIndex : inCreateTableRequest.getGlobalSecondaryIndexes()) {
+                addSecondaryIndex(theIndex.getIndexName(), theIndex.getKeySchema(), theIndex.getProjection());
+                theIndexDescriptions.add(new GlobalSecondaryIndexDescription()
+                    .withIndexName(theIndex.getIndexName())
+                    .withIndexArn(inTableArn + "/index/" + theIndex.getIndexName())
+                    .withKeySchema(theIndex.getKeySchema())
+                    .withProjection(theIndex.getProjection())
+                    .withIndexStatus(IndexStatus.ACTIVE)
+                    .withProvisionedThroughput(throughputDescription(theIndex.getProvisionedThroughput())));
+            }
+            mTableDescription.setGlobalSecondaryIndexes(theIndexDescriptions);
+        }
+        if (inCreateTableRequest.getLocalSecondaryIndexes() != null) {
+            final List<LocalSecondaryIndexDescription> theIndexDescriptions = new ArrayList<>();
+            for (LocalSecondaryIndex theIndex : inCreateTableRequest.getLocalSecondaryIndexes()) {
+                addSecondaryIndex(theIndex.getIndexName(), theIndex.getKeySchema(), theIndex.getProjection());
+                theIndexDescriptions.add(new LocalSecondaryIndexDescription()
+                    .withIndexName(theIndex.getIndexName())
+                    .withIndexArn(inTableArn + "/index/" + theIndex.getIndexName())
+                    .withKeySchema(theIndex.getKeySchema())
+                    .withProjection(theIndex.getProjection()));
+            }
+            mTableDescription.setLocalSecondaryIndexes(theIndexDescriptions);
+        }
+    }
+
+    /**
+     * Retrieves the name of the table.
+     *
+     * @return Table name.
+     */
+    public String getName() {
+        return mTableDescription.getTableName();
+    }
+
+    /**
+     * Describes the table, including the current number of items and size of the table.
+     *
+     * @return Table description.
+     */
+    public TableDescription describe() {
+        final long theItemCount = mItems.size();
+        final long theTableSize = mItems
+            .values()
+            .stream()
+            .mapToLong(InMemoryExpressions::itemSize)
+            .sum();
+        final TableDescription theDescription = mTableDescription.clone()
+            .withItemCount(theItemCount)
+            .withTableSizeBytes(theTableSize);
+        if (theDescription.getGlobalSecondaryIndexes() != null) {
+            theDescription.setGlobalSecondaryIndexes(theDescription
+                .getGlobalSecondaryIndexes()
+                .stream()
+                .map(theIndex -> theIndex.clone().withItemCount(
+                    (long) items(mSecondaryIndexes.get(theIndex.getIndexName())).size()))
+                .collect(Collectors.toList()));
+        }
+        return theDescription;
+    }
+
+    /**
+     * Retrieves the primary index of the table, which is the key schema of the table.
+     *
+     * @return Primary index.
+     */
+    public InMemoryIndex getPrimaryIndex() {
+        return mPrimaryIndex;
+    }
+
+    /**
+     * Retrieves the index with the supplied name.
+     *
+     * @param inIndexName Index name, null for the primary index.
+     * @return Index.
+     */
+    public InMemoryIndex index(final String inIndexName) {
+        if (inIndexName == null) {
+            return mPrimaryIndex;
+        }
+        final InMemoryIndex theIndex = mSecondaryIndexes.get(inIndexName);
+        if (theIndex == null) {
+            throw InMemoryExpressions.validationException(
+                "The table does not have the specified index: " + inIndexName);
+        }
+        return theIndex;
+    }
+
+    /**
+     * Retrieves the item with the supplied primary key.
+     *
+     * @param inKey Primary key attributes.
+     * @return Item, null if there is no item with the key.
+     */
+    public Map<String, AttributeValue> get(final Map<String, AttributeValue> inKey) {
+        return mItems.get(encodeKey(inKey, true));
+    }
+
+    /**
+     * Stores the supplied item, replacing any item with the same primary key.
+     *
+     * @param inItem Item to store. Must not be modified after having been stored.
+     * @return Replaced item, null if there was no item with the same key.
+     */
+    public Map<String, AttributeValue> put(final Map<String, AttributeValue> inItem) {
+        validateKeyAttributes(inItem);
+        return mItems.put(encodeKey(inItem, false), inItem);
+    }
+
+    /**
+     * Removes the item with the supplied primary key.
+     *
+     * @param inKey Primary key attributes.
+     * @return Removed item, null if there was no item with the key.
+     */
+    public Map<String, AttributeValue> remove(final Map<String, AttributeValue> inKey) {
+        return mItems.remove(encodeKey(inKey, true));
+    }
+
+    /**
+     * Retrieves the items in the supplied index, projected as specified by the index and in
+     * the order of the index.
+     * Items in the primary index are ordered by primary key.
+     * Items in a secondary index are ordered by the range key of the index, if any, and then by primary key.
+     * Only items that have the key attributes of a secondary index are included in the index.
+     *
+     * @param inIndex Index.
+     * @return Items in index.
+     */
+    public List<Map<String, AttributeValue>> items(final InMemoryIndex inIndex) {
+        if (inIndex == mPrimaryIndex) {
+            return new ArrayList<>(mItems.values());
+        }
+        return mItems
+            .values()
+            .stream()
+            .filter(theItem -> theItem.containsKey(inIndex.getHashKeyName())
+                && (inIndex.getRangeKeyName() == null || theItem.containsKey(inIndex.getRangeKeyName())))
+            .map(theItem -> project(theItem, inIndex))
+            .sorted(comparator(inIndex))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates a comparator ordering items or keys in the supplied index.
+     *
+     * @param inIndex Index.
+     * @return Comparator ordering items by range key of index, if any, and then by primary key.
+     */
+    public Comparator<Map<String, AttributeValue>> comparator(final InMemoryIndex inIndex) {
+        final Comparator<Map<String, AttributeValue>> thePrimaryKeyComparator =
+            Comparator.comparing(theItem -> encodeKey(theItem, false));
+        if (inIndex.getRangeKeyName() == null) {
+            return thePrimaryKeyComparator;
+        }
+        return ((Comparator<Map<String, AttributeValue>>) (theFirstItem, theSecondItem) -> InMemoryExpressions.compare(
+            theFirstItem.get(inIndex.getRangeKeyName()),
+            theSecondItem.get(inIndex.getRangeKeyName())))
+            .thenComparing(thePrimaryKeyComparator);
+    }
+
+    /**
+     * Extracts the key attributes of the supplied item in the supplied index, which are the primary
+     * key attributes and the key attributes of the index.
+     *
+     * @param inItem Item.
+     * @param inIndex Index.
+     * @return Key attributes.
+     */
+    public Map<String, AttributeValue> key(final Map<String, AttributeValue> inItem, final InMemoryIndex inIndex) {
+        final Map<String, AttributeValue> theKey = new LinkedHashMap<>();
+        for (String theKeyName : keyAttributeNames(inIndex)) {
+            if (inItem.containsKey(theKeyName)) {
+                theKey.put(theKeyName, inItem.get(theKeyName));
+            }
+        }
+        return theKey;
+    }
+
+    /**
+     * Encodes the primary key of the supplied item or key as a string that orders keys
+     * by hash key and then range key.
+     *
+     * @param inKey Item or primary key attributes.
+     * @param inKeyOnlyFlag True if the supplied attributes must consist of the primary key attributes only.
+     * @return Encoded primary key.
+     */
+    public String encodeKey(final Map<String, AttributeValue> inKey, final boolean inKeyOnlyFlag) {
+        final AttributeValue theHashKey = inKey.get(mPrimaryIndex.getHashKeyName());
+        final AttributeValue theRangeKey =
+            mPrimaryIndex.getRangeKeyName() != null ? inKey.get(mPrimaryIndex.getRangeKeyName()) : null;
+        final int theKeyAttributeCount = mPrimaryIndex.getRangeKeyName() != null ? 2 : 1;
+        if (theHashKey == null
+            || (mPrimaryIndex.getRangeKeyName() != null && theRangeKey == null)
+            || (inKeyOnlyFlag && inKey.size() != theKeyAttributeCount)) {
+            throw InMemoryExpressions.validationException(
+                "The provided key element does not match the schema");
+        }
+        return theRangeKey == null
+            ? encodeValue(theHashKey)
+            : encodeValue(theHashKey) + KEY_SEPARATOR + encodeValue(theRangeKey);
+    }
+
+    /**
+     * Projects the supplied item as specified by the projection of the supplied index.
+     *
+     * @param inItem Item.
+     * @param inIndex Index.
+     * @return Projected item.
+     */
+    protected Map<String, AttributeValue> project(final Map<String, AttributeValue> inItem, final InMemoryIndex inIndex) {
+        final Projection theProjection = inIndex.getProjection();
+        if (theProjection == null || theProjection.getProjectionType() == null
+            || ProjectionType.ALL.toString().equals(theProjection.getProjectionType())) {
+            return inItem;
+        }
+        final Map<String, AttributeValue> theProjectedItem = new HashMap<>(key(inItem, inIndex));
+        if (ProjectionType.INCLUDE.toString().equals(theProjection.getProjectionType())
+            && theProjection.getNonKeyAttributes() != null) {
+            for (String theAttributeName : theProjection.getNonKeyAttributes()) {
+                if (inItem.containsKey(theAttributeName)) {
+                    theProjectedItem.put(theAttributeName, inItem.get(theAttributeName));
+                }
+            }
+        }
+        return theProjectedItem;
+    }
+
+    /**
+     * Retrieves the names of the key attributes of the supplied index, which are the primary
+     * key attributes and the key attributes of the index.
+     *
+     * @param inIndex Index.
+     * @return Key attribute names.
+     */
+    protected Collection<String> keyAttributeNames(final InMemoryIndex inIndex) {
+        final List<String> theKeyNames = new ArrayList<>();
+        theKeyNames.add(mPrimaryIndex.getHashKeyName());
+        if (mPrimaryIndex.getRangeKeyName() != null) {
+            theKeyNames.add(mPrimaryIndex.getRangeKeyName());
+        }
+        if (inIndex != mPrimaryIndex) {
+            if (!theKeyNames.contains(inIndex.getHashKeyName())) {
+                theKeyNames.add(inIndex.getHashKeyName());
+            }
+            if (inIndex.getRangeKeyName() != null && !theKeyNames.contains(inIndex.getRangeKeyName())) {
+                theKeyNames.add(inIndex.getRangeKeyName());
+            }
+        }
+        return theKeyNames;
+    }
+
+    /**
+     * Verifies that the key attributes of the table and of its indexes present in the supplied
+     * item have the types defined for the attributes.
+     *
+     * @param inItem Item to verify.
+     */
+    protected void validateKeyAttributes(final Map<String, AttributeValue> inItem) {
+        mAttributeTypes.forEach((theAttributeName, theAttributeType) -> {
+            final AttributeValue theValue = inItem.get(theAttributeName);
+            if (theValue != null && !theAttributeType.equals(InMemoryExpressions.type(theValue))) {
+                throw InMemoryExpressions.validationException(
+                    "One or more parameter values were invalid: Type mismatch for key " + theAttributeName);
+            }
+        });
+    }
+
+    /**
+     * Adds a secondary index to the table.
+     *
+     * @param inIndexName Index name.
+     * @param inKeySchema Key schema of index.
+     * @param inProjection Attributes projected into index.
+     */
+    protected void addSecondaryIndex(
+        final String inIndexName,
+        final List<KeySchemaElement> inKeySchema,
+        final Projection inProjection) {
+        mSecondaryIndexes.put(inIndexName, new InMemoryIndex(inIndexName, inKeySchema, inProjection));
+    }
+
+    /**
+     * Encodes the supplied key attribute value as a string.
+     * Numbers are encoded so that numerically equal numbers have the same encoding.
+     *
+     * @param inValue Key attribute value.
+     * @return Encoded key attribute value.
+     */
+    protected static String encodeValue(final AttributeValue inValue) {
+        if (inValue.getS() != null) {
+            return "S" + inValue.getS();
+        } else if (inValue.getN() != null) {
+            return "N" + new BigDecimal(inValue.getN()).stripTrailingZeros().toPlainString();
+        } else if (inValue.getB() != null) {
+            final ByteBuffer theBytes = inValue.getB().duplicate();
+            final byte[] theByteArray = new byte[theBytes.remaining()];
+            theBytes.get(theByteArray);
+            return "B" + Base64.getEncoder().encodeToString(theByteArray);
+        }
+        throw InMemoryExpressions.validationException("Key attributes must be strings, numbers or binaries");
+    }
+
+    /**
+     * Creates a provisioned throughput description from the supplied provisioned throughput.
+     *
+     * @param inProvisionedThroughput Provisioned throughput. May be null.
+     * @return Provisioned throughput description.
+     */
+    protected static ProvisionedThroughputDescription throughputDescription(
+        final ProvisionedThroughput inProvisionedThroughput) {
+        final ProvisionedThroughputDescription theDescription = new ProvisionedThroughputDescription()
+            .withNumberOfDecreasesToday(0L)
+            .withReadCapacityUnits(0L)
+            .withWriteCapacityUnits(0L);
+        if (inProvisionedThroughput != null) {
+            theDescription
+                .withReadCapacityUnits(inProvisionedThroughput.getReadCapacityUnits())
+                .withWriteCapacityUnits(inProvisionedThroughput.getWriteCapacityUnits());
+        }
+        return theDescription;
+    }
+
+    /**
+     * Key schema and projection of an index of a table.
+     * The primary index of a table has no name and includes all attributes.
+     */
+    public static class InMemoryIndex {
+        /* Instance variable(s): */
+        protected final String mName;
+        protected final String mHashKeyName;
+        protected final String mRangeKeyName;
+        protected final Projection mProjection;
+
+        /**
+         * Creates an index with the supplied key schema and projection.
+         *
+         * @param inName Index name, null for the primary index of a table.
+         * @param inKeySchema Key schema.
+         * @param inProjection Projection, null for the primary index of a table.
+         */
+        public InMemoryIndex(
+            final String inName,
+            final List<KeySchemaElement> inKeySchema,
+            final Projection inProjection) {
+            String theHashKeyName = null;
+            String theRangeKeyName = null;
+            for (KeySchemaElement theKeySchemaElement : inKeySchema) {
+                if (KeyType.HASH.toString().equals(theKeySchemaElement.getKeyType())) {
+                    theHashKeyName = theKeySchemaElement.getAttributeName();
+                } else {
+                    theRangeKeyName = theKeySchemaElement.getAttributeName();
+                }
+            }
+            if (theHashKeyName == null) {
+                throw InMemoryExpressions.validationException("Key schema must contain a hash key");
+            }
+            mName = inName;
+            mHashKeyName = theHashKeyName;
+            mRangeKeyName = theRangeKeyName;
+            mProjection = inProjection;
+        }
+
+        /**
+         * Retrieves the name of the index.
+         *
+         * @return Index name, null for the primary index of a table.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Retrieves the name of the hash key attribute of the index.
+         *
+         * @return Hash key attribute name.
+         */
+        public String getHashKeyName() {
+            return mHashKeyName;
+        }
+
+        /**
+         * Retrieves the name of the range key attribute of the index.
+         *
+         * @return Range key attribute name, null if the index has no range key.
+         */
+        public String getRangeKeyName() {
+            return mRangeKeyName;
+        }
+
+        /**
+         * Retrieves the projection of the index.
+         *
+         * @return Projection, null for the primary index of a table.
+         */
+        public Projection getProjection() {
+            return mProjection;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the histogram of latencies.
+ *
+ * @author Ivan Krizsan
+ */
+class LatencyHistogramTests {
+    /* Constant(s): */
+    protected final static double MAX_RELATIVE_ERROR = 1.0 / 64;
+
+    /**
+     * Tests reading percentiles of a uniform distribution of values spanning several orders of magnitude.
+     * Expected result:
+     * Each percentile should be within the relative precision of the histogram of the exact value.
+     * The largest value, the number of values and the mean should be exact.
+     */
+    @Test
+    public void percentilesTest() {
+        final LatencyHistogram theHistogram = new LatencyHistogram();
+        for (long theValue = 1; theValue <= 100000; theValue++) {
+            theHistogram.record(theValue * 1000);
+        }
+
+        for (double thePercentile : new double[] {1.0, 50.0, 90.0, 99.0, 99.9}) {
+            final double theExpectedValue = thePercentile * 1000 * 1000;
+            Assertions.assertEquals(theExpectedValue, theHistogram.valueAtPercentile(thePercentile),
+                theExpectedValue * MAX_RELATIVE_ERROR, "Percentile " + thePercentile + " should be accurate");
+        }
+        Assertions.assertEquals(100000000L, theHistogram.valueAtPercentile(100.0),
+            "The 100th percentile should be the largest value");
+        Assertions.assertEquals(100000000L, theHistogram.max(), "The largest value should be exact");
+        Assertions.assertEquals(100000L, theHistogram.count(), "All values should be counted");
+        Assertions.assertEquals(50000500.0, theHistogram.mean(), 1e-6, "The mean should be exact");
+    }
+
+    /**
+     * Tests recording small, negative and very large values.
+     * Expected result:
+     * Values below 128 should be counted exactly, negative values should be counted as zero
+     * and the largest long value should be recorded.
+     */
+    @Test
+    public void valueRangeTest() {
+        final LatencyHistogram theHistogram = new LatencyHistogram();
+        theHistogram.record(-5L);
+        theHistogram.record(127L);
+        theHistogram.record(Long.MAX_VALUE);
+
+        Assertions.assertEquals(0L, theHistogram.valueAtPercentile(0.0), "Negative values should be recorded as zero");
+        Assertions.assertEquals(127L, theHistogram.valueAtPercentile(50.0), "Small values should be exact");
+        Assertions.assertEquals(Long.MAX_VALUE, theHistogram.valueAtPercentile(100.0),
+            "The largest long value should be recorded");
+    }
+
+    /**
+     * Tests reading percentiles of an empty histogram.
+     * Expected result:
+     * All percentiles, the largest value and the mean should be zero.
+     */
+    @Test
+    public void emptyHistogramTest() {
+        final LatencyHistogram theHistogram = new LatencyHistogram();
+
+        Assertions.assertEquals(0L, theHistogram.valueAtPercentile(99.0), "Percentiles should be zero");
+        Assertions.assertEquals(0L, theHistogram.max(), "The largest value should be zero");
+        Assertions.assertEquals(0.0, theHistogram.mean(), "The mean should be zero");
+    }
+
+    /**
+     * Tests recording values from multiple threads concurrently.
+     * Expected result:
+     * All values should be counted.
+     */
+    @Test
+    public void concurrentRecordingTest() throws InterruptedException {
+        final LatencyHistogram theHistogram = new LatencyHistogram();
+        final ExecutorService theExecutor = Executors.newFixedThreadPool(4);
+        for (int theThread = 0; theThread < 4; theThread++) {
+            theExecutor.execute(() -> {
+                for (int theValue = 0; theValue < 10000; theValue++) {
+                    theHistogram.record(theValue);
+                }
+            });
+        }
+        theExecutor.shutdown();
+        Assertions.assertTrue(theExecutor.awaitTermination(10, TimeUnit.SECONDS), "Recording should complete");
+
+        Assertions.assertEquals(40000L, theHistogram.count(), "All values should be counted");
+        Assertions.assertEquals(9999L, theHistogram.max(), "The largest value should be recorded");
+    }
+}
@@ -0,0 +1,189 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataRetrievalFailureException;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of the batch reader that reads entities in concurrently dispatched BatchGetItem requests.
+ *
+ * @author Ivan Krizsan
+ */
+class ParallelBatchReaderTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME_PREFIX = "test_";
+    protected final static String CIRCLES_TABLE_NAME = TABLE_NAME_PREFIX + "circles";
+    protected final static int MAX_RETRIES = 3;
+
+    /* Instance variable(s): */
+    protected AmazonDynamoDB mAmazonDynamoDB;
+    protected ParallelBatchReader mParallelBatchReader;
+
+    /**
+     * Creates a batch reader using a mock DynamoDB client before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = Mockito.mock(AmazonDynamoDB.class);
+        final DynamoDBMapperConfig theMapperConfig = new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(TABLE_NAME_PREFIX))
+            .build();
+        mParallelBatchReader = new ParallelBatchReader(
+            mAmazonDynamoDB,
+            new MapperItemConverter(new DynamoDBMapper(mAmazonDynamoDB, theMapperConfig), theMapperConfig),
+            Executors.newFixedThreadPool(4),
+            MAX_RETRIES,
+            1L,
+            5L);
+    }
+
+    /**
+     * Tests loading more circles than fit in one BatchGetItem request, supplying some ids twice.
+     * Expected result:
+     * Duplicate ids should be removed and the remaining ids should be read in chunks of at most
+     * 100 keys from the prefixed circles table.
+     * One circle per distinct id should be loaded.
+     */
+    @Test
+    public void chunkedLoadTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchGetItem(Mockito.any(BatchGetItemRequest.class)))
+            .thenAnswer(theInvocation -> echoKeys(theInvocation.getArgument(0)));
+        final List<String> theIds = createIds(250);
+        theIds.addAll(theIds.subList(0, 10));
+
+        final List<Circle> theCircles = mParallelBatchReader.batchLoad(Circle.class, theIds);
+
+        final ArgumentCaptor<BatchGetItemRequest> theRequestCaptor = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        Mockito.verify(mAmazonDynamoDB, Mockito.times(3)).batchGetItem(theRequestCaptor.capture());
+        int theRequestedKeysCount = 0;
+        for (BatchGetItemRequest theRequest : theRequestCaptor.getAllValues()) {
+            final int theChunkSize = theRequest.getRequestItems().get(CIRCLES_TABLE_NAME).getKeys().size();
+            Assertions.assertTrue(theChunkSize <= ParallelBatchReader.MAX_BATCH_GET_KEYS,
+                "No chunk should contain more than 100 keys");
+            theRequestedKeysCount += theChunkSize;
+        }
+        Assertions.assertEquals(250, theRequestedKeysCount, "Each distinct id should be requested once");
+        Assertions.assertEquals(new HashSet<>(theIds),
+            theCircles.stream().map(Circle::getId).collect(Collectors.toSet()),
+            "One circle per distinct id should have been loaded");
+        Assertions.assertEquals(250, theCircles.size(), "No circle should have been loaded twice");
+    }
+
+    /**
+     * Tests loading circles without supplying any ids.
+     * Expected result:
+     * No circles should be loaded and no request should be issued.
+     */
+    @Test
+    public void emptyLoadTest() {
+        final List<Circle> theCircles = mParallelBatchReader.batchLoad(Circle.class, List.of());
+
+        Assertions.assertTrue(theCircles.isEmpty(), "No circles should have been loaded");
+        Mockito.verify(mAmazonDynamoDB, Mockito.never()).batchGetItem(Mockito.any(BatchGetItemRequest.class));
+    }
+
+    /**
+     * Tests loading circles when DynamoDB returns some keys as unprocessed.
+     * Expected result:
+     * The unprocessed keys should be retried and all circles should be loaded.
+     */
+    @Test
+    public void retryUnprocessedKeysTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchGetItem(Mockito.any(BatchGetItemRequest.class)))
+            .thenAnswer(theInvocation -> {
+                final BatchGetItemRequest theRequest = theInvocation.getArgument(0);
+                final List<Map<String, AttributeValue>> theKeys =
+                    theRequest.getRequestItems().get(CIRCLES_TABLE_NAME).getKeys();
+                final List<Map<String, AttributeValue>> theUnprocessedKeys = theKeys.subList(0, theKeys.size() / 2);
+                return new BatchGetItemResult()
+                    .withResponses(Map.of(CIRCLES_TABLE_NAME,
+                        new ArrayList<>(theKeys.subList(theKeys.size() / 2, theKeys.size()))))
+                    .withUnprocessedKeys(theUnprocessedKeys.isEmpty()
+                        ? Map.of()
+                        : Map.of(CIRCLES_TABLE_NAME, new KeysAndAttributes().withKeys(theUnprocessedKeys)));
+            });
+        final List<String> theIds = createIds(4);
+
+        final List<Circle> theCircles = mParallelBatchReader.batchLoad(Circle.class, theIds);
+
+        Mockito.verify(mAmazonDynamoDB, Mockito.times(3)).batchGetItem(Mockito.any(BatchGetItemRequest.class));
+        Assertions.assertEquals(new HashSet<>(theIds),
+            theCircles.stream().map(Circle::getId).collect(Collectors.toSet()),
+            "All circles should have been loaded after retrying unprocessed keys");
+    }
+
+    /**
+     * Tests loading circles when DynamoDB never processes some keys.
+     * Expected result:
+     * Reading should be retried the maximum number of times, after which an exception should be thrown.
+     */
+    @Test
+    public void retriesExhaustedTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchGetItem(Mockito.any(BatchGetItemRequest.class)))
+            .thenAnswer(theInvocation -> {
+                final BatchGetItemRequest theRequest = theInvocation.getArgument(0);
+                return new BatchGetItemResult()
+                    .withResponses(Map.of())
+                    .withUnprocessedKeys(theRequest.getRequestItems());
+            });
+
+        Assertions.assertThrows(DataRetrievalFailureException.class,
+            () -> mParallelBatchReader.batchLoad(Circle.class, createIds(2)),
+            "An exception should be thrown when keys remain unprocessed");
+        Mockito
+            .verify(mAmazonDynamoDB, Mockito.times(MAX_RETRIES + 1))
+            .batchGetItem(Mockito.any(BatchGetItemRequest.class));
+    }
+
+    /**
+     * Creates a result containing one item, consisting of only the key, for each key in the supplied request.
+     *
+     * @param inRequest BatchGetItem request.
+     * @return Result of the request.
+     */
+    protected static BatchGetItemResult echoKeys(final BatchGetItemRequest inRequest) {
+        final Map<String, List<Map<String, AttributeValue>>> theResponses = new HashMap<>();
+        for (Map.Entry<String, KeysAndAttributes> theRequestItems : inRequest.getRequestItems().entrySet()) {
+            theResponses.put(theRequestItems.getKey(), new ArrayList<>(theRequestItems.getValue().getKeys()));
+        }
+        return new BatchGetItemResult()
+            .withResponses(theResponses)
+            .withUnprocessedKeys(Map.of());
+    }
+
+    /**
+     * Creates the supplied number of distinct circle ids.
+     *
+     * @param inCount Number of ids to create.
+     * @return New modifiable list of ids.
+     */
+    protected static List<String> createIds(final int inCount) {
+        final List<String> theIds = new ArrayList<>();
+        for (int i = 1; i <= inCount; i++) {
+            theIds.add("circle-" + i);
+        }
+        return theIds;
+    }
+}
@@ -0,0 +1,195 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests of the batch writer that writes entities in concurrently dispatched BatchWriteItem requests.
+ *
+ * @author Ivan Krizsan
+ */
+class ParallelBatchWriterTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME_PREFIX = "test_";
+    protected final static String CIRCLES_TABLE_NAME = TABLE_NAME_PREFIX + "circles";
+    protected final static int MAX_RETRIES = 3;
+
+    /* Instance variable(s): */
+    protected AmazonDynamoDB mAmazonDynamoDB;
+    protected ParallelBatchWriter mParallelBatchWriter;
+
+    /**
+     * Creates a batch writer using a mock DynamoDB client before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = Mockito.mock(AmazonDynamoDB.class);
+        final DynamoDBMapperConfig theMapperConfig = new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(TABLE_NAME_PREFIX))
+            .build();
+        mParallelBatchWriter = new ParallelBatchWriter(
+            mAmazonDynamoDB,
+            new MapperItemConverter(new DynamoDBMapper(mAmazonDynamoDB, theMapperConfig), theMapperConfig),
+            Executors.newFixedThreadPool(4),
+            MAX_RETRIES,
+            1L,
+            5L);
+    }
+
+    /**
+     * Tests saving more circles than fit in one BatchWriteItem request.
+     * Expected result:
+     * The circles should be written in chunks of at most 25 items to the prefixed circles table.
+     * All circles should have been assigned an id and a last update time.
+     * No failed batches should be reported.
+     */
+    @Test
+    public void chunkedSaveTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchWriteItem(Mockito.any(BatchWriteItemRequest.class)))
+            .thenReturn(new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap()));
+        final List<Circle> theCircles = createCircles(60);
+
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches = mParallelBatchWriter.batchSave(theCircles);
+
+        Assertions.assertTrue(theFailedBatches.isEmpty(), "No batches should have failed");
+        final ArgumentCaptor<BatchWriteItemRequest> theRequestCaptor =
+            ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        Mockito.verify(mAmazonDynamoDB, Mockito.times(3)).batchWriteItem(theRequestCaptor.capture());
+        int theWrittenItemsCount = 0;
+        for (BatchWriteItemRequest theRequest : theRequestCaptor.getAllValues()) {
+            final List<WriteRequest> theWriteRequests = theRequest.getRequestItems().get(CIRCLES_TABLE_NAME);
+            Assertions.assertTrue(theWriteRequests.size() <= 25, "A chunk should contain at most 25 items");
+            theWrittenItemsCount += theWriteRequests.size();
+        }
+        Assertions.assertEquals(60, theWrittenItemsCount, "All circles should have been written");
+        for (Circle theCircle : theCircles) {
+            Assertions.assertNotNull(theCircle.getId(), "Circle id should have been set");
+            Assertions.assertNotNull(theCircle.getLastUpdateTime(), "Circle last update time should have been set");
+        }
+    }
+
+    /**
+     * Tests saving circles of which two have the same id.
+     * Expected result:
+     * Only the last of the circles with the same id should be written, so that the BatchWriteItem
+     * request does not contain duplicate keys.
+     */
+    @Test
+    public void duplicateKeysSaveTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchWriteItem(Mockito.any(BatchWriteItemRequest.class)))
+            .thenReturn(new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap()));
+        final List<Circle> theCircles = createCircles(3);
+        theCircles.get(0).setId("circle-1");
+        theCircles.get(2).setId("circle-1");
+
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches = mParallelBatchWriter.batchSave(theCircles);
+
+        Assertions.assertTrue(theFailedBatches.isEmpty(), "No batches should have failed");
+        final ArgumentCaptor<BatchWriteItemRequest> theRequestCaptor =
+            ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        Mockito.verify(mAmazonDynamoDB).batchWriteItem(theRequestCaptor.capture());
+        final List<WriteRequest> theWriteRequests =
+            theRequestCaptor.getValue().getRequestItems().get(CIRCLES_TABLE_NAME);
+        Assertions.assertEquals(2, theWriteRequests.size(), "Each circle id should be written once");
+        final Map<String, AttributeValue> theWrittenItem = theWriteRequests
+            .stream()
+            .map(theWriteRequest -> theWriteRequest.getPutRequest().getItem())
+            .filter(theItem -> "circle-1".equals(theItem.get("id").getS()))
+            .findFirst()
+            .orElseThrow();
+        Assertions.assertEquals("3", theWrittenItem.get("radius").getN(),
+            "The last circle with the id should be written");
+    }
+
+    /**
+     * Tests saving circles when DynamoDB does not process all items of the first request.
+     * Expected result:
+     * The unprocessed items should be retried in a second request.
+     * No failed batches should be reported.
+     */
+    @Test
+    public void retryUnprocessedItemsTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchWriteItem(Mockito.any(BatchWriteItemRequest.class)))
+            .thenAnswer(theInvocation -> {
+                final BatchWriteItemRequest theRequest = theInvocation.getArgument(0);
+                final List<WriteRequest> theWriteRequests = theRequest.getRequestItems().get(CIRCLES_TABLE_NAME);
+                if (theWriteRequests.size() > 1) {
+                    return new BatchWriteItemResult().withUnprocessedItems(
+                        Map.of(CIRCLES_TABLE_NAME, theWriteRequests.subList(1, theWriteRequests.size())));
+                }
+                return new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap());
+            });
+
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches =
+            mParallelBatchWriter.batchSave(createCircles(3));
+
+        Assertions.assertTrue(theFailedBatches.isEmpty(), "No batches should have failed");
+        Mockito.verify(mAmazonDynamoDB, Mockito.times(3)).batchWriteItem(Mockito.any(BatchWriteItemRequest.class));
+    }
+
+    /**
+     * Tests saving circles when DynamoDB never processes the items.
+     * Expected result:
+     * The items should be retried the maximum number of times after which
+     * a failed batch containing the unprocessed items should be reported.
+     */
+    @Test
+    public void retriesExhaustedTest() {
+        Mockito
+            .when(mAmazonDynamoDB.batchWriteItem(Mockito.any(BatchWriteItemRequest.class)))
+            .thenAnswer(theInvocation -> {
+                final BatchWriteItemRequest theRequest = theInvocation.getArgument(0);
+                return new BatchWriteItemResult().withUnprocessedItems(theRequest.getRequestItems());
+            });
+
+        final List<DynamoDBMapper.FailedBatch> theFailedBatches =
+            mParallelBatchWriter.batchSave(createCircles(2));
+
+        Assertions.assertEquals(1, theFailedBatches.size(), "One batch should have failed");
+        Assertions.assertEquals(
+            2,
+            theFailedBatches.get(0).getUnprocessedItems().get(CIRCLES_TABLE_NAME).size(),
+            "Both items should be unprocessed");
+        Mockito
+            .verify(mAmazonDynamoDB, Mockito.times(MAX_RETRIES + 1))
+            .batchWriteItem(Mockito.any(BatchWriteItemRequest.class));
+    }
+
+    /**
+     * Creates the supplied number of circles with different radii.
+     *
+     * @param inCount Number of circles to create.
+     * @return New circles.
+     */
+    protected List<Circle> createCircles(final int inCount) {
+        final List<Circle> theCircles = new ArrayList<>();
+        for (int i = 1; i <= inCount; i++) {
+            final Circle theCircle = new Circle();
+            theCircle.setRadius(i);
+            theCircle.setPosition(i, i);
+            theCircle.setColour("blue");
+            theCircles.add(theCircle);
+        }
+        return theCircles;
+    }
+}
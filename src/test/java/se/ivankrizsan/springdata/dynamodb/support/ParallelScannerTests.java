@@ -0,0 +1,235 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests of the parallel scanner that scans tables in segments that are read concurrently.
+ *
+ * @author Ivan Krizsan
+ */
+class ParallelScannerTests {
+    /* Constant(s): */
+    protected final static int TOTAL_SEGMENTS = 4;
+    protected final static int PAGES_PER_SEGMENT = 10;
+    protected final static int ITEMS_PER_PAGE = 5;
+    protected final static int BUFFERED_PAGES = 2;
+    protected final static long SCAN_TIMEOUT_MILLIS = 200L;
+
+    /* Instance variable(s): */
+    protected ExecutorService mExecutor;
+    protected ParallelScanner mParallelScanner;
+    protected AtomicInteger mReadPagesCount;
+
+    /**
+     * Creates a parallel scanner before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mExecutor = Executors.newFixedThreadPool(TOTAL_SEGMENTS);
+        mParallelScanner = new ParallelScanner(
+            Mockito.mock(AmazonDynamoDB.class),
+            Mockito.mock(ItemConverter.class),
+            mExecutor,
+            BUFFERED_PAGES);
+        mReadPagesCount = new AtomicInteger();
+    }
+
+    /**
+     * Shuts down the scan executor after each test.
+     */
+    @AfterEach
+    public void cleanup() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Tests consuming a complete parallel scan.
+     * Expected result:
+     * The stream should contain all items of all pages of all segments exactly once.
+     */
+    @Test
+    public void consumeCompleteScanTest() {
+        final List<String> theItems;
+        try (Stream<String> theStream = mParallelScanner.scan(TOTAL_SEGMENTS, this::readPage)) {
+            theItems = theStream.collect(Collectors.toList());
+        }
+
+        final Set<String> theUniqueItems = new HashSet<>(theItems);
+        Assertions.assertEquals(
+            TOTAL_SEGMENTS * PAGES_PER_SEGMENT * ITEMS_PER_PAGE,
+            theItems.size(),
+            "All items should have been streamed");
+        Assertions.assertEquals(theItems.size(), theUniqueItems.size(), "No item should have been streamed twice");
+    }
+
+    /**
+     * Tests closing a parallel scan stream after consuming only a few items.
+     * Expected result:
+     * Segments should stop being read since the buffer is bounded and the scan is cancelled.
+     */
+    @Test
+    public void closeScanEarlyTest() throws InterruptedException {
+        try (Stream<String> theStream = mParallelScanner.scan(TOTAL_SEGMENTS, this::readPage)) {
+            theStream.limit(3).forEach(theItem -> {});
+        }
+        mExecutor.shutdown();
+        Assertions.assertTrue(
+            mExecutor.awaitTermination(5, TimeUnit.SECONDS),
+            "Segment scans should have stopped");
+
+        Assertions.assertTrue(
+            mReadPagesCount.get() < TOTAL_SEGMENTS * PAGES_PER_SEGMENT,
+            "Not all pages should have been read");
+    }
+
+    /**
+     * Tests a parallel scan in which reading one of the segments fails.
+     * Expected result:
+     * The exception should be propagated to the consumer of the stream.
+     */
+    @Test
+    public void failingSegmentTest() {
+        final ParallelScanner.SegmentPageReader<String> theFailingPageReader = (inSegment, inStartKey) -> {
+            if (inSegment == 1) {
+                throw new IllegalStateException("Segment failed");
+            }
+            return readPage(inSegment, inStartKey);
+        };
+
+        try (Stream<String> theStream = mParallelScanner.scan(TOTAL_SEGMENTS, theFailingPageReader)) {
+            Assertions.assertThrows(
+                IllegalStateException.class,
+                () -> theStream.forEach(theItem -> {}),
+                "Exception from segment should be propagated");
+        }
+    }
+
+    /**
+     * Tests a parallel scan in which reading one of the segments throws an error.
+     * Expected result:
+     * The error should be propagated to the consumer of the stream instead of the consumer
+     * waiting for the segment to complete.
+     */
+    @Test
+    public void segmentErrorTest() {
+        final ParallelScanner.SegmentPageReader<String> theFailingPageReader = (inSegment, inStartKey) -> {
+            if (inSegment == 1) {
+                throw new NoClassDefFoundError("Segment failed");
+            }
+            return readPage(inSegment, inStartKey);
+        };
+
+        try (Stream<String> theStream = mParallelScanner.scan(TOTAL_SEGMENTS, theFailingPageReader)) {
+            Assertions.assertThrows(
+                NoClassDefFoundError.class,
+                () -> theStream.forEach(theItem -> {}),
+                "Error from segment should be propagated");
+        }
+    }
+
+    /**
+     * Tests leaving a parallel scan stream unclosed after consuming only one item.
+     * Expected result:
+     * The segment scans should abandon the scan after the scan timeout, releasing the threads of
+     * the executor, and continued consumption of the stream should fail.
+     */
+    @Test
+    public void abandonUnclosedScanTest() throws InterruptedException {
+        final ParallelScanner theParallelScanner = new ParallelScanner(
+            Mockito.mock(AmazonDynamoDB.class),
+            Mockito.mock(ItemConverter.class),
+            mExecutor,
+            BUFFERED_PAGES,
+            CapacityRateLimiter.unlimited(),
+            SCAN_TIMEOUT_MILLIS);
+        final Iterator<String> theItems = theParallelScanner.scan(TOTAL_SEGMENTS, this::readPage).iterator();
+        theItems.next();
+
+        mExecutor.shutdown();
+        Assertions.assertTrue(
+            mExecutor.awaitTermination(5, TimeUnit.SECONDS),
+            "Segment scans should have abandoned the scan");
+        Assertions.assertThrows(
+            DataRetrievalFailureException.class,
+            () -> theItems.forEachRemaining(theItem -> {}),
+            "Consuming an abandoned scan should fail");
+    }
+
+    /**
+     * Tests a parallel scan in which reading a segment does not complete within the scan timeout.
+     * Expected result:
+     * The consumer should stop waiting for results and a query timeout exception should be thrown.
+     */
+    @Test
+    public void consumerTimeoutTest() {
+        final CountDownLatch theReleaseLatch = new CountDownLatch(1);
+        final ParallelScanner theParallelScanner = new ParallelScanner(
+            Mockito.mock(AmazonDynamoDB.class),
+            Mockito.mock(ItemConverter.class),
+            mExecutor,
+            BUFFERED_PAGES,
+            CapacityRateLimiter.unlimited(),
+            SCAN_TIMEOUT_MILLIS);
+        final ParallelScanner.SegmentPageReader<String> theBlockingPageReader = (inSegment, inStartKey) -> {
+            try {
+                theReleaseLatch.await();
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+            }
+            return readPage(inSegment, inStartKey);
+        };
+
+        try (Stream<String> theStream = theParallelScanner.scan(TOTAL_SEGMENTS, theBlockingPageReader)) {
+            Assertions.assertThrows(
+                QueryTimeoutException.class,
+                () -> theStream.forEach(theItem -> {}),
+                "Waiting for scan results should time out");
+        } finally {
+            theReleaseLatch.countDown();
+        }
+    }
+
+    /**
+     * Reads one page of a segment, where the page number is passed in the exclusive start key.
+     *
+     * @param inSegment Segment to read.
+     * @param inExclusiveStartKey Key containing the number of the page to read, null for the first page.
+     * @return Page of items.
+     */
+    protected ParallelScanner.SegmentPage<String> readPage(
+        final int inSegment,
+        final Map<String, AttributeValue> inExclusiveStartKey) {
+        mReadPagesCount.incrementAndGet();
+        final int thePage = inExclusiveStartKey == null ? 0 : Integer.parseInt(inExclusiveStartKey.get("page").getN());
+        final List<String> theItems = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_PAGE; i++) {
+            theItems.add(inSegment + "-" + thePage + "-" + i);
+        }
+        final Map<String, AttributeValue> theLastEvaluatedKey = thePage + 1 < PAGES_PER_SEGMENT
+            ? Map.of("page", new AttributeValue().withN(Integer.toString(thePage + 1)))
+            : null;
+        return new ParallelScanner.SegmentPage<>(theItems, theLastEvaluatedKey);
+    }
+}
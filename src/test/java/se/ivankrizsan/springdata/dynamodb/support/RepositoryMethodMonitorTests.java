@@ -0,0 +1,272 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.repository.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Tests of the monitor of repository methods.
+ *
+ * @author Ivan Krizsan
+ */
+class RepositoryMethodMonitorTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME = "Items";
+    protected final static int ITEM_COUNT = 50;
+    protected final static int SCAN_PAGE_SIZE = 20;
+    protected final static int SCAN_SEGMENTS = 2;
+    protected final static String REPOSITORY_NAME = "ItemsRepository";
+
+    /**
+     * Repository of items used to test monitoring.
+     */
+    interface ItemsRepository extends Repository<Map<String, AttributeValue>, String> {
+        /**
+         * Determines whether the item with the supplied id exists using a GetItem request.
+         *
+         * @param inId Item id.
+         * @return True if the item exists, false otherwise.
+         */
+        boolean existsById(String inId);
+
+        /**
+         * Counts the items with the supplied colour by scanning the table in pages.
+         *
+         * @param inColour Colour to match.
+         * @return Number of items with the colour.
+         */
+        long countByColour(String inColour);
+
+        /**
+         * Counts all items by scanning the table in parallel segments.
+         *
+         * @return Number of items.
+         */
+        long count();
+    }
+
+    /* Instance variable(s): */
+    protected SimpleMeterRegistry mMeterRegistry;
+    protected InMemoryAmazonDynamoDB mAmazonDynamoDB;
+    protected ExecutorService mScanExecutor;
+    protected ParallelScanner mParallelScanner;
+
+    /**
+     * Creates a meter registry and an executor on which segments are scanned before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mMeterRegistry = new SimpleMeterRegistry();
+        mScanExecutor = Executors.newFixedThreadPool(SCAN_SEGMENTS);
+    }
+
+    /**
+     * Stops the scan executor after each test.
+     */
+    @AfterEach
+    public void cleanup() {
+        mScanExecutor.shutdownNow();
+    }
+
+    /**
+     * Tests invoking monitored repository methods that read items using GetItem and Scan requests.
+     * Expected result:
+     * The invocations should be timed per repository method and the items returned, items scanned
+     * and pages fetched by each invocation should be recorded.
+     */
+    @Test
+    public void invocationMetricsTest() {
+        final ItemsRepository theRepository =
+            monitoredRepository(RepositoryMethodMonitor.ScanGuardMode.OFF, 0L, List.of());
+
+        Assertions.assertTrue(theRepository.existsById("item-1"), "The item should exist");
+        Assertions.assertEquals(ITEM_COUNT / 2, theRepository.countByColour("red"), "Half the items should be red");
+
+        Assertions.assertEquals(1L, mMeterRegistry
+            .get(RepositoryMethodMonitor.INVOCATIONS_METER_NAME)
+            .tags(RepositoryMethodMonitor.REPOSITORY_TAG, REPOSITORY_NAME,
+                RepositoryMethodMonitor.METHOD_TAG, "existsById",
+                RepositoryMethodMonitor.OUTCOME_TAG, "success")
+            .timer()
+            .count(), "The invocation should be timed");
+        Assertions.assertEquals(1.0, summary(RepositoryMethodMonitor.ITEMS_RETURNED_METER_NAME, "existsById")
+            .totalAmount(), "The read item should be recorded");
+        Assertions.assertEquals(ITEM_COUNT / 2, summary(RepositoryMethodMonitor.ITEMS_RETURNED_METER_NAME,
+            "countByColour").totalAmount(), "The items matching the filter should be recorded as returned");
+        Assertions.assertEquals(ITEM_COUNT, summary(RepositoryMethodMonitor.ITEMS_SCANNED_METER_NAME,
+            "countByColour").totalAmount(), "All items should be recorded as scanned");
+        Assertions.assertEquals(3.0, summary(RepositoryMethodMonitor.PAGES_METER_NAME, "countByColour")
+            .totalAmount(), "All fetched pages should be recorded");
+    }
+
+    /**
+     * Tests scanning a table containing more items than the maximum when only logging scans.
+     * Expected result:
+     * The scan should be performed and flagged once per invocation, even though several pages
+     * are scanned on several threads.
+     */
+    @Test
+    public void logLargeTableScanTest() {
+        final ItemsRepository theRepository =
+            monitoredRepository(RepositoryMethodMonitor.ScanGuardMode.LOG, ITEM_COUNT - 1, List.of());
+
+        Assertions.assertEquals(ITEM_COUNT, theRepository.count(), "The table should have been scanned");
+
+        Assertions.assertEquals(1.0, mMeterRegistry
+            .get(RepositoryMethodMonitor.FLAGGED_SCANS_METER_NAME)
+            .tags(RepositoryMethodMonitor.METHOD_TAG, "count", RepositoryMethodMonitor.TABLE_TAG, TABLE_NAME)
+            .counter()
+            .count(), "The scan should have been flagged once");
+        Assertions.assertEquals(ITEM_COUNT, summary(RepositoryMethodMonitor.ITEMS_SCANNED_METER_NAME, "count")
+            .totalAmount(), "Items scanned on other threads should be attributed to the invocation");
+    }
+
+    /**
+     * Tests scanning tables when rejecting scans of tables containing more items than the maximum.
+     * Expected result:
+     * Scans by methods not in the allow-list should be rejected and timed with the rejected outcome.
+     * Scans by allow-listed methods should be performed.
+     */
+    @Test
+    public void rejectLargeTableScanTest() {
+        final ItemsRepository theRepository = monitoredRepository(
+            RepositoryMethodMonitor.ScanGuardMode.REJECT, ITEM_COUNT - 1, List.of(REPOSITORY_NAME + ".count"));
+
+        Assertions.assertThrows(InvalidDataAccessApiUsageException.class,
+            () -> theRepository.countByColour("red"), "The scan should have been rejected");
+        Assertions.assertEquals(ITEM_COUNT, theRepository.count(), "The allow-listed method should scan");
+
+        Assertions.assertEquals(1L, mMeterRegistry
+            .get(RepositoryMethodMonitor.INVOCATIONS_METER_NAME)
+            .tags(RepositoryMethodMonitor.METHOD_TAG, "countByColour", RepositoryMethodMonitor.OUTCOME_TAG, "rejected")
+            .timer()
+            .count(), "The rejected invocation should be timed");
+        Assertions.assertTrue(mMeterRegistry.find(RepositoryMethodMonitor.FLAGGED_SCANS_METER_NAME)
+            .tags(RepositoryMethodMonitor.METHOD_TAG, "count")
+            .counters()
+            .isEmpty(), "The allow-listed method should not be flagged");
+    }
+
+    /**
+     * Tests scanning a table containing no more items than the maximum when rejecting scans,
+     * and scanning a table outside of repository methods.
+     * Expected result:
+     * The scans should not be rejected.
+     */
+    @Test
+    public void smallTableScanTest() {
+        final ItemsRepository theRepository =
+            monitoredRepository(RepositoryMethodMonitor.ScanGuardMode.REJECT, ITEM_COUNT, List.of());
+        Assertions.assertEquals(ITEM_COUNT / 2, theRepository.countByColour("red"), "The scan should be performed");
+
+        final ItemsRepository theStrictRepository =
+            monitoredRepository(RepositoryMethodMonitor.ScanGuardMode.REJECT, 0L, List.of());
+        Assertions.assertThrows(InvalidDataAccessApiUsageException.class, theStrictRepository::count,
+            "Scans by repository methods should be rejected");
+        Assertions.assertEquals(ITEM_COUNT, mAmazonDynamoDB.scan(new ScanRequest(TABLE_NAME)).getCount(),
+            "Scans outside of repository methods should not be rejected");
+    }
+
+    /**
+     * Creates a table containing items, half of them red, and a monitored repository of the items.
+     *
+     * @param inScanGuardMode Action taken when a repository method scans a large table.
+     * @param inMaxScannedTableItems Maximum number of items of tables that repository methods may scan.
+     * @param inAllowedMethods Repository methods allowed to scan tables of any size.
+     * @return Monitored repository.
+     */
+    protected ItemsRepository monitoredRepository(
+        final RepositoryMethodMonitor.ScanGuardMode inScanGuardMode,
+        final long inMaxScannedTableItems,
+        final Collection<String> inAllowedMethods) {
+        final RepositoryMethodMonitor theMonitor = new RepositoryMethodMonitor(
+            mMeterRegistry,
+            inScanGuardMode,
+            inMaxScannedTableItems,
+            inAllowedMethods,
+            theTableName -> mAmazonDynamoDB.describeTable(theTableName).getTable(),
+            Duration.ofMinutes(1));
+        mAmazonDynamoDB = new InMemoryAmazonDynamoDB(theMonitor);
+        mAmazonDynamoDB.createTable(new CreateTableRequest()
+            .withTableName(TABLE_NAME)
+            .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+            .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S)));
+        for (int theItem = 0; theItem < ITEM_COUNT; theItem++) {
+            mAmazonDynamoDB.putItem(TABLE_NAME, Map.of(
+                "id", new AttributeValue("item-" + theItem),
+                "colour", new AttributeValue(theItem % 2 == 0 ? "red" : "blue")));
+        }
+        mParallelScanner = new ParallelScanner(
+            mAmazonDynamoDB,
+            Mockito.mock(ItemConverter.class),
+            RepositoryInvocation.propagating(mScanExecutor),
+            SCAN_SEGMENTS);
+        return theMonitor.monitor(new ItemsRepository() {
+            @Override
+            public boolean existsById(final String inId) {
+                return mAmazonDynamoDB.getItem(TABLE_NAME, Map.of("id", new AttributeValue(inId))).getItem() != null;
+            }
+
+            @Override
+            public long countByColour(final String inColour) {
+                long theCount = 0;
+                Map<String, AttributeValue> theStartKey = null;
+                do {
+                    final ScanResult theScanResult = mAmazonDynamoDB.scan(new ScanRequest(TABLE_NAME)
+                        .withFilterExpression("colour = :colour")
+                        .withExpressionAttributeValues(Map.of(":colour", new AttributeValue(inColour)))
+                        .withLimit(SCAN_PAGE_SIZE)
+                        .withExclusiveStartKey(theStartKey));
+                    theCount += theScanResult.getCount();
+                    theStartKey = theScanResult.getLastEvaluatedKey();
+                } while (theStartKey != null);
+                return theCount;
+            }
+
+            @Override
+            public long count() {
+                try (Stream<Map<String, AttributeValue>> theItems =
+                    mParallelScanner.scanItems(TABLE_NAME, SCAN_SEGMENTS)) {
+                    return theItems.count();
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the distribution summary with the supplied name of the supplied method of the items repository.
+     *
+     * @param inMeterName Name of distribution summary.
+     * @param inMethodName Name of repository method.
+     * @return Distribution summary.
+     */
+    protected DistributionSummary summary(final String inMeterName, final String inMethodName) {
+        return mMeterRegistry
+            .get(inMeterName)
+            .tags(RepositoryMethodMonitor.REPOSITORY_TAG, REPOSITORY_NAME, RepositoryMethodMonitor.METHOD_TAG,
+                inMethodName)
+            .summary();
+    }
+}
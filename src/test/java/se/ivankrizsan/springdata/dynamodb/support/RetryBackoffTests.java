@@ -0,0 +1,54 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the exponential backoff with full jitter used when retrying batched requests.
+ *
+ * @author Ivan Krizsan
+ */
+class RetryBackoffTests {
+    /* Constant(s): */
+    protected final static long BASE_DELAY_MILLIS = 10L;
+    protected final static long MAX_DELAY_MILLIS = 1000L;
+    protected final static int SAMPLES_COUNT = 1000;
+
+    /**
+     * Tests calculating the delays before a number of retries.
+     * Expected result:
+     * Each delay should be between zero and the base delay doubled once per retry, inclusive,
+     * and never exceed the maximum delay, also for retry numbers that would overflow if not limited.
+     */
+    @Test
+    public void delayBoundsTest() {
+        final RetryBackoff theRetryBackoff = new RetryBackoff(BASE_DELAY_MILLIS, MAX_DELAY_MILLIS);
+        for (int theRetry = 0; theRetry < 100; theRetry++) {
+            final long theCeiling = theRetry < 7 ? BASE_DELAY_MILLIS << theRetry : MAX_DELAY_MILLIS;
+            for (int i = 0; i < SAMPLES_COUNT / 10; i++) {
+                final long theDelay = theRetry > 40 ? theRetryBackoff.delayMillis(Integer.MAX_VALUE)
+                    : theRetryBackoff.delayMillis(theRetry);
+                Assertions.assertTrue(theDelay >= 0, "The delay should not be negative");
+                Assertions.assertTrue(theDelay <= theCeiling, "The delay should not exceed " + theCeiling);
+            }
+        }
+    }
+
+    /**
+     * Tests calculating the delay before the first retry many times.
+     * Expected result:
+     * The delays should be spread over the range from zero to the base delay, not all the same.
+     */
+    @Test
+    public void jitterTest() {
+        final RetryBackoff theRetryBackoff = new RetryBackoff(BASE_DELAY_MILLIS, MAX_DELAY_MILLIS);
+        long theMinDelay = Long.MAX_VALUE;
+        long theMaxDelay = Long.MIN_VALUE;
+        for (int i = 0; i < SAMPLES_COUNT; i++) {
+            final long theDelay = theRetryBackoff.delayMillis(0);
+            theMinDelay = Math.min(theMinDelay, theDelay);
+            theMaxDelay = Math.max(theMaxDelay, theDelay);
+        }
+        Assertions.assertTrue(theMinDelay < theMaxDelay, "The delays should be jittered");
+    }
+}
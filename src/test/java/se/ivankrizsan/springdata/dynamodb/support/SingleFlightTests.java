@@ -0,0 +1,245 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tests of the single-flight coalescing concurrent identical calls.
+ *
+ * @author Ivan Krizsan
+ */
+class SingleFlightTests {
+    /* Constant(s): */
+    protected final static int CALLER_COUNT = 8;
+    protected final static Duration RESULT_TIME_TO_LIVE = Duration.ofMillis(100);
+
+    /* Instance variable(s): */
+    protected AtomicLong mNanoTime;
+    protected AtomicInteger mExecutionCount;
+    protected ExecutorService mExecutor;
+
+    /**
+     * Creates a manually advanced ticker and an executor for concurrent callers before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mNanoTime = new AtomicLong();
+        mExecutionCount = new AtomicInteger();
+        mExecutor = Executors.newFixedThreadPool(CALLER_COUNT);
+    }
+
+    /**
+     * Stops the executor of concurrent callers after each test.
+     */
+    @AfterEach
+    public void cleanup() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Tests making the same call from multiple threads while the first call is in flight.
+     * Expected result:
+     * The call should be executed once and all callers should receive its result.
+     * All calls except the executed one should be counted as shared.
+     */
+    @Test
+    public void concurrentIdenticalCallsTest() throws Exception {
+        final SingleFlight<String> theSingleFlight = new SingleFlight<>(10, Duration.ZERO);
+        final CountDownLatch theCallReleaseLatch = new CountDownLatch(1);
+
+        final List<CompletableFuture<String>> theResults =
+            callConcurrently(theSingleFlight, "red", blockingCall(theCallReleaseLatch, () -> "red circles"));
+        awaitSharedCount(theSingleFlight, CALLER_COUNT - 1);
+        theCallReleaseLatch.countDown();
+
+        for (CompletableFuture<String> theResult : theResults) {
+            Assertions.assertEquals("red circles", theResult.get(5, TimeUnit.SECONDS),
+                "All callers should receive the result of the call");
+        }
+        Assertions.assertEquals(1, mExecutionCount.get(), "The call should only have been executed once");
+        final SingleFlight.Statistics theStatistics = theSingleFlight.statistics();
+        Assertions.assertEquals(CALLER_COUNT, theStatistics.getRequestCount(), "All calls should be counted");
+        Assertions.assertEquals(1, theStatistics.getExecutionCount(), "One execution should be counted");
+        Assertions.assertEquals(CALLER_COUNT - 1, theStatistics.getDeduplicatedCount(),
+            "The other calls should be counted as deduplicated");
+    }
+
+    /**
+     * Tests making the same call from multiple threads while the first call is in flight and fails.
+     * Expected result:
+     * All callers should receive the exception thrown by the call and the failure should not
+     * be kept, so that the next call is executed.
+     */
+    @Test
+    public void sharedFailureTest() throws Exception {
+        final SingleFlight<String> theSingleFlight = new SingleFlight<>(10, RESULT_TIME_TO_LIVE);
+        final CountDownLatch theCallReleaseLatch = new CountDownLatch(1);
+
+        final List<CompletableFuture<String>> theResults = callConcurrently(theSingleFlight, "red",
+            blockingCall(theCallReleaseLatch, () -> {
+                throw new IllegalStateException("Simulated failure");
+            }));
+        awaitSharedCount(theSingleFlight, CALLER_COUNT - 1);
+        theCallReleaseLatch.countDown();
+
+        for (CompletableFuture<String> theResult : theResults) {
+            final Exception theException = Assertions.assertThrows(Exception.class,
+                () -> theResult.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(theException.getCause() instanceof IllegalStateException,
+                "All callers should receive the exception thrown by the call");
+        }
+        Assertions.assertEquals("red circles", theSingleFlight.execute("red", () -> "red circles"),
+            "The call should be executed again after a failure");
+    }
+
+    /**
+     * Tests making the same call sequentially when results are kept.
+     * Expected result:
+     * The kept result should be returned until its time-to-live has passed, after which the call
+     * should be executed again. Calls with different keys should be executed separately.
+     */
+    @Test
+    public void keptResultTest() {
+        final SingleFlight<String> theSingleFlight =
+            new SingleFlight<>(10, RESULT_TIME_TO_LIVE, mNanoTime::get, Runnable::run);
+
+        theSingleFlight.execute("red", countingCall("red circles"));
+        theSingleFlight.execute("red", countingCall("red circles"));
+        theSingleFlight.execute("blue", countingCall("blue circles"));
+        Assertions.assertEquals(2, mExecutionCount.get(), "Each distinct call should have been executed once");
+        Assertions.assertEquals(1, theSingleFlight.statistics().getResultHitCount(),
+            "The kept result hit should be counted");
+
+        mNanoTime.addAndGet(RESULT_TIME_TO_LIVE.toNanos() + 1);
+        theSingleFlight.execute("red", countingCall("red circles"));
+        Assertions.assertEquals(3, mExecutionCount.get(), "The expired result should not have been returned");
+    }
+
+    /**
+     * Tests invalidating while a call is in flight.
+     * Expected result:
+     * A call made after the invalidation should be executed instead of sharing the in-flight call,
+     * and the result of the call started before the invalidation should not replace the kept result
+     * of the call made after the invalidation.
+     */
+    @Test
+    public void invalidateAllTest() throws Exception {
+        final SingleFlight<String> theSingleFlight =
+            new SingleFlight<>(10, RESULT_TIME_TO_LIVE, mNanoTime::get, Runnable::run);
+        final CountDownLatch theCallReleaseLatch = new CountDownLatch(1);
+        final CompletableFuture<String> theStaleResult = CompletableFuture.supplyAsync(
+            () -> theSingleFlight.execute("red", blockingCall(theCallReleaseLatch, () -> "stale red circles")),
+            mExecutor);
+        while (mExecutionCount.get() == 0) {
+            Thread.sleep(1L);
+        }
+
+        theSingleFlight.invalidateAll();
+        Assertions.assertEquals("red circles", theSingleFlight.execute("red", countingCall("red circles")),
+            "A call made after invalidation should not share the in-flight call");
+        theCallReleaseLatch.countDown();
+        Assertions.assertEquals("stale red circles", theStaleResult.get(5, TimeUnit.SECONDS),
+            "The in-flight call should complete");
+
+        Assertions.assertEquals("red circles", theSingleFlight.execute("red", countingCall("other red circles")),
+            "The result of the call made after invalidation should be kept, not the result of the stale call");
+        Assertions.assertEquals(2, mExecutionCount.get(), "The last call should not have been executed");
+    }
+
+    /**
+     * Tests making the same call twice using a disabled single-flight.
+     * Expected result:
+     * The call should be executed each time and no statistics should be recorded.
+     */
+    @Test
+    public void disabledTest() {
+        final SingleFlight<String> theSingleFlight = SingleFlight.disabled();
+
+        theSingleFlight.execute("red", countingCall("red circles"));
+        theSingleFlight.execute("red", countingCall("red circles"));
+
+        Assertions.assertEquals(2, mExecutionCount.get(), "The call should have been executed each time");
+        Assertions.assertEquals(0, theSingleFlight.statistics().getRequestCount(), "No calls should be counted");
+    }
+
+    /**
+     * Makes the supplied call with the supplied key from multiple threads.
+     *
+     * @param inSingleFlight Single-flight through which to make the call.
+     * @param inKey Call key.
+     * @param inCall Call.
+     * @return Futures completed with the results of the callers.
+     */
+    protected List<CompletableFuture<String>> callConcurrently(
+        final SingleFlight<String> inSingleFlight,
+        final String inKey,
+        final Supplier<String> inCall) {
+        final List<CompletableFuture<String>> theResults = new ArrayList<>();
+        for (int theCaller = 0; theCaller < CALLER_COUNT; theCaller++) {
+            theResults.add(CompletableFuture.supplyAsync(() -> inSingleFlight.execute(inKey, inCall), mExecutor));
+        }
+        return theResults;
+    }
+
+    /**
+     * Waits until the supplied number of calls have joined an in-flight call.
+     *
+     * @param inSingleFlight Single-flight.
+     * @param inSharedCount Number of shared calls to wait for.
+     */
+    protected static void awaitSharedCount(final SingleFlight<String> inSingleFlight, final long inSharedCount)
+        throws InterruptedException {
+        final long theDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inSingleFlight.statistics().getSharedCount() < inSharedCount && System.nanoTime() < theDeadline) {
+            Thread.sleep(1L);
+        }
+        Assertions.assertEquals(inSharedCount, inSingleFlight.statistics().getSharedCount(),
+            "The callers should have joined the in-flight call");
+    }
+
+    /**
+     * Creates a call that counts its executions and blocks until the supplied latch is released.
+     *
+     * @param inReleaseLatch Latch releasing the call.
+     * @param inCall Call to make when released.
+     * @return Blocking call.
+     */
+    protected Supplier<String> blockingCall(final CountDownLatch inReleaseLatch, final Supplier<String> inCall) {
+        return () -> {
+            mExecutionCount.incrementAndGet();
+            try {
+                inReleaseLatch.await();
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+            }
+            return inCall.get();
+        };
+    }
+
+    /**
+     * Creates a call that counts its executions and returns the supplied result.
+     *
+     * @param inResult Result of call.
+     * @return Counting call.
+     */
+    protected Supplier<String> countingCall(final String inResult) {
+        return () -> {
+            mExecutionCount.incrementAndGet();
+            return inResult;
+        };
+    }
+}
@@ -0,0 +1,262 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorResult;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of the consumer of table streams that feeds table changes to subscribed handlers.
+ *
+ * @author Ivan Krizsan
+ */
+class TableChangeStreamConsumerTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME = "circles";
+    protected final static String STREAM_ARN = "arn:aws:dynamodb:local:000000000000:table/circles/stream/1";
+    protected final static String PARENT_SHARD_ID = "shard-1";
+    protected final static String CHILD_SHARD_ID = "shard-2";
+
+    /* Instance variable(s): */
+    protected AmazonDynamoDB mAmazonDynamoDB;
+    protected AmazonDynamoDBStreams mAmazonDynamoDBStreams;
+    protected StreamCheckpointStore mCheckpointStore;
+    protected MeterRegistry mMeterRegistry;
+    /** Results of reading shards, keyed by shard iterator. */
+    protected Map<String, GetRecordsResult> mRecordsByIterator;
+    /** Sequence numbers of the records of each batch delivered to the handler. */
+    protected List<List<String>> mHandledBatches;
+
+    /**
+     * Creates mock DynamoDB clients for a table with a stream before each test.
+     * Shard iterators are named after the shard, the position and the sequence number they are created from.
+     */
+    @BeforeEach
+    public void setup() {
+        mAmazonDynamoDB = Mockito.mock(AmazonDynamoDB.class);
+        mAmazonDynamoDBStreams = Mockito.mock(AmazonDynamoDBStreams.class);
+        mCheckpointStore = StreamCheckpointStore.inMemory();
+        mMeterRegistry = new SimpleMeterRegistry();
+        mRecordsByIterator = new HashMap<>();
+        mHandledBatches = new ArrayList<>();
+
+        Mockito
+            .when(mAmazonDynamoDB.describeTable(TABLE_NAME))
+            .thenReturn(new DescribeTableResult().withTable(new TableDescription()
+                .withTableName(TABLE_NAME)
+                .withLatestStreamArn(STREAM_ARN)));
+        Mockito
+            .when(mAmazonDynamoDBStreams.getShardIterator(Mockito.any(GetShardIteratorRequest.class)))
+            .thenAnswer(theInvocation -> {
+                final GetShardIteratorRequest theRequest = theInvocation.getArgument(0);
+                return new GetShardIteratorResult().withShardIterator(iterator(
+                    theRequest.getShardId(), theRequest.getShardIteratorType(), theRequest.getSequenceNumber()));
+            });
+        Mockito
+            .when(mAmazonDynamoDBStreams.getRecords(Mockito.any(GetRecordsRequest.class)))
+            .thenAnswer(theInvocation -> mRecordsByIterator.getOrDefault(
+                ((GetRecordsRequest) theInvocation.getArgument(0)).getShardIterator(),
+                new GetRecordsResult()
+                    .withRecords(List.of())
+                    .withNextShardIterator(((GetRecordsRequest) theInvocation.getArgument(0)).getShardIterator())));
+    }
+
+    /**
+     * Tests consuming a shard in two polls.
+     * Expected result:
+     * Records should be delivered in batches as read and the sequence number of the last delivered
+     * record should be stored as checkpoint.
+     * The second poll should continue from the iterator returned by the last read of the first poll,
+     * so only one shard iterator should be requested.
+     */
+    @Test
+    public void consumeAndCheckpointTest() {
+        givenShards(List.of(new Shard().withShardId(PARENT_SHARD_ID)));
+        final String theInitialIterator = iterator(PARENT_SHARD_ID, ShardIteratorType.TRIM_HORIZON.toString(), null);
+        mRecordsByIterator.put(theInitialIterator, recordsResult("it-1", "1", "2"));
+        mRecordsByIterator.put("it-1", recordsResult("it-2"));
+        final TableChangeStreamConsumer theConsumer = createConsumer(ShardIteratorType.TRIM_HORIZON);
+
+        theConsumer.poll();
+        Assertions.assertEquals(List.of(List.of("1", "2")), mHandledBatches, "The first batch should be delivered");
+        Assertions.assertEquals("2", mCheckpointStore.checkpoint(STREAM_ARN, PARENT_SHARD_ID),
+            "The last delivered record should be the checkpoint");
+
+        mRecordsByIterator.put("it-2", recordsResult("it-3", "3"));
+        theConsumer.poll();
+
+        Assertions.assertEquals(List.of(List.of("1", "2"), List.of("3")), mHandledBatches,
+            "The second batch should be delivered after the first");
+        Assertions.assertEquals("3", mCheckpointStore.checkpoint(STREAM_ARN, PARENT_SHARD_ID),
+            "The checkpoint should have advanced");
+        Mockito
+            .verify(mAmazonDynamoDBStreams, Mockito.times(1))
+            .getShardIterator(Mockito.any(GetShardIteratorRequest.class));
+        Assertions.assertEquals(3.0,
+            mMeterRegistry
+                .get(TableChangeStreamConsumer.RECORDS_METER_NAME).tag("table", TABLE_NAME).counter().count(),
+            "All delivered records should be counted");
+    }
+
+    /**
+     * Tests a handler failing to handle a batch of records.
+     * Expected result:
+     * No checkpoint should be stored for the failed batch and the failure should be counted.
+     * The batch should be delivered again, starting at its first record, at the next poll.
+     */
+    @Test
+    public void handlerFailureRedeliveredTest() {
+        givenShards(List.of(new Shard().withShardId(PARENT_SHARD_ID)));
+        mRecordsByIterator.put(iterator(PARENT_SHARD_ID, ShardIteratorType.TRIM_HORIZON.toString(), null),
+            recordsResult("it-1", "1", "2"));
+        mRecordsByIterator.put(iterator(PARENT_SHARD_ID, ShardIteratorType.AT_SEQUENCE_NUMBER.toString(), "1"),
+            recordsResult("it-1", "1", "2"));
+        final TableChangeStreamConsumer theConsumer = createConsumer(ShardIteratorType.TRIM_HORIZON);
+        theConsumer.subscribe(TABLE_NAME, new TableChangeHandler() {
+            protected boolean mFailed;
+
+            @Override
+            public void handleChanges(final String inTableName, final List<Record> inRecords) {
+                if (!mFailed) {
+                    mFailed = true;
+                    throw new IllegalStateException("Simulated handler failure");
+                }
+            }
+        });
+
+        theConsumer.poll();
+        Assertions.assertNull(mCheckpointStore.checkpoint(STREAM_ARN, PARENT_SHARD_ID),
+            "No checkpoint should be stored for a failed batch");
+        Assertions.assertEquals(1.0,
+            mMeterRegistry
+                .get(TableChangeStreamConsumer.FAILURES_METER_NAME).tag("table", TABLE_NAME).counter().count(),
+            "The failure should be counted");
+
+        theConsumer.poll();
+
+        Assertions.assertEquals(List.of(List.of("1", "2"), List.of("1", "2")), mHandledBatches,
+            "The failed batch should be delivered again");
+        Assertions.assertEquals("2", mCheckpointStore.checkpoint(STREAM_ARN, PARENT_SHARD_ID),
+            "The checkpoint should be stored once the batch has been handled");
+    }
+
+    /**
+     * Tests a shard being split while the stream is consumed from the latest record.
+     * Expected result:
+     * The parent shard should be read to its end and marked as consumed.
+     * The child shard, which appeared after the stream was first polled, should then be read
+     * from its oldest record so that no change made after the split is lost.
+     */
+    @Test
+    public void closedParentShardTest() {
+        final Shard theParentShard = new Shard().withShardId(PARENT_SHARD_ID);
+        givenShards(List.of(theParentShard));
+        mRecordsByIterator.put(iterator(PARENT_SHARD_ID, ShardIteratorType.LATEST.toString(), null),
+            recordsResult("it-1"));
+        final TableChangeStreamConsumer theConsumer = createConsumer(ShardIteratorType.LATEST);
+        theConsumer.poll();
+        Assertions.assertTrue(mHandledBatches.isEmpty(), "No records should be delivered before the split");
+
+        givenShards(List.of(
+            theParentShard,
+            new Shard().withShardId(CHILD_SHARD_ID).withParentShardId(PARENT_SHARD_ID)));
+        mRecordsByIterator.put("it-1", recordsResult(null, "1"));
+        mRecordsByIterator.put(iterator(CHILD_SHARD_ID, ShardIteratorType.TRIM_HORIZON.toString(), null),
+            recordsResult("it-2", "2"));
+        theConsumer.poll();
+
+        Assertions.assertEquals(List.of(List.of("1"), List.of("2")), mHandledBatches,
+            "The records of the parent shard should be delivered before the records of the child shard");
+        Assertions.assertEquals(StreamCheckpointStore.SHARD_END,
+            mCheckpointStore.checkpoint(STREAM_ARN, PARENT_SHARD_ID),
+            "The parent shard should be marked as consumed to its end");
+        Assertions.assertEquals("2", mCheckpointStore.checkpoint(STREAM_ARN, CHILD_SHARD_ID),
+            "The child shard should have been consumed");
+    }
+
+    /**
+     * Creates a consumer that records the batches delivered to its handler.
+     *
+     * @param inInitialPosition Position from which shards are read when the stream is first polled.
+     * @return Stream consumer, not started.
+     */
+    protected TableChangeStreamConsumer createConsumer(final ShardIteratorType inInitialPosition) {
+        final TableChangeStreamConsumer theConsumer = new TableChangeStreamConsumer(mAmazonDynamoDB,
+            mAmazonDynamoDBStreams, mCheckpointStore, inInitialPosition, 1000, 1000L, mMeterRegistry);
+        theConsumer.subscribe(TABLE_NAME, (theTableName, theRecords) -> mHandledBatches.add(theRecords
+            .stream()
+            .map(theRecord -> theRecord.getDynamodb().getSequenceNumber())
+            .collect(Collectors.toList())));
+        return theConsumer;
+    }
+
+    /**
+     * Makes the stream of the table consist of the supplied shards.
+     *
+     * @param inShards Shards of stream.
+     */
+    protected void givenShards(final List<Shard> inShards) {
+        Mockito
+            .when(mAmazonDynamoDBStreams.describeStream(Mockito.any(DescribeStreamRequest.class)))
+            .thenReturn(new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                .withStreamArn(STREAM_ARN)
+                .withShards(inShards)));
+    }
+
+    /**
+     * Creates the name of the shard iterator created for the supplied shard and position.
+     *
+     * @param inShardId Shard id.
+     * @param inShardIteratorType Position.
+     * @param inSequenceNumber Sequence number, may be null.
+     * @return Shard iterator.
+     */
+    protected static String iterator(
+        final String inShardId,
+        final String inShardIteratorType,
+        final String inSequenceNumber) {
+        return inShardId + "/" + inShardIteratorType + "/" + inSequenceNumber;
+    }
+
+    /**
+     * Creates the result of a read of a shard containing records with the supplied sequence numbers.
+     *
+     * @param inNextShardIterator Iterator from which to continue reading, null if the shard has ended.
+     * @param inSequenceNumbers Sequence numbers of records read.
+     * @return Read result.
+     */
+    protected static GetRecordsResult recordsResult(
+        final String inNextShardIterator,
+        final String... inSequenceNumbers) {
+        final List<Record> theRecords = new ArrayList<>();
+        for (String theSequenceNumber : inSequenceNumbers) {
+            theRecords.add(new Record()
+                .withEventName("INSERT")
+                .withDynamodb(new StreamRecord().withSequenceNumber(theSequenceNumber)));
+        }
+        return new GetRecordsResult().withRecords(theRecords).withNextShardIterator(inNextShardIterator);
+    }
+}
@@ -0,0 +1,194 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests of the snapshotter that exports tables to and imports tables from compressed snapshot files.
+ *
+ * @author Ivan Krizsan
+ */
+class TableSnapshotterTests {
+    /* Constant(s): */
+    protected final static String TABLE_NAME_PREFIX = "test_";
+    protected final static String CIRCLES_TABLE_NAME = TABLE_NAME_PREFIX + "circles";
+    protected final static int CIRCLES_COUNT = 60;
+    protected final static int SCAN_SEGMENTS = 4;
+
+    /* Instance variable(s): */
+    protected ExecutorService mExecutor;
+    @TempDir
+    protected Path mTemporaryDirectory;
+
+    /**
+     * Creates the executor on which scans and batch writes are performed before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mExecutor = Executors.newFixedThreadPool(SCAN_SEGMENTS);
+    }
+
+    /**
+     * Shuts down the executor after each test.
+     */
+    @AfterEach
+    public void cleanup() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Tests exporting a table of circles and importing the snapshot into an empty table of circles
+     * in another DynamoDB instance.
+     * Expected result:
+     * The snapshot file should be compressed and contain one line per circle.
+     * The imported table should contain the same items as the exported table.
+     */
+    @Test
+    public void exportImportTest() throws Exception {
+        final InMemoryAmazonDynamoDB theSourceDynamoDB = new InMemoryAmazonDynamoDB();
+        final ParallelBatchWriter theSourceBatchWriter = createBatchWriter(theSourceDynamoDB);
+        final List<Circle> theCircles = new ArrayList<>();
+        for (int i = 0; i < CIRCLES_COUNT; i++) {
+            final Circle theCircle = new Circle();
+            theCircle.setColour(i % 2 == 0 ? "red" : "blue");
+            theCircle.setRadius(i + 1);
+            theCircle.setPosition(i, -i);
+            theCircles.add(theCircle);
+        }
+        Assertions.assertTrue(theSourceBatchWriter.batchSave(theCircles).isEmpty(), "The circles should be written");
+        final Path theSnapshotFile = mTemporaryDirectory.resolve("circles.json.gz");
+        final InMemoryAmazonDynamoDB theTargetDynamoDB = new InMemoryAmazonDynamoDB();
+
+        final long theExportedCount =
+            createSnapshotter(theSourceDynamoDB, theSourceBatchWriter).exportTable(Circle.class, theSnapshotFile);
+        final long theImportedCount = createSnapshotter(theTargetDynamoDB, createBatchWriter(theTargetDynamoDB))
+            .importTable(Circle.class, theSnapshotFile);
+
+        Assertions.assertEquals(CIRCLES_COUNT, theExportedCount, "All circles should have been exported");
+        Assertions.assertEquals(CIRCLES_COUNT, theImportedCount, "All circles should have been imported");
+        try (BufferedReader theReader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(theSnapshotFile)), StandardCharsets.UTF_8))) {
+            Assertions.assertEquals(CIRCLES_COUNT, theReader.lines().count(),
+                "The snapshot should contain one line per circle");
+        }
+        Assertions.assertEquals(
+            new HashSet<>(theSourceDynamoDB.scan(new ScanRequest(CIRCLES_TABLE_NAME)).getItems()),
+            new HashSet<>(theTargetDynamoDB.scan(new ScanRequest(CIRCLES_TABLE_NAME)).getItems()),
+            "The imported table should contain the exported items");
+    }
+
+    /**
+     * Tests writing and reading back an item containing attribute values of all types.
+     * Expected result:
+     * The item read should be equal to the item written.
+     */
+    @Test
+    public void itemRoundTripTest() throws Exception {
+        final Map<String, AttributeValue> theItem = new LinkedHashMap<>();
+        theItem.put("s", new AttributeValue("text \"quoted\"\n"));
+        theItem.put("n", new AttributeValue().withN("-12.5"));
+        theItem.put("b", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {0, 1, -2})));
+        theItem.put("ss", new AttributeValue().withSS("a", "b"));
+        theItem.put("ns", new AttributeValue().withNS("1", "2"));
+        theItem.put("bs", new AttributeValue().withBS(ByteBuffer.wrap(new byte[] {3}), ByteBuffer.wrap(new byte[0])));
+        theItem.put("m", new AttributeValue().withM(Map.of("nested", new AttributeValue("value"))));
+        theItem.put("l", new AttributeValue().withL(new AttributeValue().withBOOL(true), new AttributeValue("x")));
+        theItem.put("bool", new AttributeValue().withBOOL(false));
+        theItem.put("null", new AttributeValue().withNULL(true));
+        final StringWriter theWriter = new StringWriter();
+
+        try (JsonGenerator theGenerator = TableSnapshotter.JSON_FACTORY.createGenerator(theWriter)) {
+            TableSnapshotter.writeItem(theGenerator, theItem);
+        }
+        final Map<String, AttributeValue> theReadItem;
+        try (JsonParser theParser = TableSnapshotter.JSON_FACTORY.createParser(theWriter.toString())) {
+            theParser.nextToken();
+            theReadItem = TableSnapshotter.readItem(theParser);
+        }
+
+        Assertions.assertEquals(theItem, theReadItem, "The item read should be equal to the item written");
+    }
+
+    /**
+     * Creates a batch writer writing to the supplied DynamoDB, in which the circles table is created.
+     *
+     * @param inAmazonDynamoDB DynamoDB to write to.
+     * @return New batch writer.
+     */
+    protected ParallelBatchWriter createBatchWriter(final InMemoryAmazonDynamoDB inAmazonDynamoDB) {
+        new DynamoDBSchemaManager(inAmazonDynamoDB, createMapper(inAmazonDynamoDB), BillingMode.PAY_PER_REQUEST,
+            0L, 0L, 10000, 10)
+            .createTablesIfNotExist(List.of(Circle.class));
+        return new ParallelBatchWriter(inAmazonDynamoDB, createItemConverter(inAmazonDynamoDB), mExecutor, 3, 1L, 5L);
+    }
+
+    /**
+     * Creates a snapshotter for tables in the supplied DynamoDB.
+     *
+     * @param inAmazonDynamoDB DynamoDB containing tables.
+     * @param inParallelBatchWriter Batch writer writing to the DynamoDB.
+     * @return New snapshotter.
+     */
+    protected TableSnapshotter createSnapshotter(
+        final InMemoryAmazonDynamoDB inAmazonDynamoDB,
+        final ParallelBatchWriter inParallelBatchWriter) {
+        final ItemConverter theItemConverter = createItemConverter(inAmazonDynamoDB);
+        return new TableSnapshotter(
+            theItemConverter,
+            new ParallelScanner(inAmazonDynamoDB, theItemConverter, mExecutor, 2),
+            inParallelBatchWriter,
+            SCAN_SEGMENTS,
+            2,
+            0L);
+    }
+
+    /**
+     * Creates an item converter using a mapper that prefixes table names.
+     */
+    protected static ItemConverter createItemConverter(final InMemoryAmazonDynamoDB inAmazonDynamoDB) {
+        return new MapperItemConverter(createMapper(inAmazonDynamoDB), createMapperConfig());
+    }
+
+    /**
+     * Creates a mapper that prefixes table names.
+     */
+    protected static DynamoDBMapper createMapper(final InMemoryAmazonDynamoDB inAmazonDynamoDB) {
+        return new DynamoDBMapper(inAmazonDynamoDB, createMapperConfig());
+    }
+
+    /**
+     * Creates a mapper configuration that prefixes table names.
+     */
+    protected static DynamoDBMapperConfig createMapperConfig() {
+        return new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(TABLE_NAME_PREFIX))
+            .build();
+    }
+}
@@ -0,0 +1,159 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import se.ivankrizsan.springdata.dynamodb.domain.Circle;
+import se.ivankrizsan.springdata.dynamodb.domain.EntityWithStringId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the write-behind writer that coalesces saved entities and writes them in batches.
+ *
+ * @author Ivan Krizsan
+ */
+class WriteBehindWriterTests {
+    /* Constant(s): */
+    protected final static int CAPACITY = 2;
+    /** Flush window long enough for flushes never to be triggered by the window during a test. */
+    protected final static long FLUSH_WINDOW_MILLIS = 60000L;
+
+    /* Instance variable(s): */
+    protected ParallelBatchWriter mParallelBatchWriter;
+    protected MeterRegistry mMeterRegistry;
+    protected WriteBehindWriter mWriteBehindWriter;
+
+    /**
+     * Creates a write-behind writer using a mock batch writer before each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mParallelBatchWriter = Mockito.mock(ParallelBatchWriter.class);
+        Mockito.when(mParallelBatchWriter.batchSave(Mockito.any())).thenReturn(Collections.emptyList());
+        mMeterRegistry = new SimpleMeterRegistry();
+        mWriteBehindWriter = new WriteBehindWriter(
+            mParallelBatchWriter,
+            theEntity -> ((EntityWithStringId) theEntity).getId(),
+            CAPACITY,
+            FLUSH_WINDOW_MILLIS,
+            mMeterRegistry);
+    }
+
+    /**
+     * Closes the write-behind writer after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        mWriteBehindWriter.close();
+    }
+
+    /**
+     * Tests writing the same circle repeatedly and another circle before flushing.
+     * Expected result:
+     * The circles should be written in one batch containing the last written state of
+     * the repeatedly written circle and the other circle.
+     * The futures of all writes should be completed when the batch has been written.
+     * The coalesced writes should have been counted.
+     */
+    @Test
+    public void coalesceWritesTest() {
+        final List<CompletableFuture<Void>> theFutures = new ArrayList<>();
+        Circle theLastCircle = null;
+        for (int i = 1; i <= 3; i++) {
+            theLastCircle = createCircle("circle-1", i);
+            theFutures.add(mWriteBehindWriter.write(theLastCircle));
+        }
+        final Circle theOtherCircle = createCircle("circle-2", 1);
+        theFutures.add(mWriteBehindWriter.write(theOtherCircle));
+        Assertions.assertEquals(2, mWriteBehindWriter.size(), "Two circles should be queued");
+
+        mWriteBehindWriter.flush();
+
+        final List<Object> theWrittenEntities = capturedBatch();
+        Assertions.assertEquals(List.of(theLastCircle, theOtherCircle), theWrittenEntities,
+            "The last state of each circle should be written");
+        theFutures.forEach(theFuture -> Assertions.assertTrue(
+            theFuture.isDone() && !theFuture.isCompletedExceptionally(),
+            "All writes should be completed"));
+        Assertions.assertEquals(2.0, mMeterRegistry.counter(WriteBehindWriter.COALESCED_METER_NAME).count(),
+            "The coalesced writes should be counted");
+        Assertions.assertEquals(1L, mMeterRegistry.timer(WriteBehindWriter.FLUSHES_METER_NAME).count(),
+            "The flush should be timed");
+    }
+
+    /**
+     * Tests writing more circles than fit in the queue.
+     * Expected result:
+     * Writing the circle that does not fit in the queue should block until the queue has been
+     * flushed, after which the circle should be queued.
+     */
+    @Test
+    public void backpressureTest() throws Exception {
+        final CompletableFuture<Void> theFirstFuture = mWriteBehindWriter.write(createCircle("circle-1", 1));
+        mWriteBehindWriter.write(createCircle("circle-2", 1));
+
+        mWriteBehindWriter.write(createCircle("circle-3", 1));
+
+        theFirstFuture.get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, capturedBatch().size(), "The full queue should have been flushed");
+        Assertions.assertEquals(1, mWriteBehindWriter.size(), "The last circle should be queued");
+    }
+
+    /**
+     * Tests closing the writer with queued circles.
+     * Expected result:
+     * The queued circles should be written and writing more circles should fail.
+     */
+    @Test
+    public void closeFlushesTest() {
+        final CompletableFuture<Void> theFuture = mWriteBehindWriter.write(createCircle("circle-1", 1));
+
+        mWriteBehindWriter.close();
+
+        Assertions.assertTrue(theFuture.isDone(), "The queued circle should be written");
+        Assertions.assertThrows(
+            IllegalStateException.class,
+            () -> mWriteBehindWriter.write(createCircle("circle-2", 1)),
+            "Writing to a closed writer should fail");
+    }
+
+    /**
+     * Retrieves the entities of the one batch written by the batch writer.
+     *
+     * @return Written entities.
+     */
+    @SuppressWarnings("rawtypes")
+    protected List<Object> capturedBatch() {
+        final ArgumentCaptor<Iterable> theCaptor = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(mParallelBatchWriter).batchSave(theCaptor.capture());
+        final List<Object> theEntities = new ArrayList<>();
+        for (Object theEntity : theCaptor.getValue()) {
+            theEntities.add(theEntity);
+        }
+        return theEntities;
+    }
+
+    /**
+     * Creates a circle with the supplied id and radius.
+     *
+     * @param inId Circle id.
+     * @param inRadius Circle radius.
+     * @return New circle.
+     */
+    protected static Circle createCircle(final String inId, final int inRadius) {
+        final Circle theCircle = new Circle();
+        theCircle.setId(inId);
+        theCircle.setRadius(inRadius);
+        return theCircle;
+    }
+}
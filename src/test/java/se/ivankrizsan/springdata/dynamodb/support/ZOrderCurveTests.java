@@ -0,0 +1,79 @@
+package se.ivankrizsan.springdata.dynamodb.support;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests of the mapping of two-dimensional coordinates onto a Z-order curve.
+ *
+ * @author Ivan Krizsan
+ */
+class ZOrderCurveTests {
+    /* Constant(s): */
+    protected final static int PARTITION_BITS = 4;
+    protected final static int RANDOM_POSITIONS_COUNT = 10000;
+    protected final static int MAX_DISTANCE = 1 << 20;
+
+    /**
+     * Tests covering a bounding box that crosses partition boundaries and the origin with key ranges.
+     * Expected result:
+     * There should be one key range per overlapped partition.
+     * Every position within the bounding box should be in the key range of its partition.
+     */
+    @Test
+    public void boundingBoxCoveredTest() {
+        final int theMinX = -20;
+        final int theMinY = -3;
+        final int theMaxX = 17;
+        final int theMaxY = 40;
+
+        final List<ZOrderCurve.KeyRange> theKeyRanges =
+            ZOrderCurve.ranges(theMinX, theMinY, theMaxX, theMaxY, PARTITION_BITS);
+
+        Assertions.assertEquals(
+            ZOrderCurve.partitionCount(theMinX, theMinY, theMaxX, theMaxY, PARTITION_BITS),
+            theKeyRanges.size(),
+            "There should be one key range per overlapped partition");
+        Assertions.assertEquals(4 * 4, theKeyRanges.size(), "The bounding box should overlap 16 partitions");
+        for (int theX = theMinX; theX <= theMaxX; theX++) {
+            for (int theY = theMinY; theY <= theMaxY; theY++) {
+                final long thePartition = ZOrderCurve.partition(theX, theY, PARTITION_BITS);
+                final long theKey = ZOrderCurve.key(theX, theY);
+                Assertions.assertTrue(
+                    theKeyRanges
+                        .stream()
+                        .anyMatch(theRange -> theRange.getPartition() == thePartition
+                            && theRange.getFromKey() <= theKey
+                            && theKey <= theRange.getToKey()),
+                    "Position " + theX + "," + theY + " should be covered by a key range");
+            }
+        }
+    }
+
+    /**
+     * Tests the ordering of keys of random positions.
+     * Expected result:
+     * A position that is greater than or equal to another position in both coordinates should
+     * have a key that is greater than or equal to the key of the other position, also when
+     * coordinates are negative or at the limits of the integer range.
+     */
+    @Test
+    public void keyOrderTest() {
+        final Random theRandom = new Random(4711);
+        for (int i = 0; i < RANDOM_POSITIONS_COUNT; i++) {
+            final int theX = theRandom.nextInt();
+            final int theY = theRandom.nextInt();
+            final int theGreaterX = (int) Math.min(Integer.MAX_VALUE, (long) theX + theRandom.nextInt(MAX_DISTANCE));
+            final int theGreaterY = (int) Math.min(Integer.MAX_VALUE, (long) theY + theRandom.nextInt(MAX_DISTANCE));
+            Assertions.assertTrue(
+                ZOrderCurve.key(theX, theY) <= ZOrderCurve.key(theGreaterX, theGreaterY),
+                "Key order should follow coordinate order");
+        }
+        Assertions.assertTrue(
+            ZOrderCurve.key(Integer.MIN_VALUE, Integer.MIN_VALUE) < ZOrderCurve.key(Integer.MAX_VALUE, Integer.MAX_VALUE),
+            "Key of the smallest position should be less than key of the greatest position");
+    }
+}